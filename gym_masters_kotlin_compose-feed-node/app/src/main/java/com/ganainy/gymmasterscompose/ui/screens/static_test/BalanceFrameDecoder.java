@@ -0,0 +1,211 @@
+package com.ganainy.gymmasterscompose.ui.screens.static_test;
+
+/**
+ * 平衡板ASCII帧解码："id,v1,v2,v3,v4"，以\r或\n结束
+ * 直接在字节上解析整数和小数，写入BalanceSampleRing的槽位，不创建String、数组或包装类型；
+ * 一次读取中的多帧和跨读取的半帧都由内部行缓冲处理。读取的数据不带行结束符时，
+ * 一次读取如果恰好是5个字段也按一帧处理，与原来按读取分帧的行为一致；
+ * 收到过行结束符后不再这样处理，否则跨读取的半帧（如最后一个数的前几位）会被当作一帧
+ * 去重和缺帧检测只比较序列号：不大于上一个序列号的帧丢弃，
+ * 但比上一个小很多时视为设备重启，重新开始计数
+ */
+public final class BalanceFrameDecoder {
+
+    //一帧的最大长度，超过时丢弃该行
+    private static final int MAX_LINE = 128;
+    //序列号回退超过该值视为设备重启
+    private static final int RESTART_WINDOW = 1000;
+    private static final int FIELDS = 1 + BalanceSample.CHANNELS;
+
+    //是否在没有行结束符时按读取分帧
+    private final boolean readFraming;
+    private final byte[] line = new byte[MAX_LINE];
+    private int lineLength;
+    private boolean lineOverflow;
+    //设备发送行结束符，之后只按行分帧
+    private boolean lineTerminated;
+    //解析中间结果，避免返回对象
+    private int parsePos;
+    private float parsedValue;
+    private final float[] loads = new float[BalanceSample.CHANNELS];
+
+    private int lastSequenceId = -1;
+    private long decoded;
+    private long duplicates;
+    private long missed;
+    private long malformed;
+
+    public BalanceFrameDecoder() {
+        this(true);
+    }
+
+    /**
+     * @param readFraming 没有行结束符时是否把一次读取按一帧处理；
+     *                    已知设备发送行结束符时传false，第一个行结束符之前的半帧也不会被误解码
+     */
+    public BalanceFrameDecoder(boolean readFraming) {
+        this.readFraming = readFraming;
+    }
+
+    /**
+     * 解码一次读取的数据，完整的帧写入ring
+     *
+     * @return 写入ring的采样数
+     */
+    public int feed(byte[] data, int offset, int length, BalanceSampleRing ring) {
+        int samples = 0;
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            byte b = data[i];
+            if (b == '\n' || b == '\r') {
+                lineTerminated = true;
+                if (lineLength > 0 && !lineOverflow && decodeLine(line, lineLength, ring)) {
+                    samples++;
+                }
+                lineLength = 0;
+                lineOverflow = false;
+            } else if (lineLength < MAX_LINE) {
+                line[lineLength++] = b;
+            } else {
+                lineOverflow = true;
+            }
+        }
+        // 没有行结束符的设备：一次读取就是一帧
+        if (readFraming && !lineTerminated && lineLength > 0 && !lineOverflow && countFields(line, lineLength) == FIELDS) {
+            if (decodeLine(line, lineLength, ring)) {
+                samples++;
+            }
+            lineLength = 0;
+        }
+        return samples;
+    }
+
+    /**
+     * 重新开始，用于重新打开串口
+     */
+    public void reset() {
+        lineLength = 0;
+        lineOverflow = false;
+        lineTerminated = false;
+        lastSequenceId = -1;
+    }
+
+    public long getDecodedCount() {
+        return decoded;
+    }
+
+    public long getDuplicateCount() {
+        return duplicates;
+    }
+
+    /**
+     * 按序列号间隔统计的缺失采样数
+     */
+    public long getMissedCount() {
+        return missed;
+    }
+
+    public long getMalformedCount() {
+        return malformed;
+    }
+
+    private boolean decodeLine(byte[] b, int len, BalanceSampleRing ring) {
+        parsePos = 0;
+        if (!parseNumber(b, len) || parsedValue != (int) parsedValue) {
+            malformed++;
+            return false;
+        }
+        int sequenceId = (int) parsedValue;
+        if (lastSequenceId >= 0 && sequenceId <= lastSequenceId && lastSequenceId - sequenceId < RESTART_WINDOW) {
+            duplicates++;
+            return false;
+        }
+        for (int channel = 0; channel < BalanceSample.CHANNELS; channel++) {
+            if (!parseNumber(b, len)) {
+                malformed++;
+                return false;
+            }
+            loads[channel] = parsedValue;
+        }
+        skipSpaces(b, len);
+        if (parsePos != len) {
+            malformed++;
+            return false;
+        }
+        int gap = lastSequenceId >= 0 && sequenceId > lastSequenceId ? sequenceId - lastSequenceId - 1 : 0;
+        lastSequenceId = sequenceId;
+        BalanceSample sample = ring.claim();
+        if (sample == null) {
+            // 消费者跟不上，只计入ring的overruns，不算作设备缺帧
+            return false;
+        }
+        missed += gap;
+        System.arraycopy(loads, 0, sample.loads, 0, BalanceSample.CHANNELS);
+        sample.sequenceId = sequenceId;
+        sample.missedBefore = gap;
+        sample.timestampMillis = System.currentTimeMillis();
+        decoded++;
+        ring.publish();
+        return true;
+    }
+
+    /**
+     * 从parsePos解析一个带可选符号和小数部分的数，结果放在parsedValue，parsePos移到分隔符之后
+     */
+    private boolean parseNumber(byte[] b, int len) {
+        skipSpaces(b, len);
+        int i = parsePos;
+        boolean negative = false;
+        if (i < len && (b[i] == '-' || b[i] == '+')) {
+            negative = b[i] == '-';
+            i++;
+        }
+        long integer = 0;
+        int digits = 0;
+        while (i < len && b[i] >= '0' && b[i] <= '9') {
+            integer = integer * 10 + (b[i] - '0');
+            digits++;
+            i++;
+        }
+        float value = integer;
+        if (i < len && b[i] == '.') {
+            i++;
+            float scale = 0.1f;
+            while (i < len && b[i] >= '0' && b[i] <= '9') {
+                value += (b[i] - '0') * scale;
+                scale *= 0.1f;
+                digits++;
+                i++;
+            }
+        }
+        if (digits == 0 || digits > 18) {
+            return false;
+        }
+        parsePos = i;
+        skipSpaces(b, len);
+        if (parsePos < len) {
+            if (b[parsePos] != ',') {
+                return false;
+            }
+            parsePos++;
+        }
+        parsedValue = negative ? -value : value;
+        return true;
+    }
+
+    private void skipSpaces(byte[] b, int len) {
+        while (parsePos < len && (b[parsePos] == ' ' || b[parsePos] == '\t')) {
+            parsePos++;
+        }
+    }
+
+    private static int countFields(byte[] b, int len) {
+        int fields = 1;
+        for (int i = 0; i < len; i++) {
+            if (b[i] == ',') {
+                fields++;
+            }
+        }
+        return fields;
+    }
+}
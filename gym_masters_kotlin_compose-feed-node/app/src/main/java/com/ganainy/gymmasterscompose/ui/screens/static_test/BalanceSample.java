@@ -0,0 +1,27 @@
+package com.ganainy.gymmasterscompose.ui.screens.static_test;
+
+/**
+ * 平衡板的一个采样：序列号和四路称重传感器的读数
+ * 只用基本类型字段，由BalanceSampleRing预先分配并反复使用，回调之外不要持有
+ */
+public final class BalanceSample {
+
+    //四路称重传感器
+    public static final int CHANNELS = 4;
+
+    //设备发送的序列号
+    public int sequenceId;
+    //四路读数，对应帧中"id,v1,v2,v3,v4"的v1~v4
+    public final float[] loads = new float[CHANNELS];
+    //与上一个采样之间缺失的采样数，0表示连续
+    public int missedBefore;
+    //解析时的时间
+    public long timestampMillis;
+
+    public void copyFrom(BalanceSample other) {
+        sequenceId = other.sequenceId;
+        System.arraycopy(other.loads, 0, loads, 0, CHANNELS);
+        missedBefore = other.missedBefore;
+        timestampMillis = other.timestampMillis;
+    }
+}
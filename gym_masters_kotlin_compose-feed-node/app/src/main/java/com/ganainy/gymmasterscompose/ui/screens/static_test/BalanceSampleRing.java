@@ -0,0 +1,90 @@
+package com.ganainy.gymmasterscompose.ui.screens.static_test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单生产者（串口读取线程）单消费者（主线程）的采样环形缓冲区
+ * 所有BalanceSample在创建时分配，生产者在槽位上直接写入，消费者在槽位上直接读取，不产生任何对象；
+ * 缓冲区满时丢弃新采样并计数，不覆盖消费者可能正在读取的槽位
+ */
+public final class BalanceSampleRing {
+
+    public interface Consumer {
+        /**
+         * @param sample 槽位本身，回调返回后会被复用，需要保留时用copyFrom复制
+         */
+        void onSample(BalanceSample sample);
+    }
+
+    private final BalanceSample[] slots;
+    private final int mask;
+    //下一个写入位置，只由生产者修改
+    private final AtomicLong writeSeq = new AtomicLong();
+    //下一个读取位置，只由消费者修改
+    private final AtomicLong readSeq = new AtomicLong();
+    private volatile long overruns;
+
+    /**
+     * @param capacity 槽位数，向上取整为2的幂
+     */
+    public BalanceSampleRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        slots = new BalanceSample[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new BalanceSample();
+        }
+        mask = size - 1;
+    }
+
+    /**
+     * 取得下一个可写的槽位，缓冲区满时返回null；写完后调用publish()
+     */
+    public BalanceSample claim() {
+        long write = writeSeq.get();
+        if (write - readSeq.get() >= slots.length) {
+            overruns++;
+            return null;
+        }
+        return slots[(int) write & mask];
+    }
+
+    /**
+     * 发布claim()得到的槽位
+     */
+    public void publish() {
+        writeSeq.lazySet(writeSeq.get() + 1);
+    }
+
+    /**
+     * 依次交给consumer当前所有已发布的采样
+     *
+     * @return 处理的采样数
+     */
+    public int drain(Consumer consumer) {
+        long read = readSeq.get();
+        long write = writeSeq.get();
+        for (long seq = read; seq < write; seq++) {
+            consumer.onSample(slots[(int) seq & mask]);
+        }
+        readSeq.lazySet(write);
+        return (int) (write - read);
+    }
+
+    public boolean isEmpty() {
+        return writeSeq.get() == readSeq.get();
+    }
+
+    /**
+     * 清空，只能在生产者停止后调用
+     */
+    public void clear() {
+        readSeq.set(writeSeq.get());
+    }
+
+    /**
+     * 缓冲区满而丢弃的采样数
+     */
+    public long getOverruns() {
+        return overruns;
+    }
+}
@@ -26,7 +26,10 @@ import com.ganainy.gymmasterscompose.R;
 import com.ganainy.gymmasterscompose.databinding.ActivityMainJavaBinding;
 import com.ganainy.serialportlibrary.Device;
 import com.ganainy.serialportlibrary.SerialPortFinder;
+import com.ganainy.serialportlibrary.SerialPortManager;
 import com.ganainy.serialportlibrary.SimpleSerialPortManager;
+import com.ganainy.serialportlibrary.enumerate.SerialPortEnum;
+import com.ganainy.serialportlibrary.listener.OnSerialPortDataListener;
 import com.ganainy.serialportlibrary.utils.SerialPortLogUtil;
 import com.hjq.toast.ToastUtils;
 
@@ -38,7 +41,7 @@ import com.ganainy.serialportlibrary.enumerate.SerialStatus;
 import android.content.Context;
 
 
-import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import android.util.Log;
 
@@ -53,7 +56,31 @@ public class SerialPort {
 
     private Context context;  // 添加这一行
 
-    private int lastSequenceId = -1;
+    //平衡板数据解码，只在读取线程中使用
+    private final BalanceFrameDecoder decoder = new BalanceFrameDecoder();
+    //读取线程到主线程的采样缓冲区，1秒以上的数据量
+    private final BalanceSampleRing sampleRing = new BalanceSampleRing(256);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    //主线程是否已有未执行的drainRunnable，避免每帧post一次
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final Runnable drainRunnable = new Runnable() {
+        @Override
+        public void run() {
+            // 先清除标志再读取，之后发布的采样会再次post
+            drainScheduled.set(false);
+            sampleRing.drain(sampleConsumer);
+        }
+    };
+    private final BalanceSampleRing.Consumer sampleConsumer = new BalanceSampleRing.Consumer() {
+        @Override
+        public void onSample(BalanceSample sample) {
+            if (callback != null) {
+                callback.onSample(sample);
+            }
+        }
+    };
+    private SerialPortManager serialPortManager;
+    private long lastMalformedCount;
 
 
     //mDevice: 当前选择的串口设备
@@ -61,7 +88,7 @@ public class SerialPort {
     private String[] mBaudrates;
     private int mDeviceIndex;
     private int mBaudrateIndex;
-    private boolean mOpened = false;
+    private volatile boolean mOpened = false;
     private boolean mConversionNotice = true;
     private LogFragment mLogFragment;
 
@@ -79,6 +106,16 @@ public class SerialPort {
 
     public interface SerialPortCallback {
         void onStatusChanged(boolean success, SerialStatus status, String message);
+
+        /**
+         * 解码后的平衡板采样，在主线程中回调
+         * sample会被复用，需要保留时复制其中的值
+         */
+        void onSample(BalanceSample sample);
+
+        /**
+         * 无法按"id,v1,v2,v3,v4"解码的数据
+         */
         void onDataReceived(byte[] data);
         void onDataSent(byte[] data);
     }
@@ -131,60 +168,48 @@ public class SerialPort {
 
             // 原有的打开串口代码，添加异常处理
             try {
-                boolean success = SimpleSerialPortManager.getInstance()
-                        .openSerialPort("/dev/ttyS4", 115200,
-                                (isSuccess, status) -> {
-                                    Log.d("SerialPort", "状态回调: success=" + isSuccess + ", status=" + status);
-                                    // 确保在主线程回调
-                                    new Handler(Looper.getMainLooper()).post(() -> {
-                                        if (callback != null) {
-                                            String message = getStatusMessage(status);
-                                            callback.onStatusChanged(isSuccess, status, message);
-                                        }
-                                    });
-                                },
-                                new SimpleSerialPortManager.OnDataReceivedCallback() {
-                                    @Override
-                                    public void onDataReceived(byte[] data) {
-                                        Log.d("SerialPort", "onDataReceived [ byte[] ]: " + Arrays.toString(data));
-                                        Log.d("SerialPort", "onDataReceived [ String ]: " + new String(data));
-
-                                        // 简单的序列号防重复检查
-                                        try {
-                                            String dataStr = new String(data).trim();
-                                            int currentId = extractSequenceId(dataStr);
-                                            if (currentId > lastSequenceId) {
-                                                lastSequenceId = currentId;
-
-                                                // 确保在主线程回调
-                                                new Handler(Looper.getMainLooper()).post(() -> {
-                                                    if (callback != null) {
-                                                        callback.onDataReceived(data);
-                                                    }
-                                                });
-                                            }
-                                        } catch (Exception e) {
-                                            // 解析失败时直接传递
-                                            new Handler(Looper.getMainLooper()).post(() -> {
-                                                if (callback != null) {
-                                                    callback.onDataReceived(data);
-                                                }
-                                            });
-                                        }
-                                    }
-
-                                    @Override
-                                    public void onDataSent(byte[] data) {
-                                        Log.d("SerialPort", "onDataSent [ byte[] ]: " + Arrays.toString(data));
-                                        Log.d("SerialPort", "onDataSent [ String ]: " + new String(data));
-                                        // 确保在主线程回调
-                                        new Handler(Looper.getMainLooper()).post(() -> {
-                                            if (callback != null) {
-                                                callback.onDataSent(data);
-                                            }
-                                        });
-                                    }
-                                });
+                // 直接使用SerialPortManager：数据在读取线程中解码，不经过SimpleSerialPortManager每包一次的Handler.post
+                closeSerialPort();
+                decoder.reset();
+                sampleRing.clear();
+                serialPortManager = new SerialPortManager();
+                serialPortManager.setSerialConfig(manager.getSerialConfig());
+                serialPortManager.setOnOpenSerialPortListener((serialPortEnum, device, status) -> {
+                    Log.d("SerialPort", "状态回调: status=" + status);
+                    boolean isSuccess = status == SerialStatus.SUCCESS_OPENED;
+                    mOpened = isSuccess;
+                    // 确保在主线程回调
+                    mainHandler.post(() -> {
+                        if (callback != null) {
+                            callback.onStatusChanged(isSuccess, status, getStatusMessage(status));
+                        }
+                    });
+                });
+                serialPortManager.setOnSerialPortDataListener(new OnSerialPortDataListener() {
+                    @Override
+                    public void onDataReceived(byte[] data, SerialPortEnum serialPortEnum) {
+                        // 读取线程：直接解析到环形缓冲区，去重和缺帧检测在解码器中按序列号完成
+                        if (decoder.feed(data, 0, data.length, sampleRing) > 0) {
+                            scheduleDrain();
+                        } else if (decoder.getMalformedCount() != lastMalformedCount) {
+                            // 无法解析的数据仍按原方式交给回调
+                            lastMalformedCount = decoder.getMalformedCount();
+                            mainHandler.post(() -> {
+                                if (callback != null) {
+                                    callback.onDataReceived(data);
+                                }
+                            });
+                        }
+                    }
+
+                    @Override
+                    public void onDataSent(byte[] data, SerialPortEnum serialPortEnum) {
+                        if (Log.isLoggable("SerialPort", Log.DEBUG)) {
+                            Log.d("SerialPort", "onDataSent [ String ]: " + new String(data));
+                        }
+                    }
+                });
+                boolean success = serialPortManager.openSerialPort("/dev/ttyS4", 115200);
 
                 Log.d("SerialPort", "openSerialPort 返回结果: " + success);
 
@@ -204,13 +229,6 @@ public class SerialPort {
         }
     }
 
-    private int extractSequenceId(String dataStr) {
-        // 从数据字符串中提取序列号
-        String[] parts = dataStr.split(",");
-        return Integer.parseInt(parts[0]);
-    }
-
-
     private String getStatusMessage(SerialStatus status) {
         switch (status) {
             case SUCCESS_OPENED:
@@ -235,7 +253,7 @@ public class SerialPort {
         }
 
         byte[] dataBytes = data.getBytes();
-        boolean result = SimpleSerialPortManager.getInstance().sendData(dataBytes);
+        boolean result = serialPortManager != null && serialPortManager.sendBytes(dataBytes);
 
         Log.i("SerialPort", "sendData: 发送结果 = " + result);
 
@@ -249,12 +267,36 @@ public class SerialPort {
 
     //关闭当前打开的串口
     public void closeSerialPort() {
-        //调用SimpleSerialPortManager.getInstance().closeSerialPort()关闭串口
-        SimpleSerialPortManager.getInstance().closeSerialPort();
+        if (serialPortManager != null) {
+            serialPortManager.closeSerialPort();
+            serialPortManager = null;
+        }
+        mainHandler.removeCallbacks(drainRunnable);
+        drainScheduled.set(false);
         //将mOpened设置为false，并调用updateViewState(mOpened)更新UI
         mOpened = false;
     }
 
+    /**
+     * 解码器统计：已解码、重复、缺失、无法解析的帧数，以及缓冲区满丢弃的采样数
+     */
+    public String getDecodeStats() {
+        return "decoded=" + decoder.getDecodedCount()
+                + ", duplicate=" + decoder.getDuplicateCount()
+                + ", missed=" + decoder.getMissedCount()
+                + ", malformed=" + decoder.getMalformedCount()
+                + ", overrun=" + sampleRing.getOverruns();
+    }
+
+    /**
+     * 有新采样时通知主线程，主线程尚未处理上一次通知时不再post
+     */
+    private void scheduleDrain() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            mainHandler.post(drainRunnable);
+        }
+    }
+
     /**
      * 字节数组转16进制
      *
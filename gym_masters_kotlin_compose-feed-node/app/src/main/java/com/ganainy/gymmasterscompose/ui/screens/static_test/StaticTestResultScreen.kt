@@ -142,13 +142,14 @@ fun StaticTestResultScreen(exercise: StaticExercise?, navigateBack: () -> Unit)
                     }
                 }
 
+                override fun onSample(sample: BalanceSample) {
+                    // sample会被复用，ViewModel中只取值
+                    viewModel.processSample(sample)
+                }
+
                 override fun onDataReceived(data: ByteArray) {
-                    Log.d("StaticTestResultScreen", "收到数据回调: ${String(data)}")
-                    val dataStr = String(data)
-                    logData.appendLine("[${System.currentTimeMillis()}] 接收数据: $dataStr")
-                    Log.d("StaticTestResultScreen", "logData长度: ${logData.length}")
-                    // 将数据传递给ViewModel处理
-                    viewModel.processRawData(dataStr)
+                    // 无法解码的数据，记录下来以便排查
+                    logData.appendLine("[${System.currentTimeMillis()}] 无法解析的数据: ${String(data)}")
                 }
 
                 override fun onDataSent(data: ByteArray) {
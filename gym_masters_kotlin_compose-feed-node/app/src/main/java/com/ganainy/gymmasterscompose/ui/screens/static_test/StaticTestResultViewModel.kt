@@ -140,6 +140,22 @@ class StaticTestResultViewModel @Inject constructor(
         }
     }
 
+    // 处理串口读取线程已解码、去重的采样，在主线程中调用
+    fun processSample(sample: BalanceSample) {
+        val loads = sample.loads
+        dataChannel.trySend(
+            SensorData(
+                timestamp = sample.timestampMillis,
+                sequenceId = sample.sequenceId,
+                variable1 = loads[0],
+                variable2 = loads[1],
+                variable3 = loads[2],
+                variable4 = loads[3]
+            )
+        )
+        lastSequenceId = sample.sequenceId
+    }
+
     private fun parseSensorData(dataString: String): SensorData {
         // 假设数据格式为 "id,v1,v2,v3,v4"
         val parts = dataString.split(",").map { it.trim().toFloat() }
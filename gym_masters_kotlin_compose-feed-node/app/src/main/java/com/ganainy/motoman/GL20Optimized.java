@@ -3,84 +3,196 @@ package com.ganainy.motoman;
 import java.nio.Buffer;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
-import java.util.HashSet;
-import java.util.Hashtable;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
+import java.util.Arrays;
 
 import com.badlogic.gdx.graphics.GL20;
-
+import com.badlogic.gdx.graphics.GL30;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntIntMap;
+import com.badlogic.gdx.utils.IntMap;
+
+/**
+ * Skips GL state calls that would not change the current state.
+ * State is kept in primitive arrays indexed by capability, texture unit and vertex attribute slot,
+ * and in int-keyed maps for texture parameters and per-program uniform locations, so the render
+ * thread neither boxes integers nor takes locks. Every cached call is counted as issued or skipped;
+ * {@link #beginFrame()} makes the counts of the previous frame available.
+ * On GL ES 3.0 the instanced draw and attribute divisor calls are available too, so that they go
+ * through the same attribute bookkeeping as the other draws.
+ */
 public class GL20Optimized implements GL20 {
 	
+	private static final int[] CAPS = {
+		GL_BLEND, GL_CULL_FACE, GL_DEPTH_TEST, GL_DITHER, GL_POLYGON_OFFSET_FILL,
+		GL_SAMPLE_ALPHA_TO_COVERAGE, GL_SAMPLE_COVERAGE, GL_SCISSOR_TEST, GL_STENCIL_TEST,
+		GL_TEXTURE_2D, GL_VERTEX_PROGRAM_POINT_SIZE
+	};
+	private static final byte CAP_UNKNOWN = 0;
+	private static final byte CAP_ENABLED = 1;
+	private static final byte CAP_DISABLED = 2;
+	private static final int MAX_TEXTURE_UNITS = 32;
+	private static final int TEXTURE_TARGETS = 2;
+	private static final int TEXTURE_PARAMS = 4;
+	private static final int MAX_VERTEX_ATTRIBS = 32;
+	private static final int UNKNOWN = -1;
+	
 	private GL20 gl20;
-	private Map<Integer, Boolean> capEnabled = new Hashtable<Integer, Boolean>();
+	private GL30 gl30;
+	private final byte[] capState = new byte[CAPS.length];
 	private int textureActive = GL20.GL_TEXTURE0;
-	private Map<Integer, Map<Integer, Integer>> textureTarget = new Hashtable<Integer, Map<Integer, Integer>>();
-	private Map<Integer, Map<Integer, Float>> texturePara = new Hashtable<Integer, Map<Integer, Float>>();
+	private final int[] boundTextures = new int[MAX_TEXTURE_UNITS * TEXTURE_TARGETS];
+	private final IntMap<float[]> textureParams = new IntMap<float[]>();
 	private int bindedVBO = 0;
 	private int bindedIndice = 0;
-	public Set<Integer> enabledVertexAttribArray = new HashSet<Integer>();
-	public Set<Integer> usedVertexAttribArray = new HashSet<Integer>();
-	public Set<Integer> disablingVertexAttribArray = new HashSet<Integer>();
+	private final boolean[] enabledVertexAttribArray = new boolean[MAX_VERTEX_ATTRIBS];
+	private final boolean[] usedVertexAttribArray = new boolean[MAX_VERTEX_ATTRIBS];
+	private final int[] vertexAttribDivisor = new int[MAX_VERTEX_ATTRIBS];
+	private int vertexAttribArrayEnd = 0;
 	private int shaderActive = 0;
-	private Map<Integer, Map<Integer, float[]>> shaderUniform4f = new Hashtable<Integer, Map<Integer, float[]>>();
-	private Map<Integer, Map<Integer, Integer>> shaderUniform1i = new Hashtable<Integer, Map<Integer, Integer>>();
+	private ProgramState programActive = null;
+	private final IntMap<ProgramState> programStates = new IntMap<ProgramState>();
 	private int viewportX = 0;
 	private int viewportY = 0;
 	private int viewportW = 0;
 	private int viewportH = 0;
 	private boolean requestedUnbindFrameBuffer = false;
-	private Integer blendFuncSFactor = null;
-	private Integer blendFuncDFactor = null;
-	private float[] clearColor = null;
+	private boolean blendFuncSet = false;
+	private int blendFuncSFactor = 0;
+	private int blendFuncDFactor = 0;
+	private boolean clearColorSet = false;
+	private final float[] clearColor = new float[4];
+	private int callsIssued = 0;
+	private int callsSkipped = 0;
+	private int frameCallsIssued = 0;
+	private int frameCallsSkipped = 0;
 	
 	public GL20Optimized(GL20 gl20) {
+		this(gl20, null);
+	}
+	
+	/**
+	 * @param gl30 GL ES 3.0 functions used for instancing, or null on GL ES 2.0
+	 */
+	public GL20Optimized(GL20 gl20, GL30 gl30) {
 		this.gl20 = gl20;
+		this.gl30 = gl30;
+		Arrays.fill(boundTextures, UNKNOWN);
 		textureActive = GL20.GL_TEXTURE0;
 		gl20.glActiveTexture(GL_TEXTURE0);
 		bindedVBO = 0;
 		gl20.glBindBuffer(GL_ARRAY_BUFFER, 0);
 		gl20.glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, 0);
 	}
+	
+	/**
+	 * Closes the counters of the previous frame; call once at the start of every frame.
+	 */
+	public void beginFrame() {
+		frameCallsIssued = callsIssued;
+		frameCallsSkipped = callsSkipped;
+		callsIssued = 0;
+		callsSkipped = 0;
+	}
+	
+	/**
+	 * Cached state calls passed to GL in the previous frame.
+	 */
+	public int getFrameCallsIssued() {
+		return frameCallsIssued;
+	}
+	
+	/**
+	 * Cached state calls dropped as redundant in the previous frame.
+	 */
+	public int getFrameCallsSkipped() {
+		return frameCallsSkipped;
+	}
+	
+	public boolean isInstancingSupported() {
+		return gl30 != null;
+	}
+	
+	public void glVertexAttribDivisor(int index, int divisor) {
+		if (index < 0 || index >= MAX_VERTEX_ATTRIBS) {
+			gl30.glVertexAttribDivisor(index, divisor);
+		} else if (vertexAttribDivisor[index] != divisor) {
+			vertexAttribDivisor[index] = divisor;
+			callsIssued++;
+			gl30.glVertexAttribDivisor(index, divisor);
+		} else
+			callsSkipped++;
+	}
+	
+	public void glDrawElementsInstanced(int mode, int count, int type, int indicesOffset, int instanceCount) {
+		disableUnusedVertexAttribArray();
+		unbindFrameBufferIfNeeded();
+		gl30.glDrawElementsInstanced(mode, count, type, indicesOffset, instanceCount);
+	}
+	
+	private static int capIndex(int cap) {
+		for (int i = 0; i < CAPS.length; ++i)
+			if (CAPS[i] == cap)
+				return i;
+		return UNKNOWN;
+	}
+	
+	private int boundTextureIndex(int target) {
+		int unit = textureActive - GL_TEXTURE0;
+		if (unit < 0 || unit >= MAX_TEXTURE_UNITS)
+			return UNKNOWN;
+		if (target == GL_TEXTURE_2D)
+			return unit * TEXTURE_TARGETS;
+		if (target == GL_TEXTURE_CUBE_MAP)
+			return unit * TEXTURE_TARGETS + 1;
+		return UNKNOWN;
+	}
+	
+	private static int textureParamIndex(int pname) {
+		switch (pname) {
+		case GL_TEXTURE_MIN_FILTER: return 0;
+		case GL_TEXTURE_MAG_FILTER: return 1;
+		case GL_TEXTURE_WRAP_S: return 2;
+		case GL_TEXTURE_WRAP_T: return 3;
+		default: return UNKNOWN;
+		}
+	}
 
 	@Override
 	public void glActiveTexture(int texture) {
 		if (texture != textureActive) {
 			textureActive = texture;
-			textureTarget.clear();
+			callsIssued++;
 			gl20.glActiveTexture(texture);
-		}
+		} else
+			callsSkipped++;
 	}
 
 	@Override
 	public void glBindTexture(int target, int texture) {
-		Map<Integer, Integer> m = textureTarget.get(textureActive);
-		if (m == null) {
-			m = new Hashtable<Integer, Integer>();
-			m.put(target, texture);
-			textureTarget.put(textureActive, m);
+		int i = boundTextureIndex(target);
+		if (i == UNKNOWN) {
 			gl20.glBindTexture(target, texture);
-		} else {
-			Integer t = m.get(target);
-			if (t == null ||
-				t.intValue() != texture) {
-				m.put(target, texture);
-				gl20.glBindTexture(target, texture);
-			}
-		}
+		} else if (boundTextures[i] != texture) {
+			boundTextures[i] = texture;
+			callsIssued++;
+			gl20.glBindTexture(target, texture);
+		} else
+			callsSkipped++;
 	}
 
 	@Override
 	public void glBlendFunc(int sfactor, int dfactor) {
-		if (blendFuncSFactor == null ||
-			blendFuncDFactor == null ||
-			sfactor != blendFuncSFactor.intValue() ||
-			dfactor != blendFuncDFactor.intValue()) {
+		if (!blendFuncSet ||
+			sfactor != blendFuncSFactor ||
+			dfactor != blendFuncDFactor) {
+			blendFuncSet = true;
 			blendFuncSFactor = sfactor;
 			blendFuncDFactor = dfactor;
+			callsIssued++;
 			gl20.glBlendFunc(sfactor, dfactor);
-		}
+		} else
+			callsSkipped++;
 	}
 
 	@Override
@@ -90,14 +202,20 @@ public class GL20Optimized implements GL20 {
 
 	@Override
 	public void glClearColor(float red, float green, float blue, float alpha) {
-		if (clearColor == null ||
+		if (!clearColorSet ||
 			clearColor[0] != red ||
 			clearColor[1] != green ||
 			clearColor[2] != blue ||
 			clearColor[3] != alpha) {
-			clearColor = new float[] { red, green, blue, alpha };
+			clearColorSet = true;
+			clearColor[0] = red;
+			clearColor[1] = green;
+			clearColor[2] = blue;
+			clearColor[3] = alpha;
+			callsIssued++;
 			gl20.glClearColor(red, green, blue, alpha);
-		}
+		} else
+			callsSkipped++;
 	}
 
 	@Override
@@ -150,13 +268,11 @@ public class GL20Optimized implements GL20 {
 	@Override
 	public void glDeleteTextures(int n, IntBuffer textures) {
 		for (int i = 0; i < n; ++i) {
-			for (Map<Integer, Integer> tt : textureTarget.values()) {
-				for (Entry<Integer, Integer> tte : tt.entrySet()) {
-					if (tte.getValue().intValue() == textures.get(i))
-						tt.remove(tte.getKey());
-				}
-			}
-			texturePara.remove(textures.get(i));
+			int texture = textures.get(i);
+			for (int j = 0; j < boundTextures.length; ++j)
+				if (boundTextures[j] == texture)
+					boundTextures[j] = UNKNOWN;
+			textureParams.remove(texture);
 		}
 		gl20.glDeleteTextures(n, textures);
 	}
@@ -183,12 +299,15 @@ public class GL20Optimized implements GL20 {
 
 	@Override
 	public void glDisable(int cap) {
-		Boolean b = capEnabled.get(cap);
-		if (b == null ||
-			b.booleanValue() == true) {
-			capEnabled.put(cap, false);
+		int i = capIndex(cap);
+		if (i == UNKNOWN) {
 			gl20.glDisable(cap);
-		}
+		} else if (capState[i] != CAP_DISABLED) {
+			capState[i] = CAP_DISABLED;
+			callsIssued++;
+			gl20.glDisable(cap);
+		} else
+			callsSkipped++;
 	}
 
 	@Override
@@ -207,12 +326,15 @@ public class GL20Optimized implements GL20 {
 
 	@Override
 	public void glEnable(int cap) {
-		Boolean b = capEnabled.get(cap);
-		if (b == null ||
-			b.booleanValue() == false) {
-			capEnabled.put(cap, true);
+		int i = capIndex(cap);
+		if (i == UNKNOWN) {
 			gl20.glEnable(cap);
-		}
+		} else if (capState[i] != CAP_ENABLED) {
+			capState[i] = CAP_ENABLED;
+			callsIssued++;
+			gl20.glEnable(cap);
+		} else
+			callsSkipped++;
 	}
 
 	@Override
@@ -308,44 +430,42 @@ public class GL20Optimized implements GL20 {
 		gl20.glTexImage2D(target, level, internalformat, width, height, border, format, type, pixels);
 	}
 	
+	private float[] boundTextureParams(int target) {
+		int i = boundTextureIndex(target);
+		if (i == UNKNOWN || boundTextures[i] == UNKNOWN)
+			return null;
+		float[] params = textureParams.get(boundTextures[i]);
+		if (params == null) {
+			params = new float[TEXTURE_PARAMS];
+			Arrays.fill(params, Float.NaN);
+			textureParams.put(boundTextures[i], params);
+		}
+		return params;
+	}
+	
 	private boolean isRunGLTexParameter(int target, int pname, float param) {
-		Map<Integer, Integer> mt = textureTarget.get(textureActive);
-		if (mt == null)
+		int p = textureParamIndex(pname);
+		if (p == UNKNOWN)
+			return true;
+		float[] params = boundTextureParams(target);
+		if (params == null)
+			return true;
+		if (params[p] != param) {
+			params[p] = param;
+			callsIssued++;
 			return true;
-		else {
-			Integer t = mt.get(target);
-			if (t == null)
-				return true;
-			Map<Integer, Float> m = texturePara.get(t.intValue());
-			if (m == null) {
-				m = new Hashtable<Integer, Float>();
-				m.put(pname, param);
-				texturePara.put(t, m);
-				return true;
-			} else {
-				Float f = m.get(pname);
-				if (f == null ||
-					f != param) {
-					m.put(pname, param);
-					return true;
-				} else
-					return false;
-			}
 		}
+		callsSkipped++;
+		return false;
 	}
 	
 	private void invalidateIsRunGLTexParameter(int target, int pname) {
-		Map<Integer, Integer> mt = textureTarget.get(textureActive);
-		if (mt == null)
+		int p = textureParamIndex(pname);
+		if (p == UNKNOWN)
 			return;
-		Integer t = mt.get(target);
-		if (t == null)
-			return;
-		
-		Map<Integer, Float> m = texturePara.get(t);
-		if (m == null)
-			return;
-		m.remove(pname);
+		float[] params = boundTextureParams(target);
+		if (params != null)
+			params[p] = Float.NaN;
 	}
 
 	@Override
@@ -429,8 +549,7 @@ public class GL20Optimized implements GL20 {
 	@Override
 	public void glBlendFuncSeparate(int srcRGB, int dstRGB, int srcAlpha,
 			int dstAlpha) {
-		blendFuncSFactor = null;
-		blendFuncDFactor = null;
+		blendFuncSet = false;
 		gl20.glBlendFuncSeparate(srcRGB, dstRGB, srcAlpha, dstAlpha);
 	}
 
@@ -496,10 +615,10 @@ public class GL20Optimized implements GL20 {
 
 	@Override
 	public void glDeleteProgram(int program) {
+		programStates.remove(program);
 		if (program == shaderActive) {
-			shaderUniform4f.remove(shaderActive);
-			shaderUniform1i.remove(shaderActive);
 			shaderActive = 0;
+			programActive = null;
 			gl20.glUseProgram(0);
 		}
 		gl20.glDeleteProgram(program);
@@ -522,10 +641,12 @@ public class GL20Optimized implements GL20 {
 
 	@Override
 	public void glDetachShader(int program, int shader) {
+		ProgramState state = programStates.get(program);
+		if (state != null)
+			state.clear();
 		if (program == shaderActive) {
-			shaderUniform4f.remove(shaderActive);
-			shaderUniform1i.remove(shaderActive);
 			shaderActive = 0;
+			programActive = null;
 			gl20.glUseProgram(0);
 		}
 		gl20.glDetachShader(program, shader);
@@ -844,17 +965,19 @@ public class GL20Optimized implements GL20 {
 
     @Override
 	public void glUniform1i(int location, int x) {
-		Map<Integer, Integer> m = shaderUniform1i.get(shaderActive);
-		if (m == null) {
-			m = new Hashtable<Integer, Integer>();
-			shaderUniform1i.put(shaderActive, m);
-		}
-		Integer i = m.get(location);
-		if (i == null ||
-			i.intValue() != x) {
-			m.put(location, x);
-			gl20.glUniform1i(location, x);
+		ProgramState state = activeProgramState();
+		int slot = state.uniform1iSlots.get(location, UNKNOWN);
+		if (slot == UNKNOWN) {
+			state.uniform1iSlots.put(location, state.uniform1iValues.size);
+			state.uniform1iValues.add(x);
+		} else if (state.uniform1iValues.items[slot] != x) {
+			state.uniform1iValues.items[slot] = x;
+		} else {
+			callsSkipped++;
+			return;
 		}
+		callsIssued++;
+		gl20.glUniform1i(location, x);
 	}
 
 	@Override
@@ -929,27 +1052,31 @@ public class GL20Optimized implements GL20 {
 
     @Override
 	public void glUniform4f(int location, float x, float y, float z, float w) {
-		Map<Integer, float[]> m = shaderUniform4f.get(shaderActive);
-		if (m == null) {
-			m = new Hashtable<Integer, float[]>();
-			shaderUniform4f.put(shaderActive, m);
-		}
-		float[] f = m.get(location);
-		if (f == null) {
-			m.put(location, new float[] { x, y, z, w });
-			gl20.glUniform4f(location, x, y, z, w);
+		ProgramState state = activeProgramState();
+		int slot = state.uniform4fSlots.get(location, UNKNOWN);
+		if (slot == UNKNOWN) {
+			state.uniform4fSlots.put(location, state.uniform4fValues.size);
+			state.uniform4fValues.add(x);
+			state.uniform4fValues.add(y);
+			state.uniform4fValues.add(z);
+			state.uniform4fValues.add(w);
 		} else {
-			if (f[0] != x ||
-				f[1] != y ||
-				f[2] != z ||
-				f[3] != w) {
-				f[0] = x;
-				f[1] = y;
-				f[2] = z;
-				f[3] = w;
-				gl20.glUniform4f(location, x, y, z, w);
+			float[] f = state.uniform4fValues.items;
+			if (f[slot] != x ||
+				f[slot + 1] != y ||
+				f[slot + 2] != z ||
+				f[slot + 3] != w) {
+				f[slot] = x;
+				f[slot + 1] = y;
+				f[slot + 2] = z;
+				f[slot + 3] = w;
+			} else {
+				callsSkipped++;
+				return;
 			}
 		}
+		callsIssued++;
+		gl20.glUniform4f(location, x, y, z, w);
 	}
 
 	@Override
@@ -1015,8 +1142,22 @@ public class GL20Optimized implements GL20 {
 		if (program != 0 &&
 			program != shaderActive) {
 			shaderActive = program;
+			programActive = null;
+			callsIssued++;
 			gl20.glUseProgram(program);
+		} else if (program == shaderActive)
+			callsSkipped++;
+	}
+	
+	private ProgramState activeProgramState() {
+		if (programActive == null) {
+			programActive = programStates.get(shaderActive);
+			if (programActive == null) {
+				programActive = new ProgramState();
+				programStates.put(shaderActive, programActive);
+			}
 		}
+		return programActive;
 	}
 
 	@Override
@@ -1087,24 +1228,50 @@ public class GL20Optimized implements GL20 {
 	}
 	
 	private void enableVertexAttribArray(int indx) {
-		if (!this.enabledVertexAttribArray.contains(indx)) {
-			this.enabledVertexAttribArray.add(indx);
+		if (indx < 0 || indx >= MAX_VERTEX_ATTRIBS) {
 			gl20.glEnableVertexAttribArray(indx);
+			return;
 		}
-		this.usedVertexAttribArray.add(indx);
+		if (!enabledVertexAttribArray[indx]) {
+			enabledVertexAttribArray[indx] = true;
+			if (indx >= vertexAttribArrayEnd)
+				vertexAttribArrayEnd = indx + 1;
+			callsIssued++;
+			gl20.glEnableVertexAttribArray(indx);
+		} else
+			callsSkipped++;
+		usedVertexAttribArray[indx] = true;
 	}
 	
 	private void disableUnusedVertexAttribArray() {
-		for (Integer indx : this.enabledVertexAttribArray)
-			if (!this.usedVertexAttribArray.contains(indx)) {
-				this.disablingVertexAttribArray.add(indx);
+		int end = 0;
+		for (int indx = 0; indx < vertexAttribArrayEnd; ++indx) {
+			if (enabledVertexAttribArray[indx]) {
+				if (usedVertexAttribArray[indx]) {
+					usedVertexAttribArray[indx] = false;
+					end = indx + 1;
+				} else {
+					enabledVertexAttribArray[indx] = false;
+					callsIssued++;
+					gl20.glDisableVertexAttribArray(indx);
+				}
 			}
-		this.usedVertexAttribArray.clear();
-		for (Integer indx : this.disablingVertexAttribArray) {
-			this.enabledVertexAttribArray.remove(indx);
-			gl20.glDisableVertexAttribArray(indx);
 		}
-		this.disablingVertexAttribArray.clear();
+		vertexAttribArrayEnd = end;
+	}
+	
+	private static class ProgramState {
+		final IntIntMap uniform1iSlots = new IntIntMap();
+		final IntArray uniform1iValues = new IntArray();
+		final IntIntMap uniform4fSlots = new IntIntMap();
+		final FloatArray uniform4fValues = new FloatArray();
+		
+		void clear() {
+			uniform1iSlots.clear();
+			uniform1iValues.clear();
+			uniform4fSlots.clear();
+			uniform4fValues.clear();
+		}
 	}
 
 }
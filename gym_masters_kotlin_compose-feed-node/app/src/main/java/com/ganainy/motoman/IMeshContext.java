@@ -1,9 +1,12 @@
 package com.ganainy.motoman;
 
+import java.nio.FloatBuffer;
+
 import com.badlogic.gdx.graphics.glutils.ShaderProgram;
 
 public interface IMeshContext {
 	public int getNCopies();
 	public void render(ShaderProgram shader);
 	public void render(ShaderProgram shader, int copies);
+	public void render(ShaderProgram shader, FloatBuffer skeletonMats, int copies);
 }
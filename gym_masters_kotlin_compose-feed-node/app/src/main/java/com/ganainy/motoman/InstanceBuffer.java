@@ -0,0 +1,106 @@
+package com.ganainy.motoman;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.utils.BufferUtils;
+
+/**
+ * Streams per-instance skeleton matrices for instanced draws.
+ * The matrices of one draw are appended to a single GL_STREAM_DRAW buffer which is orphaned when
+ * it is full, so a draw never writes to storage the GPU may still be reading. Each bone of an
+ * instance is a mat4 vertex attribute (a_instancemat0, a_instancemat1) with divisor 1.
+ */
+class InstanceBuffer {
+	public static final int MAX_BONES_PER_INSTANCE = 2;
+	private static final String[] ATTRIBUTES = { "a_instancemat0", "a_instancemat1" };
+	private static final String INSTANCED_UNIFORM = "instanced";
+	private static final int MATRIX_SIZE = 16 * 4;
+	private static final int CAPACITY = 64 * 1024;
+	private final static IntBuffer tmpHandle = BufferUtils.newIntBuffer(1);
+	private static InstanceBuffer instance;
+
+	public static InstanceBuffer get() {
+		if (instance == null)
+			instance = new InstanceBuffer(MotomanGame.getGL20Optimized());
+		return instance;
+	}
+
+	/**
+	 * Prepended to the vertex shaders that render instanced meshes.
+	 */
+	public static String getShaderPrefix() {
+		return MotomanGame.getGL20Optimized().isInstancingSupported() ? "#define INSTANCING\n" : "";
+	}
+
+	private final GL20Optimized gl;
+	private final int bufferHandle;
+	private int offset = CAPACITY;
+	// the matrices of the current draw
+	private int drawOffset;
+	private int stride;
+	private int bonesPerCopy;
+	private final int[] divisorLocations = new int[MAX_BONES_PER_INSTANCE * 4];
+	private int nDivisorLocations = 0;
+
+	private InstanceBuffer(GL20Optimized gl) {
+		this.gl = gl;
+		gl.glGenBuffers(1, tmpHandle);
+		bufferHandle = tmpHandle.get(0);
+	}
+
+	/**
+	 * Uploads the matrices of copies instances, bonesPerCopy matrices each, and switches shader to
+	 * the instance attributes.
+	 */
+	public void upload(ShaderProgram shader, FloatBuffer skeletonMats, int copies, int bonesPerCopy) {
+		int location = shader.fetchUniformLocation(INSTANCED_UNIFORM, false);
+		if (location < 0)
+			throw new IllegalStateException("Shader is not compiled with INSTANCING");
+		shader.setUniformi(location, 1);
+
+		int size = copies * bonesPerCopy * MATRIX_SIZE;
+		gl.glBindBuffer(GL20.GL_ARRAY_BUFFER, bufferHandle);
+		if (offset + size > CAPACITY) {
+			gl.glBufferData(GL20.GL_ARRAY_BUFFER, CAPACITY, null, GL20.GL_STREAM_DRAW);
+			offset = 0;
+		}
+		skeletonMats.position(0);
+		gl.glBufferSubData(GL20.GL_ARRAY_BUFFER, offset, size, skeletonMats);
+		drawOffset = offset;
+		stride = bonesPerCopy * MATRIX_SIZE;
+		this.bonesPerCopy = bonesPerCopy;
+		offset += size;
+	}
+
+	/**
+	 * Points the instance attributes of shader at the uploaded matrices. Has to be repeated before
+	 * every draw along with the vertex attributes. Leaves the instance buffer bound to GL_ARRAY_BUFFER.
+	 */
+	public void setAttributes(ShaderProgram shader) {
+		gl.glBindBuffer(GL20.GL_ARRAY_BUFFER, bufferHandle);
+		nDivisorLocations = 0;
+		for (int bone = 0; bone < bonesPerCopy; ++bone) {
+			int attrLocation = shader.getAttributeLocation(ATTRIBUTES[bone]);
+			if (attrLocation < 0)
+				continue;
+			for (int column = 0; column < 4; ++column) {
+				gl.glVertexAttribPointer(attrLocation + column, 4, GL20.GL_FLOAT, false, stride, drawOffset + bone * MATRIX_SIZE + column * 16);
+				gl.glVertexAttribDivisor(attrLocation + column, 1);
+				divisorLocations[nDivisorLocations++] = attrLocation + column;
+			}
+		}
+	}
+
+	/**
+	 * Restores per-vertex attributes after the instanced draws.
+	 */
+	public void unbind(ShaderProgram shader) {
+		for (int i = 0; i < nDivisorLocations; ++i)
+			gl.glVertexAttribDivisor(divisorLocations[i], 0);
+		nDivisorLocations = 0;
+		shader.setUniformi(shader.fetchUniformLocation(INSTANCED_UNIFORM, false), 0);
+	}
+}
@@ -1,5 +1,8 @@
 package com.ganainy.motoman;
 
+import java.nio.FloatBuffer;
+
+import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.Mesh;
 import com.badlogic.gdx.graphics.VertexAttribute;
 import com.badlogic.gdx.graphics.VertexAttributes;
@@ -15,7 +18,11 @@ public class InstancingModel {
 	private Model model;
 	private Mesh[] meshes;
 	private int[] nIndicesPerCopy;
+	private int[] primitiveTypes;
 	public int copies;
+	// each mesh holds a single copy drawn with glDrawElementsInstanced
+	private boolean instanced;
+	private int bonesPerCopy;
 	
 	public InstancingModel(Model model, int copies) {
 		this.model = model;
@@ -31,23 +38,35 @@ public class InstancingModel {
         MeshPart[] meshParts = meshPartsList.toArray(new MeshPart[0]);
         meshes = new Mesh[meshParts.length];
         nIndicesPerCopy = new int[meshParts.length];
+        primitiveTypes = new int[meshParts.length];
+
+        for (int i = 0; i < meshParts.length; ++i) {
+            primitiveTypes[i] = meshParts[i].primitiveType;
+            bonesPerCopy = Math.max(bonesPerCopy, getMaxSkeId(meshParts[i].mesh));
+        }
+        // without GL ES 3.0 the copies are duplicated and indexed through skeletonmat as before
+        instanced = copies > 1 &&
+            MotomanGame.getGL20Optimized().isInstancingSupported() &&
+            bonesPerCopy >= 1 &&
+            bonesPerCopy <= InstanceBuffer.MAX_BONES_PER_INSTANCE;
+        int meshCopies = instanced ? 1 : copies;
 
         for (int i = 0; i < meshes.length; ++i) {
             VertexAttributes vas = meshParts[i].mesh.getVertexAttributes();
             VertexAttribute[] vaa = new VertexAttribute[vas.size()];
             for (int j = 0; j < vaa.length; ++j) vaa[j] = vas.get(j);
             meshes[i] = new Mesh(true,
-                    meshParts[i].mesh.getNumVertices() * copies,
-                    meshParts[i].mesh.getNumIndices() * copies, vaa);
+                    meshParts[i].mesh.getNumVertices() * meshCopies,
+                    meshParts[i].mesh.getNumIndices() * meshCopies, vaa);
 
             int nVertex = meshParts[i].mesh.getNumVertices();
             int sizeVertex = meshParts[i].mesh.getVertexSize() / 4;
             float[] vertices = new float[nVertex * sizeVertex];
-            float[] vertices2 = new float[nVertex * sizeVertex * copies];
+            float[] vertices2 = new float[nVertex * sizeVertex * meshCopies];
             meshParts[i].mesh.getVertices(vertices);
             int nIndices = meshParts[i].mesh.getNumIndices();
             short[] indices = new short[nIndices];
-            short[] indices2 = new short[nIndices * copies];
+            short[] indices2 = new short[nIndices * meshCopies];
             meshParts[i].mesh.getIndices(indices);
 			
 			nIndicesPerCopy[i] = nIndices;
@@ -70,7 +89,7 @@ public class InstancingModel {
 				}
 			}
 			
-			for (int k = 0; k < copies; ++k) {
+			for (int k = 0; k < meshCopies; ++k) {
 				System.arraycopy(vertices, 0, vertices2, k * vertices.length, vertices.length);
 				System.arraycopy(indices, 0, indices2, k * nIndices, indices.length);
 				for (int l = 0; l < nIndices; ++l)
@@ -88,8 +107,55 @@ public class InstancingModel {
 			meshes[i].setIndices(indices2);
 		}
 	}
+	
+	private static int getMaxSkeId(Mesh mesh) {
+		VertexAttributes vas = mesh.getVertexAttributes();
+		VertexAttribute skeAttr = null;
+		for (int k = 0; k < vas.size(); ++k) {
+			if (vas.get(k).alias.equals("a_skeleton")) {
+				skeAttr = vas.get(k);
+				break;
+			}
+		}
+		if (skeAttr == null)
+			return 0;
+		int nVertex = mesh.getNumVertices();
+		int sizeVertex = mesh.getVertexSize() / 4;
+		int skeIdOffset = skeAttr.offset / 4;
+		float[] vertices = new float[nVertex * sizeVertex];
+		mesh.getVertices(vertices);
+		int maxSkeId = 0;
+		for (int k = 0; k < nVertex; ++k) {
+			int skeId = (int)Math.round(vertices[k * sizeVertex + skeIdOffset]);
+			if (skeId > maxSkeId) maxSkeId = skeId;
+		}
+		return maxSkeId;
+	}
+	
+	/**
+	 * Renders nInst copies, skeletonMats holding the skeleton matrices of every copy one after another.
+	 */
+	public void render(ShaderProgram program, FloatBuffer skeletonMats, int nInst) {
+		if (!instanced) {
+			program.setUniformMatrix4fv("skeletonmat", skeletonMats, nInst * bonesPerCopy, false);
+			render(program, nInst);
+			return;
+		}
+		GL20Optimized gl = MotomanGame.getGL20Optimized();
+		InstanceBuffer instanceBuffer = InstanceBuffer.get();
+		instanceBuffer.upload(program, skeletonMats, nInst, bonesPerCopy);
+		for (int i = 0; i < meshes.length; i++) {
+			meshes[i].bind(program);
+			instanceBuffer.setAttributes(program);
+			gl.glDrawElementsInstanced(primitiveTypes[i], nIndicesPerCopy[i], GL20.GL_UNSIGNED_SHORT, 0, nInst);
+			meshes[i].unbind(program);
+		}
+		instanceBuffer.unbind(program);
+	}
 
     public void render(ShaderProgram program, int nInst) {
+        if (instanced)
+            throw new IllegalStateException("Instanced model needs the skeleton matrices of each copy");
         // 使用新的 Node 架构访问 mesh parts 和 materials
         ArrayList<NodePart> nodePartsList = new ArrayList<NodePart>();
         for (Node node : model.nodes) {
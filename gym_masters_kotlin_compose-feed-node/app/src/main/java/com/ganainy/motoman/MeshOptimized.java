@@ -54,6 +54,9 @@ public class MeshOptimized {
 		public int copies;
 		public int primitiveType;
 		public ArrayList<RenderContext> renderContexts;
+		// a single copy drawn with glDrawElementsInstanced instead of copies duplicated in the buffers
+		public boolean instanced;
+		public int bonesPerCopy;
 		
 		public int getNCopies() {
 			return copies;
@@ -64,28 +67,56 @@ public class MeshOptimized {
 		}
 		
 		public void render(ShaderProgram shader, int copies) {
+			if (instanced)
+				throw new IllegalStateException("Instanced mesh needs the skeleton matrices of each copy");
 			Gdx.gl20.glBindBuffer(GL20.GL_ARRAY_BUFFER, bufferHandleV);
 			Gdx.gl20.glBindBuffer(GL20.GL_ELEMENT_ARRAY_BUFFER, bufferHandleI);
 			int nRenderContext = renderContexts.size();
 			for (int i = 0; i < nRenderContext; ++i) {
 				RenderContext rc = renderContexts.get(i);
-				int nAttr = attributes.size();
-				for (int j = 0; j < nAttr; ++j) {
-					VertexAttribute attribute = attributes.get(j);
-					shader.enableVertexAttribute(attribute.alias);
-					shader.setVertexAttribute(attribute.alias, attribute.numComponents, GL20.GL_FLOAT, false, attributes.vertexSize, attribute.offset);
-				}
+				setVertexAttributes(shader);
 				Gdx.gl20.glDrawElements(primitiveType, rc.count * copies, GL20.GL_UNSIGNED_SHORT, rc.offset * 2);
 			}
 		}
+		
+		public void render(ShaderProgram shader, FloatBuffer skeletonMats, int copies) {
+			if (!instanced) {
+				shader.setUniformMatrix4fv("skeletonmat", skeletonMats, copies * bonesPerCopy, false);
+				render(shader, copies);
+				return;
+			}
+			GL20Optimized gl = MotomanGame.getGL20Optimized();
+			InstanceBuffer instanceBuffer = InstanceBuffer.get();
+			instanceBuffer.upload(shader, skeletonMats, copies, bonesPerCopy);
+			gl.glBindBuffer(GL20.GL_ELEMENT_ARRAY_BUFFER, bufferHandleI);
+			int nRenderContext = renderContexts.size();
+			for (int i = 0; i < nRenderContext; ++i) {
+				RenderContext rc = renderContexts.get(i);
+				gl.glBindBuffer(GL20.GL_ARRAY_BUFFER, bufferHandleV);
+				setVertexAttributes(shader);
+				instanceBuffer.setAttributes(shader);
+				gl.glDrawElementsInstanced(primitiveType, rc.count, GL20.GL_UNSIGNED_SHORT, rc.offset * 2, copies);
+			}
+			instanceBuffer.unbind(shader);
+		}
+		
+		private void setVertexAttributes(ShaderProgram shader) {
+			int nAttr = attributes.size();
+			for (int j = 0; j < nAttr; ++j) {
+				VertexAttribute attribute = attributes.get(j);
+				shader.enableVertexAttribute(attribute.alias);
+				shader.setVertexAttribute(attribute.alias, attribute.numComponents, GL20.GL_FLOAT, false, attributes.vertexSize, attribute.offset);
+			}
+		}
 	}
 	
 	private class CreateOptimizedMeshResult {
 		public float[] vertice;
 		public short[] indice;
+		public int maxSkeId;
 	}
 	
-	private CreateOptimizedMeshResult createOptimizedMesh(Set<Mesh> meshes, int copies) {
+	private CreateOptimizedMeshResult createOptimizedMesh(Set<Mesh> meshes) {
 		List<float[]> verticeA = new ArrayList<float[]>();
 		List<short[]> indiceA = new ArrayList<short[]>();
 		short nVerticeT = 0;
@@ -214,29 +245,32 @@ public class MeshOptimized {
 			indice[i] = indiceReduced[indice[i]];
 		}
 		
-		if (copies > 1) {
-			float[] vertice0 = vertice;
-			short[] indice0 = indice;
-			vertice = new float[vertice0.length * copies];
-			indice = new short[indice0.length * copies];
-			for (int j = 0; j < copies; ++j) {
-				System.arraycopy(vertice0, 0, vertice, j * vertice0.length, vertice0.length);
-				for (int i = 0; i < vertice0.length / 9; ++i) {
-					vertice[j * vertice0.length + i * 9 + 8] += j * maxSkeId;
-				}
-				System.arraycopy(indice0, 0, indice, j * indice0.length, indice0.length);
-				for (int i = 0; i < indice0.length; ++i) {
-					indice[j * indice0.length + i] += j * (vertice0.length / 9);
-				}
-			}
-		}
-		
 		CreateOptimizedMeshResult result = new CreateOptimizedMeshResult();
 		result.vertice = vertice;
 		result.indice = indice;
+		result.maxSkeId = maxSkeId;
 		return result;
 	}
 	
+	private void duplicateCopies(CreateOptimizedMeshResult result, int copies) {
+		float[] vertice0 = result.vertice;
+		short[] indice0 = result.indice;
+		float[] vertice = new float[vertice0.length * copies];
+		short[] indice = new short[indice0.length * copies];
+		for (int j = 0; j < copies; ++j) {
+			System.arraycopy(vertice0, 0, vertice, j * vertice0.length, vertice0.length);
+			for (int i = 0; i < vertice0.length / 9; ++i) {
+				vertice[j * vertice0.length + i * 9 + 8] += j * result.maxSkeId;
+			}
+			System.arraycopy(indice0, 0, indice, j * indice0.length, indice0.length);
+			for (int i = 0; i < indice0.length; ++i) {
+				indice[j * indice0.length + i] += j * (vertice0.length / 9);
+			}
+		}
+		result.vertice = vertice;
+		result.indice = indice;
+	}
+	
 	private void shaftIndice(short[] indice) {
 		int numVertice = 0;
 		for (float[] vertice : vertices)
@@ -276,16 +310,32 @@ public class MeshOptimized {
 		meshContext.renderContexts = new ArrayList<RenderContext>();
 		meshContext.primitiveType = GL20.GL_TRIANGLES;
 		meshContext.copies = copies;
+		List<Material> mats = new ArrayList<Material>();
+		List<CreateOptimizedMeshResult> results = new ArrayList<CreateOptimizedMeshResult>();
 		for (Entry<Material, Set<Mesh>> kvp : matMap.entrySet()) {
-			CreateOptimizedMeshResult result = createOptimizedMesh(kvp.getValue(), copies);
+			CreateOptimizedMeshResult result = createOptimizedMesh(kvp.getValue());
+			meshContext.bonesPerCopy = Math.max(meshContext.bonesPerCopy, result.maxSkeId);
+			mats.add(kvp.getKey());
+			results.add(result);
+		}
+		// without GL ES 3.0 the copies are duplicated and indexed through skeletonmat as before
+		meshContext.instanced = copies > 1 &&
+			MotomanGame.getGL20Optimized().isInstancingSupported() &&
+			meshContext.bonesPerCopy >= 1 &&
+			meshContext.bonesPerCopy <= InstanceBuffer.MAX_BONES_PER_INSTANCE;
+		for (int i = 0; i < results.size(); ++i) {
+			CreateOptimizedMeshResult result = results.get(i);
+			int count = result.indice.length;
+			if (!meshContext.instanced && copies > 1)
+				duplicateCopies(result, copies);
 			int indiceOffset = getIndiceOffset();
 			shaftIndice(result.indice);
 			vertices.add(result.vertice);
 			indices.add(result.indice);
 			RenderContext rc = new RenderContext();
 			rc.offset = indiceOffset;
-			rc.count = result.indice.length / copies;
-			rc.mat = kvp.getKey();
+			rc.count = count;
+			rc.mat = mats.get(i);
 			meshContext.renderContexts.add(rc);
 		}
 		return meshContext;
@@ -298,7 +348,7 @@ public class MeshOptimized {
 		meshContext.copies = 1;
 		Set<Mesh> meshes = new HashSet<Mesh>();
 		meshes.add(mesh);
-		CreateOptimizedMeshResult result = createOptimizedMesh(meshes, 1);
+		CreateOptimizedMeshResult result = createOptimizedMesh(meshes);
 		int indiceOffset = getIndiceOffset();
 		shaftIndice(result.indice);
 		vertices.add(result.vertice);
@@ -15,6 +15,8 @@ public class MotomanActivity extends AndroidApplication {
         cfg.useCompass = false;
         cfg.hideStatusBar = true;
         cfg.maxSimultaneousSounds = 32;
+        // GL ES 3.0 when available for instanced track rendering, falls back to 2.0
+        cfg.useGL30 = true;
         
         initialize(new MotomanGame(), cfg);
     }
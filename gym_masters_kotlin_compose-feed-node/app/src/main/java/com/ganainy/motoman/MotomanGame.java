@@ -3,6 +3,7 @@ package com.ganainy.motoman;
 import com.badlogic.gdx.Game;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Screen;
+import com.badlogic.gdx.graphics.GL30;
 import com.ganainy.motoman.track.BasicRandom;
 import com.ganainy.motoman.track.TrackGenerator;
 
@@ -13,11 +14,14 @@ public class MotomanGame extends Game {
 	private static GL20Optimized gl20Optimized;
 	private static GL20Debug gl20Debug;
 	private static void initStaticResource() {
+		// keep GL30 to ourselves: libgdx would otherwise create VAO backed meshes whose state GL20Optimized can't see
+		GL30 gl30 = Gdx.gl30;
+		Gdx.gl30 = null;
 		if (isGL20Debug) {
 			gl20Debug = new GL20Debug(Gdx.gl20, System.out);
-			gl20Optimized = new GL20Optimized(gl20Debug);
+			gl20Optimized = new GL20Optimized(gl20Debug, gl30);
 		} else
-			gl20Optimized = new GL20Optimized(Gdx.gl20);
+			gl20Optimized = new GL20Optimized(Gdx.gl20, gl30);
 		Gdx.gl20 = gl20Optimized;
 		Gdx.gl = gl20Optimized;
 		Gdx.graphics = new GraphicsOptimized(Gdx.graphics, gl20Optimized);
@@ -47,8 +51,13 @@ public class MotomanGame extends Game {
 		setScreen(new MotomanLoadingScreen(createTrackGenerator()));
 	}
 
+	public static GL20Optimized getGL20Optimized() {
+		return gl20Optimized;
+	}
+	
 	@Override
 	public void render() {
+		gl20Optimized.beginFrame();
 		if (isGL20Debug)
 			gl20Debug.renderBegin();
 		
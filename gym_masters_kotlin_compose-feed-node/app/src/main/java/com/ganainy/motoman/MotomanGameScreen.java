@@ -1,5 +1,10 @@
 package com.ganainy.motoman;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Screen;
 import com.badlogic.gdx.graphics.*;
@@ -81,13 +86,15 @@ public class MotomanGameScreen implements Screen {
         frameBufferMesh.setIndices(new short[] { 0, 1, 2, 3 });
         frameBufferMeshContext = MeshOptimized.globalStaticMesh.add(frameBufferMesh, GL20.GL_TRIANGLE_STRIP);
         
+        // the vertex shaders of instanced meshes take the skeleton matrices as attributes on GL ES 3.0
+        String instancingPrefix = InstanceBuffer.getShaderPrefix();
         standardShader = new ShaderProgram(
-				Gdx.files.internal("data/shader.standard.vertex.txt"),
-				Gdx.files.internal("data/shader.standard.fragment.txt"));
+				instancingPrefix + Gdx.files.internal("data/shader.standard.vertex.txt").readString(),
+				Gdx.files.internal("data/shader.standard.fragment.txt").readString());
 		if (!standardShader.isCompiled()) throw new IllegalStateException("standard shader failed to compile: " + standardShader.getLog());
 		maskShader = new ShaderProgram(
-				Gdx.files.internal("data/shader.standard.vertex.txt"),
-				Gdx.files.internal("data/shader.mask.fragment.txt"));
+				instancingPrefix + Gdx.files.internal("data/shader.standard.vertex.txt").readString(),
+				Gdx.files.internal("data/shader.mask.fragment.txt").readString());
 		if (!maskShader.isCompiled()) throw new IllegalStateException("mask shader failed to compile: " + maskShader.getLog());
 		ppFinalShader = new ShaderProgram(
 				Gdx.files.internal("data/shader.postprocess.vertex.txt"),
@@ -98,8 +105,8 @@ public class MotomanGameScreen implements Screen {
 				Gdx.files.internal("data/shader.final.fragment.txt"));
 		if (!ppCopyShader.isCompiled()) throw new IllegalStateException("copy pp shader failed to compile: " + ppCopyShader.getLog());
 		ppMotionBlurShader = new ShaderProgram(
-				Gdx.files.internal("data/shader.motionblur.vertex.txt"),
-				Gdx.files.internal("data/shader.motionblur.fragment.txt"));
+				instancingPrefix + Gdx.files.internal("data/shader.motionblur.vertex.txt").readString(),
+				Gdx.files.internal("data/shader.motionblur.fragment.txt").readString());
 		if (!ppMotionBlurShader.isCompiled()) throw new IllegalStateException("motion blur pp shader failed to compile: " + ppMotionBlurShader.getLog());
 		ppBloom1Shader = new ShaderProgram(
 				Gdx.files.internal("data/shader.postprocess.vertex.txt"),
@@ -152,8 +159,23 @@ public class MotomanGameScreen implements Screen {
 	private MotomanBGMusic bgMusic;
 	private boolean wasResumed = true;
 	private boolean gameUpdating = true;
+	// segments appended to the track at a time while the rest of it is being generated
+	private static final int trackSegmentsAppendChunk = 32;
+	private TrackGenerator trackGenerator;
+	private Future<TrackData> trackGenerationResult;
+	private TrackGuideGenerator trackGuideGenerator;
+	private List<TrackSegment> appendingTrackSegments = new ArrayList<TrackSegment>();
 	
 	public MotomanGameScreen(TrackData trackData) {
+		this(trackData, null, null);
+	}
+	
+	/**
+	 * trackGenerator, if not null, is still generating the track that trackData is the start of. Its
+	 * segments are appended to the track as they are finalized. trackGenerationResult is the running
+	 * generate(), checked for a failure once generation is done.
+	 */
+	public MotomanGameScreen(TrackData trackData, TrackGenerator trackGenerator, Future<TrackData> trackGenerationResult) {
 		uiHelper = new MotorcycleUIHelper();
 
         ui = new Stage(new StretchViewport(Gdx.graphics.getWidth(), Gdx.graphics.getHeight()));
@@ -185,12 +207,19 @@ public class MotomanGameScreen implements Screen {
         ui.addActor(directionImg);
         Gdx.input.setInputProcessor(ui);
 		
-		TrackGuideGenerator trackGuideGenerator = new TrackGuideGenerator();
+		trackGuideGenerator = new TrackGuideGenerator();
 		trackGuideGenerator.earlyNoticeDistance = 8;
-		trackGuideGenerator.generate(trackData.trackSegments);
+		if (trackGenerator == null) {
+			trackGuideGenerator.generate(trackData.trackSegments);
+		} else {
+			trackGuideGenerator.begin(trackGenerator.trackLen);
+			trackGuideGenerator.append(trackData.trackSegments);
+		}
+		this.trackGenerator = trackGenerator;
+		this.trackGenerationResult = trackGenerationResult;
 		
 		skyBox = new SkyBox();
-		track = new Track(trackData, ConfigHelper.getTrackDecorationQuota());
+		track = new Track(trackData, ConfigHelper.getTrackDecorationQuota(), trackGenerator == null);
 		rider = new Rider(track);
 		motorcycle = new MainMotorcycle(track, motorcycleInputMeters);
 		motorcycle.rider = rider;
@@ -216,8 +245,38 @@ public class MotomanGameScreen implements Screen {
 		resetMotionBlurData();
 	}
 
+	private void appendTrackSegments() {
+		if (trackGenerator == null) return;
+		boolean isGenerationDone = trackGenerator.isGenerationDone();
+		if (!isGenerationDone &&
+			trackGenerator.getFinalizedSegmentCount() < trackSegmentsAppendChunk)
+			return;
+		if (isGenerationDone && trackGenerationResult != null) {
+			try {
+				// generate() has returned, so this only waits for the executor to complete the future
+				trackGenerationResult.get();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException ex) {
+				throw new IllegalStateException(ex);
+			}
+			trackGenerationResult = null;
+		}
+		appendingTrackSegments.clear();
+		trackGenerator.drainFinalizedSegments(appendingTrackSegments);
+		if (!appendingTrackSegments.isEmpty()) {
+			trackGuideGenerator.append(appendingTrackSegments);
+			track.append(appendingTrackSegments);
+		}
+		if (isGenerationDone) {
+			track.finish();
+			trackGenerator = null;
+		}
+	}
+
 	@Override
 	public void dispose() {
+		if (trackGenerator != null) trackGenerator.cancel();
 		ui.dispose();
 		mainFrameBufferA.dispose();
 		mainFrameBufferB.dispose();
@@ -302,6 +361,7 @@ public class MotomanGameScreen implements Screen {
 			wasResumed = false;
 			return;
 		}
+		appendTrackSegments();
 
 		if (gameUpdating) {
 			deltaBudget += oDelta;
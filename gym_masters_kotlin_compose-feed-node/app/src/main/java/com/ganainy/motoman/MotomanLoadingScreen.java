@@ -1,5 +1,6 @@
 package com.ganainy.motoman;
 
+import java.util.ArrayList;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -15,11 +16,16 @@ import com.badlogic.gdx.scenes.scene2d.ui.Label;
 import com.badlogic.gdx.utils.Align;
 import com.ganainy.motoman.track.TrackData;
 import com.ganainy.motoman.track.TrackGenerator;
+import com.ganainy.motoman.track.TrackSegment;
 import com.badlogic.gdx.utils.viewport.StretchViewport;
 
 public class MotomanLoadingScreen implements Screen {
 	private static BitmapFont bitmapFont;
 	private static ExecutorService genTrackSegmentsES;
+	// the game starts with this many segments, the rest is generated while playing
+	private static final int playableTrackSegments = 48;
+	// how far behind its head the generator may still backtrack
+	private static final int trackFinalizeDistance = 32;
 	
 	public static void initResource() {
 		bitmapFont = new BitmapFont();
@@ -40,12 +46,11 @@ public class MotomanLoadingScreen implements Screen {
 		ui.addActor(loadingLabel);
 		
 		this.trackGenerator = trackGenerator;
+		trackGenerator.finalizeDistance = trackFinalizeDistance;
 		trackGenerationResult = genTrackSegmentsES.submit(new Callable<TrackData>() {
 			@Override
 			public TrackData call() throws Exception {
-				TrackData td = MotomanLoadingScreen.this.trackGenerator.generate();
-				System.gc();
-				return td;
+				return MotomanLoadingScreen.this.trackGenerator.generate();
 			}
 		});
 	}
@@ -60,20 +65,26 @@ public class MotomanLoadingScreen implements Screen {
 
 	@Override
 	public void render(float delta) {
-		if (trackGenerationResult.isDone() &&
+		if ((trackGenerationResult.isDone() ||
+			trackGenerator.getFinalizedSegmentCount() >= playableTrackSegments) &&
 			!gameScreenCreating) {
 			gameScreenCreating = true;
-			final TrackData td;
-			try {
-				td = trackGenerationResult.get();
-			} catch (Exception ex) {
-				throw new IllegalStateException(ex);
+			if (trackGenerationResult.isDone()) {
+				try {
+					trackGenerationResult.get();
+				} catch (Exception ex) {
+					throw new IllegalStateException(ex);
+				}
 			}
+			final TrackData td = new TrackData();
+			td.trackSegments = new ArrayList<TrackSegment>();
+			td.randomSeed = trackGenerator.trackDataRandomSeed;
+			trackGenerator.drainFinalizedSegments(td.trackSegments);
 			
 			Gdx.app.postRunnable(new Runnable() {
 				@Override
 				public void run() {
-					MotomanGameScreen gameScreen = new MotomanGameScreen(td);
+					MotomanGameScreen gameScreen = new MotomanGameScreen(td, trackGenerator, trackGenerationResult);
 					System.gc();
 					MotomanLoadingScreen.this.gameScreen = gameScreen;
 				}
@@ -83,7 +94,9 @@ public class MotomanLoadingScreen implements Screen {
 		Gdx.gl20.glClearColor(0, 0, 0, 1);
 		Gdx.gl20.glClear(GL20.GL_COLOR_BUFFER_BIT | GL20.GL_DEPTH_BUFFER_BIT);
 		
-		int loadingProgress = (int)Math.round(trackGenerator.getGenerationProgress() * 100);
+		float progress = Math.max(trackGenerator.getGenerationProgress(),
+				trackGenerator.getFinalizedSegmentCount() / (float)playableTrackSegments);
+		int loadingProgress = gameScreenCreating ? 100 : (int)Math.round(Math.min(progress, 1) * 100);
 		loadingLabel.setText("Loading... " + loadingProgress + "%");
 		ui.draw();
 	}
@@ -71,8 +71,7 @@ public class Tile {
 			modelISkeMatsFBuf.position(i * 16);
 			modelISkeMatsFBuf.put(modelISkeMats[i].val);
 		}
-		shader.setUniformMatrix4fv("skeletonmat", modelISkeMatsFBuf, nSkeMats, false);
-		modelI.render(shader, nInst);
+		modelI.render(shader, modelISkeMatsFBuf, nInst);
 	}
 	
 	public void render(ShaderProgram shader, Camera camera) {
@@ -79,10 +79,18 @@ public class Track {
 	private float trackMapDim;
 	private int decorationQuota;
 	
-	private Vector3 tmpVec6 = new Vector3();
 	public Track(TrackData trackData, int decorationQuota) {
-		this.trackSegments = trackData.trackSegments;
+		this(trackData, decorationQuota, true);
+	}
+	
+	/**
+	 * With isComplete false trackData is only the start of a track that is still being generated,
+	 * the rest is added with append() and closed with finish().
+	 */
+	public Track(TrackData trackData, int decorationQuota, boolean isComplete) {
+		this.trackSegments = new ArrayList<TrackSegment>();
 		this.decorationQuota = decorationQuota;
+		addTrackSegments(trackData.trackSegments);
 		
 		trackModelISkeMats = new Matrix4[trackModelMeshContext.getNCopies() * 2];
 		for (int i = 0; i < trackModelISkeMats.length; ++i) trackModelISkeMats[i] = new Matrix4();
@@ -95,22 +103,7 @@ public class Track {
 		for (int i = 0; i < lampModelISkeMats.length; ++i) lampModelISkeMats[i] = new Matrix4();
 		lampModelISkeMatsFBuf = ByteBuffer.allocateDirect(lampModelMeshContext.getNCopies() * 16 * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
 		
-		for (TrackSegment ts : trackSegments) {
-			TrackSegLines tsl = (TrackSegLines)ts.attributes.get("lines");
-			TrackSegLines tslS = new TrackSegLines();
-			tmpVec6.set(tsl.h.x1, 0, tsl.h.y1).mul(trackScaleMat); tslS.h.x1 = tmpVec6.x; tslS.h.y1 = tmpVec6.z;
-			tmpVec6.set(tsl.h.x2, 0, tsl.h.y2).mul(trackScaleMat); tslS.h.x2 = tmpVec6.x; tslS.h.y2 = tmpVec6.z;
-			tmpVec6.set(tsl.t.x1, 0, tsl.t.y1).mul(trackScaleMat); tslS.t.x1 = tmpVec6.x; tslS.t.y1 = tmpVec6.z;
-			tmpVec6.set(tsl.t.x2, 0, tsl.t.y2).mul(trackScaleMat); tslS.t.x2 = tmpVec6.x; tslS.t.y2 = tmpVec6.z;
-			tmpVec6.set(tsl.l.x1, 0, tsl.l.y1).mul(trackScaleMat); tslS.l.x1 = tmpVec6.x; tslS.l.y1 = tmpVec6.z;
-			tmpVec6.set(tsl.l.x2, 0, tsl.l.y2).mul(trackScaleMat); tslS.l.x2 = tmpVec6.x; tslS.l.y2 = tmpVec6.z;
-			tmpVec6.set(tsl.r.x1, 0, tsl.r.y1).mul(trackScaleMat); tslS.r.x1 = tmpVec6.x; tslS.r.y1 = tmpVec6.z;
-			tmpVec6.set(tsl.r.x2, 0, tsl.r.y2).mul(trackScaleMat); tslS.r.x2 = tmpVec6.x; tslS.r.y2 = tmpVec6.z;
-			ts.attributes.put("linesS", tslS);
-		}
-		
 		tsStart = trackSegments.get(0);
-		tsEnd = trackSegments.get(trackSegments.size() - 1);
 		
 		trackSegmentsOfStart = new ArrayList<TrackSegment>();
 		for (int i = 0; i < 5; ++i) {
@@ -130,6 +123,57 @@ public class Track {
 			trackSegmentsOfStart.add(ts);
 		}
 		trackSegmentsOfEnd = new ArrayList<TrackSegment>();
+		if (isComplete) constructTrackEnd();
+		
+		constructTrackMap();
+	}
+	
+	/**
+	 * Adds segments following the current end of a track that is not finished yet.
+	 */
+	public void append(List<TrackSegment> tss) {
+		if (tsEnd != null) throw new IllegalStateException("Track is already finished");
+		addTrackSegments(tss);
+		drawTrackMap();
+	}
+	
+	/**
+	 * Makes the last appended segment the end of the track.
+	 */
+	public void finish() {
+		if (tsEnd != null) return;
+		constructTrackEnd();
+		drawTrackMap();
+	}
+	
+	public boolean isFinished() {
+		return tsEnd != null;
+	}
+	
+	private Vector3 tmpVec6 = new Vector3();
+	private void addTrackSegments(List<TrackSegment> tss) {
+		for (TrackSegment ts : tss) {
+			TrackSegLines tsl = (TrackSegLines)ts.attributes.get("lines");
+			TrackSegLines tslS = new TrackSegLines();
+			tmpVec6.set(tsl.h.x1, 0, tsl.h.y1).mul(trackScaleMat); tslS.h.x1 = tmpVec6.x; tslS.h.y1 = tmpVec6.z;
+			tmpVec6.set(tsl.h.x2, 0, tsl.h.y2).mul(trackScaleMat); tslS.h.x2 = tmpVec6.x; tslS.h.y2 = tmpVec6.z;
+			tmpVec6.set(tsl.t.x1, 0, tsl.t.y1).mul(trackScaleMat); tslS.t.x1 = tmpVec6.x; tslS.t.y1 = tmpVec6.z;
+			tmpVec6.set(tsl.t.x2, 0, tsl.t.y2).mul(trackScaleMat); tslS.t.x2 = tmpVec6.x; tslS.t.y2 = tmpVec6.z;
+			tmpVec6.set(tsl.l.x1, 0, tsl.l.y1).mul(trackScaleMat); tslS.l.x1 = tmpVec6.x; tslS.l.y1 = tmpVec6.z;
+			tmpVec6.set(tsl.l.x2, 0, tsl.l.y2).mul(trackScaleMat); tslS.l.x2 = tmpVec6.x; tslS.l.y2 = tmpVec6.z;
+			tmpVec6.set(tsl.r.x1, 0, tsl.r.y1).mul(trackScaleMat); tslS.r.x1 = tmpVec6.x; tslS.r.y1 = tmpVec6.z;
+			tmpVec6.set(tsl.r.x2, 0, tsl.r.y2).mul(trackScaleMat); tslS.r.x2 = tmpVec6.x; tslS.r.y2 = tmpVec6.z;
+			ts.attributes.put("linesS", tslS);
+			
+			TrackSegment prevTS = trackSegments.isEmpty() ? null : trackSegments.get(trackSegments.size() - 1);
+			ts.prev = prevTS;
+			if (prevTS != null) prevTS.next = ts;
+			trackSegments.add(ts);
+		}
+	}
+	
+	private void constructTrackEnd() {
+		tsEnd = trackSegments.get(trackSegments.size() - 1);
 		for (int i = 0; i < 5; ++i) {
 			TrackSegment ts = new TrackSegment();
 			float xOffset = tsEnd.x2 - tsEnd.x1;
@@ -146,19 +190,27 @@ public class Track {
 			ts.r2 = tsEnd.r2;
 			trackSegmentsOfEnd.add(ts);
 		}
-		
-		constructTrackMap();
 	}
 	
 	public void resume() {
 		constructTrackMap();
 	}
 	
-	private Vector3 tmpVec12 = new Vector3();
 	private void constructTrackMap() {
 		if (trackMap != null && !trackMap.isManaged()) trackMap.dispose();
 		
 		trackMap = new Texture(256, 256, Format.RGBA8888);
+		drawTrackMap();
+		trackMap.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+		trackMap.setWrap(Texture.TextureWrap.ClampToEdge, Texture.TextureWrap.ClampToEdge);
+	}
+	
+	private Vector3 tmpVec12 = new Vector3();
+	/**
+	 * Draws the whole track into trackMap, which keeps its texture so the UI showing it stays valid
+	 * while the track is appended.
+	 */
+	private void drawTrackMap() {
 		Pixmap m = new Pixmap(trackMap.getWidth(), trackMap.getHeight(), Format.RGBA8888);
 		m.setColor(1, 0.75f, 0, 0);
 		m.fill();
@@ -212,15 +264,15 @@ public class Track {
 		m.fillCircle(
 				(int)Math.round((tmpVec12.x - minX) / mD),
 				(int)Math.round((tmpVec12.z - minY) / mD), 7);
-		tmpVec12.set(tsEnd.x2, 0, tsEnd.y2).mul(trackScaleMat);
-		m.setColor(1, 0.6f, 0, 1);
-		m.fillCircle(
-				(int)Math.round((tmpVec12.x - minX) / mD),
-				(int)Math.round((tmpVec12.z - minY) / mD), 7);
+		if (tsEnd != null) {
+			tmpVec12.set(tsEnd.x2, 0, tsEnd.y2).mul(trackScaleMat);
+			m.setColor(1, 0.6f, 0, 1);
+			m.fillCircle(
+					(int)Math.round((tmpVec12.x - minX) / mD),
+					(int)Math.round((tmpVec12.z - minY) / mD), 7);
+		}
 		trackMap.draw(m, 0, 0);
 		m.dispose();
-		trackMap.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
-		trackMap.setWrap(Texture.TextureWrap.ClampToEdge, Texture.TextureWrap.ClampToEdge);
 		trackMapMinX = minX;
 		trackMapMinY = minY;
 		trackMapDim = mD;
@@ -471,8 +523,7 @@ public class Track {
 			trackModelISkeMatsFBuf.position(i * 16);
 			trackModelISkeMatsFBuf.put(trackModelISkeMats[i].val);
 		}
-		shader.setUniformMatrix4fv("skeletonmat", trackModelISkeMatsFBuf, nSkeMats, false);
-		trackModelMeshContext.render(shader, nInst);
+		trackModelMeshContext.render(shader, trackModelISkeMatsFBuf, nInst);
 	}
 	
 	private void renderLampModelI(ShaderProgram shader, Camera camera, int nInst) {
@@ -483,8 +534,7 @@ public class Track {
 			lampModelISkeMatsFBuf.position(i * 16);
 			lampModelISkeMatsFBuf.put(lampModelISkeMats[i].val);
 		}
-		shader.setUniformMatrix4fv("skeletonmat", lampModelISkeMatsFBuf, nSkeMats, false);
-		lampModelMeshContext.render(shader, nInst);
+		lampModelMeshContext.render(shader, lampModelISkeMatsFBuf, nInst);
 	}
 	
 	private boolean wasUseTmpTPF1 = false;
@@ -15,12 +15,30 @@ public class TrackGenerator {
 	public float segLen = 1;
 	public float segWidth = 1;
 	public float segPad = 0.5f;
+	/**
+	 * Segments this far behind the head are never backtracked over again. They are final and can be
+	 * taken with drainFinalizedSegments() while generate() is still running.
+	 */
+	public int finalizeDistance = Integer.MAX_VALUE;
+	/**
+	 * With finalizeDistance set, how many times the head may backtrack without getting further than
+	 * before. After that the track is ended at the head, shorter than trackLen. The head cannot
+	 * backtrack past finalized segments, so a head cornered within finalizeDistance would otherwise
+	 * be retried forever.
+	 */
+	public int maxStalledBacktracks = 200000;
 	
 	private float maxProgress = 0;
 	private float tTLen = 0;
 	
 	public long trackDataRandomSeed = 100000;
 	
+	private static final String turnAngleContextKey = "turnAngleContext";
+	private final List<TrackSegment> finalizedSegments = new ArrayList<TrackSegment>();
+	private int nFinalized = 0;
+	private volatile boolean generationDone = false;
+	private volatile boolean cancelled = false;
+	
 	private static class UpdateTurnAngleContext {
 		public int retryCount = 0;
 	}
@@ -51,10 +69,47 @@ public class TrackGenerator {
 	}
 	
 	public TrackData generate() {
+		try {
+			return doGenerate();
+		} finally {
+			generationDone = true;
+		}
+	}
+	
+	/**
+	 * Moves the segments finalized so far to tss, in track order.
+	 */
+	public synchronized void drainFinalizedSegments(List<TrackSegment> tss) {
+		tss.addAll(finalizedSegments);
+		finalizedSegments.clear();
+	}
+	
+	public synchronized int getFinalizedSegmentCount() {
+		return finalizedSegments.size();
+	}
+	
+	/**
+	 * Whether generate() has returned, after which no more segments are finalized.
+	 */
+	public boolean isGenerationDone() {
+		return generationDone;
+	}
+	
+	/**
+	 * Makes a running generate() stop and return null.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+	
+	private TrackData doGenerate() {
 		List<TrackSegment> tss = new ArrayList<TrackSegment>();
 		tTLen = 0;
+		nFinalized = 0;
+		synchronized (this) {
+			finalizedSegments.clear();
+		}
 		
-		final String turnAngleContextKey = "turnAngleContext";
 		TrackSegment lastSeg = new TrackSegment();
 		lastSeg.x1 = 0;
 		lastSeg.y1 = 0;
@@ -71,16 +126,27 @@ public class TrackGenerator {
 		Matrix4 mat = new Matrix4();
 		IsLineIntersectST st = new IsLineIntersectST();
 		TrackSegLine[] linesA = new TrackSegLine[4];
-		TrackSegLine[] linesB = new TrackSegLine[4];
+		// every segment but the last, whose end still moves with the next segment
+		TrackSegmentGrid grid = new TrackSegmentGrid(Math.max(segLen, 2 * (segWidth + segPad)));
+		// backtracks since the head last got further than before
+		int stalledBacktracks = 0;
+		int furthestSegmentCount = tss.size();
+		boolean endedEarly = false;
 		genLoop: while (tTLen < trackLen) {
+			if (cancelled) return null;
 			float turnAngle = updateTurnAngle((UpdateTurnAngleContext)lastSeg.attributes.get(turnAngleContextKey));
 			if (turnAngle != turnAngle) {
-				if (tss.size() < 2) {
+				if (finalizeDistance != Integer.MAX_VALUE && ++stalledBacktracks > maxStalledBacktracks) {
+					endedEarly = true;
+					break genLoop;
+				}
+				if (tss.size() - 1 <= nFinalized) {
 					lastSeg.attributes.put(turnAngleContextKey, new UpdateTurnAngleContext());
 				} else {
 					tTLen -= vec.set(lastSeg.x2 - lastSeg.x1, lastSeg.y2 - lastSeg.y1, 0).len();
 					lastSeg = tss.get(tss.size() - 2);
 					tss.remove(tss.size() - 1);
+					grid.pop();
 				}
 				//System.out.println("pop " + tss.size());
 				continue genLoop;
@@ -144,57 +210,32 @@ public class TrackGenerator {
 			linesA[1] = curSegLines.lp;
 			linesA[2] = curSegLines.rp;
 			linesA[3] = curSegLines.tp;
-			boolean noCollision = true;
-			trackSegCollsionTest1: for (int i = 0; noCollision && i < tss.size() - 1; ++i) {
-				TrackSegment ts = tss.get(i);
-				TrackSegLines tsLines = getLinesByPathAndAll(ts);
-				if (ts == lastSeg) continue;
-				linesB[0] = tsLines.hp;
-				linesB[1] = tsLines.lp;
-				linesB[2] = tsLines.rp;
-				linesB[3] = tsLines.tp;
-				for (TrackSegLine lineA : linesA) {
-					for (TrackSegLine lineB : linesB) {
-						if (isLineIntersect(lineA.x1, lineA.y1, lineA.x2, lineA.y2,
-								lineB.x1, lineB.y1, lineB.x2, lineB.y2)) {
-							noCollision = false;
-							break trackSegCollsionTest1;
-						}
-					}
-				}
-			}
+			boolean noCollision = !grid.intersects(linesA, 0);
 			TrackSegLines semiFinalizedLastSegLines = getLinesByPathAndAll(lastSeg);
-			linesA[0] = semiFinalizedLastSegLines.hp;
-			linesA[1] = semiFinalizedLastSegLines.lp;
-			linesA[2] = semiFinalizedLastSegLines.rp;
-			linesA[3] = semiFinalizedLastSegLines.tp;
-			trackSegCollsionTest2: for (int i = 0; noCollision && i < tss.size() - 2; ++i) {
-				TrackSegment ts = tss.get(i);
-				TrackSegLines tsLines = getLinesByPathAndAll(ts);
-				if (ts == lastSeg) continue;
-				linesB[0] = tsLines.hp;
-				linesB[1] = tsLines.lp;
-				linesB[2] = tsLines.rp;
-				linesB[3] = tsLines.tp;
-				for (TrackSegLine lineA : linesA) {
-					for (TrackSegLine lineB : linesB) {
-						if (isLineIntersect(lineA.x1, lineA.y1, lineA.x2, lineA.y2,
-								lineB.x1, lineB.y1, lineB.x2, lineB.y2)) {
-							noCollision = false;
-							break trackSegCollsionTest2;
-						}
-					}
-				}
+			if (noCollision) {
+				linesA[0] = semiFinalizedLastSegLines.hp;
+				linesA[1] = semiFinalizedLastSegLines.lp;
+				linesA[2] = semiFinalizedLastSegLines.rp;
+				linesA[3] = semiFinalizedLastSegLines.tp;
+				// the segment before lastSeg shares its head with lastSeg
+				noCollision = !grid.intersects(linesA, 1);
 			}
 			
 			if (noCollision) {
 				tTLen += vec.set(curSeg.x2 - curSeg.x1, curSeg.y2 - curSeg.y1, 0).len();
 				tss.add(curSeg);
+				grid.push(semiFinalizedLastSegLines);
 				lastSeg = curSeg;
+				if (tss.size() > furthestSegmentCount) {
+					furthestSegmentCount = tss.size();
+					stalledBacktracks = 0;
+				}
+				while (tss.size() - 1 - nFinalized > finalizeDistance)
+					finalizeSegment(tss.get(nFinalized));
 			}
 		}
 		
-		if (tTLen < trackLen) return null;
+		if (tTLen < trackLen && !endedEarly) return null;
 		
 		TrackSegment finalSeg = lastSeg;
 		TrackSegLines finalSegLines = getLinesByPathAndHead(finalSeg);
@@ -206,14 +247,8 @@ public class TrackGenerator {
 		finalSeg.r2 = rLen;
 		finalSeg.w2 = ang;
 		
-		TrackSegment prevTS = null;
-		for (TrackSegment ts : tss) {
-			ts.attributes.remove(turnAngleContextKey);
-			ts.attributes.put("lines", getLinesByPathAndAll(ts));
-			ts.prev = prevTS;
-			if (prevTS != null) prevTS.next = ts;
-			prevTS = ts;
-		}
+		while (nFinalized < tss.size())
+			finalizeSegment(tss.get(nFinalized));
 		
 		TrackData ti = new TrackData();
 		ti.trackSegments = tss;
@@ -221,6 +256,15 @@ public class TrackGenerator {
 		return ti;
 	}
 	
+	private void finalizeSegment(TrackSegment ts) {
+		ts.attributes.remove(turnAngleContextKey);
+		ts.attributes.put("lines", getLinesByPathAndAll(ts));
+		++nFinalized;
+		synchronized (this) {
+			finalizedSegments.add(ts);
+		}
+	}
+	
 	public float getGenerationProgress() {
 		float p = tTLen / trackLen;
 		if (p > 1) p = 1;
@@ -362,7 +406,7 @@ public class TrackGenerator {
 		public float s;
 	}
 	
-	private static boolean isLineIntersect(
+	static boolean isLineIntersect(
 			float ax1, float ay1, float ax2, float ay2,
 			float bx1, float by1, float bx2, float by2) {
 		return doLineIntersect(ax1, ay1, ax2, ay2, bx1, by1, bx2, by2, null);
@@ -1,5 +1,6 @@
 package com.ganainy.motoman.track;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import com.badlogic.gdx.math.Vector3;
@@ -7,6 +8,12 @@ import com.badlogic.gdx.math.Vector3;
 public class TrackGuideGenerator {
 	public float earlyNoticeDistance = 20;
 	
+	private List<TrackSegment> guidedSegments = new ArrayList<TrackSegment>();
+	private float tLen;
+	private float tLenCur;
+	private float lastTurnAngle;
+	private TrackDirection lastDir;
+	
 	Vector3 getSegAngleVec = new Vector3();
 	private float getSegAngle(TrackSegment ts) {
 		getSegAngleVec.set(ts.x2 - ts.x1, ts.y2 - ts.y1, 0).nor();
@@ -60,11 +67,30 @@ public class TrackGuideGenerator {
 			tLen += getSegLen(tss.get(i));
 		}
 		
-		float tLenCur = 0;
-		float lastTurnAngle = getSegAngle(tss.get(0));
-		TrackDirection lastDir = getDirByAngle(0);
-		for (int i = 0; i < tss.size(); ++i) {
-			TrackSegment ts = tss.get(i);
+		begin(tLen);
+		append(tss);
+	}
+	
+	/**
+	 * Starts a track whose segments are given piece by piece with append(), for a track that is
+	 * still being generated. The percentages are relative to tLen.
+	 */
+	public void begin(float tLen) {
+		this.tLen = tLen;
+		tLenCur = 0;
+		lastDir = getDirByAngle(0);
+		guidedSegments.clear();
+	}
+	
+	/**
+	 * Guides the segments following the ones given before. A direction notice may be put on the
+	 * segments given before.
+	 */
+	public void append(List<TrackSegment> tss) {
+		for (int k = 0; k < tss.size(); ++k) {
+			TrackSegment ts = tss.get(k);
+			int i = guidedSegments.size();
+			if (i == 0) lastTurnAngle = getSegAngle(ts);
 			
 			float turnAngle = getSegAngle(ts);
 			float angleDiff = turnAngle - lastTurnAngle;
@@ -86,7 +112,7 @@ public class TrackGuideGenerator {
 				TrackSegment earlyNoticeTS = ts;
 				float segLenT = 0;
 				for (int j = i - 1; j >= 0; --j) {
-					TrackSegment candidate = tss.get(j);
+					TrackSegment candidate = guidedSegments.get(j);
 					if (candidate.attributes.get("directionChange") != null) {
 						if (candidate.attributes.get("directionNotice") == null) {
 							earlyNoticeTS = candidate;
@@ -106,6 +132,7 @@ public class TrackGuideGenerator {
 			lastTurnAngle = turnAngle;
 			lastDir = dir;
 			tLenCur += getSegLen(ts);
+			guidedSegments.add(ts);
 		}
 	}
 }
@@ -0,0 +1,135 @@
+package com.ganainy.motoman.track;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.LongMap;
+
+/**
+ * Uniform grid over the padded outlines of the finished track segments, so the self-intersection
+ * test of TrackGenerator only looks at segments near the candidate.
+ * Segments are pushed and popped in stack order as the generator backtracks, so a cell only ever
+ * loses its last segment.
+ */
+class TrackSegmentGrid {
+	private static class Entry {
+		public int index;
+		public TrackSegLine[] lines = new TrackSegLine[4];
+		public int minCx, minCy, maxCx, maxCy;
+		public int queryStamp = -1;
+	}
+	
+	private static final float boundsPad = 0.001f;
+	
+	private final float cellSize;
+	private final LongMap<Array<Entry>> cells = new LongMap<Array<Entry>>();
+	private final Array<Entry> entries = new Array<Entry>();
+	private int queryStamp = 0;
+	private int minCx, minCy, maxCx, maxCy;
+	
+	public TrackSegmentGrid(float cellSize) {
+		this.cellSize = cellSize;
+	}
+	
+	public int size() {
+		return entries.size;
+	}
+	
+	/**
+	 * Adds the padded outline (hp, lp, rp, tp) of a segment whose both ends are final.
+	 */
+	public void push(TrackSegLines tsLines) {
+		Entry entry = new Entry();
+		entry.index = entries.size;
+		entry.lines[0] = tsLines.hp;
+		entry.lines[1] = tsLines.lp;
+		entry.lines[2] = tsLines.rp;
+		entry.lines[3] = tsLines.tp;
+		computeCellRange(entry.lines);
+		entry.minCx = minCx;
+		entry.minCy = minCy;
+		entry.maxCx = maxCx;
+		entry.maxCy = maxCy;
+		for (int cx = minCx; cx <= maxCx; ++cx) {
+			for (int cy = minCy; cy <= maxCy; ++cy) {
+				long key = getCellKey(cx, cy);
+				Array<Entry> cell = cells.get(key);
+				if (cell == null) {
+					cell = new Array<Entry>(false, 4);
+					cells.put(key, cell);
+				}
+				cell.add(entry);
+			}
+		}
+		entries.add(entry);
+	}
+	
+	/**
+	 * Removes the most recently pushed segment.
+	 */
+	public void pop() {
+		Entry entry = entries.pop();
+		for (int cx = entry.minCx; cx <= entry.maxCx; ++cx) {
+			for (int cy = entry.minCy; cy <= entry.maxCy; ++cy) {
+				cells.get(getCellKey(cx, cy)).pop();
+			}
+		}
+	}
+	
+	/**
+	 * Whether any of lines crosses the outline of a segment in the grid, skipping the skipTop most
+	 * recently pushed segments.
+	 */
+	public boolean intersects(TrackSegLine[] lines, int skipTop) {
+		int indexLimit = entries.size - skipTop;
+		if (indexLimit <= 0) return false;
+		++queryStamp;
+		computeCellRange(lines);
+		for (int cx = minCx; cx <= maxCx; ++cx) {
+			for (int cy = minCy; cy <= maxCy; ++cy) {
+				Array<Entry> cell = cells.get(getCellKey(cx, cy));
+				if (cell == null) continue;
+				for (int i = 0; i < cell.size; ++i) {
+					Entry entry = cell.get(i);
+					if (entry.index >= indexLimit || entry.queryStamp == queryStamp) continue;
+					entry.queryStamp = queryStamp;
+					if (isIntersect(lines, entry.lines)) return true;
+				}
+			}
+		}
+		return false;
+	}
+	
+	private static boolean isIntersect(TrackSegLine[] linesA, TrackSegLine[] linesB) {
+		for (TrackSegLine lineA : linesA) {
+			for (TrackSegLine lineB : linesB) {
+				if (TrackGenerator.isLineIntersect(lineA.x1, lineA.y1, lineA.x2, lineA.y2,
+						lineB.x1, lineB.y1, lineB.x2, lineB.y2)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+	
+	private void computeCellRange(TrackSegLine[] lines) {
+		float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE;
+		float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+		for (TrackSegLine line : lines) {
+			minX = Math.min(minX, Math.min(line.x1, line.x2));
+			minY = Math.min(minY, Math.min(line.y1, line.y2));
+			maxX = Math.max(maxX, Math.max(line.x1, line.x2));
+			maxY = Math.max(maxY, Math.max(line.y1, line.y2));
+		}
+		minCx = getCell(minX - boundsPad);
+		minCy = getCell(minY - boundsPad);
+		maxCx = getCell(maxX + boundsPad);
+		maxCy = getCell(maxY + boundsPad);
+	}
+	
+	private int getCell(float v) {
+		return (int)Math.floor(v / cellSize);
+	}
+	
+	private static long getCellKey(int cx, int cy) {
+		return ((long)cx << 32) | (cy & 0xffffffffL);
+	}
+}
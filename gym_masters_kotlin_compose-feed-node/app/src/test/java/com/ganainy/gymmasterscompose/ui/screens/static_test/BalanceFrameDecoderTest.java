@@ -0,0 +1,70 @@
+package com.ganainy.gymmasterscompose.ui.screens.static_test;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 跨读取的半帧：收到行结束符后不再按读取分帧
+ */
+public class BalanceFrameDecoderTest {
+
+    private final BalanceSampleRing ring = new BalanceSampleRing(16);
+    private final float[] lastLoads = new float[BalanceSample.CHANNELS];
+    private int lastSequenceId = -1;
+
+    private int feed(BalanceFrameDecoder decoder, String data) {
+        byte[] bytes = data.getBytes(StandardCharsets.US_ASCII);
+        return decoder.feed(bytes, 0, bytes.length, ring);
+    }
+
+    private int drain() {
+        return ring.drain(sample -> {
+            lastSequenceId = sample.sequenceId;
+            System.arraycopy(sample.loads, 0, lastLoads, 0, BalanceSample.CHANNELS);
+        });
+    }
+
+    @Test
+    public void splitFrameAfterTerminatorWaitsForLineEnd() {
+        BalanceFrameDecoder decoder = new BalanceFrameDecoder();
+        assertEquals(1, feed(decoder, "11,1,2,3,4\r\n"));
+        drain();
+
+        // 最后一个数"45"被拆到两次读取中
+        assertEquals(0, feed(decoder, "12,1.5,2,3,4"));
+        assertEquals(1, feed(decoder, "5\r\n"));
+        assertEquals(1, drain());
+        assertEquals(12, lastSequenceId);
+        assertEquals(45f, lastLoads[3], 0f);
+
+        assertEquals(1, feed(decoder, "13,1,2,3,4\r\n"));
+        drain();
+        assertEquals(13, lastSequenceId);
+        assertEquals(0, decoder.getDuplicateCount());
+        assertEquals(0, decoder.getMalformedCount());
+    }
+
+    @Test
+    public void splitFirstFrameWithoutReadFraming() {
+        BalanceFrameDecoder decoder = new BalanceFrameDecoder(false);
+        assertEquals(0, feed(decoder, "12,1.5,2,3,4"));
+        assertEquals(2, feed(decoder, "5\n13,1,2,3,4\n"));
+        drain();
+        assertEquals(13, lastSequenceId);
+        assertEquals(2, decoder.getDecodedCount());
+        assertEquals(0, decoder.getDuplicateCount());
+    }
+
+    @Test
+    public void readFramingWithoutTerminators() {
+        BalanceFrameDecoder decoder = new BalanceFrameDecoder();
+        assertEquals(1, feed(decoder, "1,1,2,3,4"));
+        assertEquals(1, feed(decoder, "2,5,6,7,8"));
+        drain();
+        assertEquals(2, lastSequenceId);
+        assertEquals(8f, lastLoads[3], 0f);
+    }
+}
@@ -172,6 +172,17 @@ public class SingleSerialPortActivity extends AppCompatActivity implements Adapt
                                         ToastUtils.show("串口打开失败");
                                         updateViewState(false);
                                         break;
+                                    case DISCONNECTED:
+                                        ToastUtils.show("串口已断开，正在重连");
+                                        break;
+                                    case RECONNECTED:
+                                        ToastUtils.show("串口已重连");
+                                        break;
+                                    case RECONNECT_FAIL:
+                                        ToastUtils.show("串口重连失败");
+                                        mOpened = false;
+                                        updateViewState(false);
+                                        break;
                                 }
                             });
                         },
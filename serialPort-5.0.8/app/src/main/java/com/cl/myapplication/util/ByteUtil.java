@@ -1,5 +1,8 @@
 package com.cl.myapplication.util;
 
+import com.cl.serialportlibrary.enumerate.ChecksumType;
+import com.cl.serialportlibrary.utils.ChecksumUtil;
+
 /**
  * name：cl
  * date：2022/12/27
@@ -63,21 +66,14 @@ public class ByteUtil {
      * 异或校验，返回一个字节
      */
     public static byte orVerification(byte[] bytes) {
-        int nAll = 0;
-        for (int i = 0; i < bytes.length; i++) {
-            int nTemp = bytes[i];
-            nAll = nAll ^ nTemp;
-        }
-        return (byte) nAll;
+        return (byte) ChecksumUtil.xor8(bytes, 0, bytes.length);
     }
 
+    /**
+     * 累加和补码校验，返回一个字节
+     */
     public static byte complement(byte[] bytes) {
-        int iSum = 0;
-        for (int i = 0; i < bytes.length; i++) {
-            iSum += bytes[i];
-        }
-        iSum = 256 - iSum;
-        return (byte) iSum;
+        return (byte) ChecksumUtil.compute(ChecksumType.SUM8_COMPLEMENT, bytes);
     }
 
 
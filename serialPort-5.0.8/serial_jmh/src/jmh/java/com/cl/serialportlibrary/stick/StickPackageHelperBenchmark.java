@@ -0,0 +1,164 @@
+package com.cl.serialportlibrary.stick;
+
+import com.cl.serialportlibrary.utils.SerialPortLogUtil;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 粘包处理器解析开销基准
+ * 每次调用把预先录制的字节流（FRAMES帧）通过ByteArrayInputStream交给处理器，按帧计数：
+ * 结果为 ns/帧，gc.alloc.rate.norm 为每帧分配的字节数
+ * frameSize为一帧在线路上的总长度，用于观察各处理器随帧长的变化
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StickPackageHelperBenchmark {
+
+    // 每次调用解析的帧数
+    static final int FRAMES = 1024;
+
+    private static final byte[] HEAD = {(byte) 0xAA, 0x55};
+    private static final byte[] TAIL = {'\r', '\n'};
+    private static final byte LENGTH_MAGIC = (byte) 0xAA;
+
+    /**
+     * 被测的处理器与对应的帧格式
+     */
+    public enum HelperType {
+        // 定长帧
+        STATIC_LEN,
+        // 0xAA 0x55 + 数据 + \r\n
+        SPECIFIED,
+        // 0xAA + 两字节大端长度 + 数据
+        VARIABLE_LEN,
+        // 每帧单独到达，超时为0，每次读取即一帧
+        TIMEOUT,
+        // 主处理器VARIABLE_LEN、备用处理器SPECIFIED，输入为VARIABLE_LEN格式，测量组合本身的开销
+        COMPOSITE
+    }
+
+    @Param
+    public HelperType helper;
+
+    @Param({"16", "64", "256", "1024", "4096"})
+    public int frameSize;
+
+    private AbsStickPackageHelper stickPackageHelper;
+    // 录制的数据，TIMEOUT每帧一个流，其余为一个连续的流
+    private ByteArrayInputStream[] streams;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SerialPortLogUtil.setDebugEnabled(false);
+        if (helper == HelperType.TIMEOUT) {
+            streams = new ByteArrayInputStream[FRAMES];
+            for (int i = 0; i < FRAMES; i++) {
+                streams[i] = new ByteArrayInputStream(record(1));
+            }
+        } else {
+            streams = new ByteArrayInputStream[]{new ByteArrayInputStream(record(FRAMES))};
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void createHelper() {
+        // 每轮重新创建，避免上一轮残留的缓冲状态
+        switch (helper) {
+            case STATIC_LEN:
+                stickPackageHelper = new StaticLenStickPackageHelper(frameSize);
+                break;
+            case SPECIFIED:
+                stickPackageHelper = new SpecifiedStickPackageHelper(HEAD, TAIL);
+                break;
+            case VARIABLE_LEN:
+                stickPackageHelper = new VariableLenStickPackageHelper(ByteOrder.BIG_ENDIAN, 2, 1, 3);
+                break;
+            case TIMEOUT:
+                stickPackageHelper = new TimeoutStickPackageHelper(0);
+                break;
+            case COMPOSITE:
+                stickPackageHelper = new CompositeStickPackageHelper(
+                        new VariableLenStickPackageHelper(ByteOrder.BIG_ENDIAN, 2, 1, 3),
+                        new SpecifiedStickPackageHelper(HEAD, TAIL));
+                break;
+            default:
+                throw new IllegalStateException("未知的处理器: " + helper);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FRAMES)
+    public int parse(Blackhole blackhole) {
+        int frames = 0;
+        int framesPerStream = FRAMES / streams.length;
+        for (ByteArrayInputStream stream : streams) {
+            stream.reset();
+            for (int i = 0; i < framesPerStream; i++) {
+                byte[] frame = stickPackageHelper.execute(stream);
+                if (frame == null && helper == HelperType.TIMEOUT) {
+                    // 超时分包每次execute()只读取一次，下一次调用才判定超时
+                    frame = stickPackageHelper.execute(stream);
+                }
+                if (frame == null || frame.length != frameSize) {
+                    throw new IllegalStateException(helper + " 解析错误，第 " + frames + " 帧");
+                }
+                blackhole.consume(frame);
+                frames++;
+            }
+        }
+        return frames;
+    }
+
+    /**
+     * 按当前格式录制count帧
+     */
+    private byte[] record(int count) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(count * frameSize);
+        for (int n = 0; n < count; n++) {
+            switch (helper) {
+                case SPECIFIED:
+                    out.write(HEAD, 0, HEAD.length);
+                    writeBody(out, frameSize - HEAD.length - TAIL.length, n);
+                    out.write(TAIL, 0, TAIL.length);
+                    break;
+                case VARIABLE_LEN:
+                case COMPOSITE:
+                    int bodyLength = frameSize - 3;
+                    out.write(LENGTH_MAGIC);
+                    out.write(bodyLength >> 8);
+                    out.write(bodyLength);
+                    writeBody(out, bodyLength, n);
+                    break;
+                default:
+                    writeBody(out, frameSize, n);
+                    break;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 数据部分为小写字母，不包含帧头和帧尾字节
+     */
+    private static void writeBody(ByteArrayOutputStream out, int length, int seed) {
+        for (int i = 0; i < length; i++) {
+            out.write('a' + (seed + i) % 26);
+        }
+    }
+}
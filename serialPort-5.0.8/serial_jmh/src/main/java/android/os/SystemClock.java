@@ -0,0 +1,18 @@
+package android.os;
+
+/**
+ * 主机JVM上的SystemClock替身，只包含粘包处理器用到的方法
+ * sleep()不休眠：处理器在无数据时的轮询休眠不属于解析开销，基准只测量解析本身
+ */
+public final class SystemClock {
+
+    private SystemClock() {
+    }
+
+    public static long uptimeMillis() {
+        return System.nanoTime() / 1_000_000L;
+    }
+
+    public static void sleep(long ms) {
+    }
+}
@@ -22,6 +22,12 @@
 #include <sys/stat.h>
 #include <fcntl.h>
 #include <string.h>
+#include <errno.h>
+#include <poll.h>
+#include <stdint.h>
+#include <sys/eventfd.h>
+#include <sys/epoll.h>
+#include <sys/ioctl.h>
 #include <jni.h>
 
 #include "SerialPort.h"
@@ -32,6 +38,20 @@ static const char *TAG="serial_port";
 #define LOGD(fmt, args...) __android_log_print(ANDROID_LOG_DEBUG, TAG, fmt, ##args)
 #define LOGE(fmt, args...) __android_log_print(ANDROID_LOG_ERROR, TAG, fmt, ##args)
 
+/*
+ * The int field of java.io.FileDescriptor is "descriptor" on Android and "fd" on OpenJDK.
+ * Looking up both lets the library run on a Linux host (pty benchmarks under src/test).
+ */
+static jfieldID getDescriptorField(JNIEnv *env, jclass fileDescriptorClass)
+{
+    jfieldID descriptorID = (*env)->GetFieldID(env, fileDescriptorClass, "descriptor", "I");
+    if (descriptorID == NULL) {
+        (*env)->ExceptionClear(env);
+        descriptorID = (*env)->GetFieldID(env, fileDescriptorClass, "fd", "I");
+    }
+    return descriptorID;
+}
+
 static speed_t getBaudrate(jint baudrate)
 {
     switch(baudrate) {
@@ -191,6 +211,10 @@ JNIEXPORT jobject JNICALL Java_com_cl_serialportlibrary_SerialPort_open
                 break;
         }
 
+        // Blocking read: read() returns as soon as at least one byte has arrived
+        cfg.c_cc[VMIN] = 1;
+        cfg.c_cc[VTIME] = 0;
+
         // Set baud rate
         cfsetispeed(&cfg, speed);
         cfsetospeed(&cfg, speed);
@@ -206,7 +230,7 @@ JNIEXPORT jobject JNICALL Java_com_cl_serialportlibrary_SerialPort_open
     {
         jclass cFileDescriptor = (*env)->FindClass(env, "java/io/FileDescriptor");
         jmethodID iFileDescriptor = (*env)->GetMethodID(env, cFileDescriptor, "<init>", "()V");
-        jfieldID descriptorID = (*env)->GetFieldID(env, cFileDescriptor, "descriptor", "I");
+        jfieldID descriptorID = getDescriptorField(env, cFileDescriptor);
         mFileDescriptor = (*env)->NewObject(env, cFileDescriptor, iFileDescriptor);
         (*env)->SetIntField(env, mFileDescriptor, descriptorID, (jint)fd);
     }
@@ -221,7 +245,7 @@ JNIEXPORT void JNICALL Java_com_cl_serialportlibrary_SerialPort_close
     jclass FileDescriptorClass = (*env)->FindClass(env, "java/io/FileDescriptor");
 
     jfieldID mFdID = (*env)->GetFieldID(env, SerialPortClass, "mFd", "Ljava/io/FileDescriptor;");
-    jfieldID descriptorID = (*env)->GetFieldID(env, FileDescriptorClass, "descriptor", "I");
+    jfieldID descriptorID = getDescriptorField(env, FileDescriptorClass);
 
     jobject mFd = (*env)->GetObjectField(env, thiz, mFdID);
     jint descriptor = (*env)->GetIntField(env, mFd, descriptorID);
@@ -229,3 +253,354 @@ JNIEXPORT void JNICALL Java_com_cl_serialportlibrary_SerialPort_close
     LOGD("close(fd = %d)", descriptor);
     close(descriptor);
 }
+
+static jint getDescriptor(JNIEnv *env, jobject fileDescriptor)
+{
+    jclass FileDescriptorClass = (*env)->FindClass(env, "java/io/FileDescriptor");
+    jfieldID descriptorID = getDescriptorField(env, FileDescriptorClass);
+    return (*env)->GetIntField(env, fileDescriptor, descriptorID);
+}
+
+/*
+ * Class:     com_cl_serialportlibrary_SerialPort
+ * Method:    waitReadable
+ * Signature: (Ljava/io/FileDescriptor;II)I
+ *
+ * Sleeps in poll() until the port is readable, the wake fd is signalled or the timeout expires.
+ * Returns 1 when readable, 0 on timeout, -2 when woken up and -1 on error or hang-up.
+ */
+JNIEXPORT jint JNICALL Java_com_cl_serialportlibrary_SerialPort_waitReadable
+        (JNIEnv *env, jclass clazz, jobject fileDescriptor, jint wakeFd, jint timeoutMs)
+{
+    struct pollfd fds[2];
+    int nfds = wakeFd >= 0 ? 2 : 1;
+    int ret;
+
+    fds[0].fd = getDescriptor(env, fileDescriptor);
+    fds[0].events = POLLIN;
+    fds[0].revents = 0;
+    fds[1].fd = wakeFd;
+    fds[1].events = POLLIN;
+    fds[1].revents = 0;
+
+    do {
+        ret = poll(fds, nfds, timeoutMs);
+    } while (ret == -1 && errno == EINTR);
+
+    if (ret < 0) {
+        LOGE("poll() failed: %s", strerror(errno));
+        return -1;
+    }
+    if (ret == 0) {
+        return 0;
+    }
+    if (nfds == 2 && (fds[1].revents & POLLIN)) {
+        uint64_t value;
+        read(wakeFd, &value, sizeof(value));
+        return -2;
+    }
+    if (fds[0].revents & POLLIN) {
+        return 1;
+    }
+    LOGE("poll() revents = 0x%x", fds[0].revents);
+    return -1;
+}
+
+/*
+ * Class:     com_cl_serialportlibrary_SerialPort
+ * Method:    createWakeFd
+ * Signature: ()I
+ */
+JNIEXPORT jint JNICALL Java_com_cl_serialportlibrary_SerialPort_createWakeFd
+        (JNIEnv *env, jclass clazz)
+{
+    int fd = eventfd(0, EFD_CLOEXEC | EFD_NONBLOCK);
+    if (fd == -1) {
+        LOGE("eventfd() failed: %s", strerror(errno));
+    }
+    return fd;
+}
+
+/*
+ * Class:     com_cl_serialportlibrary_SerialPort
+ * Method:    wakeUp
+ * Signature: (I)V
+ */
+JNIEXPORT void JNICALL Java_com_cl_serialportlibrary_SerialPort_wakeUp
+        (JNIEnv *env, jclass clazz, jint wakeFd)
+{
+    uint64_t value = 1;
+    if (wakeFd >= 0) {
+        write(wakeFd, &value, sizeof(value));
+    }
+}
+
+/*
+ * Class:     com_cl_serialportlibrary_SerialPort
+ * Method:    closeWakeFd
+ * Signature: (I)V
+ */
+JNIEXPORT void JNICALL Java_com_cl_serialportlibrary_SerialPort_closeWakeFd
+        (JNIEnv *env, jclass clazz, jint wakeFd)
+{
+    if (wakeFd >= 0) {
+        close(wakeFd);
+    }
+}
+
+/*
+ * Class:     com_cl_serialportlibrary_SerialPort
+ * Method:    getDescriptor
+ * Signature: (Ljava/io/FileDescriptor;)I
+ */
+JNIEXPORT jint JNICALL Java_com_cl_serialportlibrary_SerialPort_getDescriptor
+        (JNIEnv *env, jclass clazz, jobject fileDescriptor)
+{
+    return getDescriptor(env, fileDescriptor);
+}
+
+/*
+ * Class:     com_cl_serialportlibrary_SerialPort
+ * Method:    setNonBlocking
+ * Signature: (I)I
+ */
+JNIEXPORT jint JNICALL Java_com_cl_serialportlibrary_SerialPort_setNonBlocking
+        (JNIEnv *env, jclass clazz, jint fd)
+{
+    int flags = fcntl(fd, F_GETFL);
+    if (flags == -1 || fcntl(fd, F_SETFL, flags | O_NONBLOCK) == -1) {
+        LOGE("fcntl(O_NONBLOCK) failed: %s", strerror(errno));
+        return -1;
+    }
+    return 0;
+}
+
+/*
+ * Class:     com_cl_serialportlibrary_SerialPort
+ * Method:    readNonBlocking
+ * Signature: (I[BII)I
+ *
+ * Returns the number of bytes read, 0 when no data is available and -1 on end of file or error.
+ */
+JNIEXPORT jint JNICALL Java_com_cl_serialportlibrary_SerialPort_readNonBlocking
+        (JNIEnv *env, jclass clazz, jint fd, jbyteArray buffer, jint offset, jint length)
+{
+    jbyte *bytes;
+    ssize_t ret;
+
+    if (length <= 0) {
+        return 0;
+    }
+    bytes = (*env)->GetPrimitiveArrayCritical(env, buffer, NULL);
+    if (bytes == NULL) {
+        return -1;
+    }
+    do {
+        ret = read(fd, bytes + offset, (size_t) length);
+    } while (ret == -1 && errno == EINTR);
+    (*env)->ReleasePrimitiveArrayCritical(env, buffer, bytes, 0);
+
+    if (ret == -1) {
+        return (errno == EAGAIN || errno == EWOULDBLOCK) ? 0 : -1;
+    }
+    return ret == 0 ? -1 : (jint) ret;
+}
+
+/*
+ * Class:     com_cl_serialportlibrary_SerialPort
+ * Method:    writeNonBlocking
+ * Signature: (I[BII)I
+ *
+ * Returns the number of bytes written, 0 when the output buffer is full and -1 on error.
+ */
+JNIEXPORT jint JNICALL Java_com_cl_serialportlibrary_SerialPort_writeNonBlocking
+        (JNIEnv *env, jclass clazz, jint fd, jbyteArray buffer, jint offset, jint length)
+{
+    jbyte *bytes;
+    ssize_t ret;
+
+    if (length <= 0) {
+        return 0;
+    }
+    bytes = (*env)->GetPrimitiveArrayCritical(env, buffer, NULL);
+    if (bytes == NULL) {
+        return -1;
+    }
+    do {
+        ret = write(fd, bytes + offset, (size_t) length);
+    } while (ret == -1 && errno == EINTR);
+    (*env)->ReleasePrimitiveArrayCritical(env, buffer, bytes, JNI_ABORT);
+
+    if (ret == -1) {
+        return (errno == EAGAIN || errno == EWOULDBLOCK) ? 0 : -1;
+    }
+    return (jint) ret;
+}
+
+/*
+ * Class:     com_cl_serialportlibrary_SerialPort
+ * Method:    readDirect
+ * Signature: (ILjava/nio/ByteBuffer;II)I
+ *
+ * Reads straight into the memory of a direct ByteBuffer, blocking until at least one byte arrives.
+ * Returns the number of bytes read, 0 when the fd is non-blocking and no data is available,
+ * and -1 on end of file or error.
+ */
+JNIEXPORT jint JNICALL Java_com_cl_serialportlibrary_SerialPort_readDirect
+        (JNIEnv *env, jclass clazz, jint fd, jobject buffer, jint position, jint length)
+{
+    jbyte *address;
+    ssize_t ret;
+
+    if (length <= 0) {
+        return 0;
+    }
+    address = (*env)->GetDirectBufferAddress(env, buffer);
+    if (address == NULL) {
+        LOGE("readDirect: not a direct buffer");
+        return -1;
+    }
+    do {
+        ret = read(fd, address + position, (size_t) length);
+    } while (ret == -1 && errno == EINTR);
+
+    if (ret == -1) {
+        return (errno == EAGAIN || errno == EWOULDBLOCK) ? 0 : -1;
+    }
+    return ret == 0 ? -1 : (jint) ret;
+}
+
+/*
+ * Class:     com_cl_serialportlibrary_SerialPort
+ * Method:    writeDirect
+ * Signature: (ILjava/nio/ByteBuffer;II)I
+ *
+ * Writes from the memory of a direct ByteBuffer. Returns the number of bytes written
+ * (possibly fewer than requested), 0 when a non-blocking fd is full and -1 on error.
+ */
+JNIEXPORT jint JNICALL Java_com_cl_serialportlibrary_SerialPort_writeDirect
+        (JNIEnv *env, jclass clazz, jint fd, jobject buffer, jint position, jint length)
+{
+    jbyte *address;
+    ssize_t ret;
+
+    if (length <= 0) {
+        return 0;
+    }
+    address = (*env)->GetDirectBufferAddress(env, buffer);
+    if (address == NULL) {
+        LOGE("writeDirect: not a direct buffer");
+        return -1;
+    }
+    do {
+        ret = write(fd, address + position, (size_t) length);
+    } while (ret == -1 && errno == EINTR);
+
+    if (ret == -1) {
+        return (errno == EAGAIN || errno == EWOULDBLOCK) ? 0 : -1;
+    }
+    return (jint) ret;
+}
+
+/*
+ * Class:     com_cl_serialportlibrary_SerialPort
+ * Method:    bytesAvailable
+ * Signature: (I)I
+ *
+ * Returns the number of bytes waiting in the input queue (FIONREAD), -1 on error.
+ */
+JNIEXPORT jint JNICALL Java_com_cl_serialportlibrary_SerialPort_bytesAvailable
+        (JNIEnv *env, jclass clazz, jint fd)
+{
+    int available = 0;
+
+    if (ioctl(fd, FIONREAD, &available) == -1) {
+        return -1;
+    }
+    return available;
+}
+
+/*
+ * Class:     com_cl_serialportlibrary_SerialPort
+ * Method:    epollCreate
+ * Signature: ()I
+ */
+JNIEXPORT jint JNICALL Java_com_cl_serialportlibrary_SerialPort_epollCreate
+        (JNIEnv *env, jclass clazz)
+{
+    int epfd = epoll_create1(EPOLL_CLOEXEC);
+    if (epfd == -1) {
+        LOGE("epoll_create1() failed: %s", strerror(errno));
+    }
+    return epfd;
+}
+
+/*
+ * Class:     com_cl_serialportlibrary_SerialPort
+ * Method:    epollControl
+ * Signature: (IIII)I
+ */
+JNIEXPORT jint JNICALL Java_com_cl_serialportlibrary_SerialPort_epollControl
+        (JNIEnv *env, jclass clazz, jint epfd, jint op, jint fd, jint events)
+{
+    struct epoll_event event;
+    memset(&event, 0, sizeof(event));
+    event.events = (uint32_t) events;
+    event.data.fd = fd;
+    if (epoll_ctl(epfd, op, fd, &event) == -1) {
+        LOGE("epoll_ctl(op = %d, fd = %d) failed: %s", op, fd, strerror(errno));
+        return -1;
+    }
+    return 0;
+}
+
+/*
+ * Class:     com_cl_serialportlibrary_SerialPort
+ * Method:    epollWait
+ * Signature: (I[I[II)I
+ *
+ * Fills fds/events with the ready descriptors and returns their count, 0 on timeout or -1 on error.
+ */
+JNIEXPORT jint JNICALL Java_com_cl_serialportlibrary_SerialPort_epollWait
+        (JNIEnv *env, jclass clazz, jint epfd, jintArray fds, jintArray events, jint timeoutMs)
+{
+    struct epoll_event ready[64];
+    jint readyFds[64];
+    jint readyEvents[64];
+    int max = (*env)->GetArrayLength(env, fds);
+    int count;
+    int i;
+
+    if (max > 64) {
+        max = 64;
+    }
+    do {
+        count = epoll_wait(epfd, ready, max, timeoutMs);
+    } while (count == -1 && errno == EINTR);
+
+    if (count == -1) {
+        LOGE("epoll_wait() failed: %s", strerror(errno));
+        return -1;
+    }
+    for (i = 0; i < count; i++) {
+        readyFds[i] = ready[i].data.fd;
+        readyEvents[i] = (jint) ready[i].events;
+    }
+    (*env)->SetIntArrayRegion(env, fds, 0, count, readyFds);
+    (*env)->SetIntArrayRegion(env, events, 0, count, readyEvents);
+    return count;
+}
+
+/*
+ * Class:     com_cl_serialportlibrary_SerialPort
+ * Method:    closeDescriptor
+ * Signature: (I)V
+ */
+JNIEXPORT void JNICALL Java_com_cl_serialportlibrary_SerialPort_closeDescriptor
+        (JNIEnv *env, jclass clazz, jint fd)
+{
+    if (fd >= 0) {
+        LOGD("close(fd = %d)", fd);
+        close(fd);
+    }
+}
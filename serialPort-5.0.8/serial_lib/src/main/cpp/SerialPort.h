@@ -24,6 +24,126 @@ JNIEXPORT jobject JNICALL Java_com_cl_serialportlibrary_SerialPort_open
 JNIEXPORT void JNICALL Java_com_cl_serialportlibrary_SerialPort_close
   (JNIEnv *, jobject);
 
+/*
+ * Class:     com_cl_serialportlibrary_SerialPort
+ * Method:    waitReadable
+ * Signature: (Ljava/io/FileDescriptor;II)I
+ */
+JNIEXPORT jint JNICALL Java_com_cl_serialportlibrary_SerialPort_waitReadable
+  (JNIEnv *, jclass, jobject, jint, jint);
+
+/*
+ * Class:     com_cl_serialportlibrary_SerialPort
+ * Method:    createWakeFd
+ * Signature: ()I
+ */
+JNIEXPORT jint JNICALL Java_com_cl_serialportlibrary_SerialPort_createWakeFd
+  (JNIEnv *, jclass);
+
+/*
+ * Class:     com_cl_serialportlibrary_SerialPort
+ * Method:    wakeUp
+ * Signature: (I)V
+ */
+JNIEXPORT void JNICALL Java_com_cl_serialportlibrary_SerialPort_wakeUp
+  (JNIEnv *, jclass, jint);
+
+/*
+ * Class:     com_cl_serialportlibrary_SerialPort
+ * Method:    closeWakeFd
+ * Signature: (I)V
+ */
+JNIEXPORT void JNICALL Java_com_cl_serialportlibrary_SerialPort_closeWakeFd
+  (JNIEnv *, jclass, jint);
+
+/*
+ * Class:     com_cl_serialportlibrary_SerialPort
+ * Method:    getDescriptor
+ * Signature: (Ljava/io/FileDescriptor;)I
+ */
+JNIEXPORT jint JNICALL Java_com_cl_serialportlibrary_SerialPort_getDescriptor
+  (JNIEnv *, jclass, jobject);
+
+/*
+ * Class:     com_cl_serialportlibrary_SerialPort
+ * Method:    setNonBlocking
+ * Signature: (I)I
+ */
+JNIEXPORT jint JNICALL Java_com_cl_serialportlibrary_SerialPort_setNonBlocking
+  (JNIEnv *, jclass, jint);
+
+/*
+ * Class:     com_cl_serialportlibrary_SerialPort
+ * Method:    readNonBlocking
+ * Signature: (I[BII)I
+ */
+JNIEXPORT jint JNICALL Java_com_cl_serialportlibrary_SerialPort_readNonBlocking
+  (JNIEnv *, jclass, jint, jbyteArray, jint, jint);
+
+/*
+ * Class:     com_cl_serialportlibrary_SerialPort
+ * Method:    writeNonBlocking
+ * Signature: (I[BII)I
+ */
+JNIEXPORT jint JNICALL Java_com_cl_serialportlibrary_SerialPort_writeNonBlocking
+  (JNIEnv *, jclass, jint, jbyteArray, jint, jint);
+
+/*
+ * Class:     com_cl_serialportlibrary_SerialPort
+ * Method:    readDirect
+ * Signature: (ILjava/nio/ByteBuffer;II)I
+ */
+JNIEXPORT jint JNICALL Java_com_cl_serialportlibrary_SerialPort_readDirect
+  (JNIEnv *, jclass, jint, jobject, jint, jint);
+
+/*
+ * Class:     com_cl_serialportlibrary_SerialPort
+ * Method:    writeDirect
+ * Signature: (ILjava/nio/ByteBuffer;II)I
+ */
+JNIEXPORT jint JNICALL Java_com_cl_serialportlibrary_SerialPort_writeDirect
+  (JNIEnv *, jclass, jint, jobject, jint, jint);
+
+/*
+ * Class:     com_cl_serialportlibrary_SerialPort
+ * Method:    bytesAvailable
+ * Signature: (I)I
+ */
+JNIEXPORT jint JNICALL Java_com_cl_serialportlibrary_SerialPort_bytesAvailable
+  (JNIEnv *, jclass, jint);
+
+/*
+ * Class:     com_cl_serialportlibrary_SerialPort
+ * Method:    epollCreate
+ * Signature: ()I
+ */
+JNIEXPORT jint JNICALL Java_com_cl_serialportlibrary_SerialPort_epollCreate
+  (JNIEnv *, jclass);
+
+/*
+ * Class:     com_cl_serialportlibrary_SerialPort
+ * Method:    epollControl
+ * Signature: (IIII)I
+ */
+JNIEXPORT jint JNICALL Java_com_cl_serialportlibrary_SerialPort_epollControl
+  (JNIEnv *, jclass, jint, jint, jint, jint);
+
+/*
+ * Class:     com_cl_serialportlibrary_SerialPort
+ * Method:    epollWait
+ * Signature: (I[I[II)I
+ */
+JNIEXPORT jint JNICALL Java_com_cl_serialportlibrary_SerialPort_epollWait
+  (JNIEnv *, jclass, jint, jintArray, jintArray, jint);
+
+/*
+ * Class:     com_cl_serialportlibrary_SerialPort
+ * Method:    closeDescriptor
+ * Signature: (I)V
+ */
+JNIEXPORT void JNICALL Java_com_cl_serialportlibrary_SerialPort_closeDescriptor
+  (JNIEnv *, jclass, jint);
+
 #ifdef __cplusplus
 }
 #endif
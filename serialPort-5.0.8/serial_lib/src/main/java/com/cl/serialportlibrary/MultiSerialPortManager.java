@@ -3,21 +3,35 @@ package com.cl.serialportlibrary;
 import android.app.Application;
 import android.os.Handler;
 import android.os.Looper;
+import android.util.Log;
 
+import com.cl.serialportlibrary.enumerate.DispatchMode;
+import com.cl.serialportlibrary.enumerate.FrameReleaseMode;
 import com.cl.serialportlibrary.enumerate.SerialPortEnum;
 import com.cl.serialportlibrary.enumerate.SerialStatus;
+import com.cl.serialportlibrary.enumerate.StreamOverflow;
 import com.cl.serialportlibrary.listener.OnOpenSerialPortListener;
 import com.cl.serialportlibrary.listener.OnSerialPortDataListener;
 import com.cl.serialportlibrary.stick.AbsStickPackageHelper;
 import com.cl.serialportlibrary.stick.BaseStickPackageHelper;
+import com.cl.serialportlibrary.stick.FramePool;
+import com.cl.serialportlibrary.stick.SerialFrame;
+import com.cl.serialportlibrary.stream.SerialFrameStream;
+import com.cl.serialportlibrary.transaction.HashedTimerWheel;
+import com.cl.serialportlibrary.transaction.ResponseMatcher;
+import com.cl.serialportlibrary.transaction.SerialTransactionEngine;
+import com.cl.serialportlibrary.transaction.TransactionFuture;
 import com.cl.serialportlibrary.utils.SerialPortLogUtil;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 
 /**
  * 多串口管理器
@@ -37,13 +51,32 @@ public class MultiSerialPortManager {
     // 串口配置映射 <串口ID, SerialConfig>
     private final Map<String, SerialConfig> serialConfigs = new ConcurrentHashMap<>();
     
+    // 波特率映射 <串口ID, 波特率>
+    private final Map<String, Integer> baudRates = new ConcurrentHashMap<>();
+    
     // 回调映射 <串口ID, 回调接口>
     private final Map<String, OnSerialPortStatusCallback> statusCallbacks = new ConcurrentHashMap<>();
     private final Map<String, OnSerialPortDataCallback> dataCallbacks = new ConcurrentHashMap<>();
     
+    // 数据回调分发器映射 <串口ID, SerialDataDispatcher>
+    private final Map<String, SerialDataDispatcher> dispatchers = new ConcurrentHashMap<>();
+    
+    // 运行指标注册表
+    private final SerialPortMetricsRegistry metricsRegistry = new SerialPortMetricsRegistry();
+    
     // 串口枚举映射 <串口ID, SerialPortEnum>
     private final Map<String, SerialPortEnum> serialPortEnums = new ConcurrentHashMap<>();
     
+    // 反应器模式串口映射 <串口ID, Channel>，由同一个epoll线程服务，不占用SerialPortEnum
+    private final Map<String, SerialPortReactor.Channel> reactorChannels = new ConcurrentHashMap<>();
+    
+    // 接收数据流映射 <串口ID, 数据流列表>
+    private final Map<String, List<SerialFrameStream>> frameStreams = new ConcurrentHashMap<>();
+    
+    // 请求应答事务映射 <串口ID, SerialTransactionEngine>，所有串口共用一个超时时间轮
+    private final Map<String, SerialTransactionEngine> transactionEngines = new ConcurrentHashMap<>();
+    private HashedTimerWheel transactionTimer;
+    
     private MultiSerialPortManager() {}
     
     /**
@@ -78,7 +111,7 @@ public class MultiSerialPortManager {
         SerialPortLogUtil.i(TAG, String.format("串口[%s] - 设备: %s, 波特率: %d", serialId, devicePath, baudRate));
         
         // 检查串口是否已经打开
-        if (serialPortManagers.containsKey(serialId)) {
+        if (serialPortManagers.containsKey(serialId) || reactorChannels.containsKey(serialId)) {
             SerialPortLogUtil.w(TAG, "串口[" + serialId + "]已经打开，先关闭旧连接");
             closeSerialPort(serialId);
         }
@@ -87,10 +120,15 @@ public class MultiSerialPortManager {
         SerialConfig serialConfig = new SerialConfig.Builder()
                 .setEnableLogging(config.enableLogging)
                 .setIntervalSleep(config.intervalSleep)
+                .setBlockingRead(config.blockingRead)
+                .setDirectBuffer(config.directBuffer)
                 .setDatabits(config.databits)
                 .setParity(config.parity)
                 .setStopbits(config.stopbits)
                 .setFlags(config.flags)
+                .setAutoReconnect(config.autoReconnect)
+                .setReconnectInterval(config.reconnectInterval)
+                .setMaxReconnectAttempts(config.maxReconnectAttempts)
                 .setEnableStickyPacketProcessing(config.stickyPacketHelpers != null && config.stickyPacketHelpers.length > 0)
                 .setStickyPacketHelpers(config.stickyPacketHelpers != null ? config.stickyPacketHelpers : new AbsStickPackageHelper[]{new BaseStickPackageHelper()})
                 .build();
@@ -99,6 +137,21 @@ public class MultiSerialPortManager {
         serialConfigs.put(serialId, serialConfig);
         if (statusCallback != null) statusCallbacks.put(serialId, statusCallback);
         if (dataCallback != null) dataCallbacks.put(serialId, dataCallback);
+        SerialPortMetrics metrics = new SerialPortMetrics();
+        SerialDataDispatcher dispatcher = createDispatcher(serialId, config, metrics);
+        dispatchers.put(serialId, dispatcher);
+        // 重发在共用的超时定时器线程中进行，不能因BLOCK策略阻塞
+        SerialTransactionEngine engine = new SerialTransactionEngine(data -> sendData(serialId, data, false),
+                getTransactionTimer(), config.maxInFlight);
+        transactionEngines.put(serialId, engine);
+        
+        if (config.reactorMode) {
+            if (config.autoReconnect) {
+                SerialPortLogUtil.w(TAG, "串口[" + serialId + "]反应器模式不支持自动重连，忽略autoReconnect");
+            }
+            return openReactorSerialPort(serialId, devicePath, baudRate, serialConfig, dispatcher, engine, metrics,
+                    config.frameReleaseMode);
+        }
         
         // 分配串口枚举
         SerialPortEnum serialPortEnum = getAvailableSerialPortEnum();
@@ -112,13 +165,19 @@ public class MultiSerialPortManager {
         // 创建SerialPortManager
         SerialPortManager serialPortManager = new SerialPortManager(serialPortEnum);
         serialPortManager.setSerialConfig(serialConfig);
+        serialPortManager.setMetrics(metrics);
+        if (config.frameReleaseMode != null) {
+            serialPortManager.setFramePool(FramePool.getDefault());
+        }
         
         // 设置监听器
         serialPortManager.setOnOpenSerialPortListener(new OnOpenSerialPortListener() {
             @Override
             public void openState(SerialPortEnum serialPortEnum, File device, SerialStatus status) {
                 String logMessage = String.format("串口[%s] 状态变化: %s - %s", serialId, device.getPath(), status);
-                if (status == SerialStatus.SUCCESS_OPENED) {
+                // 自动重连成功同样视为打开
+                final boolean opened = status == SerialStatus.SUCCESS_OPENED || status == SerialStatus.RECONNECTED;
+                if (opened) {
                     SerialPortLogUtil.i(TAG, logMessage);
                 } else {
                     SerialPortLogUtil.e(TAG, logMessage);
@@ -127,33 +186,32 @@ public class MultiSerialPortManager {
                 handler.post(() -> {
                     OnSerialPortStatusCallback callback = statusCallbacks.get(serialId);
                     if (callback != null) {
-                        callback.onStatusChanged(serialId, status == SerialStatus.SUCCESS_OPENED, status);
+                        callback.onStatusChanged(serialId, opened, status);
                     }
                 });
             }
         });
         
+        final String logTag = logTag(serialId);
         serialPortManager.setOnSerialPortDataListener(new OnSerialPortDataListener() {
             @Override
             public void onDataReceived(byte[] data, SerialPortEnum serialPortEnum) {
-                SerialPortLogUtil.printData(TAG + "_" + serialId, "接收数据", data);
-                handler.post(() -> {
-                    OnSerialPortDataCallback callback = dataCallbacks.get(serialId);
-                    if (callback != null) {
-                        callback.onDataReceived(serialId, data);
-                    }
-                });
+                SerialPortLogUtil.printData(logTag, "接收数据", data);
+                // 请求的应答只交给对应的TransactionFuture
+                if (!engine.onFrame(data)) {
+                    deliverReceived(serialId, dispatcher, data);
+                }
+            }
+            
+            @Override
+            public void onFrameReceived(SerialFrame frame, SerialPortEnum serialPortEnum) {
+                dispatchFrame(serialId, logTag, engine, dispatcher, frame);
             }
             
             @Override
             public void onDataSent(byte[] data, SerialPortEnum serialPortEnum) {
-                SerialPortLogUtil.printData(TAG + "_" + serialId, "发送数据", data);
-                handler.post(() -> {
-                    OnSerialPortDataCallback callback = dataCallbacks.get(serialId);
-                    if (callback != null) {
-                        callback.onDataSent(serialId, data);
-                    }
-                });
+                SerialPortLogUtil.printData(logTag, "发送数据", data);
+                dispatcher.dispatchSent(data);
             }
         });
         
@@ -161,6 +219,8 @@ public class MultiSerialPortManager {
         boolean success = serialPortManager.openSerialPort(devicePath, baudRate);
         if (success) {
             serialPortManagers.put(serialId, serialPortManager);
+            baudRates.put(serialId, baudRate);
+            metricsRegistry.register(serialId, metrics);
             SerialPortLogUtil.i(TAG, "串口[" + serialId + "] 打开成功");
         } else {
             // 清理资源
@@ -168,12 +228,240 @@ public class MultiSerialPortManager {
             statusCallbacks.remove(serialId);
             dataCallbacks.remove(serialId);
             serialPortEnums.remove(serialId);
+            releaseDispatcher(serialId);
+            releaseTransactionEngine(serialId);
             SerialPortLogUtil.e(TAG, "串口[" + serialId + "] 打开失败");
         }
         
         return success;
     }
     
+    /**
+     * 以反应器模式打开串口，读写由共享的epoll线程完成
+     */
+    private boolean openReactorSerialPort(String serialId, String devicePath, int baudRate, SerialConfig serialConfig,
+                                          SerialDataDispatcher dispatcher, SerialTransactionEngine engine,
+                                          SerialPortMetrics metrics, FrameReleaseMode frameReleaseMode) {
+        AbsStickPackageHelper[] helpers = serialConfig.getStickyPacketHelpers();
+        AbsStickPackageHelper helper = helpers != null && helpers.length > 0 ? helpers[0] : new BaseStickPackageHelper();
+        final String logTag = logTag(serialId);
+        SerialPortReactor.Channel channel = new SerialPortReactor.Channel(serialId, helper, new SerialPortReactor.Callback() {
+            @Override
+            public void onDataReceived(String id, byte[] data) {
+                SerialPortLogUtil.printData(logTag, "接收数据", data);
+                if (!engine.onFrame(data)) {
+                    deliverReceived(serialId, dispatcher, data);
+                }
+            }
+            
+            @Override
+            public void onFrameReceived(String id, SerialFrame frame) {
+                dispatchFrame(serialId, logTag, engine, dispatcher, frame);
+            }
+            
+            @Override
+            public void onDataSent(String id, byte[] data) {
+                SerialPortLogUtil.printData(logTag, "发送数据", data);
+                dispatcher.dispatchSent(data);
+            }
+            
+            @Override
+            public void onError(String id) {
+                SerialPortLogUtil.e(TAG, "串口[" + id + "] 读写异常，已关闭");
+            }
+        }, metrics);
+        if (frameReleaseMode != null) {
+            channel.framePool = FramePool.getDefault();
+        }
+        
+        SerialStatus status = SerialPortReactor.getInstance().open(channel, devicePath, baudRate, serialConfig);
+        String logMessage = String.format("串口[%s] 状态变化: %s - %s", serialId, devicePath, status);
+        handler.post(() -> {
+            OnSerialPortStatusCallback callback = statusCallbacks.get(serialId);
+            if (callback != null) {
+                callback.onStatusChanged(serialId, status == SerialStatus.SUCCESS_OPENED, status);
+            }
+        });
+        
+        if (status == SerialStatus.SUCCESS_OPENED) {
+            reactorChannels.put(serialId, channel);
+            baudRates.put(serialId, baudRate);
+            metricsRegistry.register(serialId, metrics);
+            SerialPortLogUtil.i(TAG, logMessage);
+            SerialPortLogUtil.i(TAG, "串口[" + serialId + "] 打开成功(反应器模式)");
+            return true;
+        }
+        serialConfigs.remove(serialId);
+        statusCallbacks.remove(serialId);
+        dataCallbacks.remove(serialId);
+        releaseDispatcher(serialId);
+        releaseTransactionEngine(serialId);
+        if (reactorChannels.isEmpty()) {
+            SerialPortReactor.getInstance().shutdown();
+        }
+        SerialPortLogUtil.e(TAG, logMessage);
+        SerialPortLogUtil.e(TAG, "串口[" + serialId + "] 打开失败");
+        return false;
+    }
+    
+    /**
+     * 分发池化帧，只在有未完成的请求时才复制为数组交给事务匹配，日志和数据流同样只在需要时复制
+     */
+    private void dispatchFrame(String serialId, String logTag, SerialTransactionEngine engine,
+                               SerialDataDispatcher dispatcher, SerialFrame frame) {
+        if (SerialPortLogUtil.isLoggable(Log.DEBUG, logTag)) {
+            SerialPortLogUtil.printData(logTag, "接收数据", frame.toByteArray());
+        }
+        if (engine.getInFlightCount() > 0 && engine.onFrame(frame.toByteArray())) {
+            frame.release();
+            return;
+        }
+        List<SerialFrameStream> streams = frameStreams.get(serialId);
+        if (streams != null && !streams.isEmpty()) {
+            publish(streams, frame.toByteArray());
+        }
+        if (dataCallbacks.containsKey(serialId)) {
+            dispatcher.dispatchReceived(frame);
+        } else {
+            frame.release();
+        }
+    }
+
+    /**
+     * 交给数据流和数据回调，没有数据回调时不经过分发器，只用数据流的消费者不会在主线程Handler中积压消息
+     */
+    private void deliverReceived(String serialId, SerialDataDispatcher dispatcher, byte[] data) {
+        List<SerialFrameStream> streams = frameStreams.get(serialId);
+        if (streams != null && !streams.isEmpty()) {
+            publish(streams, data);
+        }
+        if (dataCallbacks.containsKey(serialId)) {
+            dispatcher.dispatchReceived(data);
+        }
+    }
+
+    /**
+     * 在读取线程中调用，SUSPEND策略的流已满时在此阻塞
+     */
+    private static void publish(List<SerialFrameStream> streams, byte[] data) {
+        for (SerialFrameStream stream : streams) {
+            stream.offer(data);
+        }
+    }
+    
+    /**
+     * 打开串口接收数据流，缓冲64帧，缓冲区满时阻塞读取线程
+     */
+    public SerialFrameStream openStream(String serialId) {
+        return openStream(serialId, 64, StreamOverflow.SUSPEND);
+    }
+    
+    /**
+     * 打开串口接收数据流，可以在打开串口之前调用
+     * 每次调用得到一个独立的流，从此刻起接收该串口的帧（请求的应答除外，交给sendRequest的TransactionFuture），
+     * 同一串口的多个流共用同一个byte[]，不要修改；串口关闭时流随之结束
+     * SUSPEND策略会阻塞读取线程，反应器模式下所有串口共用一个读取线程，慢消费者会拖慢其他串口
+     *
+     * @param capacity 缓冲的帧数
+     * @param overflow 缓冲区满时的处理策略
+     * @return 数据流，不再使用时调用close()
+     */
+    public SerialFrameStream openStream(String serialId, int capacity, StreamOverflow overflow) {
+        SerialFrameStream stream = new SerialFrameStream(serialId, capacity, overflow);
+        List<SerialFrameStream> streams;
+        synchronized (frameStreams) {
+            streams = frameStreams.get(serialId);
+            if (streams == null) {
+                streams = new CopyOnWriteArrayList<>();
+                frameStreams.put(serialId, streams);
+            }
+        }
+        final List<SerialFrameStream> subscribers = streams;
+        stream.setOnCloseListener(closed -> subscribers.remove(closed));
+        subscribers.add(stream);
+        return stream;
+    }
+    
+    /**
+     * 结束串口的全部数据流，消费者取完缓冲区中的数据后结束
+     */
+    private void closeStreams(String serialId) {
+        List<SerialFrameStream> streams;
+        synchronized (frameStreams) {
+            streams = frameStreams.remove(serialId);
+        }
+        if (streams != null) {
+            for (SerialFrameStream stream : streams) {
+                stream.close();
+            }
+        }
+    }
+    
+    /**
+     * 按串口配置创建数据回调分发器，回调在分发时才从dataCallbacks中获取
+     */
+    private SerialDataDispatcher createDispatcher(String serialId, SerialPortConfig config, SerialPortMetrics metrics) {
+        return new SerialDataDispatcher(config.dispatchMode, config.dispatchExecutor, new SerialDataDispatcher.Target() {
+            @Override
+            public void onDataReceived(byte[] data) {
+                OnSerialPortDataCallback callback = dataCallbacks.get(serialId);
+                if (callback != null) {
+                    callback.onDataReceived(serialId, data);
+                }
+            }
+            
+            @Override
+            public void onDataReceived(List<byte[]> batch) {
+                OnSerialPortDataCallback callback = dataCallbacks.get(serialId);
+                if (callback != null) {
+                    callback.onDataReceivedBatch(serialId, batch);
+                }
+            }
+            
+            @Override
+            public void onFrameReceived(SerialFrame frame) {
+                OnSerialPortDataCallback callback = dataCallbacks.get(serialId);
+                if (callback != null) {
+                    callback.onFrameReceived(serialId, frame);
+                } else if (config.frameReleaseMode == FrameReleaseMode.MANUAL) {
+                    frame.release();
+                }
+            }
+            
+            @Override
+            public void onDataSent(byte[] data) {
+                OnSerialPortDataCallback callback = dataCallbacks.get(serialId);
+                if (callback != null) {
+                    callback.onDataSent(serialId, data);
+                }
+            }
+        }, metrics, config.frameReleaseMode);
+    }
+    
+    private void releaseDispatcher(String serialId) {
+        SerialDataDispatcher dispatcher = dispatchers.remove(serialId);
+        if (dispatcher != null) {
+            dispatcher.release();
+        }
+    }
+    
+    private void releaseTransactionEngine(String serialId) {
+        SerialTransactionEngine engine = transactionEngines.remove(serialId);
+        if (engine != null) {
+            engine.close();
+        }
+    }
+    
+    /**
+     * 请求超时使用的时间轮，10ms一格，第一次有请求时才启动线程
+     */
+    private synchronized HashedTimerWheel getTransactionTimer() {
+        if (transactionTimer == null) {
+            transactionTimer = new HashedTimerWheel("SerialTransactionTimer", 10, 512);
+        }
+        return transactionTimer;
+    }
+    
     /**
      * 简化的打开串口方法
      */
@@ -190,8 +478,16 @@ public class MultiSerialPortManager {
      * @return 是否发送成功
      */
     public boolean sendData(String serialId, byte[] data) {
+        return sendData(serialId, data, true);
+    }
+
+    /**
+     * @param mayBlock 为false时发送队列满不等待，BLOCK策略按FAIL_FAST处理
+     */
+    private boolean sendData(String serialId, byte[] data, boolean mayBlock) {
         SerialPortManager manager = serialPortManagers.get(serialId);
-        if (manager == null) {
+        SerialPortReactor.Channel channel = reactorChannels.get(serialId);
+        if (manager == null && channel == null) {
             SerialPortLogUtil.e(TAG, "串口[" + serialId + "] 未打开，无法发送数据");
             return false;
         }
@@ -201,11 +497,22 @@ public class MultiSerialPortManager {
             return false;
         }
         
-        long startTime = System.currentTimeMillis();
-        SerialPortLogUtil.printData(TAG + "_" + serialId, "准备发送", data);
+        String logTag = logTag(serialId);
+        boolean logging = SerialPortLogUtil.isLoggable(Log.DEBUG, logTag);
+        long startTime = logging ? System.currentTimeMillis() : 0;
+        if (logging) {
+            SerialPortLogUtil.printData(logTag, "准备发送", data);
+        }
         
-        boolean result = manager.sendBytes(data);
-        SerialPortLogUtil.printPerformance(TAG + "_" + serialId, "发送数据", startTime);
+        boolean result;
+        if (channel != null) {
+            result = channel.send(data);
+        } else {
+            result = mayBlock ? manager.sendBytes(data) : manager.trySendBytes(data);
+        }
+        if (logging) {
+            SerialPortLogUtil.printPerformance(logTag, "发送数据", startTime);
+        }
         
         if (!result) {
             SerialPortLogUtil.e(TAG, "串口[" + serialId + "] 数据发送失败");
@@ -214,6 +521,50 @@ public class MultiSerialPortManager {
         return result;
     }
     
+    /**
+     * 发送请求并等待应答
+     * 读取到的帧先按发送顺序交给未完成请求的matcher，匹配成功的帧只用于完成TransactionFuture，不再回调onDataReceived
+     * 同一串口同时在途的请求数由SerialPortConfig.Builder.setMaxInFlight设置，超出的请求排队发送
+     * @param serialId 串口ID
+     * @param request 请求数据
+     * @param matcher 应答匹配规则，如ResponseMatcher.modbus()
+     * @param timeoutMs 每次发送等待应答的时间
+     * @param retries 超时后的重试次数
+     * @return 请求结果，可以同步get()，也可以addListener()
+     */
+    public TransactionFuture sendRequest(String serialId, byte[] request, ResponseMatcher matcher,
+                                         long timeoutMs, int retries) {
+        SerialTransactionEngine engine = transactionEngines.get(serialId);
+        if (engine == null || !isSerialPortOpened(serialId)) {
+            SerialPortLogUtil.e(TAG, "串口[" + serialId + "] 未打开，无法发送请求");
+            return TransactionFuture.failed(request, new IOException("串口[" + serialId + "] 未打开"));
+        }
+        return engine.submit(request, matcher, timeoutMs, retries);
+    }
+    
+    /**
+     * 发送请求并等待应答，超时不重试
+     */
+    public TransactionFuture sendRequest(String serialId, byte[] request, ResponseMatcher matcher, long timeoutMs) {
+        return sendRequest(serialId, request, matcher, timeoutMs, 0);
+    }
+    
+    /**
+     * 串口的日志标签，MultiSerialPortManager_串口ID
+     */
+    private static String logTag(String serialId) {
+        return TAG + "_" + serialId;
+    }
+    
+    /**
+     * 开启或关闭指定串口的数据日志（错误日志不受影响），关闭后不再进行任何格式化
+     * @param serialId 串口ID
+     * @param enabled 是否启用
+     */
+    public void setPortLoggingEnabled(String serialId, boolean enabled) {
+        SerialPortLogUtil.setTagEnabled(logTag(serialId), enabled);
+    }
+    
     /**
      * 发送字符串数据到指定串口
      */
@@ -226,17 +577,32 @@ public class MultiSerialPortManager {
      * @param serialId 串口ID
      */
     public void closeSerialPort(String serialId) {
+        // 先结束数据流，唤醒因SUSPEND策略阻塞在流上的读取线程
+        closeStreams(serialId);
         SerialPortManager manager = serialPortManagers.remove(serialId);
         if (manager != null) {
             SerialPortLogUtil.i(TAG, "关闭串口[" + serialId + "]");
             manager.closeSerialPort();
         }
+        SerialPortReactor.Channel channel = reactorChannels.remove(serialId);
+        if (channel != null) {
+            SerialPortLogUtil.i(TAG, "关闭串口[" + serialId + "](反应器模式)");
+            channel.closeChannel();
+            if (reactorChannels.isEmpty()) {
+                // 最后一个反应器串口已关闭，停止反应器线程
+                SerialPortReactor.getInstance().shutdown();
+            }
+        }
         
         // 清理相关资源
         serialConfigs.remove(serialId);
+        baudRates.remove(serialId);
         statusCallbacks.remove(serialId);
         dataCallbacks.remove(serialId);
         serialPortEnums.remove(serialId);
+        releaseDispatcher(serialId);
+        releaseTransactionEngine(serialId);
+        metricsRegistry.unregister(serialId);
     }
     
     /**
@@ -245,6 +611,7 @@ public class MultiSerialPortManager {
     public void closeAllSerialPorts() {
         SerialPortLogUtil.printSeparator(TAG, "关闭所有串口");
         List<String> serialIds = new ArrayList<>(serialPortManagers.keySet());
+        serialIds.addAll(reactorChannels.keySet());
         for (String serialId : serialIds) {
             closeSerialPort(serialId);
         }
@@ -255,7 +622,11 @@ public class MultiSerialPortManager {
      */
     public boolean isSerialPortOpened(String serialId) {
         SerialPortManager manager = serialPortManagers.get(serialId);
-        return manager != null && manager.isOpen();
+        if (manager != null) {
+            return manager.isOpen();
+        }
+        SerialPortReactor.Channel channel = reactorChannels.get(serialId);
+        return channel != null && channel.isOpen();
     }
     
     /**
@@ -268,6 +639,11 @@ public class MultiSerialPortManager {
                 openedPorts.add(entry.getKey());
             }
         }
+        for (Map.Entry<String, SerialPortReactor.Channel> entry : reactorChannels.entrySet()) {
+            if (entry.getValue().isOpen()) {
+                openedPorts.add(entry.getKey());
+            }
+        }
         return openedPorts;
     }
     
@@ -278,24 +654,59 @@ public class MultiSerialPortManager {
         return serialConfigs.get(serialId);
     }
     
+    /**
+     * 获取指定串口的波特率，串口未打开时返回0
+     */
+    public int getBaudRate(String serialId) {
+        Integer baudRate = baudRates.get(serialId);
+        return baudRate != null ? baudRate : 0;
+    }
+    
+    /**
+     * 获取指定串口的运行指标快照（收发字节数/帧数、成帧错误、丢弃的写入、发送队列深度、延迟分布）
+     * 不依赖日志开关，串口未打开时返回null
+     */
+    public SerialPortMetrics.Snapshot getMetrics(String serialId) {
+        return metricsRegistry.snapshot(serialId);
+    }
+    
+    /**
+     * 获取所有已打开串口的运行指标快照
+     */
+    public Map<String, SerialPortMetrics.Snapshot> getAllMetrics() {
+        return metricsRegistry.snapshotAll();
+    }
+    
+    /**
+     * 获取运行指标注册表
+     */
+    public SerialPortMetricsRegistry getMetricsRegistry() {
+        return metricsRegistry;
+    }
+    
     /**
      * 更新指定串口的粘包处理器
      */
     public boolean updateStickyPacketHelpers(String serialId, AbsStickPackageHelper[] helpers) {
         SerialPortManager manager = serialPortManagers.get(serialId);
+        SerialPortReactor.Channel channel = reactorChannels.get(serialId);
         SerialConfig config = serialConfigs.get(serialId);
         
-        if (manager == null || config == null) {
+        if ((manager == null && channel == null) || config == null) {
             SerialPortLogUtil.e(TAG, "串口[" + serialId + "] 未打开，无法更新粘包处理器");
             return false;
         }
         
         config.setStickyPacketHelpers(helpers);
-        List<AbsStickPackageHelper> helperList = new ArrayList<>();
-        for (AbsStickPackageHelper helper : helpers) {
-            helperList.add(helper);
+        if (channel != null) {
+            channel.setStickPackageHelper(helpers.length > 0 ? helpers[0] : null);
+        } else {
+            List<AbsStickPackageHelper> helperList = new ArrayList<>();
+            for (AbsStickPackageHelper helper : helpers) {
+                helperList.add(helper);
+            }
+            manager.setStickPackageHelpers(helperList);
         }
-        manager.setStickPackageHelpers(helperList);
         
         SerialPortLogUtil.i(TAG, String.format("串口[%s] 更新粘包处理器，数量: %d", serialId, helpers.length));
         return true;
@@ -306,11 +717,16 @@ public class MultiSerialPortManager {
      */
     public void printAllSerialStatus() {
         SerialPortLogUtil.printSeparator(TAG, "所有串口状态");
-        if (serialPortManagers.isEmpty()) {
+        if (serialPortManagers.isEmpty() && reactorChannels.isEmpty()) {
             SerialPortLogUtil.i(TAG, "当前没有打开的串口");
             return;
         }
         
+        for (Map.Entry<String, SerialPortReactor.Channel> entry : reactorChannels.entrySet()) {
+            SerialPortLogUtil.i(TAG, String.format("串口[%s] - 状态: %s (反应器模式)", 
+                entry.getKey(), entry.getValue().isOpen() ? "已打开" : "已关闭"));
+        }
+        
         for (Map.Entry<String, SerialPortManager> entry : serialPortManagers.entrySet()) {
             String serialId = entry.getKey();
             SerialPortManager manager = entry.getValue();
@@ -382,6 +798,18 @@ public class MultiSerialPortManager {
          */
         void onDataReceived(String serialId, byte[] data);
         
+        /**
+         * 批量接收数据，仅在DispatchMode.MAIN_THREAD_BATCHED模式下回调，
+         * 包含同一帧内到达的全部数据，默认逐条转发给onDataReceived
+         * @param serialId 串口ID
+         * @param frames 按到达顺序排列的数据
+         */
+        default void onDataReceivedBatch(String serialId, List<byte[]> frames) {
+            for (byte[] frame : frames) {
+                onDataReceived(serialId, frame);
+            }
+        }
+        
         /**
          * 数据发送完成
          * @param serialId 串口ID
@@ -390,6 +818,17 @@ public class MultiSerialPortManager {
         default void onDataSent(String serialId, byte[] data) {
             // 默认空实现
         }
+        
+        /**
+         * 池化模式下接收到一帧（SerialPortConfig.Builder.setPooledFrames），默认复制为数组转发给onDataReceived
+         * FrameReleaseMode.AUTO时回调返回后帧即被释放，需要保留时先retain()；
+         * FrameReleaseMode.MANUAL时必须覆盖该方法并在用完后调用frame.release()
+         * @param serialId 串口ID
+         * @param frame 只读的池化帧
+         */
+        default void onFrameReceived(String serialId, SerialFrame frame) {
+            onDataReceived(serialId, frame.toByteArray());
+        }
     }
     
     /**
@@ -398,29 +837,59 @@ public class MultiSerialPortManager {
     public static class SerialPortConfig {
         private boolean enableLogging = true;
         private int intervalSleep = 50;
+        private boolean blockingRead = false;
+        private boolean reactorMode = false;
+        private boolean directBuffer = false;
+        private DispatchMode dispatchMode = DispatchMode.MAIN_THREAD;
+        private Executor dispatchExecutor;
         private int databits = 8;
         private int parity = 0;
         private int stopbits = 1;
         private int flags = 0;
+        private int maxInFlight = 1;
+        private boolean autoReconnect = false;
+        private int reconnectInterval = 5000;
+        private int maxReconnectAttempts = 3;
+        private FrameReleaseMode frameReleaseMode;
         private AbsStickPackageHelper[] stickyPacketHelpers;
         
         private SerialPortConfig(Builder builder) {
             this.enableLogging = builder.enableLogging;
             this.intervalSleep = builder.intervalSleep;
+            this.blockingRead = builder.blockingRead;
+            this.reactorMode = builder.reactorMode;
+            this.directBuffer = builder.directBuffer;
+            this.dispatchMode = builder.dispatchMode;
+            this.dispatchExecutor = builder.dispatchExecutor;
             this.databits = builder.databits;
             this.parity = builder.parity;
             this.stopbits = builder.stopbits;
             this.flags = builder.flags;
+            this.maxInFlight = builder.maxInFlight;
+            this.autoReconnect = builder.autoReconnect;
+            this.reconnectInterval = builder.reconnectInterval;
+            this.maxReconnectAttempts = builder.maxReconnectAttempts;
+            this.frameReleaseMode = builder.frameReleaseMode;
             this.stickyPacketHelpers = builder.stickyPacketHelpers;
         }
         
         public static class Builder {
             private boolean enableLogging = true;
             private int intervalSleep = 50;
+            private boolean blockingRead = false;
+            private boolean reactorMode = false;
+            private boolean directBuffer = false;
+            private DispatchMode dispatchMode = DispatchMode.MAIN_THREAD;
+            private Executor dispatchExecutor;
             private int databits = 8;
             private int parity = 0;
             private int stopbits = 1;
             private int flags = 0;
+            private int maxInFlight = 1;
+            private boolean autoReconnect = false;
+            private int reconnectInterval = 5000;
+            private int maxReconnectAttempts = 3;
+            private FrameReleaseMode frameReleaseMode;
             private AbsStickPackageHelper[] stickyPacketHelpers;
             
             public Builder setEnableLogging(boolean enableLogging) {
@@ -433,6 +902,50 @@ public class MultiSerialPortManager {
                 return this;
             }
             
+            /**
+             * 阻塞读取模式，开启后intervalSleep不再生效
+             */
+            public Builder setBlockingRead(boolean blockingRead) {
+                this.blockingRead = blockingRead;
+                return this;
+            }
+            
+            /**
+             * 反应器模式：所有反应器模式的串口共用一个epoll线程读写，不受6个SerialPortEnum的限制
+             * 只使用第一个粘包处理器，处理器不能在execute()中阻塞等待
+             */
+            public Builder setReactorMode(boolean reactorMode) {
+                this.reactorMode = reactorMode;
+                return this;
+            }
+            
+            /**
+             * direct ByteBuffer模式：直接在native内存上读写串口，不经过FileInputStream/FileOutputStream
+             */
+            public Builder setDirectBuffer(boolean directBuffer) {
+                this.directBuffer = directBuffer;
+                return this;
+            }
+            
+            /**
+             * 数据回调的分发方式，默认逐条post到主线程
+             * DIRECT在读取线程中直接回调；EXECUTOR需同时设置setDispatchExecutor；
+             * MAIN_THREAD_BATCHED在主线程按帧批量回调onDataReceivedBatch
+             */
+            public Builder setDispatchMode(DispatchMode dispatchMode) {
+                this.dispatchMode = dispatchMode;
+                return this;
+            }
+            
+            /**
+             * 设置回调Executor，同时把分发方式设为DispatchMode.EXECUTOR
+             */
+            public Builder setDispatchExecutor(Executor dispatchExecutor) {
+                this.dispatchExecutor = dispatchExecutor;
+                this.dispatchMode = DispatchMode.EXECUTOR;
+                return this;
+            }
+            
             public Builder setDatabits(int databits) {
                 this.databits = databits;
                 return this;
@@ -453,6 +966,49 @@ public class MultiSerialPortManager {
                 return this;
             }
             
+            /**
+             * sendRequest同时在途（已发送未应答）的最大请求数，默认1即一问一答
+             * 设备支持流水线处理且应答可以通过matcher区分时可以调大
+             */
+            public Builder setMaxInFlight(int maxInFlight) {
+                this.maxInFlight = maxInFlight;
+                return this;
+            }
+            
+            /**
+             * 自动重连，见SerialConfig.Builder.setAutoReconnect；只对读取线程模式生效，反应器模式不支持
+             */
+            public Builder setAutoReconnect(boolean autoReconnect) {
+                this.autoReconnect = autoReconnect;
+                return this;
+            }
+            
+            /**
+             * 重连间隔的上限（毫秒），默认5000
+             */
+            public Builder setReconnectInterval(int reconnectInterval) {
+                this.reconnectInterval = reconnectInterval;
+                return this;
+            }
+            
+            /**
+             * 设备存在但打开失败的最大次数，默认3，小于等于0表示不限
+             */
+            public Builder setMaxReconnectAttempts(int maxReconnectAttempts) {
+                this.maxReconnectAttempts = maxReconnectAttempts;
+                return this;
+            }
+            
+            /**
+             * 池化接收：RingBufferStickPackageHelper解析出的帧放在FramePool.getDefault()复用的缓冲中，
+             * 通过OnSerialPortDataCallback.onFrameReceived交付，不再为每帧分配byte[]；null（默认）关闭
+             * 泄漏检测通过FramePool.getDefault().setLeakDetection(BuildConfig.DEBUG)开启
+             */
+            public Builder setPooledFrames(FrameReleaseMode frameReleaseMode) {
+                this.frameReleaseMode = frameReleaseMode;
+                return this;
+            }
+            
             public Builder setStickyPacketHelpers(AbsStickPackageHelper... helpers) {
                 this.stickyPacketHelpers = helpers;
                 return this;
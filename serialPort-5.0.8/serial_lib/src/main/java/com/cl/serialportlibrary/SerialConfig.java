@@ -1,5 +1,6 @@
 package com.cl.serialportlibrary;
 
+import com.cl.serialportlibrary.enumerate.WriteOverflowPolicy;
 import com.cl.serialportlibrary.stick.AbsStickPackageHelper;
 import com.cl.serialportlibrary.stick.BaseStickPackageHelper;
 
@@ -12,8 +13,10 @@ public class SerialConfig {
 
     //配置日志相关参数
     private boolean enableLogging;
-    //串口接收间隔时间
+    //串口接收间隔时间，仅用于轮询读取模式
     private int intervalSleep;
+    //阻塞读取模式，读取线程在poll()中等待数据
+    private boolean blockingRead;
     //串口重连机制
     private boolean serialPortReconnection;
     int flags;
@@ -29,11 +32,23 @@ public class SerialConfig {
     private boolean autoReconnect;
     private int reconnectInterval;
     private int maxReconnectAttempts;
+    
+    // 使用direct ByteBuffer直接读写串口
+    private boolean directBuffer;
+    // 不启动读取线程，由调用方通过SerialPortManager.read(ByteBuffer)读取
+    private boolean manualRead;
+    
+    // 发送队列相关配置
+    private int sendQueueCapacity;
+    private WriteOverflowPolicy writeOverflowPolicy;
+    private long writeBlockTimeout;
+    private int maxWriteBatchSize;
 
 
     public SerialConfig(Builder builder) {
         this.enableLogging=builder.enableLogging;
         this.intervalSleep=builder.intervalSleep;
+        this.blockingRead=builder.blockingRead;
         this.serialPortReconnection=builder.serialPortReconnection;
         this.flags=builder.flags;
         this.databits=builder.databits;
@@ -46,6 +61,12 @@ public class SerialConfig {
         this.autoReconnect=builder.autoReconnect;
         this.reconnectInterval=builder.reconnectInterval;
         this.maxReconnectAttempts=builder.maxReconnectAttempts;
+        this.directBuffer=builder.directBuffer;
+        this.manualRead=builder.manualRead;
+        this.sendQueueCapacity=builder.sendQueueCapacity;
+        this.writeOverflowPolicy=builder.writeOverflowPolicy;
+        this.writeBlockTimeout=builder.writeBlockTimeout;
+        this.maxWriteBatchSize=builder.maxWriteBatchSize;
     }
 
 
@@ -61,6 +82,14 @@ public class SerialConfig {
         return intervalSleep;
     }
 
+    public boolean isBlockingRead() {
+        return blockingRead;
+    }
+
+    public void setBlockingRead(boolean blockingRead) {
+        this.blockingRead = blockingRead;
+    }
+
     public boolean isSerialPortReconnection() {
         return serialPortReconnection;
     }
@@ -157,12 +186,62 @@ public class SerialConfig {
         this.maxReconnectAttempts = maxReconnectAttempts;
     }
 
+    public boolean isDirectBuffer() {
+        return directBuffer;
+    }
+
+    public void setDirectBuffer(boolean directBuffer) {
+        this.directBuffer = directBuffer;
+    }
+
+    public boolean isManualRead() {
+        return manualRead;
+    }
+
+    public void setManualRead(boolean manualRead) {
+        this.manualRead = manualRead;
+    }
+
+    public int getSendQueueCapacity() {
+        return sendQueueCapacity;
+    }
+
+    public void setSendQueueCapacity(int sendQueueCapacity) {
+        this.sendQueueCapacity = sendQueueCapacity;
+    }
+
+    public WriteOverflowPolicy getWriteOverflowPolicy() {
+        return writeOverflowPolicy;
+    }
+
+    public void setWriteOverflowPolicy(WriteOverflowPolicy writeOverflowPolicy) {
+        this.writeOverflowPolicy = writeOverflowPolicy;
+    }
+
+    public long getWriteBlockTimeout() {
+        return writeBlockTimeout;
+    }
+
+    public void setWriteBlockTimeout(long writeBlockTimeout) {
+        this.writeBlockTimeout = writeBlockTimeout;
+    }
+
+    public int getMaxWriteBatchSize() {
+        return maxWriteBatchSize;
+    }
+
+    public void setMaxWriteBatchSize(int maxWriteBatchSize) {
+        this.maxWriteBatchSize = maxWriteBatchSize;
+    }
+
     public static class Builder {
 
         //配置日志相关参数
         private boolean enableLogging = true;
-        //串口接收间隔时间
+        //串口接收间隔时间，仅用于轮询读取模式
         private int intervalSleep = 50;
+        //阻塞读取模式
+        private boolean blockingRead = false;
         //串口重连机制
         private boolean serialPortReconnection = false;
         // 标志位
@@ -182,6 +261,17 @@ public class SerialConfig {
         private boolean autoReconnect = false;
         private int reconnectInterval = 5000;
         private int maxReconnectAttempts = 3;
+        
+        // 使用direct ByteBuffer直接读写串口
+        private boolean directBuffer = false;
+        // 不启动读取线程，由调用方通过SerialPortManager.read(ByteBuffer)读取
+        private boolean manualRead = false;
+        
+        // 发送队列相关配置
+        private int sendQueueCapacity = 1024;
+        private WriteOverflowPolicy writeOverflowPolicy = WriteOverflowPolicy.FAIL_FAST;
+        private long writeBlockTimeout = 1000;
+        private int maxWriteBatchSize = 4096;
 
         public Builder setEnableLogging(boolean enableLogging) {
             this.enableLogging = enableLogging;
@@ -193,6 +283,14 @@ public class SerialConfig {
             return this;
         }
 
+        /**
+         * 阻塞读取模式：读取线程在poll()中休眠，数据到达后立即处理，不再按intervalSleep轮询
+         */
+        public Builder setBlockingRead(boolean blockingRead) {
+            this.blockingRead = blockingRead;
+            return this;
+        }
+
         public Builder setSerialPortReconnection(boolean serialReconnection) {
             serialPortReconnection = serialReconnection;
             return this;
@@ -238,21 +336,80 @@ public class SerialConfig {
             return this;
         }
 
+        /**
+         * 自动重连：监听设备节点的拔出和插入，断开后重新打开串口，发送队列中的数据保留到重连后发送
+         */
         public Builder setAutoReconnect(boolean autoReconnect) {
             this.autoReconnect = autoReconnect;
             return this;
         }
 
+        /**
+         * 重连间隔的上限（毫秒），打开失败后从10ms开始按指数退避，设备未插入时按此间隔检查
+         */
         public Builder setReconnectInterval(int reconnectInterval) {
             this.reconnectInterval = reconnectInterval;
             return this;
         }
 
+        /**
+         * 设备存在但打开失败的最大次数，超过后关闭串口，小于等于0表示不限；等待设备插入不计入次数
+         */
         public Builder setMaxReconnectAttempts(int maxReconnectAttempts) {
             this.maxReconnectAttempts = maxReconnectAttempts;
             return this;
         }
 
+        /**
+         * 使用direct ByteBuffer直接读写串口，不经过FileInputStream/FileOutputStream
+         * 适用于高波特率，减少每次读写的JNI数组拷贝
+         */
+        public Builder setDirectBuffer(boolean directBuffer) {
+            this.directBuffer = directBuffer;
+            return this;
+        }
+
+        /**
+         * 不启动读取线程，由调用方通过SerialPortManager.read(ByteBuffer)自行读取，需要同时开启direct ByteBuffer模式
+         * 开启后黏包处理器和数据接收监听不会收到数据
+         */
+        public Builder setManualRead(boolean manualRead) {
+            this.manualRead = manualRead;
+            return this;
+        }
+
+        /**
+         * 发送队列容量（待发送数据的条数）
+         */
+        public Builder setSendQueueCapacity(int sendQueueCapacity) {
+            this.sendQueueCapacity = sendQueueCapacity;
+            return this;
+        }
+
+        /**
+         * 发送队列已满时的处理策略
+         */
+        public Builder setWriteOverflowPolicy(WriteOverflowPolicy writeOverflowPolicy) {
+            this.writeOverflowPolicy = writeOverflowPolicy;
+            return this;
+        }
+
+        /**
+         * BLOCK策略下等待队列空位的最长时间（毫秒），超时后本次写入失败
+         */
+        public Builder setWriteBlockTimeout(long writeBlockTimeout) {
+            this.writeBlockTimeout = writeBlockTimeout;
+            return this;
+        }
+
+        /**
+         * 合并写入的最大字节数，相邻的小数据合并后一次写出
+         */
+        public Builder setMaxWriteBatchSize(int maxWriteBatchSize) {
+            this.maxWriteBatchSize = maxWriteBatchSize;
+            return this;
+        }
+
         public SerialConfig build() {
             return new SerialConfig(this);
         }
@@ -0,0 +1,266 @@
+package com.cl.serialportlibrary;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import com.cl.serialportlibrary.enumerate.DispatchMode;
+import com.cl.serialportlibrary.enumerate.FrameReleaseMode;
+import com.cl.serialportlibrary.stick.SerialFrame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 串口数据回调分发器
+ * 按DispatchMode把读取/发送线程中产生的数据交给回调：直接回调、交给Executor、逐条post到主线程，
+ * 或者在主线程按帧批量回调（同一帧内到达的数据只占用一次主线程消息）
+ * 池化帧按同样的方式分发，FrameReleaseMode.AUTO时在回调返回后释放，停止分发时丢弃的帧同样会释放
+ */
+final class SerialDataDispatcher {
+
+    /**
+     * 分发目标，批量模式下接收的数据通过onDataReceived(List)一次交付
+     */
+    interface Target {
+        void onDataReceived(byte[] data);
+
+        void onDataReceived(List<byte[]> batch);
+
+        /**
+         * 池化帧，默认复制为数组交给onDataReceived
+         */
+        default void onFrameReceived(SerialFrame frame) {
+            onDataReceived(frame.toByteArray());
+        }
+
+        void onDataSent(byte[] data);
+    }
+
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+
+    private final DispatchMode mode;
+    private final Executor executor;
+    private final Target target;
+    private final SerialPortMetrics metrics;
+    private final FrameReleaseMode frameReleaseMode;
+    private volatile boolean released;
+
+    // 以下字段仅用于MAIN_THREAD_BATCHED
+    private final ConcurrentLinkedQueue<byte[]> pendingReceived = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<byte[]> pendingSent = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<SerialFrame> pendingFrames = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean frameScheduled = new AtomicBoolean();
+    // 本帧第一条待交付数据的到达时间
+    private volatile long batchStartTime;
+    private final Choreographer.FrameCallback frameCallback = frameTimeNanos -> drain();
+    private final Runnable scheduleFrame = () -> Choreographer.getInstance().postFrameCallback(frameCallback);
+
+    SerialDataDispatcher(DispatchMode mode, Executor executor, Target target) {
+        this(mode, executor, target, null);
+    }
+
+    /**
+     * @param metrics 用于记录读取到回调的延迟，可以为null
+     */
+    SerialDataDispatcher(DispatchMode mode, Executor executor, Target target, SerialPortMetrics metrics) {
+        this(mode, executor, target, metrics, FrameReleaseMode.AUTO);
+    }
+
+    /**
+     * @param frameReleaseMode 池化帧的释放方式
+     */
+    SerialDataDispatcher(DispatchMode mode, Executor executor, Target target, SerialPortMetrics metrics,
+                         FrameReleaseMode frameReleaseMode) {
+        if (mode == DispatchMode.EXECUTOR && executor == null) {
+            throw new IllegalArgumentException("DispatchMode.EXECUTOR 需要提供Executor");
+        }
+        this.mode = mode != null ? mode : DispatchMode.MAIN_THREAD;
+        this.executor = executor;
+        this.target = target;
+        this.metrics = metrics;
+        this.frameReleaseMode = frameReleaseMode != null ? frameReleaseMode : FrameReleaseMode.AUTO;
+    }
+
+    /**
+     * 分发接收到的数据，在读取线程中调用
+     */
+    void dispatchReceived(byte[] data) {
+        if (released) {
+            return;
+        }
+        long readTime = System.nanoTime();
+        switch (mode) {
+            case DIRECT:
+                deliverReceived(data, readTime);
+                break;
+            case EXECUTOR:
+                executor.execute(() -> deliverReceived(data, readTime));
+                break;
+            case MAIN_THREAD_BATCHED:
+                if (pendingReceived.isEmpty()) {
+                    batchStartTime = readTime;
+                }
+                pendingReceived.offer(data);
+                scheduleFrame();
+                break;
+            default:
+                MAIN_HANDLER.post(() -> deliverReceived(data, readTime));
+                break;
+        }
+    }
+
+    /**
+     * 分发接收到的池化帧，在读取线程中调用
+     */
+    void dispatchReceived(SerialFrame frame) {
+        if (released) {
+            frame.release();
+            return;
+        }
+        long readTime = System.nanoTime();
+        switch (mode) {
+            case DIRECT:
+                deliverFrame(frame, readTime);
+                break;
+            case EXECUTOR:
+                executor.execute(() -> deliverFrame(frame, readTime));
+                break;
+            case MAIN_THREAD_BATCHED:
+                if (pendingReceived.isEmpty() && pendingFrames.isEmpty()) {
+                    batchStartTime = readTime;
+                }
+                pendingFrames.offer(frame);
+                scheduleFrame();
+                break;
+            default:
+                MAIN_HANDLER.post(() -> deliverFrame(frame, readTime));
+                break;
+        }
+    }
+
+    /**
+     * 分发已发送的数据，在发送线程中调用
+     */
+    void dispatchSent(byte[] data) {
+        if (released) {
+            return;
+        }
+        switch (mode) {
+            case DIRECT:
+                target.onDataSent(data);
+                break;
+            case EXECUTOR:
+                executor.execute(() -> deliverSent(data));
+                break;
+            case MAIN_THREAD_BATCHED:
+                pendingSent.offer(data);
+                scheduleFrame();
+                break;
+            default:
+                MAIN_HANDLER.post(() -> deliverSent(data));
+                break;
+        }
+    }
+
+    /**
+     * 停止分发，丢弃尚未交付的数据
+     */
+    void release() {
+        released = true;
+        pendingReceived.clear();
+        pendingSent.clear();
+        releasePendingFrames();
+    }
+
+    DispatchMode getMode() {
+        return mode;
+    }
+
+    private void deliverReceived(byte[] data, long readTime) {
+        if (!released) {
+            if (metrics != null) {
+                metrics.recordReadToCallback(System.nanoTime() - readTime);
+            }
+            target.onDataReceived(data);
+        }
+    }
+
+    private void deliverFrame(SerialFrame frame, long readTime) {
+        if (released) {
+            frame.release();
+            return;
+        }
+        if (metrics != null) {
+            metrics.recordReadToCallback(System.nanoTime() - readTime);
+        }
+        if (frameReleaseMode == FrameReleaseMode.MANUAL) {
+            target.onFrameReceived(frame);
+            return;
+        }
+        try {
+            target.onFrameReceived(frame);
+        } finally {
+            frame.release();
+        }
+    }
+
+    private void releasePendingFrames() {
+        SerialFrame frame;
+        while ((frame = pendingFrames.poll()) != null) {
+            frame.release();
+        }
+    }
+
+    private void deliverSent(byte[] data) {
+        if (!released) {
+            target.onDataSent(data);
+        }
+    }
+
+    private void scheduleFrame() {
+        // 每帧只注册一次帧回调，Choreographer需要在主线程获取
+        if (frameScheduled.compareAndSet(false, true)) {
+            MAIN_HANDLER.post(scheduleFrame);
+        }
+    }
+
+    /**
+     * 帧回调中交付本帧之前到达的全部数据
+     */
+    private void drain() {
+        // 先清除标记，交付过程中新到达的数据会注册下一帧
+        frameScheduled.set(false);
+        if (released) {
+            releasePendingFrames();
+            return;
+        }
+        byte[] data;
+        while ((data = pendingSent.poll()) != null) {
+            target.onDataSent(data);
+        }
+        SerialFrame frame;
+        while ((frame = pendingFrames.poll()) != null) {
+            deliverFrame(frame, batchStartTime);
+        }
+        if (pendingReceived.isEmpty()) {
+            return;
+        }
+        long startTime = batchStartTime;
+        List<byte[]> batch = new ArrayList<>();
+        while ((data = pendingReceived.poll()) != null) {
+            batch.add(data);
+        }
+        if (metrics != null) {
+            // 批量模式按本帧最早到达的数据记录，为延迟上限
+            long latency = System.nanoTime() - startTime;
+            for (int i = 0; i < batch.size(); i++) {
+                metrics.recordReadToCallback(latency);
+            }
+        }
+        target.onDataReceived(batch);
+    }
+}
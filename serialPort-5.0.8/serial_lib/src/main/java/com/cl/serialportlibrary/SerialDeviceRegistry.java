@@ -0,0 +1,352 @@
+package com.cl.serialportlibrary;
+
+import android.os.Build;
+import android.os.FileObserver;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.RequiresApi;
+
+import com.cl.serialportlibrary.utils.SerialPortLogUtil;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.LineNumberReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 串口设备列表
+ * 首次使用时读取一次/proc/tty/drivers并列出一次/dev，之后用FileObserver（inotify）监听/dev，
+ * 按节点的创建和删除增量更新；查询直接返回不可修改的快照，不读取文件
+ * 出现不属于已知驱动的节点时重新读取一次驱动列表（如USB转串口驱动在首次插入时才注册）
+ * /dev的FileObserver在进程内只有一个：Android 10之前同一目录的多个FileObserver共用一个inotify watch，
+ * 任意一个stopWatching()都会让其他的收不到事件，需要监听/dev的类通过addNodeListener()共用
+ */
+public final class SerialDeviceRegistry {
+
+    private static final String TAG = "SerialDeviceRegistry";
+    private static final String DEV_PATH = "/dev";
+    private static final String DRIVERS_PATH = "/proc/tty/drivers";
+    private static final String SERIAL_FIELD = "serial";
+    static final int NODE_EVENTS = FileObserver.CREATE | FileObserver.DELETE
+            | FileObserver.MOVED_FROM | FileObserver.MOVED_TO | FileObserver.ATTRIB;
+
+    private static volatile SerialDeviceRegistry instance;
+
+    /**
+     * 设备插入和移除监听，在主线程中回调
+     */
+    public interface OnDeviceChangeListener {
+        void onDeviceAdded(Device device);
+
+        void onDeviceRemoved(Device device);
+    }
+
+    /**
+     * /dev下节点的原始事件，在FileObserver线程中回调
+     */
+    interface NodeListener {
+        /**
+         * @param event FileObserver事件
+         * @param name  节点名（不含目录）
+         */
+        void onNodeEvent(int event, String name);
+    }
+
+    private final File devDir;
+    private final String driversPath;
+    private final FileObserver observer;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final List<OnDeviceChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final List<NodeListener> nodeListeners = new CopyOnWriteArrayList<>();
+    private final Object lock = new Object();
+    // 以下由lock保护
+    private List<Driver> drivers = new ArrayList<>();
+    private final Map<String, Device> devices = new LinkedHashMap<>();
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    private SerialDeviceRegistry(File devDir, String driversPath) {
+        this.devDir = devDir;
+        this.driversPath = driversPath;
+        this.observer = createNodeObserver(devDir, this::onNodeEvent);
+    }
+
+    /**
+     * 监听目录下节点的创建和删除，API 29起使用File构造方法，之前的版本只有已废弃的String构造方法
+     */
+    static FileObserver createNodeObserver(File dir, NodeListener listener) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            return new NodeObserver(dir, listener);
+        }
+        return new NodeObserver(dir.getPath(), listener);
+    }
+
+    /**
+     * 获取单例，首次调用时扫描设备并开始监听/dev
+     */
+    public static SerialDeviceRegistry getInstance() {
+        if (instance == null) {
+            synchronized (SerialDeviceRegistry.class) {
+                if (instance == null) {
+                    SerialDeviceRegistry registry = new SerialDeviceRegistry(new File(DEV_PATH), DRIVERS_PATH);
+                    registry.observer.startWatching();
+                    registry.refresh();
+                    instance = registry;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 当前的串口设备，不可修改
+     */
+    public List<Device> getDevices() {
+        return snapshot.devices;
+    }
+
+    /**
+     * 当前的串口设备路径，不可修改
+     */
+    public List<String> getDevicePaths() {
+        return snapshot.paths;
+    }
+
+    /**
+     * 按路径查找设备
+     *
+     * @return 设备，不存在时返回null
+     */
+    public Device getDevice(String path) {
+        return snapshot.byPath.get(path);
+    }
+
+    public void addOnDeviceChangeListener(OnDeviceChangeListener listener) {
+        if (listener != null && !listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+    }
+
+    public void removeOnDeviceChangeListener(OnDeviceChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    void addNodeListener(NodeListener listener) {
+        nodeListeners.add(listener);
+    }
+
+    void removeNodeListener(NodeListener listener) {
+        nodeListeners.remove(listener);
+    }
+
+    /**
+     * /dev目录，设备在此目录下时才能通过addNodeListener()收到事件
+     */
+    File getDevDir() {
+        return devDir;
+    }
+
+    /**
+     * 重新读取驱动列表并扫描/dev，收不到/dev事件时（如SELinux不允许监听）用于手动更新
+     */
+    public void refresh() {
+        List<Device> added = new ArrayList<>();
+        List<Device> removed = new ArrayList<>();
+        synchronized (lock) {
+            drivers = readDrivers();
+            Map<String, Device> scanned = new LinkedHashMap<>();
+            File[] files = devDir.listFiles();
+            if (files != null) {
+                Arrays.sort(files);
+                for (Driver driver : drivers) {
+                    for (File file : files) {
+                        String path = file.getAbsolutePath();
+                        if (path.startsWith(driver.getRoot()) && !scanned.containsKey(path)) {
+                            scanned.put(path, new Device(file.getName(), driver.getName(), file));
+                        }
+                    }
+                }
+            }
+            for (Map.Entry<String, Device> entry : devices.entrySet()) {
+                if (!scanned.containsKey(entry.getKey())) {
+                    removed.add(entry.getValue());
+                }
+            }
+            for (Map.Entry<String, Device> entry : scanned.entrySet()) {
+                if (!devices.containsKey(entry.getKey())) {
+                    added.add(entry.getValue());
+                }
+            }
+            devices.clear();
+            devices.putAll(scanned);
+            publish();
+        }
+        notifyChanged(added, removed);
+    }
+
+    void onNodeEvent(int event, String name) {
+        for (NodeListener listener : nodeListeners) {
+            listener.onNodeEvent(event, name);
+        }
+        if ((event & (FileObserver.CREATE | FileObserver.MOVED_TO)) != 0) {
+            onNodeCreated(name);
+        } else if ((event & (FileObserver.DELETE | FileObserver.MOVED_FROM)) != 0) {
+            onNodeDeleted(name);
+        }
+    }
+
+    private void onNodeCreated(String name) {
+        File file = new File(devDir, name);
+        String path = file.getAbsolutePath();
+        Device device;
+        synchronized (lock) {
+            if (devices.containsKey(path)) {
+                return;
+            }
+            Driver driver = findDriver(path);
+            if (driver == null) {
+                // 可能是新注册的驱动，重新读取驱动列表
+                drivers = readDrivers();
+                driver = findDriver(path);
+            }
+            if (driver == null) {
+                return;
+            }
+            device = new Device(name, driver.getName(), file);
+            devices.put(path, device);
+            publish();
+        }
+        SerialPortLogUtil.i(TAG, "设备插入: " + path);
+        notifyChanged(Collections.singletonList(device), Collections.<Device>emptyList());
+    }
+
+    private void onNodeDeleted(String name) {
+        String path = new File(devDir, name).getAbsolutePath();
+        Device device;
+        synchronized (lock) {
+            device = devices.remove(path);
+            if (device == null) {
+                return;
+            }
+            publish();
+        }
+        SerialPortLogUtil.i(TAG, "设备移除: " + path);
+        notifyChanged(Collections.<Device>emptyList(), Collections.singletonList(device));
+    }
+
+    /**
+     * 在持有lock时调用
+     */
+    private Driver findDriver(String path) {
+        for (Driver driver : drivers) {
+            if (path.startsWith(driver.getRoot())) {
+                return driver;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 在持有lock时调用
+     */
+    private void publish() {
+        List<Device> list = new ArrayList<>(devices.values());
+        List<String> paths = new ArrayList<>(devices.keySet());
+        snapshot = new Snapshot(Collections.unmodifiableList(list), Collections.unmodifiableList(paths),
+                Collections.unmodifiableMap(new HashMap<>(devices)));
+    }
+
+    private void notifyChanged(final List<Device> added, final List<Device> removed) {
+        if (listeners.isEmpty() || (added.isEmpty() && removed.isEmpty())) {
+            return;
+        }
+        handler.post(() -> {
+            for (OnDeviceChangeListener listener : listeners) {
+                for (Device device : removed) {
+                    listener.onDeviceRemoved(device);
+                }
+                for (Device device : added) {
+                    listener.onDeviceAdded(device);
+                }
+            }
+        });
+    }
+
+    private List<Driver> readDrivers() {
+        List<Driver> result = new ArrayList<>();
+        LineNumberReader reader = null;
+        try {
+            reader = new LineNumberReader(new FileReader(driversPath));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(" +");
+                if (fields.length >= 5 && fields[fields.length - 1].equals(SERIAL_FIELD)) {
+                    String driverName = line.substring(0, Math.min(0x15, line.length())).trim();
+                    SerialPortLogUtil.d(TAG, "Found new driver " + driverName + " on " + fields[fields.length - 4]);
+                    result.add(new Driver(driverName, fields[fields.length - 4]));
+                }
+            }
+        } catch (IOException e) {
+            SerialPortLogUtil.e(TAG, "读取驱动列表失败: " + e.getMessage());
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+        return result;
+    }
+
+    private static final class NodeObserver extends FileObserver {
+
+        private final NodeListener listener;
+
+        @RequiresApi(Build.VERSION_CODES.Q)
+        NodeObserver(File dir, NodeListener listener) {
+            super(dir, NODE_EVENTS);
+            this.listener = listener;
+        }
+
+        // API 29以下没有File构造方法
+        @SuppressWarnings("deprecation")
+        NodeObserver(String path, NodeListener listener) {
+            super(path, NODE_EVENTS);
+            this.listener = listener;
+        }
+
+        @Override
+        public void onEvent(int event, String path) {
+            if (path != null) {
+                listener.onNodeEvent(event & FileObserver.ALL_EVENTS, path);
+            }
+        }
+    }
+
+    /**
+     * 不可修改的设备列表快照
+     */
+    private static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(Collections.<Device>emptyList(), Collections.<String>emptyList(),
+                Collections.<String, Device>emptyMap());
+
+        final List<Device> devices;
+        final List<String> paths;
+        final Map<String, Device> byPath;
+
+        Snapshot(List<Device> devices, List<String> paths, Map<String, Device> byPath) {
+            this.devices = devices;
+            this.paths = paths;
+            this.byPath = byPath;
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.cl.serialportlibrary;
 import java.io.File;
 import java.io.FileDescriptor;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 public class SerialPort {
 
@@ -12,6 +13,21 @@ public class SerialPort {
 
     private static final String TAG = SerialPort.class.getSimpleName();
 
+    // waitReadable() 返回值
+    public static final int WAIT_READABLE = 1;
+    public static final int WAIT_TIMEOUT = 0;
+    public static final int WAIT_ERROR = -1;
+    public static final int WAIT_WOKEN = -2;
+
+    // epoll 事件与操作，取值与 <sys/epoll.h> 一致
+    static final int EPOLLIN = 0x001;
+    static final int EPOLLOUT = 0x004;
+    static final int EPOLLERR = 0x008;
+    static final int EPOLLHUP = 0x010;
+    static final int EPOLL_CTL_ADD = 1;
+    static final int EPOLL_CTL_DEL = 2;
+    static final int EPOLL_CTL_MOD = 3;
+
     /**
      * 文件设置最高权限 777 可读 可写 可执行
      *
@@ -44,4 +60,101 @@ public class SerialPort {
 
     // 关闭串口
     protected native void close();
+
+    /**
+     * 在poll()中等待串口可读，线程在内核中休眠直到数据到达
+     *
+     * @param fd        串口文件描述符
+     * @param wakeFd    createWakeFd()创建的唤醒描述符，-1表示不使用
+     * @param timeoutMs 超时时间，-1表示一直等待
+     * @return WAIT_READABLE、WAIT_TIMEOUT、WAIT_WOKEN 或 WAIT_ERROR
+     */
+    protected static native int waitReadable(FileDescriptor fd, int wakeFd, int timeoutMs);
+
+    // 创建用于唤醒waitReadable()的eventfd，失败返回-1
+    protected static native int createWakeFd();
+
+    // 唤醒正在waitReadable()中等待的线程
+    protected static native void wakeUp(int wakeFd);
+
+    // 关闭唤醒描述符
+    protected static native void closeWakeFd(int wakeFd);
+
+    // 获取FileDescriptor对应的整型描述符
+    static native int getDescriptor(FileDescriptor fd);
+
+    // 设置O_NONBLOCK，失败返回-1
+    static native int setNonBlocking(int fd);
+
+    // 非阻塞读取，返回读取字节数，无数据返回0，结束或出错返回-1
+    static native int readNonBlocking(int fd, byte[] buffer, int offset, int length);
+
+    // 非阻塞写入，返回写入字节数，输出缓冲区已满返回0，出错返回-1
+    static native int writeNonBlocking(int fd, byte[] buffer, int offset, int length);
+
+    // 读取到direct ByteBuffer的[position, position+length)，返回读取字节数，非阻塞且无数据返回0，结束或出错返回-1
+    static native int readDirect(int fd, ByteBuffer buffer, int position, int length);
+
+    // 从direct ByteBuffer的[position, position+length)写入，返回写入字节数，非阻塞且输出缓冲区已满返回0，出错返回-1
+    static native int writeDirect(int fd, ByteBuffer buffer, int position, int length);
+
+    // 输入队列中可读的字节数(FIONREAD)，出错返回-1
+    static native int bytesAvailable(int fd);
+
+    /**
+     * 从串口读取到direct ByteBuffer，读取position到limit之间的空间，完成后position后移
+     * 数据直接写入缓冲区内存，不经过Java数组
+     *
+     * @param fd     整型描述符
+     * @param buffer direct ByteBuffer
+     * @return 读取的字节数
+     * @throws IOException 读取失败或串口已关闭
+     */
+    static int read(int fd, ByteBuffer buffer) throws IOException {
+        checkDirect(buffer);
+        int position = buffer.position();
+        int read = readDirect(fd, buffer, position, buffer.remaining());
+        if (read < 0) {
+            throw new IOException("串口读取失败, fd = " + fd);
+        }
+        buffer.position(position + read);
+        return read;
+    }
+
+    /**
+     * 把direct ByteBuffer中position到limit之间的数据写入串口，完成后position后移
+     *
+     * @param fd     整型描述符
+     * @param buffer direct ByteBuffer
+     * @return 写入的字节数，可能小于remaining()
+     * @throws IOException 写入失败
+     */
+    static int write(int fd, ByteBuffer buffer) throws IOException {
+        checkDirect(buffer);
+        int position = buffer.position();
+        int written = writeDirect(fd, buffer, position, buffer.remaining());
+        if (written < 0) {
+            throw new IOException("串口写入失败, fd = " + fd);
+        }
+        buffer.position(position + written);
+        return written;
+    }
+
+    private static void checkDirect(ByteBuffer buffer) {
+        if (!buffer.isDirect()) {
+            throw new IllegalArgumentException("需要使用ByteBuffer.allocateDirect()创建的缓冲区");
+        }
+    }
+
+    // 关闭整型描述符
+    static native void closeDescriptor(int fd);
+
+    // 创建epoll实例，失败返回-1
+    static native int epollCreate();
+
+    // epoll_ctl，失败返回-1
+    static native int epollControl(int epfd, int op, int fd, int events);
+
+    // epoll_wait，就绪的描述符与事件写入fds/events，返回就绪数量，超时返回0，出错返回-1
+    static native int epollWait(int epfd, int[] fds, int[] events, int timeoutMs);
 }
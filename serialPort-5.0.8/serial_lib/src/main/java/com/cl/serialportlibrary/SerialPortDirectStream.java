@@ -0,0 +1,121 @@
+package com.cl.serialportlibrary;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * 基于direct ByteBuffer的串口输入/输出流
+ * read/write直接在direct缓冲区内存上调用read(2)/write(2)，不经过FileInputStream/FileOutputStream；
+ * 输入流同时是ReadableByteChannel，黏包处理器的ByteRingBuffer通过read(ByteBuffer)把数据直接读入自己的direct存储，
+ * 在原处解析。按byte[]读写时仍要在direct缓冲区和数组之间复制一次。
+ * 描述符由SerialPort持有，关闭流不会关闭串口
+ */
+final class SerialPortDirectStream {
+
+    static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private SerialPortDirectStream() {}
+
+    static final class Input extends InputStream implements ReadableByteChannel {
+        private final int fd;
+        private final int bufferSize;
+        //只在按byte[]读取时使用，按需创建
+        private ByteBuffer buffer;
+        private final byte[] single = new byte[1];
+        private volatile boolean closed;
+
+        Input(int fd, int bufferSize) {
+            this.fd = fd;
+            this.bufferSize = bufferSize;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = read(single, 0, 1);
+            return read == 1 ? single[0] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (buffer == null) {
+                buffer = ByteBuffer.allocateDirect(bufferSize);
+            }
+            buffer.clear();
+            buffer.limit(Math.min(len, buffer.capacity()));
+            int read = SerialPort.read(fd, buffer);
+            buffer.flip();
+            buffer.get(b, off, read);
+            return read;
+        }
+
+        /**
+         * 直接读取到调用方的direct ByteBuffer（position到limit之间），供在原处解析数据的ByteRingBuffer使用
+         */
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return SerialPort.read(fd, dst);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return !closed;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        @Override
+        public int available() throws IOException {
+            int available = SerialPort.bytesAvailable(fd);
+            if (available < 0) {
+                throw new IOException("获取可读字节数失败, fd = " + fd);
+            }
+            return available;
+        }
+    }
+
+    static final class Output extends OutputStream {
+        private final int fd;
+        private final ByteBuffer buffer;
+
+        Output(int fd, int bufferSize) {
+            this.fd = fd;
+            this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int chunk = Math.min(len, buffer.capacity());
+                buffer.clear();
+                buffer.put(b, off, chunk);
+                buffer.flip();
+                write(buffer);
+                off += chunk;
+                len -= chunk;
+            }
+        }
+
+        /**
+         * 写出调用方direct ByteBuffer中的全部剩余数据
+         */
+        void write(ByteBuffer src) throws IOException {
+            while (src.hasRemaining()) {
+                SerialPort.write(fd, src);
+            }
+        }
+    }
+}
@@ -1,17 +1,23 @@
 package com.cl.serialportlibrary;
 
-import android.os.Handler;
-import android.os.HandlerThread;
-import android.os.Message;
-
+import com.cl.serialportlibrary.capture.SerialCaptureReader;
+import com.cl.serialportlibrary.capture.SerialCaptureReplayer;
+import com.cl.serialportlibrary.capture.SerialCaptureWriter;
 import com.cl.serialportlibrary.utils.SerialPortLogUtil;
+import com.cl.serialportlibrary.enumerate.CaptureDirection;
 import com.cl.serialportlibrary.enumerate.SerialPortEnum;
 import com.cl.serialportlibrary.enumerate.SerialStatus;
+import com.cl.serialportlibrary.enumerate.WriteOverflowPolicy;
 import com.cl.serialportlibrary.listener.OnOpenSerialPortListener;
 import com.cl.serialportlibrary.listener.OnSerialPortDataListener;
 import com.cl.serialportlibrary.thread.SerialPortReadThread;
+import com.cl.serialportlibrary.thread.SerialPortWriteThread;
+import com.cl.serialportlibrary.thread.SerialWriteFuture;
 import com.cl.serialportlibrary.stick.AbsStickPackageHelper;
 import com.cl.serialportlibrary.stick.BaseStickPackageHelper;
+import com.cl.serialportlibrary.stick.FramePool;
+import com.cl.serialportlibrary.stick.RingBufferStickPackageHelper;
+import com.cl.serialportlibrary.stick.SerialFrame;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -23,25 +29,42 @@ import java.io.FileDescriptor;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 
 public class SerialPortManager extends SerialPort {
 
     private static final String TAG = SerialPortManager.class.getSimpleName();
-    private FileInputStream mFileInputStream;
-    private FileOutputStream mFileOutputStream;
+    private InputStream mFileInputStream;
+    private OutputStream mFileOutputStream;
     private FileDescriptor mFd;
+    //direct ByteBuffer模式下的整型描述符
+    private int mDescriptor = -1;
     private OnOpenSerialPortListener mOnOpenSerialPortListener;
     private OnSerialPortDataListener mOnSerialPortDataListener;
-    private HandlerThread mSendingHandlerThread;
-    private Handler mSendingHandler;
+    private SerialPortWriteThread mSerialPortWriteThread;
     private SerialPortReadThread mSerialPortReadThread;
+    //阻塞读取模式下用于唤醒读取线程的描述符
+    private int mWakeFd = -1;
     //串口类型
     private final SerialPortEnum mSerialPortEnum;
     //串口配置
     private SerialConfig mSerialConfig;
     //粘包处理器
     private List<AbsStickPackageHelper> mStickPackageHelpers;
+    //运行指标
+    private SerialPortMetrics mMetrics = new SerialPortMetrics();
+    //抓包
+    private SerialCaptureWriter mCaptureWriter;
+    private int mCapturePortId = -1;
+    //池化接收
+    private FramePool mFramePool;
+    //自动重连
+    private volatile SerialPortReconnector mReconnector;
+    //打开、关闭和重连之间互斥
+    private final Object mStateLock = new Object();
 
     public SerialPortManager() {
         this(SerialPortEnum.SERIAL_ONE);
@@ -63,6 +86,40 @@ public class SerialPortManager extends SerialPort {
         }
     }
     
+    /**
+     * 设置统计对象，需在打开串口之前调用
+     */
+    public void setMetrics(SerialPortMetrics metrics) {
+        if (metrics != null) {
+            this.mMetrics = metrics;
+        }
+    }
+
+    /**
+     * 设置接收帧缓冲池，之后打开的串口通过OnSerialPortDataListener.onFrameReceived交付池化的帧，
+     * 只对RingBufferStickPackageHelper子类生效，需在打开串口之前调用
+     */
+    public void setFramePool(FramePool framePool) {
+        this.mFramePool = framePool;
+    }
+
+    /**
+     * 获取运行指标
+     */
+    public SerialPortMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    /**
+     * 设置抓包对象，之后打开的串口把收发的原始数据记录到抓包文件，需在打开串口之前调用
+     * 抓包对象可以由多个串口共用，由调用方负责关闭
+     *
+     * @param writer 抓包对象，null表示不抓包
+     */
+    public void setCaptureWriter(SerialCaptureWriter writer) {
+        this.mCaptureWriter = writer;
+    }
+
     /**
      * 设置粘包处理器
      */
@@ -74,42 +131,172 @@ public class SerialPortManager extends SerialPort {
 
     /**
      * 打开串口
+     * SerialConfig开启autoReconnect时，设备拔出或读写出错后自动重新打开，发送队列中的数据保留到重连后发送
      *
      * @param devicePath 串口号
      * @param baudRate   波特率
      */
     public boolean openSerialPort(String devicePath, int baudRate) {
-        closeSerialPort();
-        SerialPortLogUtil.i(TAG, "openSerialPort: " + String.format("打开串口 %s  波特率 %s", devicePath, baudRate));
-        // 校验串口权限
-        if (!checkSerialPortPermission(devicePath)) {
-            return false;
+        synchronized (mStateLock) {
+            closeSerialPort();
+            SerialPortLogUtil.i(TAG, "openSerialPort: " + String.format("打开串口 %s  波特率 %s", devicePath, baudRate));
+            // 校验串口权限
+            if (!checkSerialPortPermission(devicePath)) {
+                return false;
+            }
+            try {
+                openDevice(devicePath, baudRate);
+                SerialPortLogUtil.i(TAG, "openSerialPort: 串口已经打开 " + mFd);
+                notifySerialPortOpened(new File(devicePath), SerialStatus.SUCCESS_OPENED);
+                if (mSerialConfig != null && mSerialConfig.isAutoReconnect()) {
+                    startReconnector(devicePath, baudRate);
+                }
+                // 开启发送消息的线程
+                startSendThread();
+                // 开启接收消息的线程
+                startReadThread();
+                return true;
+            } catch (Exception e) {
+                e.printStackTrace();
+                closeSerialPort();
+                notifySerialPortOpened(new File(devicePath), SerialStatus.OPEN_FAIL);
+                return false;
+            }
+        }
+    }
+
+    /**
+     * 打开设备并创建读写流
+     */
+    private void openDevice(String devicePath, int baudRate) throws IOException {
+        // 使用配置参数或默认值
+        int flags = mSerialConfig != null ? mSerialConfig.getFlags() : 0;
+        int databits = mSerialConfig != null ? mSerialConfig.getDatabits() : 8;
+        int stopbits = mSerialConfig != null ? mSerialConfig.getStopbits() : 1;
+        int parity = mSerialConfig != null ? mSerialConfig.getParity() : 0;
+
+        SerialPortLogUtil.d(TAG, "串口参数 - flags: " + flags + ", databits: " + databits + ", stopbits: " + stopbits + ", parity: " + parity);
+        mFd = open(devicePath, baudRate, flags, databits, stopbits, parity);
+        if (mFd == null) {
+            throw new IOException("打开串口失败: " + devicePath);
         }
-        try {
-            // 使用配置参数或默认值
-            int flags = mSerialConfig != null ? mSerialConfig.getFlags() : 0;
-            int databits = mSerialConfig != null ? mSerialConfig.getDatabits() : 8;
-            int stopbits = mSerialConfig != null ? mSerialConfig.getStopbits() : 1;
-            int parity = mSerialConfig != null ? mSerialConfig.getParity() : 0;
-            
-            SerialPortLogUtil.d(TAG, "串口参数 - flags: " + flags + ", databits: " + databits + ", stopbits: " + stopbits + ", parity: " + parity);
-            mFd = open(devicePath, baudRate, flags, databits, stopbits, parity);
+        if (mSerialConfig != null && mSerialConfig.isDirectBuffer()) {
+            // direct ByteBuffer模式：直接在native内存上读写
+            mDescriptor = getDescriptor(mFd);
+            mFileInputStream = new SerialPortDirectStream.Input(mDescriptor, SerialPortDirectStream.DEFAULT_BUFFER_SIZE);
+            mFileOutputStream = new SerialPortDirectStream.Output(mDescriptor, SerialPortDirectStream.DEFAULT_BUFFER_SIZE);
+        } else {
             mFileInputStream = new FileInputStream(mFd);
             mFileOutputStream = new FileOutputStream(mFd);
-            SerialPortLogUtil.i(TAG, "openSerialPort: 串口已经打开 " + mFd);
-            notifySerialPortOpened(new File(devicePath), SerialStatus.SUCCESS_OPENED);
-            // 开启发送消息的线程
-            startSendThread();
-            // 开启接收消息的线程
-            startReadThread();
-            return true;
-        } catch (Exception e) {
-            e.printStackTrace();
-            notifySerialPortOpened(new File(devicePath), SerialStatus.OPEN_FAIL);
-            return false;
+        }
+        if (mCaptureWriter != null) {
+            // 抓包：在读写流上记录原始数据块
+            mCapturePortId = mCaptureWriter.registerPort(devicePath);
+            mFileInputStream = mCaptureWriter.wrapInput(mFileInputStream, mCapturePortId);
+            mFileOutputStream = mCaptureWriter.wrapOutput(mFileOutputStream, mCapturePortId);
         }
     }
 
+    /**
+     * 关闭设备和读写流，不影响发送线程
+     */
+    private void closeDevice() {
+        if (null != mFd) {
+            close();
+            mFd = null;
+            mDescriptor = -1;
+        }
+        closeStream(mFileInputStream);
+        closeStream(mFileOutputStream);
+        mFileInputStream = null;
+        mFileOutputStream = null;
+    }
+
+    /**
+     * 开始监听设备节点，断开后按指数退避重新打开
+     */
+    private void startReconnector(final String devicePath, final int baudRate) {
+        final File device = new File(devicePath);
+        mReconnector = new SerialPortReconnector(devicePath, mSerialConfig.getReconnectInterval(),
+                mSerialConfig.getMaxReconnectAttempts(), mSerialPortEnum.name(), new SerialPortReconnector.Callback() {
+            @Override
+            public void onDisconnect() {
+                synchronized (mStateLock) {
+                    if (!isCurrentReconnector(this)) {
+                        return;
+                    }
+                    SerialPortLogUtil.w(TAG, "串口断开，开始重连: " + devicePath);
+                    if (mSerialPortWriteThread != null) {
+                        mSerialPortWriteThread.pause();
+                    }
+                    stopReadThread();
+                    closeDevice();
+                    notifySerialPortOpened(device, SerialStatus.DISCONNECTED);
+                }
+            }
+
+            @Override
+            public boolean reopen() {
+                synchronized (mStateLock) {
+                    if (!isCurrentReconnector(this)) {
+                        return false;
+                    }
+                    try {
+                        openDevice(devicePath, baudRate);
+                    } catch (Exception e) {
+                        SerialPortLogUtil.w(TAG, "重连打开串口失败: " + e.getMessage());
+                        closeDevice();
+                        return false;
+                    }
+                    if (mSerialPortWriteThread != null) {
+                        mSerialPortWriteThread.resume(mFileOutputStream);
+                    }
+                    startReadThread();
+                    notifySerialPortOpened(device, SerialStatus.RECONNECTED);
+                    return true;
+                }
+            }
+
+            @Override
+            public void onGiveUp() {
+                synchronized (mStateLock) {
+                    if (!isCurrentReconnector(this)) {
+                        return;
+                    }
+                    closeSerialPort();
+                    notifySerialPortOpened(device, SerialStatus.RECONNECT_FAIL);
+                }
+            }
+        });
+        mReconnector.start();
+    }
+
+    /**
+     * 在持有mStateLock时调用，串口关闭或重新打开后旧的重连回调不再生效
+     */
+    private boolean isCurrentReconnector(SerialPortReconnector.Callback callback) {
+        SerialPortReconnector reconnector = mReconnector;
+        return reconnector != null && reconnector.isRunning() && reconnector.isCallback(callback);
+    }
+
+    /**
+     * 读写出错时开始重连，未开启自动重连时不做任何事
+     */
+    private void requestReconnect() {
+        SerialPortReconnector reconnector = mReconnector;
+        if (reconnector != null) {
+            reconnector.reconnect();
+        }
+    }
+
+    /**
+     * 是否正在自动重连，重连期间write()的数据进入发送队列，重连后发送
+     */
+    public boolean isReconnecting() {
+        SerialPortReconnector reconnector = mReconnector;
+        return reconnector != null && reconnector.isReconnecting();
+    }
+
     /**
      * 检查串口权限
      *
@@ -152,16 +339,25 @@ public class SerialPortManager extends SerialPort {
      * 关闭串口
      */
     public void closeSerialPort() {
-        if (null != mFd) {
-            close();
-            mFd = null;
+        synchronized (mStateLock) {
+            if (null != mReconnector) {
+                mReconnector.stop();
+                mReconnector = null;
+            }
+            // 停止接收消息的线程（先于关闭串口，阻塞读取模式下需要先唤醒读取线程）
+            stopReadThread();
+            if (null != mFd) {
+                close();
+                mFd = null;
+                mDescriptor = -1;
+            }
+            // 停止发送消息的线程
+            stopSendThread();
+            closeStream(mFileInputStream);
+            closeStream(mFileOutputStream);
+            mFileInputStream = null;
+            mFileOutputStream = null;
         }
-        // 停止发送消息的线程
-        stopSendThread();
-        // 停止接收消息的线程
-        stopReadThread();
-        closeStream(mFileInputStream);
-        closeStream(mFileOutputStream);
     }
 
     /**
@@ -205,38 +401,37 @@ public class SerialPortManager extends SerialPort {
      * 开启发送消息的线程
      */
     private void startSendThread() {
-        // 开启发送消息的线程
-        mSendingHandlerThread = new HandlerThread("mSendingHandlerThread" + mSerialPortEnum.name());
-        mSendingHandlerThread.start();
-        // Handler
-        mSendingHandler = new Handler(mSendingHandlerThread.getLooper()) {
+        int capacity = mSerialConfig != null ? mSerialConfig.getSendQueueCapacity() : 1024;
+        WriteOverflowPolicy policy = mSerialConfig != null ? mSerialConfig.getWriteOverflowPolicy() : WriteOverflowPolicy.FAIL_FAST;
+        int maxBatchSize = mSerialConfig != null ? mSerialConfig.getMaxWriteBatchSize() : 4096;
+        mSerialPortWriteThread = new SerialPortWriteThread(mFileOutputStream, mSerialPortEnum, capacity, policy, maxBatchSize) {
             @Override
-            public void handleMessage(Message msg) {
-                byte[] sendBytes = (byte[]) msg.obj;
-
-                if (null != mFileOutputStream && null != sendBytes && 0 < sendBytes.length) {
-                    try {
-                        mFileOutputStream.write(sendBytes);
-                        if (null != mOnSerialPortDataListener) {
-                            mOnSerialPortDataListener.onDataSent(sendBytes, mSerialPortEnum);
-                        }
-                    } catch (IOException e) {
-                        e.printStackTrace();
-                    }
+            public void onDataSent(byte[] bytes) {
+                if (null != mOnSerialPortDataListener) {
+                    mOnSerialPortDataListener.onDataSent(bytes, mSerialPortEnum);
                 }
             }
+
+            @Override
+            protected void onWriteError(IOException e) {
+                requestReconnect();
+            }
         };
+        mSerialPortWriteThread.setMetrics(mMetrics);
+        if (mSerialConfig != null) {
+            mSerialPortWriteThread.setBlockTimeout(mSerialConfig.getWriteBlockTimeout());
+        }
+        mSerialPortWriteThread.setRetainOnError(mReconnector != null);
+        mSerialPortWriteThread.start();
     }
 
     /**
      * 停止发送消息线程
      */
     private void stopSendThread() {
-        mSendingHandler = null;
-        if (null != mSendingHandlerThread) {
-            mSendingHandlerThread.interrupt();
-            mSendingHandlerThread.quit();
-            mSendingHandlerThread = null;
+        if (null != mSerialPortWriteThread) {
+            mSerialPortWriteThread.release();
+            mSerialPortWriteThread = null;
         }
     }
 
@@ -244,16 +439,86 @@ public class SerialPortManager extends SerialPort {
      * 开启接收消息的线程
      */
     private void startReadThread() {
+        if (mSerialConfig != null && mSerialConfig.isManualRead()) {
+            // 由调用方通过read(ByteBuffer)读取，读取线程不能同时读取同一个描述符
+            SerialPortLogUtil.d(TAG, "手动读取模式，不启动数据接收线程");
+            return;
+        }
+        final boolean blockingRead = mSerialConfig != null && mSerialConfig.isBlockingRead();
+        if (blockingRead) {
+            mWakeFd = createWakeFd();
+        } else if (mSerialConfig != null) {
+            // 轮询模式下，无数据时按配置的间隔休眠
+            for (AbsStickPackageHelper helper : mStickPackageHelpers) {
+                if (helper instanceof BaseStickPackageHelper) {
+                    ((BaseStickPackageHelper) helper).setIntervalSleep(mSerialConfig.getIntervalSleep());
+                }
+            }
+        }
+        for (AbsStickPackageHelper helper : mStickPackageHelpers) {
+            if (helper instanceof RingBufferStickPackageHelper) {
+                ((RingBufferStickPackageHelper) helper).setMetrics(mMetrics);
+            }
+        }
+        final SerialPortMetrics metrics = mMetrics;
+        final FileDescriptor fd = mFd;
+        final int wakeFd = mWakeFd;
         mSerialPortReadThread = new SerialPortReadThread(mFileInputStream, mSerialPortEnum, mStickPackageHelpers) {
             @Override
             public void onDataReceived(byte[] bytes) {
+                metrics.recordFrameIn(bytes.length);
                 if (null != mOnSerialPortDataListener) {
                     mOnSerialPortDataListener.onDataReceived(bytes, mSerialPortEnum);
                 }
             }
+
+            @Override
+            public void onFrameReceived(SerialFrame frame) {
+                metrics.recordFrameIn(frame.length());
+                if (null != mOnSerialPortDataListener) {
+                    mOnSerialPortDataListener.onFrameReceived(frame, mSerialPortEnum);
+                } else {
+                    frame.release();
+                }
+            }
+
+            @Override
+            protected int awaitReadable(int timeoutMillis) {
+                if (!blockingRead) {
+                    return AWAIT_READABLE;
+                }
+                // 唤醒描述符创建失败时退化为定时检查线程是否已停止
+                int timeout = wakeFd != -1 ? -1 : 200;
+                if (timeoutMillis >= 0 && (timeout < 0 || timeoutMillis < timeout)) {
+                    // 粘包处理器中有只需等待即可成帧的数据，到期后返回
+                    timeout = timeoutMillis;
+                }
+                int result;
+                do {
+                    result = waitReadable(fd, wakeFd, timeout);
+                } while (result == WAIT_TIMEOUT && timeoutMillis < 0 && !isInterrupted());
+                if (result == WAIT_READABLE) {
+                    return AWAIT_READABLE;
+                }
+                if (result == WAIT_TIMEOUT && !isInterrupted()) {
+                    return AWAIT_TIMEOUT;
+                }
+                if (result == WAIT_ERROR) {
+                    SerialPortLogUtil.e(TAG, "等待串口数据失败");
+                } else if (result == WAIT_WOKEN) {
+                    interrupt();
+                }
+                return AWAIT_STOP;
+            }
+
+            @Override
+            protected void onReadFailed(Throwable cause) {
+                requestReconnect();
+            }
         };
+        mSerialPortReadThread.setFramePool(mFramePool);
         mSerialPortReadThread.start();
-        SerialPortLogUtil.d(TAG, "启动数据接收线程");
+        SerialPortLogUtil.d(TAG, "启动数据接收线程" + (blockingRead ? "(阻塞读取模式)" : ""));
     }
 
     /**
@@ -261,7 +526,19 @@ public class SerialPortManager extends SerialPort {
      */
     private void stopReadThread() {
         if (null != mSerialPortReadThread) {
+            if (mWakeFd != -1) {
+                wakeUp(mWakeFd);
+            }
             mSerialPortReadThread.release();
+            if (mWakeFd != -1) {
+                try {
+                    mSerialPortReadThread.join(500);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                closeWakeFd(mWakeFd);
+                mWakeFd = -1;
+            }
         }
     }
 
@@ -269,17 +546,114 @@ public class SerialPortManager extends SerialPort {
      * 发送数据
      *
      * @param sendBytes 发送数据
-     * @return 发送是否成功
+     * @return 是否成功加入发送队列
      */
     public boolean sendBytes(byte[] sendBytes) {
-        if (null != mFd && null != mFileInputStream && null != mFileOutputStream) {
-            if (null != mSendingHandler) {
-                Message message = Message.obtain();
-                message.obj = sendBytes;
-                return mSendingHandler.sendMessage(message);
-            }
+        SerialWriteFuture future = write(sendBytes);
+        return !future.isDone() || future.isSuccess();
+    }
+
+    /**
+     * 加入发送队列，队列已满时不等待，BLOCK策略按FAIL_FAST处理
+     * 供定时器等共用线程发送
+     *
+     * @return 是否成功加入发送队列
+     */
+    boolean trySendBytes(byte[] sendBytes) {
+        if (null == sendBytes || 0 == sendBytes.length) {
+            return false;
+        }
+        SerialPortWriteThread writeThread = mSerialPortWriteThread;
+        if (null == writeThread || !(isOpen() || isReconnecting())) {
+            return false;
+        }
+        SerialWriteFuture future = writeThread.trySend(sendBytes);
+        return !future.isDone() || future.isSuccess();
+    }
+
+    /**
+     * 发送数据，返回本次写入的结果
+     * 发送队列已满时按SerialConfig配置的WriteOverflowPolicy处理，BLOCK策略会阻塞调用线程，不要在主线程中调用
+     *
+     * @param sendBytes 发送数据
+     * @return 写入结果，数据写入串口后完成
+     */
+    public SerialWriteFuture write(byte[] sendBytes) {
+        if (null == sendBytes || 0 == sendBytes.length) {
+            return SerialWriteFuture.failed(sendBytes, new IllegalArgumentException("发送数据为空"));
+        }
+        SerialPortWriteThread writeThread = mSerialPortWriteThread;
+        if (null != writeThread && (isOpen() || isReconnecting())) {
+            return writeThread.send(sendBytes);
+        }
+        return SerialWriteFuture.failed(sendBytes, new IOException("串口未打开"));
+    }
+
+    /**
+     * 直接读取到direct ByteBuffer（position到limit之间），阻塞直到有数据
+     * 仅在direct ByteBuffer模式且开启SerialConfig.setManualRead(true)时可用，此时不启动读取线程
+     *
+     * @return 读取的字节数
+     */
+    public int read(ByteBuffer buffer) throws IOException {
+        if (mSerialConfig == null || !mSerialConfig.isManualRead()) {
+            throw new IllegalStateException("读取线程正在读取串口，需要开启SerialConfig.setManualRead(true)");
+        }
+        int fd = mDescriptor;
+        if (fd == -1) {
+            throw new IOException("串口未以direct ByteBuffer模式打开");
+        }
+        int read = SerialPort.read(fd, buffer);
+        SerialCaptureWriter captureWriter = mCaptureWriter;
+        if (captureWriter != null && read > 0) {
+            captureWriter.append(mCapturePortId, CaptureDirection.RX, buffer, buffer.position() - read, read);
+        }
+        return read;
+    }
+
+    /**
+     * 把direct ByteBuffer中的剩余数据直接写入串口，不经过发送队列
+     * 仅在direct ByteBuffer模式下可用
+     *
+     * @return 写入的字节数，可能小于remaining()
+     */
+    public int write(ByteBuffer buffer) throws IOException {
+        int fd = mDescriptor;
+        if (fd == -1) {
+            throw new IOException("串口未以direct ByteBuffer模式打开");
+        }
+        int written = SerialPort.write(fd, buffer);
+        SerialCaptureWriter captureWriter = mCaptureWriter;
+        if (captureWriter != null && written > 0) {
+            captureWriter.append(mCapturePortId, CaptureDirection.TX, buffer, buffer.position() - written, written);
         }
-        return false;
+        return written;
+    }
+
+    /**
+     * 用本串口的粘包处理器和数据监听回放抓包，串口必须处于关闭状态
+     * 回调在调用线程中执行，回放结束后返回
+     *
+     * @param reader   抓包
+     * @param portName 抓包中的串口名，即抓包时的设备路径
+     * @param speed    回放速度，1.0为原始速度，SerialCaptureReplayer.AS_FAST_AS_POSSIBLE为尽快回放
+     * @return 解析出的帧数
+     */
+    public int replayCapture(SerialCaptureReader reader, String portName, double speed) throws IOException {
+        if (isOpen()) {
+            throw new IllegalStateException("回放前需要关闭串口");
+        }
+        return new SerialCaptureReplayer(mStickPackageHelpers, mSerialPortEnum, mOnSerialPortDataListener)
+                .setSpeed(speed)
+                .replay(reader, portName);
+    }
+
+    /**
+     * 当前排队等待发送的数量
+     */
+    public int getSendQueueSize() {
+        SerialPortWriteThread writeThread = mSerialPortWriteThread;
+        return writeThread != null ? writeThread.getQueueSize() : 0;
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,284 @@
+package com.cl.serialportlibrary;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单个串口的运行指标
+ * 计数器均为原子变量，读写线程直接更新，不加锁；通过snapshot()获取某一时刻的指标用于导出，
+ * 与日志开关无关
+ */
+public final class SerialPortMetrics {
+
+    private final AtomicLong bytesIn = new AtomicLong();
+    private final AtomicLong framesIn = new AtomicLong();
+    private final AtomicLong bytesOut = new AtomicLong();
+    private final AtomicLong framesOut = new AtomicLong();
+    private final AtomicLong framingErrors = new AtomicLong();
+    private final AtomicLong checksumErrors = new AtomicLong();
+    private final AtomicLong droppedBytes = new AtomicLong();
+    private final AtomicLong droppedWrites = new AtomicLong();
+    private final AtomicLong sendQueueDepth = new AtomicLong();
+    private final AtomicLong maxSendQueueDepth = new AtomicLong();
+    // 读取成帧到回调的延迟
+    private final LatencyHistogram readToCallback = new LatencyHistogram();
+    // 加入发送队列到写入串口的延迟
+    private final LatencyHistogram enqueueToWrite = new LatencyHistogram();
+    private volatile long startTime = System.currentTimeMillis();
+
+    /**
+     * 成帧后收到一帧
+     */
+    public void recordFrameIn(int length) {
+        framesIn.incrementAndGet();
+        bytesIn.addAndGet(length);
+    }
+
+    /**
+     * 一次写入完成
+     */
+    public void recordFrameOut(int length) {
+        framesOut.incrementAndGet();
+        bytesOut.addAndGet(length);
+    }
+
+    /**
+     * 成帧失败（长度非法、缓冲区溢出、无法识别等），丢弃了dropped字节
+     */
+    public void recordFramingError(int dropped) {
+        framingErrors.incrementAndGet();
+        droppedBytes.addAndGet(dropped);
+    }
+
+    /**
+     * 一帧校验失败
+     */
+    public void recordChecksumError() {
+        checksumErrors.incrementAndGet();
+    }
+
+    /**
+     * 写入被丢弃或被拒绝
+     */
+    public void recordDroppedWrite() {
+        droppedWrites.incrementAndGet();
+    }
+
+    /**
+     * 更新发送队列深度
+     */
+    public void setSendQueueDepth(int depth) {
+        sendQueueDepth.set(depth);
+        long max;
+        while (depth > (max = maxSendQueueDepth.get()) && !maxSendQueueDepth.compareAndSet(max, depth)) {
+            // 重试
+        }
+    }
+
+    public void recordReadToCallback(long nanos) {
+        readToCallback.record(nanos);
+    }
+
+    public void recordEnqueueToWrite(long nanos) {
+        enqueueToWrite.record(nanos);
+    }
+
+    public LatencyHistogram getReadToCallbackHistogram() {
+        return readToCallback;
+    }
+
+    public LatencyHistogram getEnqueueToWriteHistogram() {
+        return enqueueToWrite;
+    }
+
+    /**
+     * 清空全部指标
+     */
+    public void reset() {
+        bytesIn.set(0);
+        framesIn.set(0);
+        bytesOut.set(0);
+        framesOut.set(0);
+        framingErrors.set(0);
+        checksumErrors.set(0);
+        droppedBytes.set(0);
+        droppedWrites.set(0);
+        maxSendQueueDepth.set(sendQueueDepth.get());
+        readToCallback.reset();
+        enqueueToWrite.reset();
+        startTime = System.currentTimeMillis();
+    }
+
+    /**
+     * 获取当前指标快照
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    /**
+     * 指标快照，各字段读取时刻略有先后，不保证彼此严格一致
+     */
+    public static final class Snapshot {
+        private final long startTime;
+        private final long timestamp;
+        private final long bytesIn;
+        private final long framesIn;
+        private final long bytesOut;
+        private final long framesOut;
+        private final long framingErrors;
+        private final long checksumErrors;
+        private final long droppedBytes;
+        private final long droppedWrites;
+        private final long sendQueueDepth;
+        private final long maxSendQueueDepth;
+        private final LatencySummary readToCallback;
+        private final LatencySummary enqueueToWrite;
+
+        private Snapshot(SerialPortMetrics metrics) {
+            startTime = metrics.startTime;
+            timestamp = System.currentTimeMillis();
+            bytesIn = metrics.bytesIn.get();
+            framesIn = metrics.framesIn.get();
+            bytesOut = metrics.bytesOut.get();
+            framesOut = metrics.framesOut.get();
+            framingErrors = metrics.framingErrors.get();
+            checksumErrors = metrics.checksumErrors.get();
+            droppedBytes = metrics.droppedBytes.get();
+            droppedWrites = metrics.droppedWrites.get();
+            sendQueueDepth = metrics.sendQueueDepth.get();
+            maxSendQueueDepth = metrics.maxSendQueueDepth.get();
+            readToCallback = new LatencySummary(metrics.readToCallback);
+            enqueueToWrite = new LatencySummary(metrics.enqueueToWrite);
+        }
+
+        public long getStartTime() {
+            return startTime;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public long getBytesIn() {
+            return bytesIn;
+        }
+
+        public long getFramesIn() {
+            return framesIn;
+        }
+
+        public long getBytesOut() {
+            return bytesOut;
+        }
+
+        public long getFramesOut() {
+            return framesOut;
+        }
+
+        public long getFramingErrors() {
+            return framingErrors;
+        }
+
+        public long getChecksumErrors() {
+            return checksumErrors;
+        }
+
+        public long getDroppedBytes() {
+            return droppedBytes;
+        }
+
+        public long getDroppedWrites() {
+            return droppedWrites;
+        }
+
+        public long getSendQueueDepth() {
+            return sendQueueDepth;
+        }
+
+        public long getMaxSendQueueDepth() {
+            return maxSendQueueDepth;
+        }
+
+        public LatencySummary getReadToCallback() {
+            return readToCallback;
+        }
+
+        public LatencySummary getEnqueueToWrite() {
+            return enqueueToWrite;
+        }
+
+        @Override
+        public String toString() {
+            return "in=" + framesIn + "帧/" + bytesIn + "B, out=" + framesOut + "帧/" + bytesOut + "B"
+                    + ", framingErrors=" + framingErrors + "(" + droppedBytes + "B)"
+                    + ", checksumErrors=" + checksumErrors
+                    + ", droppedWrites=" + droppedWrites
+                    + ", sendQueue=" + sendQueueDepth + "(max " + maxSendQueueDepth + ")"
+                    + ", readToCallback{" + readToCallback + "}"
+                    + ", enqueueToWrite{" + enqueueToWrite + "}";
+        }
+    }
+
+    /**
+     * 延迟统计摘要，单位纳秒
+     */
+    public static final class LatencySummary {
+        private final long count;
+        private final long min;
+        private final long max;
+        private final double mean;
+        private final long p50;
+        private final long p90;
+        private final long p99;
+        private final long p999;
+
+        private LatencySummary(LatencyHistogram histogram) {
+            count = histogram.getCount();
+            min = histogram.getMin();
+            max = histogram.getMax();
+            mean = histogram.getMean();
+            p50 = histogram.getValueAtPercentile(50);
+            p90 = histogram.getValueAtPercentile(90);
+            p99 = histogram.getValueAtPercentile(99);
+            p999 = histogram.getValueAtPercentile(99.9);
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMin() {
+            return min;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public double getMean() {
+            return mean;
+        }
+
+        public long getP50() {
+            return p50;
+        }
+
+        public long getP90() {
+            return p90;
+        }
+
+        public long getP99() {
+            return p99;
+        }
+
+        public long getP999() {
+            return p999;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("n=%d, p50=%.3fms, p99=%.3fms, max=%.3fms",
+                    count, p50 / 1e6, p99 / 1e6, max / 1e6);
+        }
+    }
+}
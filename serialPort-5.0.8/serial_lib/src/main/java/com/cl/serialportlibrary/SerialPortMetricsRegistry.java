@@ -0,0 +1,57 @@
+package com.cl.serialportlibrary;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 串口指标注册表 <串口ID, SerialPortMetrics>
+ * 串口打开时注册、关闭时移除，查询时生成快照
+ */
+public final class SerialPortMetricsRegistry {
+
+    private final Map<String, SerialPortMetrics> metrics = new ConcurrentHashMap<>();
+
+    void register(String serialId, SerialPortMetrics portMetrics) {
+        metrics.put(serialId, portMetrics);
+    }
+
+    void unregister(String serialId) {
+        metrics.remove(serialId);
+    }
+
+    /**
+     * 获取指定串口的实时指标对象，未打开时返回null
+     */
+    public SerialPortMetrics get(String serialId) {
+        return metrics.get(serialId);
+    }
+
+    /**
+     * 获取指定串口的指标快照，未打开时返回null
+     */
+    public SerialPortMetrics.Snapshot snapshot(String serialId) {
+        SerialPortMetrics portMetrics = metrics.get(serialId);
+        return portMetrics != null ? portMetrics.snapshot() : null;
+    }
+
+    /**
+     * 获取所有串口的指标快照
+     */
+    public Map<String, SerialPortMetrics.Snapshot> snapshotAll() {
+        Map<String, SerialPortMetrics.Snapshot> result = new HashMap<>();
+        for (Map.Entry<String, SerialPortMetrics> entry : metrics.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        return result;
+    }
+
+    /**
+     * 清空所有串口的指标
+     */
+    public void resetAll() {
+        for (SerialPortMetrics portMetrics : metrics.values()) {
+            portMetrics.reset();
+        }
+    }
+}
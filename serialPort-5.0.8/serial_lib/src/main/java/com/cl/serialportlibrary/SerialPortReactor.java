@@ -0,0 +1,451 @@
+package com.cl.serialportlibrary;
+
+import com.cl.serialportlibrary.enumerate.SerialStatus;
+import com.cl.serialportlibrary.stick.AbsStickPackageHelper;
+import com.cl.serialportlibrary.stick.FramePool;
+import com.cl.serialportlibrary.stick.RingBufferStickPackageHelper;
+import com.cl.serialportlibrary.stick.SerialFrame;
+import com.cl.serialportlibrary.utils.SerialPortLogUtil;
+
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 多串口 epoll 反应器
+ * 单个线程通过一个epoll实例服务任意数量串口的读写，不受SerialPortEnum数量限制，
+ * 替代每个串口一个发送HandlerThread加一个读取线程的模式
+ * 串口以非阻塞方式打开：可读时交给各自的粘包处理器解析，写入按串口排队，输出缓冲区满时等待EPOLLOUT
+ * 反应器线程在打开第一个串口时启动，最后一个串口关闭后由shutdown()停止并关闭epoll和唤醒描述符
+ */
+final class SerialPortReactor {
+
+    private static final String TAG = "SerialPortReactor";
+    // 单次可读事件最多读取的次数，避免高速串口独占反应器线程
+    private static final int MAX_READS_PER_EVENT = 16;
+    // 粘包处理器中有未成帧数据时的检查间隔(ms)，供超时类处理器使用
+    private static final int PENDING_CHECK_INTERVAL = 10;
+    private static final int MAX_EVENTS = 64;
+
+    private static SerialPortReactor instance;
+
+    // 描述符映射 <fd, Channel>
+    private final Map<Integer, Channel> channels = new ConcurrentHashMap<>();
+    // 需要在反应器线程中执行的操作（关闭串口、写入）
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final int[] readyFds = new int[MAX_EVENTS];
+    private final int[] readyEvents = new int[MAX_EVENTS];
+    private final byte[] wakeBuffer = new byte[8];
+    // 以下三个字段在持有this锁时修改；反应器线程退出前把thread置为null，之后打开串口会启动新的反应器线程
+    private volatile int epfd = -1;
+    private volatile int wakeFd = -1;
+    private volatile Thread thread;
+
+    private SerialPortReactor() {}
+
+    static synchronized SerialPortReactor getInstance() {
+        if (instance == null) {
+            instance = new SerialPortReactor();
+        }
+        return instance;
+    }
+
+    /**
+     * 反应器回调，均在反应器线程中调用
+     */
+    interface Callback {
+        void onDataReceived(String serialId, byte[] data);
+
+        /**
+         * 池化模式下收到一帧，实现方负责release()
+         */
+        default void onFrameReceived(String serialId, SerialFrame frame) {
+            try {
+                onDataReceived(serialId, frame.toByteArray());
+            } finally {
+                frame.release();
+            }
+        }
+
+        void onDataSent(String serialId, byte[] data);
+
+        void onError(String serialId);
+    }
+
+    /**
+     * 反应器中的一个串口
+     */
+    static final class Channel extends SerialPort {
+
+        final String serialId;
+        final SerialPortMetrics metrics;
+        private final Callback callback;
+        private volatile AbsStickPackageHelper stickPackageHelper;
+        // 设置后RingBufferStickPackageHelper解析出的帧从缓冲池取得
+        volatile FramePool framePool;
+        private final ConcurrentLinkedQueue<byte[]> writeQueue = new ConcurrentLinkedQueue<>();
+        private volatile boolean open;
+        private volatile SerialPortReactor reactor;
+        private int fd = -1;
+        // 以下字段只在反应器线程中访问
+        private byte[] writing;
+        private int writeOffset;
+        private boolean writeArmed;
+        private final byte[] single = new byte[1];
+
+        private final InputStream input = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                int read = read(single, 0, 1);
+                return read == 1 ? single[0] & 0xFF : -1;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int read = readNonBlocking(fd, b, off, len);
+                if (read < 0) {
+                    throw new IOException("串口[" + serialId + "] 读取失败");
+                }
+                return read;
+            }
+        };
+
+        Channel(String serialId, AbsStickPackageHelper stickPackageHelper, Callback callback, SerialPortMetrics metrics) {
+            this.serialId = serialId;
+            this.callback = callback;
+            this.metrics = metrics;
+            setStickPackageHelper(stickPackageHelper);
+        }
+
+        boolean isOpen() {
+            return open;
+        }
+
+        void setStickPackageHelper(AbsStickPackageHelper helper) {
+            if (helper != null) {
+                if (helper instanceof RingBufferStickPackageHelper) {
+                    ((RingBufferStickPackageHelper) helper).setMetrics(metrics);
+                }
+                this.stickPackageHelper = helper;
+            }
+        }
+
+        /**
+         * 发送数据，加入写队列后唤醒反应器线程
+         */
+        boolean send(byte[] data) {
+            SerialPortReactor r = reactor;
+            if (!open || r == null) {
+                return false;
+            }
+            writeQueue.offer(data);
+            r.post(() -> r.flush(this));
+            return true;
+        }
+
+        /**
+         * 关闭串口，实际的关闭在反应器线程中完成
+         */
+        void closeChannel() {
+            SerialPortReactor r = reactor;
+            if (!open || r == null) {
+                return;
+            }
+            open = false;
+            r.post(() -> r.release(this));
+        }
+    }
+
+    /**
+     * 打开串口并加入反应器
+     */
+    SerialStatus open(Channel channel, String devicePath, int baudRate, SerialConfig config) {
+        File device = new File(devicePath);
+        if ((!device.canRead() || !device.canWrite()) && !channel.chmod777(device)) {
+            SerialPortLogUtil.e(TAG, "串口权限不足: " + devicePath);
+            return SerialStatus.NO_READ_WRITE_PERMISSION;
+        }
+        FileDescriptor fileDescriptor = channel.open(devicePath, baudRate, config.getFlags(),
+                config.getDatabits(), config.getStopbits(), config.getParity());
+        if (fileDescriptor == null) {
+            return SerialStatus.OPEN_FAIL;
+        }
+        int fd = SerialPort.getDescriptor(fileDescriptor);
+        // 与shutdown()互斥：反应器不会在串口加入的同时停止
+        synchronized (this) {
+            if (!ensureStarted() || SerialPort.setNonBlocking(fd) == -1
+                    || SerialPort.epollControl(epfd, SerialPort.EPOLL_CTL_ADD, fd, SerialPort.EPOLLIN) == -1) {
+                SerialPort.closeDescriptor(fd);
+                return SerialStatus.OPEN_FAIL;
+            }
+            channel.fd = fd;
+            channel.reactor = this;
+            channel.open = true;
+            channels.put(fd, channel);
+        }
+        SerialPortLogUtil.i(TAG, "串口[" + channel.serialId + "] 加入反应器, fd = " + fd + ", 当前串口数: " + channels.size());
+        return SerialStatus.SUCCESS_OPENED;
+    }
+
+    /**
+     * 没有串口时停止反应器线程并关闭epoll和唤醒描述符，由管理器在最后一个串口关闭后调用
+     * 停止在反应器线程中完成，排在之前提交的关闭操作之后；期间又有串口打开时不停止
+     */
+    void shutdown() {
+        if (thread == null) {
+            return;
+        }
+        post(() -> {
+            synchronized (this) {
+                if (channels.isEmpty()) {
+                    retire();
+                }
+            }
+        });
+    }
+
+    /**
+     * 使当前反应器线程退出，需持有this锁
+     */
+    private void retire() {
+        thread = null;
+        epfd = -1;
+        wakeFd = -1;
+    }
+
+    private synchronized boolean ensureStarted() {
+        if (thread != null) {
+            return true;
+        }
+        epfd = SerialPort.epollCreate();
+        if (epfd == -1) {
+            return false;
+        }
+        wakeFd = SerialPort.createWakeFd();
+        if (wakeFd == -1 || SerialPort.epollControl(epfd, SerialPort.EPOLL_CTL_ADD, wakeFd, SerialPort.EPOLLIN) == -1) {
+            SerialPort.closeWakeFd(wakeFd);
+            SerialPort.closeDescriptor(epfd);
+            epfd = -1;
+            wakeFd = -1;
+            return false;
+        }
+        thread = new Thread(this::loop, TAG);
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    private void post(Runnable task) {
+        tasks.offer(task);
+        SerialPort.wakeUp(wakeFd);
+    }
+
+    private void loop() {
+        // 退出时关闭的是本线程的描述符，之后启动的反应器线程使用新的描述符
+        final Thread self = Thread.currentThread();
+        final int epfd = this.epfd;
+        final int wakeFd = this.wakeFd;
+        SerialPortLogUtil.i(TAG, "反应器线程启动");
+        boolean pending = false;
+        while (true) {
+            // 被信号中断(EINTR)时native层会重新等待，返回负数说明epoll已不可用
+            int count = SerialPort.epollWait(epfd, readyFds, readyEvents, pending ? PENDING_CHECK_INTERVAL : -1);
+            if (count < 0) {
+                SerialPortLogUtil.e(TAG, "epoll_wait 失败，关闭反应器中的所有串口");
+                failAll(self);
+                break;
+            }
+            for (int i = 0; i < count; i++) {
+                int fd = readyFds[i];
+                int events = readyEvents[i];
+                if (fd == wakeFd) {
+                    SerialPort.readNonBlocking(wakeFd, wakeBuffer, 0, wakeBuffer.length);
+                    continue;
+                }
+                Channel channel = channels.get(fd);
+                if (channel == null) {
+                    continue;
+                }
+                if ((events & SerialPort.EPOLLIN) != 0) {
+                    handleRead(channel);
+                }
+                if ((events & SerialPort.EPOLLOUT) != 0 && channel.open) {
+                    flush(channel);
+                }
+                if ((events & (SerialPort.EPOLLERR | SerialPort.EPOLLHUP)) != 0 && channel.open) {
+                    handleError(channel);
+                }
+            }
+            Runnable task;
+            while (thread == self && (task = tasks.poll()) != null) {
+                task.run();
+            }
+            if (thread != self) {
+                // shutdown()已使本线程退出，剩余任务留给之后启动的反应器线程
+                break;
+            }
+            pending = deliverPending();
+        }
+        SerialPort.closeWakeFd(wakeFd);
+        SerialPort.closeDescriptor(epfd);
+        SerialPortLogUtil.i(TAG, "反应器线程退出");
+    }
+
+    /**
+     * epoll不可用时关闭所有串口并通知回调，反应器线程随后退出，下次打开串口时重新启动
+     */
+    private void failAll(Thread self) {
+        List<Channel> failed = new ArrayList<>();
+        synchronized (this) {
+            for (Channel channel : channels.values()) {
+                channel.open = false;
+                failed.add(channel);
+            }
+            for (Channel channel : failed) {
+                release(channel);
+            }
+            tasks.clear();
+            if (thread == self) {
+                retire();
+            }
+        }
+        for (Channel channel : failed) {
+            channel.callback.onError(channel.serialId);
+        }
+    }
+
+    private void handleRead(Channel channel) {
+        AbsStickPackageHelper helper = channel.stickPackageHelper;
+        try {
+            if (helper instanceof RingBufferStickPackageHelper) {
+                RingBufferStickPackageHelper ringHelper = (RingBufferStickPackageHelper) helper;
+                for (int i = 0; i < MAX_READS_PER_EVENT; i++) {
+                    int read = ringHelper.fill(channel.input);
+                    deliverFrames(channel, ringHelper);
+                    if (read <= 0) {
+                        break;
+                    }
+                }
+            } else {
+                // 自定义处理器：反复调用直到没有完整数据，处理器内部不能阻塞等待
+                byte[] frame;
+                while ((frame = helper.execute(channel.input)) != null && frame.length > 0) {
+                    channel.metrics.recordFrameIn(frame.length);
+                    channel.callback.onDataReceived(channel.serialId, frame);
+                }
+            }
+        } catch (IOException e) {
+            handleError(channel);
+        }
+    }
+
+    private void deliverFrames(Channel channel, RingBufferStickPackageHelper helper) {
+        FramePool pool = channel.framePool;
+        if (pool != null) {
+            SerialFrame pooled;
+            while ((pooled = helper.nextPooledFrame(pool)) != null) {
+                channel.metrics.recordFrameIn(pooled.length());
+                channel.callback.onFrameReceived(channel.serialId, pooled);
+            }
+            return;
+        }
+        byte[] frame;
+        while ((frame = helper.nextFrame()) != null) {
+            if (frame.length > 0) {
+                channel.metrics.recordFrameIn(frame.length);
+                channel.callback.onDataReceived(channel.serialId, frame);
+            }
+        }
+    }
+
+    /**
+     * 重新检查缓冲区中有未成帧数据的串口
+     *
+     * @return 是否仍有串口存在未成帧数据
+     */
+    private boolean deliverPending() {
+        boolean pending = false;
+        for (Channel channel : channels.values()) {
+            AbsStickPackageHelper helper = channel.stickPackageHelper;
+            if (channel.open && helper instanceof RingBufferStickPackageHelper) {
+                RingBufferStickPackageHelper ringHelper = (RingBufferStickPackageHelper) helper;
+                if (ringHelper.hasBufferedData()) {
+                    deliverFrames(channel, ringHelper);
+                    pending |= ringHelper.hasBufferedData();
+                }
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * 写出队列中的数据，输出缓冲区满时注册EPOLLOUT等待
+     */
+    private void flush(Channel channel) {
+        if (!channel.open) {
+            return;
+        }
+        while (true) {
+            if (channel.writing == null) {
+                channel.writing = channel.writeQueue.poll();
+                channel.writeOffset = 0;
+                if (channel.writing == null) {
+                    break;
+                }
+            }
+            int remaining = channel.writing.length - channel.writeOffset;
+            int written = SerialPort.writeNonBlocking(channel.fd, channel.writing, channel.writeOffset, remaining);
+            if (written < 0) {
+                handleError(channel);
+                return;
+            }
+            channel.writeOffset += written;
+            if (written < remaining) {
+                setWriteArmed(channel, true);
+                return;
+            }
+            channel.metrics.recordFrameOut(channel.writing.length);
+            channel.callback.onDataSent(channel.serialId, channel.writing);
+            channel.writing = null;
+        }
+        setWriteArmed(channel, false);
+    }
+
+    private void setWriteArmed(Channel channel, boolean armed) {
+        if (channel.writeArmed != armed) {
+            channel.writeArmed = armed;
+            SerialPort.epollControl(epfd, SerialPort.EPOLL_CTL_MOD, channel.fd, armed ? SerialPort.EPOLLIN | SerialPort.EPOLLOUT : SerialPort.EPOLLIN);
+        }
+    }
+
+    private void handleError(Channel channel) {
+        SerialPortLogUtil.e(TAG, "串口[" + channel.serialId + "] 读写异常，移出反应器");
+        channel.open = false;
+        release(channel);
+        channel.callback.onError(channel.serialId);
+    }
+
+    private void release(Channel channel) {
+        if (channels.remove(channel.fd) == null) {
+            return;
+        }
+        SerialPort.epollControl(epfd, SerialPort.EPOLL_CTL_DEL, channel.fd, 0);
+        SerialPort.closeDescriptor(channel.fd);
+        channel.writeQueue.clear();
+        channel.writing = null;
+        SerialPortLogUtil.i(TAG, "串口[" + channel.serialId + "] 已从反应器移除, 当前串口数: " + channels.size());
+    }
+
+    /**
+     * 当前由反应器服务的串口数量
+     */
+    int size() {
+        return channels.size();
+    }
+}
@@ -0,0 +1,245 @@
+package com.cl.serialportlibrary;
+
+import android.os.FileObserver;
+
+import com.cl.serialportlibrary.utils.SerialPortLogUtil;
+
+import java.io.File;
+
+/**
+ * 串口自动重连
+ * 用FileObserver（inotify）监听设备节点所在目录：节点被删除（USB转串口拔出）时立即断开并开始重连，
+ * /dev下的设备共用SerialDeviceRegistry的FileObserver，其他目录（如/dev/serial/by-id）单独监听；
+ * 节点重新出现或权限变化（ueventd在创建节点之后才设置权限）时立即重试，不需要轮询SerialPortFinder
+ * 打开失败按指数退避重试，从INITIAL_DELAY_MILLIS开始翻倍，不超过reconnectInterval；
+ * 设备节点不存在时一直等待插入，不计入重连次数，只在收不到目录事件时每reconnectInterval检查一次
+ */
+final class SerialPortReconnector {
+
+    private static final String TAG = "SerialPortReconnector";
+    static final long INITIAL_DELAY_MILLIS = 10;
+
+    interface Callback {
+        /**
+         * 关闭失效的串口，保留发送队列
+         */
+        void onDisconnect();
+
+        /**
+         * 重新打开串口
+         *
+         * @return 是否成功
+         */
+        boolean reopen();
+
+        /**
+         * 超过最大重连次数
+         */
+        void onGiveUp();
+    }
+
+    private final File device;
+    private final long maxDelayMillis;
+    private final int maxAttempts;
+    private final Callback callback;
+    private final String threadName;
+    // 设备不在/dev下时单独监听，否则为null
+    private final FileObserver observer;
+    private final SerialDeviceRegistry.NodeListener nodeListener;
+    private final Object lock = new Object();
+    private volatile boolean running = true;
+    // 以下由lock保护
+    private boolean reconnecting;
+    private boolean requested;
+    private boolean deviceChanged;
+    private Thread worker;
+
+    /**
+     * @param devicePath     设备路径
+     * @param maxDelayMillis 重试间隔的上限，设备未插入时检查的间隔
+     * @param maxAttempts    设备存在但打开失败的最大次数，小于等于0表示不限
+     */
+    SerialPortReconnector(String devicePath, long maxDelayMillis, int maxAttempts, String name, Callback callback) {
+        this.device = new File(devicePath);
+        this.maxDelayMillis = Math.max(INITIAL_DELAY_MILLIS, maxDelayMillis);
+        this.maxAttempts = maxAttempts;
+        this.callback = callback;
+        this.threadName = "SerialPortReconnect" + name;
+        final String deviceName = device.getName();
+        this.nodeListener = (event, path) -> {
+            if (deviceName.equals(path)) {
+                onDeviceEvent(event);
+            }
+        };
+        File parent = device.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.equals(SerialDeviceRegistry.getInstance().getDevDir())) {
+            this.observer = SerialDeviceRegistry.createNodeObserver(parent, nodeListener);
+        } else {
+            this.observer = null;
+        }
+    }
+
+    /**
+     * 开始监听设备节点
+     */
+    void start() {
+        if (observer != null) {
+            observer.startWatching();
+        } else {
+            SerialDeviceRegistry.getInstance().addNodeListener(nodeListener);
+        }
+    }
+
+    /**
+     * 停止监听和重连，正在进行的重连不会再打开串口
+     */
+    void stop() {
+        running = false;
+        if (observer != null) {
+            observer.stopWatching();
+        } else {
+            SerialDeviceRegistry.getInstance().removeNodeListener(nodeListener);
+        }
+        synchronized (lock) {
+            if (worker != null) {
+                worker.interrupt();
+            }
+            lock.notifyAll();
+        }
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    boolean isCallback(Callback callback) {
+        return this.callback == callback;
+    }
+
+    boolean isReconnecting() {
+        synchronized (lock) {
+            return reconnecting;
+        }
+    }
+
+    /**
+     * 请求重连，可以在任意线程中调用，已在重连时合并为一次
+     */
+    void reconnect() {
+        synchronized (lock) {
+            if (!running) {
+                return;
+            }
+            if (reconnecting) {
+                requested = true;
+                return;
+            }
+            reconnecting = true;
+            worker = new Thread(this::run, threadName);
+            worker.start();
+        }
+    }
+
+    private void onDeviceEvent(int event) {
+        if ((event & (FileObserver.DELETE | FileObserver.MOVED_FROM)) != 0) {
+            SerialPortLogUtil.w(TAG, "设备已移除: " + device);
+            reconnect();
+        } else {
+            synchronized (lock) {
+                deviceChanged = true;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private void run() {
+        do {
+            callback.onDisconnect();
+            synchronized (lock) {
+                // 断开过程中停止读写线程引起的请求属于已关闭的连接
+                requested = false;
+            }
+        } while (reopenWithBackoff() && takeRequest());
+    }
+
+    /**
+     * @return 是否已重新打开
+     */
+    private boolean reopenWithBackoff() {
+        long delay = INITIAL_DELAY_MILLIS;
+        int failures = 0;
+        while (running) {
+            synchronized (lock) {
+                deviceChanged = false;
+            }
+            long wait;
+            if (device.exists()) {
+                if (callback.reopen()) {
+                    SerialPortLogUtil.i(TAG, "重连成功: " + device + (failures > 0 ? "，失败 " + failures + " 次" : ""));
+                    return true;
+                }
+                failures++;
+                if (maxAttempts > 0 && failures >= maxAttempts) {
+                    SerialPortLogUtil.e(TAG, "重连失败 " + failures + " 次，放弃: " + device);
+                    finish();
+                    callback.onGiveUp();
+                    return false;
+                }
+                wait = delay;
+                delay = Math.min(delay * 2, maxDelayMillis);
+            } else {
+                wait = maxDelayMillis;
+            }
+            if (!await(wait)) {
+                break;
+            }
+        }
+        finish();
+        return false;
+    }
+
+    /**
+     * 等待设备节点变化或超时
+     *
+     * @return false表示已停止
+     */
+    private boolean await(long millis) {
+        long deadline = System.nanoTime() + millis * 1_000_000L;
+        synchronized (lock) {
+            long remaining;
+            while (running && !deviceChanged && (remaining = deadline - System.nanoTime()) > 0) {
+                try {
+                    lock.wait(Math.max(1, remaining / 1_000_000L));
+                } catch (InterruptedException e) {
+                    return false;
+                }
+            }
+            return running;
+        }
+    }
+
+    /**
+     * 重连成功后处理期间到达的请求
+     *
+     * @return 是否需要再次重连
+     */
+    private boolean takeRequest() {
+        synchronized (lock) {
+            if (requested && running) {
+                requested = false;
+                return true;
+            }
+            reconnecting = false;
+            worker = null;
+            return false;
+        }
+    }
+
+    private void finish() {
+        synchronized (lock) {
+            reconnecting = false;
+            requested = false;
+            worker = null;
+        }
+    }
+}
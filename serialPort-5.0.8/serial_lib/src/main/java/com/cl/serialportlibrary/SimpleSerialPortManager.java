@@ -4,6 +4,7 @@ import android.app.Application;
 import android.os.Handler;
 import android.os.Looper;
 
+import com.cl.serialportlibrary.enumerate.DispatchMode;
 import com.cl.serialportlibrary.enumerate.SerialPortEnum;
 import com.cl.serialportlibrary.enumerate.SerialStatus;
 import com.cl.serialportlibrary.listener.OnOpenSerialPortListener;
@@ -18,6 +19,7 @@ import com.cl.serialportlibrary.utils.SerialPortLogUtil;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * 简化的串口管理器，提供更简单的API供外部使用
@@ -39,6 +41,11 @@ public class SimpleSerialPortManager {
     private List<AbsStickPackageHelper> stickPackageHelpers = new ArrayList<>();
     private boolean isInitialized = false;
     
+    // 数据回调分发
+    private DispatchMode dispatchMode = DispatchMode.MAIN_THREAD;
+    private Executor dispatchExecutor;
+    private SerialDataDispatcher dispatcher;
+    
     // 串口参数配置
     private int databits = 8;      // 数据位，默认8
     private int parity = 0;        // 校验位，默认0（无校验）
@@ -215,19 +222,34 @@ public class SimpleSerialPortManager {
         serialPortManager.setSerialConfig(serialConfig);
         serialPortManager.setStickPackageHelpers(stickPackageHelpers);
         
+        if (dispatcher != null) {
+            dispatcher.release();
+        }
+        SerialDataDispatcher dataDispatcher = createDispatcher(serialPortManager.getMetrics());
+        dispatcher = dataDispatcher;
+        
         // 设置监听器
         serialPortManager.setOnOpenSerialPortListener(new OnOpenSerialPortListener() {
             @Override
             public void openState(SerialPortEnum serialPortEnum, File device, SerialStatus status) {
-                if (status == SerialStatus.SUCCESS_OPENED) {
-                    SerialPortLogUtil.i(TAG, "串口打开成功: " + device.getPath());
+                if (status == SerialStatus.DISCONNECTED) {
+                    // 自动重连：串口断开，不是打开失败，重连结果随后以RECONNECTED/RECONNECT_FAIL回调
+                    SerialPortLogUtil.w(TAG, "串口断开，正在重连: " + device.getPath());
+                    handler.post(() -> {
+                        if (openCallback != null) {
+                            openCallback.onDisconnected();
+                        }
+                    });
+                } else if (status == SerialStatus.SUCCESS_OPENED || status == SerialStatus.RECONNECTED) {
+                    SerialPortLogUtil.i(TAG, "串口打开成功: " + device.getPath() + ", 状态: " + status);
                     handler.post(() -> {
                         if (openCallback != null) {
                             openCallback.onStatusChanged(true, status);
                         }
                     });
                 } else {
-                    SerialPortLogUtil.e(TAG, "串口打开失败: " + device.getPath() + ", 状态: " + status);
+                    SerialPortLogUtil.e(TAG, (status == SerialStatus.RECONNECT_FAIL ? "串口重连失败，已关闭: " : "串口打开失败: ")
+                            + device.getPath() + ", 状态: " + status);
                     handler.post(() -> {
                         if (openCallback != null) {
                             openCallback.onStatusChanged(false, status);
@@ -241,21 +263,13 @@ public class SimpleSerialPortManager {
             @Override
             public void onDataReceived(byte[] data, SerialPortEnum serialPortEnum) {
                 SerialPortLogUtil.printData(TAG, "接收数据", data);
-                handler.post(() -> {
-                    if (dataCallback != null) {
-                        dataCallback.onDataReceived(data);
-                    }
-                });
+                dataDispatcher.dispatchReceived(data);
             }
             
             @Override
             public void onDataSent(byte[] data, SerialPortEnum serialPortEnum) {
                 SerialPortLogUtil.printData(TAG, "发送数据", data);
-                handler.post(() -> {
-                    if (dataCallback != null) {
-                        dataCallback.onDataSent(data);
-                    }
-                });
+                dataDispatcher.dispatchSent(data);
             }
         });
         
@@ -263,6 +277,37 @@ public class SimpleSerialPortManager {
         return serialPortManager.openSerialPort(devicePath, baudRate);
     }
     
+    /**
+     * 按当前分发方式创建数据回调分发器
+     */
+    private SerialDataDispatcher createDispatcher(SerialPortMetrics metrics) {
+        return new SerialDataDispatcher(dispatchMode, dispatchExecutor, new SerialDataDispatcher.Target() {
+            @Override
+            public void onDataReceived(byte[] data) {
+                OnDataReceivedCallback callback = dataCallback;
+                if (callback != null) {
+                    callback.onDataReceived(data);
+                }
+            }
+            
+            @Override
+            public void onDataReceived(List<byte[]> batch) {
+                OnDataReceivedCallback callback = dataCallback;
+                if (callback != null) {
+                    callback.onDataReceivedBatch(batch);
+                }
+            }
+            
+            @Override
+            public void onDataSent(byte[] data) {
+                OnDataReceivedCallback callback = dataCallback;
+                if (callback != null) {
+                    callback.onDataSent(data);
+                }
+            }
+        }, metrics);
+    }
+    
     /**
      * 更新串口配置参数
      */
@@ -323,10 +368,22 @@ public class SimpleSerialPortManager {
             serialPortManager.closeSerialPort();
             serialPortManager = null;
         }
+        if (dispatcher != null) {
+            dispatcher.release();
+            dispatcher = null;
+        }
         openCallback = null;
         dataCallback = null;
     }
     
+    /**
+     * 获取运行指标快照，串口未打开时返回null
+     */
+    public SerialPortMetrics.Snapshot getMetrics() {
+        SerialPortManager manager = serialPortManager;
+        return manager != null ? manager.getMetrics().snapshot() : null;
+    }
+    
     /**
      * 检查串口是否已打开
      */
@@ -334,6 +391,25 @@ public class SimpleSerialPortManager {
         return serialPortManager != null && serialPortManager.isOpen();
     }
     
+    /**
+     * 设置数据回调的分发方式，在openSerialPort之前调用
+     * DIRECT在读取线程中直接回调；MAIN_THREAD_BATCHED在主线程按帧批量回调onDataReceivedBatch
+     */
+    public SimpleSerialPortManager setDispatchMode(DispatchMode dispatchMode) {
+        this.dispatchMode = dispatchMode;
+        SerialPortLogUtil.d(TAG, "设置回调分发方式: " + dispatchMode);
+        return this;
+    }
+    
+    /**
+     * 设置回调Executor，同时把分发方式设为DispatchMode.EXECUTOR，在openSerialPort之前调用
+     */
+    public SimpleSerialPortManager setDispatchExecutor(Executor executor) {
+        this.dispatchExecutor = executor;
+        this.dispatchMode = DispatchMode.EXECUTOR;
+        return this;
+    }
+    
     // Getter和Setter方法
     public SimpleSerialPortManager setDatabits(int databits) {
         this.databits = databits;
@@ -399,6 +475,13 @@ public class SimpleSerialPortManager {
          * @param status 状态
          */
         void onStatusChanged(boolean success, SerialStatus status);
+
+        /**
+         * 开启自动重连时串口断开（设备拔出或读写出错），正在重连
+         * 重连成功回调onStatusChanged(true, RECONNECTED)，放弃重连回调onStatusChanged(false, RECONNECT_FAIL)
+         */
+        default void onDisconnected() {
+        }
     }
     
     /**
@@ -411,6 +494,16 @@ public class SimpleSerialPortManager {
          */
         void onDataReceived(byte[] data);
         
+        /**
+         * 批量接收数据，仅在DispatchMode.MAIN_THREAD_BATCHED模式下回调，默认逐条转发给onDataReceived
+         * @param frames 同一帧内按到达顺序接收的数据
+         */
+        default void onDataReceivedBatch(List<byte[]> frames) {
+            for (byte[] frame : frames) {
+                onDataReceived(frame);
+            }
+        }
+        
         /**
          * 数据发送完成
          * @param data 发送的数据
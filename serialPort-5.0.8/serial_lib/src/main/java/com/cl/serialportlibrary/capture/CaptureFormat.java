@@ -0,0 +1,29 @@
+package com.cl.serialportlibrary.capture;
+
+/**
+ * 抓包文件格式，小端字节序
+ * <p>
+ * 段头(32字节)：magic(4) version(2) headerSize(2) wallClockMillis(8) baseNanos(8) segmentIndex(4) 保留(4)
+ * wallClockMillis与baseNanos为同一时刻的System.currentTimeMillis()和System.nanoTime()，用于换算记录的墙上时间
+ * <p>
+ * 记录(16字节头 + 数据)：timestampNanos(8) portId(2) type(1) 保留(1) length(4) data(length)
+ * type为0表示段内数据结束（文件未截断时剩余部分全为0）；每个段开头重复写入全部串口名记录，段可以单独解析
+ */
+final class CaptureFormat {
+
+    static final int MAGIC = 0x31435053; // "SPC1"
+    static final short VERSION = 1;
+    static final int SEGMENT_HEADER_SIZE = 32;
+    static final int RECORD_HEADER_SIZE = 16;
+
+    static final byte TYPE_END = 0;
+    static final byte TYPE_RX = 1;
+    static final byte TYPE_TX = 2;
+    // 串口名记录，data为UTF-8编码的名称
+    static final byte TYPE_PORT = 3;
+
+    static final String FILE_SUFFIX = ".spcap";
+
+    private CaptureFormat() {
+    }
+}
@@ -0,0 +1,191 @@
+package com.cl.serialportlibrary.capture;
+
+import com.cl.serialportlibrary.enumerate.CaptureDirection;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 读取SerialCaptureWriter写出的抓包文件
+ * 按时间顺序依次映射各段，next()移动到下一条RX/TX记录后通过getter读取，串口名记录在内部处理
+ */
+public final class SerialCaptureReader implements Closeable {
+
+    private final List<File> segments;
+    private final Map<Integer, String> portNames = new HashMap<>();
+    private int segmentIndex;
+    private MappedByteBuffer buffer;
+    private long wallClockMillis;
+    private long baseNanos;
+    // 当前记录
+    private long timestamp;
+    private int portId;
+    private CaptureDirection direction;
+    private int dataPosition;
+    private int length;
+
+    /**
+     * 读取目录中指定前缀的全部段文件
+     */
+    public SerialCaptureReader(File directory, String prefix) {
+        this(listSegments(directory, prefix));
+    }
+
+    /**
+     * 按给定顺序读取段文件
+     */
+    public SerialCaptureReader(List<File> segments) {
+        this.segments = new ArrayList<>(segments);
+    }
+
+    /**
+     * 列出目录中指定前缀的段文件，按文件名（即抓包会话与段序号）排序
+     */
+    public static List<File> listSegments(File directory, String prefix) {
+        File[] files = directory.listFiles((dir, name) ->
+                name.startsWith(prefix + "_") && name.endsWith(CaptureFormat.FILE_SUFFIX));
+        if (files == null) {
+            return Collections.emptyList();
+        }
+        Arrays.sort(files);
+        return Arrays.asList(files);
+    }
+
+    /**
+     * 移动到下一条数据记录
+     *
+     * @return 没有更多记录时返回false
+     */
+    public boolean next() throws IOException {
+        while (true) {
+            if (buffer == null || buffer.remaining() < CaptureFormat.RECORD_HEADER_SIZE) {
+                if (!openNextSegment()) {
+                    return false;
+                }
+                continue;
+            }
+            long recordTime = buffer.getLong();
+            int id = buffer.getShort() & 0xFFFF;
+            byte type = buffer.get();
+            buffer.get();
+            int size = buffer.getInt();
+            if (type == CaptureFormat.TYPE_END) {
+                buffer = null;
+                continue;
+            }
+            if (size < 0 || size > buffer.remaining()) {
+                throw new IOException("抓包记录已损坏: " + segments.get(segmentIndex - 1));
+            }
+            if (type == CaptureFormat.TYPE_PORT) {
+                byte[] name = new byte[size];
+                buffer.get(name);
+                portNames.put(id, new String(name, StandardCharsets.UTF_8));
+                continue;
+            }
+            int position = buffer.position();
+            buffer.position(position + size);
+            timestamp = recordTime;
+            portId = id;
+            direction = type == CaptureFormat.TYPE_RX ? CaptureDirection.RX : CaptureDirection.TX;
+            dataPosition = position;
+            length = size;
+            return true;
+        }
+    }
+
+    /**
+     * 记录时间，System.nanoTime()
+     */
+    public long getTimestampNanos() {
+        return timestamp;
+    }
+
+    /**
+     * 记录的墙上时间，由段头中的时间基准换算
+     */
+    public long getWallClockMillis() {
+        return wallClockMillis + (timestamp - baseNanos) / 1_000_000L;
+    }
+
+    public int getPortId() {
+        return portId;
+    }
+
+    public String getPortName() {
+        return portNames.get(portId);
+    }
+
+    public CaptureDirection getDirection() {
+        return direction;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * 复制当前记录的数据
+     */
+    public byte[] getData() {
+        byte[] data = new byte[length];
+        getData(data, 0);
+        return data;
+    }
+
+    /**
+     * 把当前记录的数据复制到dst的offset处
+     *
+     * @return 数据长度
+     */
+    public int getData(byte[] dst, int offset) {
+        int position = buffer.position();
+        buffer.position(dataPosition);
+        buffer.get(dst, offset, length);
+        buffer.position(position);
+        return length;
+    }
+
+    @Override
+    public void close() {
+        buffer = null;
+        segmentIndex = segments.size();
+    }
+
+    private boolean openNextSegment() throws IOException {
+        buffer = null;
+        if (segmentIndex >= segments.size()) {
+            return false;
+        }
+        File segment = segments.get(segmentIndex++);
+        try (RandomAccessFile file = new RandomAccessFile(segment, "r")) {
+            // 映射在文件关闭后仍然有效
+            MappedByteBuffer mapped = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            if (mapped.remaining() < CaptureFormat.SEGMENT_HEADER_SIZE || mapped.getInt() != CaptureFormat.MAGIC) {
+                throw new IOException("不是串口抓包文件: " + segment);
+            }
+            short version = mapped.getShort();
+            if (version != CaptureFormat.VERSION) {
+                throw new IOException("不支持的抓包文件版本 " + version + ": " + segment);
+            }
+            int headerSize = mapped.getShort();
+            wallClockMillis = mapped.getLong();
+            baseNanos = mapped.getLong();
+            mapped.position(headerSize);
+            buffer = mapped;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,231 @@
+package com.cl.serialportlibrary.capture;
+
+import com.cl.serialportlibrary.enumerate.CaptureDirection;
+import com.cl.serialportlibrary.enumerate.SerialPortEnum;
+import com.cl.serialportlibrary.listener.OnSerialPortDataListener;
+import com.cl.serialportlibrary.stick.AbsStickPackageHelper;
+import com.cl.serialportlibrary.stick.RingBufferStickPackageHelper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 抓包回放
+ * 把抓包中某个串口的RX数据作为输入流交给粘包处理器，解析出的帧交给OnSerialPortDataListener.onDataReceived，
+ * TX记录按原时间点交给onDataSent。可以按原始速度（或其倍数）回放，也可以不等待尽快回放
+ * 处理器的选择与SerialPortReadThread一致，回调在调用replay()的线程中执行
+ */
+public final class SerialCaptureReplayer {
+
+    // 不等待，尽快回放
+    public static final double AS_FAST_AS_POSSIBLE = 0;
+    private static final int DEFAULT_END_GRACE_MS = 200;
+
+    private final List<AbsStickPackageHelper> stickPackageHelpers;
+    private final SerialPortEnum serialPortEnum;
+    private final OnSerialPortDataListener listener;
+    private double speed = 1.0;
+    private int endGraceMs = DEFAULT_END_GRACE_MS;
+
+    public SerialCaptureReplayer(List<AbsStickPackageHelper> stickPackageHelpers, SerialPortEnum serialPortEnum,
+                                 OnSerialPortDataListener listener) {
+        if (stickPackageHelpers == null || stickPackageHelpers.isEmpty()) {
+            throw new IllegalArgumentException("没有可用的粘包处理器");
+        }
+        this.stickPackageHelpers = stickPackageHelpers;
+        this.serialPortEnum = serialPortEnum;
+        this.listener = listener;
+    }
+
+    /**
+     * 回放速度，1.0为原始速度，2.0为两倍速，AS_FAST_AS_POSSIBLE不等待
+     */
+    public SerialCaptureReplayer setSpeed(double speed) {
+        this.speed = speed;
+        return this;
+    }
+
+    /**
+     * 数据回放完后输入流继续保持打开的时间，让超时类处理器输出最后一帧
+     */
+    public SerialCaptureReplayer setEndGraceMillis(int endGraceMs) {
+        this.endGraceMs = Math.max(0, endGraceMs);
+        return this;
+    }
+
+    /**
+     * 回放抓包中指定串口的数据
+     *
+     * @param reader   抓包
+     * @param portName 串口名（抓包时注册的名称，SerialPortManager为设备路径）
+     * @return 交给onDataReceived的帧数
+     */
+    public int replay(SerialCaptureReader reader, String portName) throws IOException {
+        AbsStickPackageHelper helper = stickPackageHelpers.size() > serialPortEnum.ordinal()
+                ? stickPackageHelpers.get(serialPortEnum.ordinal()) : stickPackageHelpers.get(0);
+        ReplayInputStream input = new ReplayInputStream(reader, portName);
+        int frames = 0;
+        while (!input.isFinished()) {
+            byte[] frame = helper.execute(input);
+            if (frame == null || frame.length == 0) {
+                continue;
+            }
+            frames += deliver(frame);
+            if (helper instanceof RingBufferStickPackageHelper) {
+                RingBufferStickPackageHelper ringHelper = (RingBufferStickPackageHelper) helper;
+                while ((frame = ringHelper.nextFrame()) != null) {
+                    frames += deliver(frame);
+                }
+            }
+        }
+        if (input.failure != null) {
+            throw input.failure;
+        }
+        return frames;
+    }
+
+    private int deliver(byte[] frame) {
+        if (frame.length == 0) {
+            return 0;
+        }
+        if (listener != null) {
+            listener.onDataReceived(frame, serialPortEnum);
+        }
+        return 1;
+    }
+
+    /**
+     * 按记录时间释放数据的输入流，没有到时间的数据不可读
+     * 数据结束后再等待endGraceMs，之后read()返回-1、available()抛出异常，使处理器退出等待
+     */
+    private final class ReplayInputStream extends InputStream {
+
+        private static final int LOADED = 1;
+        private static final int NOT_DUE = 0;
+        private static final int END = -1;
+
+        private final SerialCaptureReader reader;
+        private final String portName;
+        private final long startNanos = System.nanoTime();
+        private long firstTimestamp;
+        private boolean started;
+        // reader当前指向尚未处理的本串口记录
+        private boolean pending;
+        private boolean ended;
+        private long endDeadline;
+        private byte[] chunk = new byte[4096];
+        private int position;
+        private int limit;
+        private IOException failure;
+
+        ReplayInputStream(SerialCaptureReader reader, String portName) {
+            this.reader = reader;
+            this.portName = portName;
+        }
+
+        boolean isFinished() {
+            return failure != null || (ended && position == limit && System.nanoTime() - endDeadline >= 0);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == 1 ? single[0] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (position == limit && load(true) != LOADED) {
+                // 数据结束，等待到宽限期结束
+                long wait = endDeadline - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                return -1;
+            }
+            int n = Math.min(len, limit - position);
+            System.arraycopy(chunk, position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public int available() throws IOException {
+            if (position == limit) {
+                int state = load(false);
+                if (state == END && isFinished()) {
+                    throw new IOException("回放结束");
+                }
+            }
+            return limit - position;
+        }
+
+        /**
+         * 加载下一条到时间的RX记录，期间到时间的TX记录交给onDataSent
+         *
+         * @param block 是否等待下一条记录的时间
+         */
+        private int load(boolean block) throws IOException {
+            if (ended) {
+                return END;
+            }
+            try {
+                while (true) {
+                    if (!pending && !nextRecord()) {
+                        ended = true;
+                        endDeadline = System.nanoTime() + endGraceMs * 1_000_000L;
+                        return END;
+                    }
+                    pending = true;
+                    long wait = dueTime(reader.getTimestampNanos()) - System.nanoTime();
+                    if (wait > 0) {
+                        if (!block) {
+                            return NOT_DUE;
+                        }
+                        LockSupport.parkNanos(wait);
+                        continue;
+                    }
+                    pending = false;
+                    if (reader.getDirection() == CaptureDirection.TX) {
+                        if (listener != null) {
+                            listener.onDataSent(reader.getData(), serialPortEnum);
+                        }
+                        continue;
+                    }
+                    if (chunk.length < reader.getLength()) {
+                        chunk = new byte[reader.getLength()];
+                    }
+                    limit = reader.getData(chunk, 0);
+                    position = 0;
+                    return LOADED;
+                }
+            } catch (IOException e) {
+                failure = e;
+                ended = true;
+                throw e;
+            }
+        }
+
+        private boolean nextRecord() throws IOException {
+            while (reader.next()) {
+                if (portName.equals(reader.getPortName())) {
+                    if (!started) {
+                        started = true;
+                        firstTimestamp = reader.getTimestampNanos();
+                    }
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private long dueTime(long timestamp) {
+            if (speed <= 0) {
+                return startNanos;
+            }
+            return startNanos + (long) ((timestamp - firstTimestamp) / speed);
+        }
+    }
+}
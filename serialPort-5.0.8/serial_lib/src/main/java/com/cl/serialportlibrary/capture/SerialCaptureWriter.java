@@ -0,0 +1,348 @@
+package com.cl.serialportlibrary.capture;
+
+import com.cl.serialportlibrary.enumerate.CaptureDirection;
+import com.cl.serialportlibrary.utils.SerialPortLogUtil;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 串口原始数据抓包
+ * 把RX/TX数据块连同纳秒时间戳和串口号追加到内存映射的分段文件中，写满一段后切换到新段，
+ * 超过maxSegments时删除最早的段。追加只是一次内存复制，不产生系统调用，适合在读取线程中调用
+ * 多个串口可以共用一个抓包对象，文件格式见CaptureFormat，用SerialCaptureReader读取
+ */
+public final class SerialCaptureWriter implements Closeable {
+
+    private static final String TAG = "SerialCaptureWriter";
+    public static final int DEFAULT_SEGMENT_SIZE = 8 * 1024 * 1024;
+    public static final int DEFAULT_MAX_SEGMENTS = 8;
+    // 段内剩余空间小于该值时不再拆分数据块，直接换段
+    private static final int MIN_SPLIT_SIZE = 256;
+
+    private final File directory;
+    private final String prefix;
+    private final int segmentSize;
+    private final int maxSegments;
+    // 文件名中的会话标识，同一个目录中多次抓包互不覆盖
+    private final long sessionMillis = System.currentTimeMillis();
+    private final Map<String, Integer> portIds = new HashMap<>();
+    private final List<byte[]> portNames = new ArrayList<>();
+    private final ArrayDeque<File> segments = new ArrayDeque<>();
+    private RandomAccessFile file;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int segmentIndex;
+    private long droppedBytes;
+    private boolean closed;
+
+    public SerialCaptureWriter(File directory, String prefix) throws IOException {
+        this(directory, prefix, DEFAULT_SEGMENT_SIZE, DEFAULT_MAX_SEGMENTS);
+    }
+
+    /**
+     * @param directory   抓包目录
+     * @param prefix      文件名前缀
+     * @param segmentSize 每段文件的大小
+     * @param maxSegments 最多保留的段数
+     */
+    public SerialCaptureWriter(File directory, String prefix, int segmentSize, int maxSegments) throws IOException {
+        if (segmentSize < CaptureFormat.SEGMENT_HEADER_SIZE + CaptureFormat.RECORD_HEADER_SIZE + MIN_SPLIT_SIZE) {
+            throw new IllegalArgumentException("segmentSize 过小: " + segmentSize);
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("无法创建抓包目录: " + directory);
+        }
+        this.directory = directory;
+        this.prefix = prefix;
+        this.segmentSize = segmentSize;
+        this.maxSegments = Math.max(1, maxSegments);
+        openSegment();
+    }
+
+    /**
+     * 注册串口，返回记录中使用的串口号，同名串口返回同一个编号
+     */
+    public synchronized int registerPort(String portName) {
+        Integer id = portIds.get(portName);
+        if (id != null) {
+            return id;
+        }
+        if (portNames.size() > 0xFFFF) {
+            throw new IllegalStateException("串口数量超过上限");
+        }
+        id = portNames.size();
+        byte[] name = portName.getBytes(StandardCharsets.UTF_8);
+        portIds.put(portName, id);
+        portNames.add(name);
+        if (buffer != null) {
+            writePortRecord(id, name);
+        }
+        return id;
+    }
+
+    /**
+     * 追加一个数据块，段内空间不足时拆分到下一段
+     */
+    public void append(int portId, CaptureDirection direction, byte[] data, int offset, int length) {
+        if (length <= 0) {
+            return;
+        }
+        long timestamp = System.nanoTime();
+        byte type = direction == CaptureDirection.RX ? CaptureFormat.TYPE_RX : CaptureFormat.TYPE_TX;
+        synchronized (this) {
+            while (length > 0) {
+                int size = reserve(length);
+                if (size == 0) {
+                    droppedBytes += length;
+                    return;
+                }
+                putHeader(timestamp, portId, type, size);
+                buffer.put(data, offset, size);
+                offset += size;
+                length -= size;
+            }
+        }
+    }
+
+    /**
+     * 追加direct ByteBuffer中[index, index + length)的数据，不改变其position
+     */
+    public void append(int portId, CaptureDirection direction, ByteBuffer data, int index, int length) {
+        if (length <= 0) {
+            return;
+        }
+        long timestamp = System.nanoTime();
+        byte type = direction == CaptureDirection.RX ? CaptureFormat.TYPE_RX : CaptureFormat.TYPE_TX;
+        ByteBuffer source = data.duplicate();
+        synchronized (this) {
+            while (length > 0) {
+                int size = reserve(length);
+                if (size == 0) {
+                    droppedBytes += length;
+                    return;
+                }
+                putHeader(timestamp, portId, type, size);
+                source.limit(index + size).position(index);
+                buffer.put(source);
+                index += size;
+                length -= size;
+            }
+        }
+    }
+
+    /**
+     * 包装串口输入流，读到的数据记为RX
+     * 输入流是ReadableByteChannel（direct ByteBuffer模式）时包装后仍是通道，按ByteBuffer读取的数据同样记录
+     */
+    public InputStream wrapInput(InputStream in, int portId) {
+        return in instanceof ReadableByteChannel ? new CaptureChannel(in, portId) : new CaptureInputStream(in, portId);
+    }
+
+    private class CaptureInputStream extends FilterInputStream {
+        final int portId;
+
+        CaptureInputStream(InputStream in, int portId) {
+            super(in);
+            this.portId = portId;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                append(portId, CaptureDirection.RX, new byte[]{(byte) b}, 0, 1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = in.read(b, off, len);
+            append(portId, CaptureDirection.RX, b, off, read);
+            return read;
+        }
+    }
+
+    private final class CaptureChannel extends CaptureInputStream implements ReadableByteChannel {
+
+        CaptureChannel(InputStream in, int portId) {
+            super(in, portId);
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            int position = dst.position();
+            int read = ((ReadableByteChannel) in).read(dst);
+            append(portId, CaptureDirection.RX, dst, position, read);
+            return read;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return ((ReadableByteChannel) in).isOpen();
+        }
+    }
+
+    /**
+     * 包装串口输出流，写出的数据记为TX
+     */
+    public OutputStream wrapOutput(OutputStream out, final int portId) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                append(portId, CaptureDirection.TX, new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                append(portId, CaptureDirection.TX, b, off, len);
+            }
+        };
+    }
+
+    /**
+     * 因关闭或文件错误未能记录的字节数
+     */
+    public synchronized long getDroppedBytes() {
+        return droppedBytes;
+    }
+
+    /**
+     * 当前保留的段文件，按时间顺序
+     */
+    public synchronized List<File> getSegments() {
+        return new ArrayList<>(segments);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        closeSegment();
+    }
+
+    /**
+     * 为长度为length的数据预留空间，返回本段可写入的长度，0表示无法写入
+     */
+    private int reserve(int length) {
+        if (buffer == null) {
+            return 0;
+        }
+        int room = buffer.remaining() - CaptureFormat.RECORD_HEADER_SIZE;
+        if (room < length && room < MIN_SPLIT_SIZE) {
+            try {
+                closeSegment();
+                openSegment();
+            } catch (IOException e) {
+                SerialPortLogUtil.e(TAG, "创建抓包文件失败，停止抓包: " + e.getMessage());
+                buffer = null;
+                return 0;
+            }
+            room = buffer.remaining() - CaptureFormat.RECORD_HEADER_SIZE;
+        }
+        return Math.min(room, length);
+    }
+
+    private void putHeader(long timestamp, int portId, byte type, int length) {
+        buffer.putLong(timestamp);
+        buffer.putShort((short) portId);
+        buffer.put(type);
+        buffer.put((byte) 0);
+        buffer.putInt(length);
+    }
+
+    private void writePortRecord(int portId, byte[] name) {
+        if (buffer.remaining() < CaptureFormat.RECORD_HEADER_SIZE + name.length) {
+            // 空间不足时留到下一段开头，那里会写入全部串口名
+            return;
+        }
+        putHeader(System.nanoTime(), portId, CaptureFormat.TYPE_PORT, name.length);
+        buffer.put(name);
+    }
+
+    private void openSegment() throws IOException {
+        if (closed) {
+            throw new IOException("抓包已关闭");
+        }
+        File segment = new File(directory, String.format(Locale.US, "%s_%d_%05d%s",
+                prefix, sessionMillis, segmentIndex, CaptureFormat.FILE_SUFFIX));
+        RandomAccessFile segmentFile = new RandomAccessFile(segment, "rw");
+        try {
+            buffer = segmentFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        } catch (IOException e) {
+            segmentFile.close();
+            segment.delete();
+            throw e;
+        }
+        file = segmentFile;
+        channel = segmentFile.getChannel();
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(CaptureFormat.MAGIC);
+        buffer.putShort(CaptureFormat.VERSION);
+        buffer.putShort((short) CaptureFormat.SEGMENT_HEADER_SIZE);
+        buffer.putLong(System.currentTimeMillis());
+        buffer.putLong(System.nanoTime());
+        buffer.putInt(segmentIndex);
+        buffer.position(CaptureFormat.SEGMENT_HEADER_SIZE);
+        for (int id = 0; id < portNames.size(); id++) {
+            writePortRecord(id, portNames.get(id));
+        }
+        segmentIndex++;
+        segments.addLast(segment);
+        while (segments.size() > maxSegments) {
+            File oldest = segments.removeFirst();
+            if (!oldest.delete()) {
+                SerialPortLogUtil.w(TAG, "删除抓包文件失败: " + oldest);
+            }
+        }
+    }
+
+    /**
+     * 把当前段截断到实际写入的长度
+     */
+    private void closeSegment() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            int position = buffer != null ? buffer.position() : segmentSize;
+            if (buffer != null) {
+                buffer.force();
+            }
+            channel.truncate(position);
+        } catch (IOException e) {
+            SerialPortLogUtil.e(TAG, "关闭抓包文件失败: " + e.getMessage());
+        } finally {
+            try {
+                file.close();
+            } catch (IOException ignored) {
+            }
+            file = null;
+            channel = null;
+            buffer = null;
+        }
+    }
+}
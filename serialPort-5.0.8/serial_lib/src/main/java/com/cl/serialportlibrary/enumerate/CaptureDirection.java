@@ -0,0 +1,11 @@
+package com.cl.serialportlibrary.enumerate;
+
+/**
+ * 抓包记录的数据方向
+ */
+public enum CaptureDirection {
+    //从串口读取的数据
+    RX,
+    //写入串口的数据
+    TX
+}
@@ -0,0 +1,11 @@
+package com.cl.serialportlibrary.enumerate;
+
+/**
+ * 校验失败的帧的处理方式
+ */
+public enum ChecksumPolicy {
+    //丢弃校验失败的帧，只计数并通知监听
+    DROP,
+    //照常交付校验失败的帧，同时计数并通知监听
+    FLAG
+}
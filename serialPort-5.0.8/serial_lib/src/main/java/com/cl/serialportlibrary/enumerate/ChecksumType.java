@@ -0,0 +1,19 @@
+package com.cl.serialportlibrary.enumerate;
+
+/**
+ * 帧校验算法，校验值的字节序见ChecksumUtil
+ */
+public enum ChecksumType {
+    //CRC-16/MODBUS，多项式0x8005(反射)，初值0xFFFF，低字节在前
+    CRC16_MODBUS,
+    //CRC-16/CCITT-FALSE，多项式0x1021，初值0xFFFF，高字节在前
+    CRC16_CCITT,
+    //CRC-32(IEEE 802.3)，多项式0x04C11DB7(反射)，低字节在前
+    CRC32,
+    //逐字节异或，1字节
+    XOR8,
+    //逐字节累加取低8位，1字节
+    SUM8,
+    //累加和的补码(256 - sum)，1字节
+    SUM8_COMPLEMENT
+}
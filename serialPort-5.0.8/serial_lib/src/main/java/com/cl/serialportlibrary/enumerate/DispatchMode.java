@@ -0,0 +1,15 @@
+package com.cl.serialportlibrary.enumerate;
+
+/**
+ * 串口数据回调的分发方式
+ */
+public enum DispatchMode {
+    //每条数据单独post到主线程（默认）
+    MAIN_THREAD,
+    //在读取/发送线程中直接回调，延迟最低，回调中不能执行耗时操作
+    DIRECT,
+    //交给调用方提供的Executor回调
+    EXECUTOR,
+    //在主线程按帧(vsync)批量回调，同一帧内到达的数据合并为一次回调，降低主线程负载
+    MAIN_THREAD_BATCHED
+}
@@ -0,0 +1,11 @@
+package com.cl.serialportlibrary.enumerate;
+
+/**
+ * 池化接收帧(SerialFrame)的释放方式
+ */
+public enum FrameReleaseMode {
+    //回调返回后由库释放，回调中需要保留帧时调用retain()并在之后release()
+    AUTO,
+    //由回调方在用完后调用release()
+    MANUAL
+}
@@ -8,5 +8,11 @@ package com.cl.serialportlibrary.enumerate;
 public enum SerialStatus {
     NO_READ_WRITE_PERMISSION,
     OPEN_FAIL,
-    SUCCESS_OPENED
+    SUCCESS_OPENED,
+    // 自动重连：串口断开（设备拔出或读写出错），开始重连
+    DISCONNECTED,
+    // 自动重连：已重新打开
+    RECONNECTED,
+    // 自动重连：超过最大重连次数，串口已关闭
+    RECONNECT_FAIL
 }
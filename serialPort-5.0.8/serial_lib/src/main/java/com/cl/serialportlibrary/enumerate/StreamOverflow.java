@@ -0,0 +1,15 @@
+package com.cl.serialportlibrary.enumerate;
+
+/**
+ * 接收流缓冲区已满时的处理策略，与Kotlin Flow的buffer(onBufferOverflow)/conflate()对应
+ */
+public enum StreamOverflow {
+    //阻塞读取线程直到消费者取走数据，对串口形成背压
+    SUSPEND,
+    //丢弃缓冲区中最早的帧
+    DROP_OLDEST,
+    //丢弃新到达的帧
+    DROP_LATEST,
+    //只保留最新的一帧，消费者每次取得的都是最新数据
+    CONFLATE
+}
@@ -0,0 +1,14 @@
+package com.cl.serialportlibrary.enumerate;
+
+/**
+ * 发送队列已满时的处理策略
+ */
+public enum WriteOverflowPolicy {
+    //阻塞调用线程，直到队列有空位，最长等待SerialConfig的writeBlockTimeout后失败
+    //会阻塞调用线程，不要在主线程中发送；请求-响应事务的重发不阻塞，队列满时按FAIL_FAST处理
+    BLOCK,
+    //丢弃队列中最早的数据，为新数据腾出空位
+    DROP_OLDEST,
+    //立即失败，返回的SerialWriteFuture直接以失败结束
+    FAIL_FAST
+}
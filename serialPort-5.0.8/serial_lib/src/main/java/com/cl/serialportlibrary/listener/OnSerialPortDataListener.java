@@ -1,6 +1,7 @@
 package com.cl.serialportlibrary.listener;
 
 import com.cl.serialportlibrary.enumerate.SerialPortEnum;
+import com.cl.serialportlibrary.stick.SerialFrame;
 
 /**
  * 串口消息监听
@@ -21,4 +22,18 @@ public interface OnSerialPortDataListener {
      */
     void onDataSent(byte[] bytes,SerialPortEnum serialPortEnum);
 
+    /**
+     * 池化模式下的数据接收（SerialPortManager.setFramePool），实现方负责调用frame.release()
+     * 默认复制为数组交给onDataReceived后释放
+     *
+     * @param frame 接收到的一帧
+     */
+    default void onFrameReceived(SerialFrame frame, SerialPortEnum serialPortEnum) {
+        try {
+            onDataReceived(frame.toByteArray(), serialPortEnum);
+        } finally {
+            frame.release();
+        }
+    }
+
 }
@@ -0,0 +1,268 @@
+package com.cl.serialportlibrary.polling;
+
+import com.cl.serialportlibrary.transaction.ResponseMatcher;
+
+/**
+ * 一个周期轮询任务：按固定周期向某个串口发送同一条命令并等待应答
+ * 由SerialPollingScheduler调度，统计字段只在所属串口的调度锁内更新，通过getStats()读取
+ */
+public final class PollJob {
+
+    /**
+     * 轮询结果回调，在读取线程（收到应答）或调度线程（超时、错过周期）中执行，需要尽快返回
+     */
+    public interface Listener {
+        void onResponse(PollJob job, byte[] response);
+
+        /**
+         * 重试后仍没有应答或发送失败
+         */
+        void onFailure(PollJob job, Throwable cause);
+
+        /**
+         * 串口繁忙，错过了missed个周期没有发送
+         */
+        default void onDeadlineMissed(PollJob job, int missed) {
+        }
+    }
+
+    private final String serialId;
+    private final byte[] command;
+    private final long periodNanos;
+    private final int priority;
+    private final int expectedResponseBytes;
+    private final ResponseMatcher matcher;
+    private final long timeoutMillis;
+    private final int retries;
+    private final Listener listener;
+
+    // 加入调度器后为所属串口的调度锁
+    volatile Object lock = this;
+    // 以下字段由SerialPollingScheduler在lock内访问
+    long nextDue;
+    long lastSentNanos;
+    // 统计
+    long polls;
+    long responses;
+    long failures;
+    long missedDeadlines;
+    long totalLatencyNanos;
+    // 实际发送间隔的指数移动平均
+    double intervalEwmaNanos;
+
+    private PollJob(Builder builder) {
+        this.serialId = builder.serialId;
+        this.command = builder.command;
+        this.periodNanos = builder.periodMillis * 1_000_000L;
+        this.priority = builder.priority;
+        this.expectedResponseBytes = builder.expectedResponseBytes;
+        this.matcher = builder.matcher;
+        this.timeoutMillis = builder.timeoutMillis;
+        this.retries = builder.retries;
+        this.listener = builder.listener;
+    }
+
+    public String getSerialId() {
+        return serialId;
+    }
+
+    public byte[] getCommand() {
+        return command;
+    }
+
+    public long getPeriodNanos() {
+        return periodNanos;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public int getExpectedResponseBytes() {
+        return expectedResponseBytes;
+    }
+
+    public ResponseMatcher getMatcher() {
+        return matcher;
+    }
+
+    /**
+     * 每次发送等待应答的时间，0表示按命令和应答长度在当前波特率下的传输时间估算
+     */
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    public int getRetries() {
+        return retries;
+    }
+
+    Listener getListener() {
+        return listener;
+    }
+
+    /**
+     * 当前的统计信息
+     */
+    public Stats getStats() {
+        synchronized (lock) {
+            return new Stats(this);
+        }
+    }
+
+    /**
+     * 某一时刻的轮询统计
+     */
+    public static final class Stats {
+        private final long polls;
+        private final long responses;
+        private final long failures;
+        private final long missedDeadlines;
+        private final double targetRate;
+        private final double achievedRate;
+        private final double averageLatencyMillis;
+
+        private Stats(PollJob job) {
+            this.polls = job.polls;
+            this.responses = job.responses;
+            this.failures = job.failures;
+            this.missedDeadlines = job.missedDeadlines;
+            this.targetRate = 1e9 / job.periodNanos;
+            this.achievedRate = job.intervalEwmaNanos > 0 ? 1e9 / job.intervalEwmaNanos : 0;
+            this.averageLatencyMillis = job.responses > 0 ? job.totalLatencyNanos / 1e6 / job.responses : 0;
+        }
+
+        /**
+         * 已发送次数（不含重试）
+         */
+        public long getPolls() {
+            return polls;
+        }
+
+        public long getResponses() {
+            return responses;
+        }
+
+        /**
+         * 超时或发送失败次数
+         */
+        public long getFailures() {
+            return failures;
+        }
+
+        /**
+         * 因串口繁忙未能在周期内发送而跳过的次数
+         */
+        public long getMissedDeadlines() {
+            return missedDeadlines;
+        }
+
+        /**
+         * 期望的轮询频率，次/秒
+         */
+        public double getTargetRate() {
+            return targetRate;
+        }
+
+        /**
+         * 实际达到的轮询频率，次/秒，按最近的发送间隔平滑计算
+         */
+        public double getAchievedRate() {
+            return achievedRate;
+        }
+
+        /**
+         * 发送到收到应答的平均时间
+         */
+        public double getAverageLatencyMillis() {
+            return averageLatencyMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("polls=%d, responses=%d, failures=%d, missed=%d, rate=%.1f/%.1fHz, latency=%.2fms",
+                    polls, responses, failures, missedDeadlines, achievedRate, targetRate, averageLatencyMillis);
+        }
+    }
+
+    public static class Builder {
+        private final String serialId;
+        private final byte[] command;
+        private long periodMillis = 1000;
+        private int priority = 0;
+        private int expectedResponseBytes = 0;
+        private ResponseMatcher matcher;
+        private long timeoutMillis = 0;
+        private int retries = 0;
+        private Listener listener;
+
+        /**
+         * @param serialId MultiSerialPortManager中的串口ID
+         * @param command  轮询命令
+         */
+        public Builder(String serialId, byte[] command) {
+            this.serialId = serialId;
+            this.command = command;
+        }
+
+        /**
+         * 轮询周期，默认1000ms
+         */
+        public Builder setPeriodMillis(long periodMillis) {
+            this.periodMillis = periodMillis;
+            return this;
+        }
+
+        /**
+         * 优先级，数值越大越优先；同一时刻有多个任务到期时先发送优先级高的任务
+         */
+        public Builder setPriority(int priority) {
+            this.priority = priority;
+            return this;
+        }
+
+        /**
+         * 预计的应答长度，用于估算每次轮询占用的总线时间
+         */
+        public Builder setExpectedResponseBytes(int expectedResponseBytes) {
+            this.expectedResponseBytes = expectedResponseBytes;
+            return this;
+        }
+
+        public Builder setMatcher(ResponseMatcher matcher) {
+            this.matcher = matcher;
+            return this;
+        }
+
+        public Builder setTimeoutMillis(long timeoutMillis) {
+            this.timeoutMillis = timeoutMillis;
+            return this;
+        }
+
+        public Builder setRetries(int retries) {
+            this.retries = retries;
+            return this;
+        }
+
+        public Builder setListener(Listener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        public PollJob build() {
+            if (serialId == null) {
+                throw new IllegalArgumentException("serialId 不能为空");
+            }
+            if (command == null || command.length == 0) {
+                throw new IllegalArgumentException("轮询命令不能为空");
+            }
+            if (periodMillis <= 0) {
+                throw new IllegalArgumentException("轮询周期必须大于0");
+            }
+            if (matcher == null) {
+                throw new IllegalArgumentException("matcher 不能为空");
+            }
+            return new PollJob(this);
+        }
+    }
+}
@@ -0,0 +1,393 @@
+package com.cl.serialportlibrary.polling;
+
+import com.cl.serialportlibrary.MultiSerialPortManager;
+import com.cl.serialportlibrary.SerialConfig;
+import com.cl.serialportlibrary.transaction.HashedTimerWheel;
+import com.cl.serialportlibrary.transaction.TransactionFuture;
+import com.cl.serialportlibrary.utils.SerialPortLogUtil;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 多设备周期轮询调度器
+ * 每个串口（总线）同一时刻只有一个轮询请求在途，应答或超时后立即从已到期的任务中按优先级选择下一个发送，
+ * 总线空闲时在时间轮上登记最早到期任务的时间
+ * 到期时间按nextDue += period累加（System.nanoTime()），不受发送时刻和时间轮精度影响，不会漂移；
+ * 总线繁忙导致超过一个周期未发送时跳过这些周期并计为错过
+ * 加入任务时按波特率和命令、应答长度估算每次轮询占用的总线时间，错开各任务的首次发送时间，
+ * 总线占用率超过100%时打印警告
+ * 串口自动重连期间暂停发送；串口被关闭后停止该串口的全部任务并回调onFailure，重新打开后需要重新加入
+ */
+public final class SerialPollingScheduler {
+
+    private static final String TAG = "SerialPollingScheduler";
+    // 帧间静默时间，按Modbus RTU的3.5个字符取整
+    private static final int FRAME_GAP_CHARS = 4;
+    // 未设置超时时间时，在估算的传输时间之外留出的设备处理时间
+    private static final long RESPONSE_MARGIN_MILLIS = 20;
+    // 平滑实际发送间隔的系数
+    private static final double EWMA_ALPHA = 0.2;
+    // 串口重连期间检查是否恢复的间隔
+    private static final long PAUSE_CHECK_MILLIS = 100;
+
+    private final MultiSerialPortManager manager;
+    private final HashedTimerWheel timerWheel;
+    private final Map<String, Bus> buses = new HashMap<>();
+    private volatile boolean running = true;
+
+    /**
+     * 使用MultiSerialPortManager的串口，时间轮精度2ms
+     */
+    public SerialPollingScheduler(MultiSerialPortManager manager) {
+        this(manager, 2);
+    }
+
+    /**
+     * @param manager    发送请求的串口管理器
+     * @param tickMillis 时间轮每格的时长，即发送时间的抖动上限
+     */
+    public SerialPollingScheduler(MultiSerialPortManager manager, long tickMillis) {
+        this.manager = manager;
+        this.timerWheel = new HashedTimerWheel("SerialPollingTimer", tickMillis, 1024);
+    }
+
+    /**
+     * 加入轮询任务，串口需已打开
+     */
+    public void addJob(PollJob job) {
+        if (!running) {
+            throw new IllegalStateException("调度器已停止");
+        }
+        String serialId = job.getSerialId();
+        int baudRate = manager.getBaudRate(serialId);
+        if (baudRate <= 0) {
+            throw new IllegalStateException("串口[" + serialId + "] 未打开");
+        }
+        Bus bus;
+        synchronized (buses) {
+            bus = buses.get(serialId);
+            if (bus == null) {
+                bus = new Bus(serialId);
+                buses.put(serialId, bus);
+            }
+        }
+        synchronized (bus) {
+            if (bus.stopped) {
+                // 串口在此期间被关闭
+                throw new IllegalStateException("串口[" + serialId + "] 未打开");
+            }
+            bus.charNanos = charNanos(manager.getSerialConfig(serialId), baudRate);
+            if (bus.jobs.contains(job)) {
+                return;
+            }
+            long now = System.nanoTime();
+            // 首次发送排在已有任务每周期占用的总线时间之后，避免所有任务在同一时刻到期
+            job.nextDue = now + bus.reservedNanos % job.getPeriodNanos();
+            job.lock = bus;
+            bus.reservedNanos += costNanos(bus, job);
+            bus.jobs.add(job);
+            double utilization = utilization(bus);
+            if (utilization > 1) {
+                SerialPortLogUtil.w(TAG, String.format("串口[%s] 轮询占用率 %.0f%%，低优先级任务将错过周期",
+                        serialId, utilization * 100));
+            }
+        }
+        pump(bus);
+    }
+
+    /**
+     * 移除轮询任务，正在等待应答的请求仍会完成
+     */
+    public void removeJob(PollJob job) {
+        Bus bus;
+        synchronized (buses) {
+            bus = buses.get(job.getSerialId());
+        }
+        if (bus == null) {
+            return;
+        }
+        synchronized (bus) {
+            if (bus.jobs.remove(job)) {
+                bus.reservedNanos -= costNanos(bus, job);
+            }
+            if (bus.jobs.isEmpty()) {
+                bus.cancelWakeup();
+            }
+        }
+    }
+
+    /**
+     * 串口上的任务
+     */
+    public List<PollJob> getJobs(String serialId) {
+        Bus bus;
+        synchronized (buses) {
+            bus = buses.get(serialId);
+        }
+        if (bus == null) {
+            return new ArrayList<>();
+        }
+        synchronized (bus) {
+            return new ArrayList<>(bus.jobs);
+        }
+    }
+
+    /**
+     * 按估算的每次轮询时间计算的总线占用率，大于1表示无法满足全部任务的周期
+     */
+    public double getUtilization(String serialId) {
+        Bus bus;
+        synchronized (buses) {
+            bus = buses.get(serialId);
+        }
+        if (bus == null) {
+            return 0;
+        }
+        synchronized (bus) {
+            return utilization(bus);
+        }
+    }
+
+    /**
+     * 停止调度，已发送的请求仍会完成
+     */
+    public void shutdown() {
+        running = false;
+        synchronized (buses) {
+            for (Bus bus : buses.values()) {
+                synchronized (bus) {
+                    bus.cancelWakeup();
+                }
+            }
+            buses.clear();
+        }
+        timerWheel.stop();
+    }
+
+    /**
+     * 总线空闲时发送到期任务中优先级最高的一个，没有到期任务时登记唤醒时间
+     */
+    private void pump(final Bus bus) {
+        if (manager.getBaudRate(bus.serialId) <= 0) {
+            stopBus(bus);
+            return;
+        }
+        boolean paused = !manager.isSerialPortOpened(bus.serialId);
+        PollJob job = null;
+        List<PollJob> missedJobs = null;
+        int[] missedCounts = null;
+        synchronized (bus) {
+            if (!running || bus.busy || bus.stopped) {
+                return;
+            }
+            long now = System.nanoTime();
+            if (paused) {
+                // 正在重连，恢复后超过一个周期未发送的任务计为错过
+                if (!bus.jobs.isEmpty()) {
+                    bus.scheduleWakeup(now + PAUSE_CHECK_MILLIS * 1_000_000, now);
+                }
+                return;
+            }
+            long earliest = Long.MAX_VALUE;
+            for (int i = 0, size = bus.jobs.size(); i < size; i++) {
+                PollJob candidate = bus.jobs.get(i);
+                long period = candidate.getPeriodNanos();
+                long late = now - candidate.nextDue;
+                if (late < 0) {
+                    earliest = Math.min(earliest, candidate.nextDue);
+                    continue;
+                }
+                if (late >= period) {
+                    int missed = (int) (late / period);
+                    candidate.nextDue += missed * period;
+                    candidate.missedDeadlines += missed;
+                    if (candidate.getListener() != null) {
+                        if (missedJobs == null) {
+                            missedJobs = new ArrayList<>(2);
+                            missedCounts = new int[size];
+                        }
+                        missedCounts[missedJobs.size()] = missed;
+                        missedJobs.add(candidate);
+                    }
+                }
+                if (job == null || candidate.getPriority() > job.getPriority()
+                        || (candidate.getPriority() == job.getPriority() && candidate.nextDue < job.nextDue)) {
+                    job = candidate;
+                }
+            }
+            if (job == null) {
+                if (earliest != Long.MAX_VALUE) {
+                    bus.scheduleWakeup(earliest, now);
+                }
+            } else {
+                bus.busy = true;
+                job.nextDue += job.getPeriodNanos();
+                if (job.lastSentNanos != 0) {
+                    double interval = now - job.lastSentNanos;
+                    job.intervalEwmaNanos = job.intervalEwmaNanos == 0 ? interval
+                            : job.intervalEwmaNanos + EWMA_ALPHA * (interval - job.intervalEwmaNanos);
+                }
+                job.lastSentNanos = now;
+                job.polls++;
+            }
+        }
+        if (missedJobs != null) {
+            for (int i = 0; i < missedJobs.size(); i++) {
+                PollJob missedJob = missedJobs.get(i);
+                missedJob.getListener().onDeadlineMissed(missedJob, missedCounts[i]);
+            }
+        }
+        if (job != null) {
+            send(bus, job);
+        }
+    }
+
+    private void send(final Bus bus, final PollJob job) {
+        long timeoutMillis = job.getTimeoutMillis();
+        if (timeoutMillis <= 0) {
+            long costMillis;
+            synchronized (bus) {
+                costMillis = (costNanos(bus, job) + 999_999) / 1_000_000;
+            }
+            timeoutMillis = costMillis * 2 + RESPONSE_MARGIN_MILLIS;
+        }
+        final long sentAt = System.nanoTime();
+        TransactionFuture future = manager.sendRequest(job.getSerialId(), job.getCommand(), job.getMatcher(),
+                timeoutMillis, job.getRetries());
+        if (future.isDone()) {
+            // 发送时立即失败（如串口刚被关闭），下一次调度交给时间轮，避免onComplete和pump互相递归
+            onComplete(bus, job, future, sentAt);
+            long now = System.nanoTime();
+            synchronized (bus) {
+                if (!bus.stopped && !bus.jobs.isEmpty()) {
+                    bus.scheduleWakeup(now, now);
+                }
+            }
+            return;
+        }
+        future.addListener(f -> {
+            onComplete(bus, job, f, sentAt);
+            pump(bus);
+        });
+    }
+
+    private void onComplete(Bus bus, PollJob job, TransactionFuture future, long sentAt) {
+        boolean success = future.isSuccess();
+        synchronized (bus) {
+            bus.busy = false;
+            if (success) {
+                job.responses++;
+                job.totalLatencyNanos += System.nanoTime() - sentAt;
+            } else {
+                job.failures++;
+            }
+        }
+        PollJob.Listener listener = job.getListener();
+        if (listener != null) {
+            if (success) {
+                listener.onResponse(job, future.getResponse());
+            } else {
+                listener.onFailure(job, future.getCause());
+            }
+        }
+    }
+
+    /**
+     * 串口已关闭：移除该串口的全部任务并回调onFailure
+     */
+    private void stopBus(Bus bus) {
+        synchronized (buses) {
+            if (buses.get(bus.serialId) == bus) {
+                buses.remove(bus.serialId);
+            }
+        }
+        List<PollJob> jobs;
+        synchronized (bus) {
+            if (bus.stopped) {
+                return;
+            }
+            bus.stopped = true;
+            bus.cancelWakeup();
+            jobs = new ArrayList<>(bus.jobs);
+            bus.jobs.clear();
+            bus.reservedNanos = 0;
+        }
+        SerialPortLogUtil.w(TAG, "串口[" + bus.serialId + "] 已关闭，停止 " + jobs.size() + " 个轮询任务");
+        IllegalStateException cause = new IllegalStateException("串口[" + bus.serialId + "] 已关闭，轮询已停止");
+        for (PollJob job : jobs) {
+            PollJob.Listener listener = job.getListener();
+            if (listener != null) {
+                listener.onFailure(job, cause);
+            }
+        }
+    }
+
+    /**
+     * 在持有bus锁时调用
+     */
+    private static double utilization(Bus bus) {
+        double utilization = 0;
+        for (PollJob job : bus.jobs) {
+            utilization += (double) costNanos(bus, job) / job.getPeriodNanos();
+        }
+        return utilization;
+    }
+
+    /**
+     * 一次轮询占用的总线时间：命令、应答和帧间隔的传输时间
+     */
+    private static long costNanos(Bus bus, PollJob job) {
+        return (long) ((job.getCommand().length + job.getExpectedResponseBytes() + FRAME_GAP_CHARS) * bus.charNanos);
+    }
+
+    /**
+     * 一个字符的传输时间：起始位 + 数据位 + 校验位 + 停止位
+     */
+    private static double charNanos(SerialConfig config, int baudRate) {
+        int bits = 1 + 8 + 1;
+        if (config != null) {
+            bits = 1 + config.getDatabits() + (config.getParity() != 0 ? 1 : 0) + config.getStopbits();
+        }
+        return bits * 1e9 / baudRate;
+    }
+
+    /**
+     * 一个串口的调度状态，同时作为该串口的调度锁
+     */
+    final class Bus {
+        final String serialId;
+        final List<PollJob> jobs = new ArrayList<>();
+        double charNanos;
+        // 全部任务每周期占用的总线时间之和
+        long reservedNanos;
+        boolean busy;
+        // 串口已关闭，不再调度
+        boolean stopped;
+        private HashedTimerWheel.Timeout wakeup;
+        private long wakeupAt;
+
+        Bus(String serialId) {
+            this.serialId = serialId;
+        }
+
+        void scheduleWakeup(long due, long now) {
+            if (wakeup != null && !wakeup.isExpired() && !wakeup.isCancelled() && wakeupAt <= due) {
+                return;
+            }
+            cancelWakeup();
+            wakeupAt = due;
+            long delayMillis = (due - now + 999_999) / 1_000_000;
+            wakeup = timerWheel.schedule(() -> pump(this), delayMillis);
+        }
+
+        void cancelWakeup() {
+            if (wakeup != null) {
+                wakeup.cancel();
+                wakeup = null;
+            }
+        }
+    }
+}
@@ -11,23 +11,41 @@ import java.io.InputStream;
  * The simplest thing to do is not to deal with sticky packets,
  * read directly and return as much as InputStream.available() reads
  */
-public class BaseStickPackageHelper implements AbsStickPackageHelper {
+public class BaseStickPackageHelper extends RingBufferStickPackageHelper {
+    // 没有数据时的轮询间隔(ms)
+    private int intervalSleep = 50;
+
     public BaseStickPackageHelper() {
     }
 
+    public BaseStickPackageHelper(int intervalSleep) {
+        this.intervalSleep = intervalSleep;
+    }
+
+    public void setIntervalSleep(int intervalSleep) {
+        this.intervalSleep = intervalSleep;
+    }
+
+    @Override
+    public byte[] decode(ByteRingBuffer buffer) {
+        if (buffer.isEmpty()) {
+            return null;
+        }
+        return buffer.take(buffer.size());
+    }
+
     @Override
     public byte[] execute(InputStream is) {
         try {
             int available = is.available();
             if (available > 0) {
-                byte[] buffer = new byte[available];
-                int size = is.read(buffer);
+                int size = mBuffer.readFrom(is, available);
                 if (size > 0) {
-                    return buffer;
+                    return decode(mBuffer);
                 }
-                SerialPortLogUtil.d("BaseStickPackageHelper", "原始数据长度: " + buffer.length);
+                SerialPortLogUtil.d("BaseStickPackageHelper", "原始数据长度: " + available);
             } else {
-                SystemClock.sleep(50); // 默认50ms间隔
+                SystemClock.sleep(intervalSleep); // 默认50ms间隔
             }
 
         } catch (IOException e) {
@@ -0,0 +1,347 @@
+package com.cl.serialportlibrary.stick;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * 原始字节环形缓冲区
+ * 黏包处理器的公共接收缓冲，按块从InputStream批量读取，按帧切片取出，
+ * 全程使用byte[]存储，不会为每个字节创建Byte对象；
+ * 从ReadableByteChannel（如direct ByteBuffer模式的串口输入流）读取时改用direct ByteBuffer存储，
+ * 数据由read(2)直接写入缓冲区，处理器在原处解析，不再经过中间缓冲区复制
+ * 容量为2的幂，数据不足时按需扩容，直到maxCapacity
+ * 非线程安全，只应在串口读取线程中使用
+ */
+public final class ByteRingBuffer {
+
+    public static final int DEFAULT_CAPACITY = 4096;
+    public static final int DEFAULT_MAX_CAPACITY = 1 << 20;
+    /**
+     * 池化模式下take()返回的占位数组，实际数据通过pollPooledFrame()取出
+     */
+    static final byte[] POOLED_FRAME = new byte[1];
+
+    private byte[] data;
+    //direct存储，非null时替代data
+    private ByteBuffer direct;
+    //direct存储的视图，批量读写时设置position/limit，不影响direct本身
+    private ByteBuffer directView;
+    private int mask;
+    private final int maxCapacity;
+    //读位置（相对数组下标）
+    private int head;
+    //可读字节数
+    private int size;
+    //累计已消费字节数，用于处理器判断缓冲区是否被其他处理器消费过
+    private long consumed;
+    //池化模式：take()把帧复制到池化帧中，不分配新数组
+    private FramePool framePool;
+    private SerialFrame pooledFrame;
+
+    public ByteRingBuffer() {
+        this(DEFAULT_CAPACITY, DEFAULT_MAX_CAPACITY);
+    }
+
+    public ByteRingBuffer(int initialCapacity, int maxCapacity) {
+        if (initialCapacity <= 0 || maxCapacity < initialCapacity) {
+            throw new IllegalArgumentException("initialCapacity=" + initialCapacity + ", maxCapacity=" + maxCapacity);
+        }
+        int capacity = roundUpPowerOfTwo(initialCapacity);
+        this.data = new byte[capacity];
+        this.mask = capacity - 1;
+        this.maxCapacity = roundUpPowerOfTwo(maxCapacity);
+    }
+
+    private static int roundUpPowerOfTwo(int value) {
+        int highest = Integer.highestOneBit(value);
+        return highest == value ? value : highest << 1;
+    }
+
+    /**
+     * 可读字节数
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 当前容量
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * 剩余可写空间（不扩容）
+     */
+    public int writableBytes() {
+        return capacity() - size;
+    }
+
+    /**
+     * 是否已达到最大容量且写满
+     */
+    public boolean isFull() {
+        return size == capacity() && capacity() >= maxCapacity;
+    }
+
+    /**
+     * 累计已消费的字节数（绝对读位置）
+     */
+    public long position() {
+        return consumed;
+    }
+
+    /**
+     * 读取相对于读位置index处的字节
+     */
+    public byte get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index=" + index + ", size=" + size);
+        }
+        int i = (head + index) & mask;
+        return direct != null ? direct.get(i) : data[i];
+    }
+
+    /**
+     * 读取相对于读位置index处的无符号字节
+     */
+    public int getUnsigned(int index) {
+        return get(index) & 0xFF;
+    }
+
+    /**
+     * 从InputStream批量读取一次，最多读取当前连续可写区域的长度
+     * 对于FileInputStream，该调用会阻塞到至少有一个字节到达
+     * InputStream同时是ReadableByteChannel时，直接读取到direct存储
+     *
+     * @return 读取的字节数，流结束返回-1，缓冲区已满返回0
+     */
+    public int readFrom(InputStream is) throws IOException {
+        return readFrom(is, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 从InputStream批量读取一次，最多读取maxLen字节
+     *
+     * @return 读取的字节数，流结束返回-1，缓冲区已满返回0
+     */
+    public int readFrom(InputStream is, int maxLen) throws IOException {
+        boolean channel = is instanceof ReadableByteChannel;
+        if (channel != (direct != null)) {
+            // 存储方式跟随输入：通道直接读取到direct存储，其他InputStream读取到数组
+            switchStorage(channel);
+        }
+        int capacity = capacity();
+        if (size == capacity) {
+            if (capacity >= maxCapacity) {
+                return 0;
+            }
+            grow(capacity << 1);
+            capacity = capacity();
+        }
+        int tail = (head + size) & mask;
+        int contiguous = tail >= head ? capacity - tail : head - tail;
+        if (size == 0) {
+            // 空缓冲区时归零，保证最大的连续可写区域
+            head = 0;
+            tail = 0;
+            contiguous = capacity;
+        }
+        int len = Math.min(contiguous, maxLen);
+        int read;
+        if (channel) {
+            directView.limit(tail + len);
+            directView.position(tail);
+            read = ((ReadableByteChannel) is).read(directView);
+        } else {
+            read = is.read(data, tail, len);
+        }
+        if (read > 0) {
+            size += read;
+        }
+        return read;
+    }
+
+    /**
+     * 写入字节，空间不足时扩容，超过最大容量抛出IllegalStateException
+     */
+    public void write(byte[] src, int off, int len) {
+        if (len > capacity() - size) {
+            int required = size + len;
+            if (required > maxCapacity) {
+                throw new IllegalStateException("ByteRingBuffer overflow, required=" + required + ", max=" + maxCapacity);
+            }
+            grow(roundUpPowerOfTwo(required));
+        }
+        int tail = (head + size) & mask;
+        int first = Math.min(len, capacity() - tail);
+        put(tail, src, off, first);
+        if (first < len) {
+            put(0, src, off + first, len - first);
+        }
+        size += len;
+    }
+
+    public void write(byte[] src) {
+        write(src, 0, src.length);
+    }
+
+    /**
+     * 复制[offset, offset+len)到dst，不消费数据
+     */
+    public void copyTo(int offset, byte[] dst, int dstOff, int len) {
+        if (offset < 0 || len < 0 || offset + len > size) {
+            throw new IndexOutOfBoundsException("offset=" + offset + ", len=" + len + ", size=" + size);
+        }
+        int start = (head + offset) & mask;
+        int first = Math.min(len, capacity() - start);
+        get(start, dst, dstOff, first);
+        if (first < len) {
+            get(0, dst, dstOff + first, len - first);
+        }
+    }
+
+    /**
+     * 复制[offset, offset+len)为新数组，不消费数据
+     */
+    public byte[] copy(int offset, int len) {
+        byte[] result = new byte[len];
+        copyTo(offset, result, 0, len);
+        return result;
+    }
+
+    /**
+     * 取出[offset, offset+len)作为一帧，并消费到该帧末尾（offset之前的字节一并丢弃）
+     */
+    public byte[] take(int offset, int len) {
+        if (framePool != null) {
+            SerialFrame frame = framePool.acquire(len);
+            copyTo(offset, frame.data, 0, len);
+            skip(offset + len);
+            if (pooledFrame != null) {
+                pooledFrame.release();
+            }
+            pooledFrame = frame;
+            return POOLED_FRAME;
+        }
+        byte[] result = copy(offset, len);
+        skip(offset + len);
+        return result;
+    }
+
+    /**
+     * 取出头部len字节作为一帧
+     */
+    public byte[] take(int len) {
+        return take(0, len);
+    }
+
+    /**
+     * 设置池化模式的缓冲池，null恢复为每帧分配新数组
+     */
+    void setFramePool(FramePool pool) {
+        this.framePool = pool;
+    }
+
+    /**
+     * 池化模式下最近一次take()的帧，不取出
+     */
+    SerialFrame peekPooledFrame() {
+        return pooledFrame;
+    }
+
+    /**
+     * 取出池化模式下最近一次take()的帧
+     */
+    SerialFrame pollPooledFrame() {
+        SerialFrame frame = pooledFrame;
+        pooledFrame = null;
+        return frame;
+    }
+
+    /**
+     * 丢弃头部n字节
+     */
+    public void skip(int n) {
+        if (n < 0 || n > size) {
+            throw new IndexOutOfBoundsException("n=" + n + ", size=" + size);
+        }
+        head = (head + n) & mask;
+        size -= n;
+        consumed += n;
+        if (size == 0) {
+            head = 0;
+        }
+    }
+
+    /**
+     * 清空缓冲区
+     */
+    public void clear() {
+        skip(size);
+    }
+
+    private void grow(int newCapacity) {
+        newCapacity = Math.min(newCapacity, maxCapacity);
+        if (newCapacity <= capacity()) {
+            return;
+        }
+        byte[] newData = new byte[newCapacity];
+        copyTo(0, newData, 0, size);
+        if (direct != null) {
+            direct = ByteBuffer.allocateDirect(newCapacity);
+            direct.put(newData, 0, size);
+            directView = direct.duplicate();
+        } else {
+            data = newData;
+        }
+        mask = newCapacity - 1;
+        head = 0;
+    }
+
+    /**
+     * 在数组和direct存储之间切换，保留已有数据
+     */
+    private void switchStorage(boolean toDirect) {
+        byte[] copy = new byte[capacity()];
+        copyTo(0, copy, 0, size);
+        if (toDirect) {
+            direct = ByteBuffer.allocateDirect(copy.length);
+            direct.put(copy, 0, size);
+            directView = direct.duplicate();
+            data = null;
+        } else {
+            data = copy;
+            direct = null;
+            directView = null;
+        }
+        head = 0;
+    }
+
+    private void put(int index, byte[] src, int off, int len) {
+        if (direct != null) {
+            directView.limit(index + len);
+            directView.position(index);
+            directView.put(src, off, len);
+        } else {
+            System.arraycopy(src, off, data, index, len);
+        }
+    }
+
+    private void get(int index, byte[] dst, int off, int len) {
+        if (direct != null) {
+            directView.limit(index + len);
+            directView.position(index);
+            directView.get(dst, off, len);
+        } else {
+            System.arraycopy(data, index, dst, off, len);
+        }
+    }
+}
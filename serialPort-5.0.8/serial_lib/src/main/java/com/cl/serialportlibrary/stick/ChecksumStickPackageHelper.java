@@ -0,0 +1,173 @@
+package com.cl.serialportlibrary.stick;
+
+import com.cl.serialportlibrary.SerialPortMetrics;
+import com.cl.serialportlibrary.enumerate.ChecksumPolicy;
+import com.cl.serialportlibrary.enumerate.ChecksumType;
+import com.cl.serialportlibrary.utils.ChecksumUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * 校验处理器，跟在任意黏包处理器之后校验每一帧
+ * 帧格式：[headerBytes字节不参与校验][数据][校验值][trailerBytes字节不参与校验]
+ * 被包装的处理器为RingBufferStickPackageHelper时共用其接收缓冲区，丢弃一帧后直接解析缓冲区中的下一帧，
+ * 池化模式下在池化帧上校验，不复制；
+ * 其他自定义处理器在Reactor模式下通过缓冲区快照的InputStream调用，成帧后清除其读取的数据
+ * 校验失败的帧按ChecksumPolicy丢弃或照常交付，均计入SerialPortMetrics的checksumErrors
+ */
+public class ChecksumStickPackageHelper extends RingBufferStickPackageHelper {
+
+    /**
+     * 校验失败监听，在读取线程中回调
+     */
+    public interface OnChecksumErrorListener {
+        /**
+         * @param frame    校验失败的帧（副本）
+         * @param expected 帧中携带的校验值
+         * @param actual   计算得到的校验值
+         */
+        void onChecksumError(byte[] frame, int expected, int actual);
+    }
+
+    private final AbsStickPackageHelper helper;
+    private final RingBufferStickPackageHelper ringHelper;
+    private final ChecksumType type;
+    private final int width;
+    private ChecksumPolicy policy = ChecksumPolicy.DROP;
+    private int headerBytes;
+    private int trailerBytes;
+    private volatile OnChecksumErrorListener listener;
+    private volatile long checksumErrors;
+
+    /**
+     * @param helper 负责成帧的处理器
+     * @param type   校验算法，校验值位于帧尾（trailerBytes之前）
+     */
+    public ChecksumStickPackageHelper(AbsStickPackageHelper helper, ChecksumType type) {
+        super(helper instanceof RingBufferStickPackageHelper
+                ? ((RingBufferStickPackageHelper) helper).mBuffer : new ByteRingBuffer());
+        this.helper = helper;
+        this.ringHelper = helper instanceof RingBufferStickPackageHelper ? (RingBufferStickPackageHelper) helper : null;
+        this.type = type;
+        this.width = ChecksumUtil.width(type);
+    }
+
+    /**
+     * 校验范围：跳过帧头headerBytes字节（如同步头），校验值之后还有trailerBytes字节（如帧尾）
+     */
+    public ChecksumStickPackageHelper setRange(int headerBytes, int trailerBytes) {
+        this.headerBytes = Math.max(0, headerBytes);
+        this.trailerBytes = Math.max(0, trailerBytes);
+        return this;
+    }
+
+    /**
+     * 校验失败的处理方式，默认丢弃
+     */
+    public ChecksumStickPackageHelper setPolicy(ChecksumPolicy policy) {
+        this.policy = policy;
+        return this;
+    }
+
+    public ChecksumStickPackageHelper setOnChecksumErrorListener(OnChecksumErrorListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * 校验失败的帧数
+     */
+    public long getChecksumErrors() {
+        return checksumErrors;
+    }
+
+    @Override
+    public byte[] decode(ByteRingBuffer buffer) {
+        byte[] frame;
+        while ((frame = decodeWith(buffer)) != null) {
+            if (accept(frame, buffer)) {
+                return frame;
+            }
+        }
+        return null;
+    }
+
+    private byte[] decodeWith(ByteRingBuffer buffer) {
+        if (ringHelper != null) {
+            return ringHelper.decode(buffer);
+        }
+        if (buffer.isEmpty()) {
+            return null;
+        }
+        // 自定义处理器：交给缓冲区快照，成帧后清除其读取的数据，未成帧时保留数据等待更多数据
+        ByteArrayInputStream is = new ByteArrayInputStream(buffer.copy(0, buffer.size()));
+        byte[] frame = helper.execute(is);
+        if (frame == null || frame.length == 0) {
+            return null;
+        }
+        buffer.skip(buffer.size() - is.available());
+        return frame;
+    }
+
+    @Override
+    public byte[] execute(InputStream is) {
+        // 由被包装的处理器读取和成帧，保留其等待和超时行为
+        byte[] frame = helper.execute(is);
+        while (frame != null && frame.length > 0) {
+            if (accept(frame, mBuffer)) {
+                return frame;
+            }
+            frame = ringHelper != null ? ringHelper.decode(mBuffer) : null;
+        }
+        return null;
+    }
+
+    @Override
+    public int getFlushDelay() {
+        return ringHelper != null ? ringHelper.getFlushDelay() : -1;
+    }
+
+    @Override
+    public void setMetrics(SerialPortMetrics metrics) {
+        super.setMetrics(metrics);
+        if (ringHelper != null) {
+            ringHelper.setMetrics(metrics);
+        }
+    }
+
+    /**
+     * 校验一帧，丢弃时同时释放池化帧
+     *
+     * @return 是否交付该帧
+     */
+    private boolean accept(byte[] frame, ByteRingBuffer buffer) {
+        byte[] data = frame;
+        int length = frame.length;
+        if (frame == ByteRingBuffer.POOLED_FRAME) {
+            SerialFrame pooled = buffer.peekPooledFrame();
+            data = pooled.data;
+            length = pooled.length;
+        }
+        int end = length - trailerBytes - width;
+        int actual = end >= headerBytes ? ChecksumUtil.compute(type, data, headerBytes, end - headerBytes) : -1;
+        int expected = end >= headerBytes ? ChecksumUtil.read(type, data, end) : -1;
+        if (end >= headerBytes && actual == expected) {
+            return true;
+        }
+        checksumErrors++;
+        reportChecksumError();
+        OnChecksumErrorListener l = listener;
+        if (l != null) {
+            l.onChecksumError(Arrays.copyOf(data, length), expected, actual);
+        }
+        if (policy == ChecksumPolicy.FLAG) {
+            return true;
+        }
+        if (frame == ByteRingBuffer.POOLED_FRAME) {
+            buffer.pollPooledFrame().release();
+        }
+        return false;
+    }
+}
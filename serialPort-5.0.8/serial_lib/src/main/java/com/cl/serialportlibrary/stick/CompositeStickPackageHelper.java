@@ -1,87 +1,97 @@
 package com.cl.serialportlibrary.stick;
 
+import android.os.SystemClock;
+
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * 组合式黏包处理器
  * 首先尝试使用主要处理器，如果失败则使用备用处理器
+ * 两个处理器共享同一个接收缓冲区，基于RingBufferStickPackageHelper的处理器直接在缓冲区上解析，
+ * 其他自定义处理器通过缓冲区快照的InputStream调用
  * Author: cl
  * Date: 2023/10/26
+ * @deprecated 使用 {@link DemultiplexStickPackageHelper}，支持任意数量的协议并按协议分发
  */
-public class CompositeStickPackageHelper implements AbsStickPackageHelper {
-    
+@Deprecated
+public class CompositeStickPackageHelper extends RingBufferStickPackageHelper {
+
     private final AbsStickPackageHelper primaryHelper;
     private final AbsStickPackageHelper fallbackHelper;
-    private final List<Byte> buffer = new ArrayList<>();
-    
+
     public CompositeStickPackageHelper(AbsStickPackageHelper primaryHelper, AbsStickPackageHelper fallbackHelper) {
         this.primaryHelper = primaryHelper;
         this.fallbackHelper = fallbackHelper;
     }
-    
+
+    @Override
+    public byte[] decode(ByteRingBuffer buffer) {
+        if (buffer.isEmpty()) {
+            return null;
+        }
+        // 尝试使用主要处理器
+        byte[] primaryResult = decodeWith(primaryHelper, buffer);
+        if (primaryResult != null && primaryResult.length > 0) {
+            return primaryResult;
+        }
+        // 主要处理器失败，尝试备用处理器
+        byte[] fallbackResult = decodeWith(fallbackHelper, buffer);
+        if (fallbackResult != null && fallbackResult.length > 0) {
+            return fallbackResult;
+        }
+        // 两个处理器都失败，保持缓冲区数据等待更多数据
+        return null;
+    }
+
+    private byte[] decodeWith(AbsStickPackageHelper helper, ByteRingBuffer buffer) {
+        if (helper instanceof RingBufferStickPackageHelper) {
+            return ((RingBufferStickPackageHelper) helper).decode(buffer);
+        }
+        // 自定义处理器：交给缓冲区快照，成功后清除已处理的数据
+        byte[] result = helper.execute(new ByteArrayInputStream(buffer.copy(0, buffer.size())));
+        if (result != null && result.length > 0 && result.length <= buffer.size()) {
+            buffer.skip(result.length);
+        }
+        return result;
+    }
+
+    @Override
+    public int getFlushDelay() {
+        int primary = flushDelayOf(primaryHelper);
+        int fallback = flushDelayOf(fallbackHelper);
+        if (primary < 0 || fallback < 0) {
+            return Math.max(primary, fallback);
+        }
+        return Math.min(primary, fallback);
+    }
+
+    private static int flushDelayOf(AbsStickPackageHelper helper) {
+        return helper instanceof RingBufferStickPackageHelper ? ((RingBufferStickPackageHelper) helper).getFlushDelay() : -1;
+    }
+
     @Override
     public byte[] execute(InputStream is) {
-        // 先尝试读取一些数据到缓冲区
+        byte[] frame = decode(mBuffer);
+        if (frame != null) {
+            return frame;
+        }
         try {
-            int available = is.available();
+            // 缓冲区为空时阻塞等待新数据，否则只读取已到达的数据，便于超时类处理器判断超时
+            int available = mBuffer.isEmpty() ? Integer.MAX_VALUE : is.available();
             if (available > 0) {
-                byte[] tempBuffer = new byte[available];
-                int readBytes = is.read(tempBuffer);
-                if (readBytes > 0) {
-                    for (int i = 0; i < readBytes; i++) {
-                        buffer.add(tempBuffer[i]);
-                    }
+                if (mBuffer.readFrom(is, available) == 0 && mBuffer.isFull()) {
+                    reportFramingError(mBuffer.size());
+                    mBuffer.clear();
                 }
+            } else {
+                SystemClock.sleep(10);
             }
-            
-            if (buffer.isEmpty()) {
-                return null;
-            }
-            
-            // 将缓冲区数据转换为字节数组
-            byte[] bufferData = new byte[buffer.size()];
-            for (int i = 0; i < buffer.size(); i++) {
-                bufferData[i] = buffer.get(i);
-            }
-            
-            // 尝试使用主要处理器
-            ByteArrayInputStream primaryStream = new ByteArrayInputStream(bufferData);
-            byte[] primaryResult = primaryHelper.execute(primaryStream);
-            
-            if (primaryResult != null && primaryResult.length > 0) {
-                // 主要处理器成功，清除已处理的数据
-                if (primaryResult.length <= buffer.size()) {
-                    for (int i = 0; i < primaryResult.length; i++) {
-                        buffer.remove(0);
-                    }
-                }
-                return primaryResult;
-            }
-            
-            // 主要处理器失败，尝试备用处理器
-            ByteArrayInputStream fallbackStream = new ByteArrayInputStream(bufferData);
-            byte[] fallbackResult = fallbackHelper.execute(fallbackStream);
-            
-            if (fallbackResult != null && fallbackResult.length > 0) {
-                // 备用处理器成功，清除已处理的数据
-                if (fallbackResult.length <= buffer.size()) {
-                    for (int i = 0; i < fallbackResult.length; i++) {
-                        buffer.remove(0);
-                    }
-                }
-                return fallbackResult;
-            }
-            
-            // 两个处理器都失败，保持缓冲区数据等待更多数据
-            return null;
-            
         } catch (IOException e) {
             e.printStackTrace();
             return null;
         }
+        return decode(mBuffer);
     }
 }
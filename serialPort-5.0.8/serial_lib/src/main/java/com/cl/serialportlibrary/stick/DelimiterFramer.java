@@ -0,0 +1,92 @@
+package com.cl.serialportlibrary.stick;
+
+/**
+ * 文本行类协议成帧器（如AT指令响应）
+ * 帧以任意一个前缀开始、以任意一个结束符结束；前缀为空时以任意可打印字符或\r\n开始
+ * 结束符的查找在读位置不变时从上次的位置继续，每个字节只扫描一次
+ */
+public class DelimiterFramer implements ProtocolFramer {
+
+    private final byte[][] prefixes;
+    private final DelimiterMatcher terminatorMatcher;
+    private final int maxFrameLength;
+    // 续扫状态
+    private ByteRingBuffer scanBuffer;
+    private long scanPosition = -1;
+    private int scanned;
+
+    /**
+     * @param prefixes       帧前缀，为空数组时接受可打印字符开头的数据
+     * @param terminators    结束符，至少一个
+     * @param maxFrameLength 最大帧长度，超过仍未找到结束符时判定为NOT_MATCHED
+     */
+    public DelimiterFramer(byte[][] prefixes, byte[][] terminators, int maxFrameLength) {
+        if (prefixes == null) {
+            throw new IllegalStateException(" prefixes ==null");
+        }
+        this.prefixes = prefixes;
+        this.terminatorMatcher = new DelimiterMatcher(terminators);
+        this.maxFrameLength = maxFrameLength;
+    }
+
+    public DelimiterFramer(byte[][] prefixes, byte[][] terminators) {
+        this(prefixes, terminators, 4096);
+    }
+
+    @Override
+    public int match(ByteRingBuffer buffer) {
+        int size = buffer.size();
+        if (size == 0) {
+            return NEED_MORE;
+        }
+        int prefix = matchPrefix(buffer, size);
+        if (prefix <= 0) {
+            return prefix;
+        }
+        if (buffer != scanBuffer || buffer.position() != scanPosition || scanned > size) {
+            scanBuffer = buffer;
+            scanPosition = buffer.position();
+            scanned = 0;
+            terminatorMatcher.reset();
+        }
+        while (scanned < size) {
+            if (terminatorMatcher.next(buffer.get(scanned++)) > 0 && scanned > prefix) {
+                int frameLen = scanned;
+                scanned = 0;
+                scanPosition = -1;
+                terminatorMatcher.reset();
+                return frameLen;
+            }
+            if (scanned >= maxFrameLength) {
+                scanPosition = -1;
+                return NOT_MATCHED;
+            }
+        }
+        return NEED_MORE;
+    }
+
+    /**
+     * @return 匹配的前缀长度（无前缀时为1），NEED_MORE或NOT_MATCHED
+     */
+    private int matchPrefix(ByteRingBuffer buffer, int size) {
+        if (prefixes.length == 0) {
+            int b = buffer.getUnsigned(0);
+            return (b >= 0x20 && b < 0x7F) || b == '\r' || b == '\n' ? 1 : NOT_MATCHED;
+        }
+        boolean partial = false;
+        for (byte[] prefix : prefixes) {
+            int n = Math.min(prefix.length, size);
+            int i = 0;
+            while (i < n && buffer.get(i) == prefix[i]) {
+                i++;
+            }
+            if (i == prefix.length) {
+                return prefix.length;
+            }
+            if (i == n) {
+                partial = true;
+            }
+        }
+        return partial ? NEED_MORE : NOT_MATCHED;
+    }
+}
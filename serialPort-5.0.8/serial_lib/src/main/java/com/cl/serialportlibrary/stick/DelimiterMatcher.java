@@ -0,0 +1,123 @@
+package com.cl.serialportlibrary.stick;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 多分隔符流式匹配器（Aho-Corasick自动机）
+ * 构造时把全部分隔符编译为以字节为输入的确定状态转移表，之后每个字节只需一次查表，
+ * 与分隔符数量和长度无关；遇到不匹配的数据由转移表直接回退到最长可能前缀，不需要回头重新扫描
+ * 非线程安全，每个黏包处理器持有自己的实例
+ */
+public final class DelimiterMatcher {
+
+    private static final int ALPHABET = 256;
+
+    // 状态转移表 transitions[state * 256 + byte] = nextState
+    private final int[] transitions;
+    // 到达该状态时匹配到的最长分隔符长度，0表示没有匹配
+    private final int[] matchLength;
+    private final int maxLength;
+    private int state;
+
+    /**
+     * @param delimiters 分隔符，至少包含一个非空分隔符，空分隔符被忽略
+     */
+    public DelimiterMatcher(byte[]... delimiters) {
+        // 构建字典树
+        List<int[]> trie = new ArrayList<>();
+        List<Integer> output = new ArrayList<>();
+        trie.add(newNode());
+        output.add(0);
+        int longest = 0;
+        if (delimiters != null) {
+            for (byte[] delimiter : delimiters) {
+                if (delimiter == null || delimiter.length == 0) {
+                    continue;
+                }
+                int node = 0;
+                for (byte b : delimiter) {
+                    int c = b & 0xFF;
+                    if (trie.get(node)[c] == -1) {
+                        trie.get(node)[c] = trie.size();
+                        trie.add(newNode());
+                        output.add(0);
+                    }
+                    node = trie.get(node)[c];
+                }
+                output.set(node, Math.max(output.get(node), delimiter.length));
+                longest = Math.max(longest, delimiter.length);
+            }
+        }
+        if (longest == 0) {
+            throw new IllegalStateException(" delimiters length==0");
+        }
+        maxLength = longest;
+
+        // 按层次遍历计算失配指针，并补全为完整的转移表
+        int count = trie.size();
+        transitions = new int[count * ALPHABET];
+        matchLength = new int[count];
+        int[] fail = new int[count];
+        int[] queue = new int[count];
+        int queueHead = 0;
+        int queueTail = 0;
+        for (int c = 0; c < ALPHABET; c++) {
+            int child = trie.get(0)[c];
+            if (child == -1) {
+                transitions[c] = 0;
+            } else {
+                transitions[c] = child;
+                fail[child] = 0;
+                queue[queueTail++] = child;
+            }
+        }
+        matchLength[0] = output.get(0);
+        while (queueHead < queueTail) {
+            int node = queue[queueHead++];
+            matchLength[node] = Math.max(output.get(node), matchLength[fail[node]]);
+            int[] children = trie.get(node);
+            for (int c = 0; c < ALPHABET; c++) {
+                int child = children[c];
+                if (child == -1) {
+                    transitions[node * ALPHABET + c] = transitions[fail[node] * ALPHABET + c];
+                } else {
+                    transitions[node * ALPHABET + c] = child;
+                    fail[child] = transitions[fail[node] * ALPHABET + c];
+                    queue[queueTail++] = child;
+                }
+            }
+        }
+    }
+
+    private static int[] newNode() {
+        int[] node = new int[ALPHABET];
+        Arrays.fill(node, -1);
+        return node;
+    }
+
+    /**
+     * 输入一个字节
+     *
+     * @return 以该字节结尾的最长分隔符长度，没有匹配返回0
+     */
+    public int next(byte b) {
+        state = transitions[state * ALPHABET + (b & 0xFF)];
+        return matchLength[state];
+    }
+
+    /**
+     * 回到初始状态，之后的匹配不会与之前输入的字节重叠
+     */
+    public void reset() {
+        state = 0;
+    }
+
+    /**
+     * 最长分隔符的长度
+     */
+    public int getMaxLength() {
+        return maxLength;
+    }
+}
@@ -0,0 +1,119 @@
+package com.cl.serialportlibrary.stick;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 多协议分流黏包处理器，用于同一条串口上混合多种协议的场景（如AT指令响应与二进制长度帧）
+ * 所有成帧器共享同一个接收缓冲区和读位置：每次在读位置处按注册顺序询问各成帧器，
+ * 第一个给出完整帧的成帧器胜出，帧交给该协议的监听器后再返回给读取线程；
+ * 所有成帧器都判定不匹配时丢弃一个字节重新同步，有成帧器需要更多数据时等待
+ * 消费数据只移动环形缓冲区的读位置，不复制剩余数据
+ * 替代CompositeStickPackageHelper
+ */
+public class DemultiplexStickPackageHelper extends RingBufferStickPackageHelper {
+
+    /**
+     * 协议帧监听，在读取线程中回调
+     */
+    public interface OnProtocolFrameListener {
+        void onFrame(String protocol, byte[] frame);
+    }
+
+    private static final class Route {
+        final String protocol;
+        final ProtocolFramer framer;
+        final OnProtocolFrameListener listener;
+
+        Route(String protocol, ProtocolFramer framer, OnProtocolFrameListener listener) {
+            this.protocol = protocol;
+            this.framer = framer;
+            this.listener = listener;
+        }
+    }
+
+    private final List<Route> routes = new ArrayList<>();
+    private long discardedBytes;
+    private String lastProtocol;
+
+    /**
+     * 注册协议，必须在开始读取之前调用，注册顺序即匹配优先级
+     *
+     * @param protocol 协议名称
+     * @param framer   成帧器
+     * @param listener 该协议的帧监听，可以为null
+     */
+    public DemultiplexStickPackageHelper register(String protocol, ProtocolFramer framer, OnProtocolFrameListener listener) {
+        if (framer == null) {
+            throw new IllegalStateException(" framer ==null");
+        }
+        routes.add(new Route(protocol, framer, listener));
+        return this;
+    }
+
+    public DemultiplexStickPackageHelper register(String protocol, ProtocolFramer framer) {
+        return register(protocol, framer, null);
+    }
+
+    @Override
+    public byte[] decode(ByteRingBuffer buffer) {
+        int count = routes.size();
+        if (count == 0) {
+            return buffer.isEmpty() ? null : buffer.take(buffer.size());
+        }
+        int discarded = 0;
+        while (!buffer.isEmpty()) {
+            boolean waiting = false;
+            for (int i = 0; i < count; i++) {
+                Route route = routes.get(i);
+                int result = route.framer.match(buffer);
+                if (result > 0) {
+                    byte[] frame = buffer.take(result);
+                    reportDiscarded(discarded);
+                    lastProtocol = route.protocol;
+                    if (route.listener != null) {
+                        route.listener.onFrame(route.protocol, frame == ByteRingBuffer.POOLED_FRAME
+                                ? buffer.peekPooledFrame().toByteArray() : frame);
+                    }
+                    return frame;
+                }
+                if (result == ProtocolFramer.NEED_MORE) {
+                    waiting = true;
+                }
+            }
+            if (waiting) {
+                reportDiscarded(discarded);
+                return null;
+            }
+            // 没有任何协议能从该字节开始成帧，丢弃后重新同步
+            buffer.skip(1);
+            discarded++;
+        }
+        reportDiscarded(discarded);
+        return null;
+    }
+
+    /**
+     * 一段连续的无法识别的数据记为一次成帧错误
+     */
+    private void reportDiscarded(int discarded) {
+        if (discarded > 0) {
+            discardedBytes += discarded;
+            reportFramingError(discarded);
+        }
+    }
+
+    /**
+     * 最近一帧所属的协议
+     */
+    public String getLastProtocol() {
+        return lastProtocol;
+    }
+
+    /**
+     * 因无法识别而丢弃的字节数
+     */
+    public long getDiscardedBytes() {
+        return discardedBytes;
+    }
+}
@@ -0,0 +1,193 @@
+package com.cl.serialportlibrary.stick;
+
+import com.cl.serialportlibrary.utils.SerialPortLogUtil;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 接收帧缓冲池
+ * 按2的幂分级（64B ~ 64KB），每级最多缓存maxPerClass个SerialFrame，取出和归还都不分配对象；
+ * 超过最大级别的帧直接分配，释放后不缓存
+ * 开启泄漏检测后为每次取出记录分配位置，帧未释放就被GC回收时打印该位置并计数，有额外开销，只建议在debug包中开启
+ */
+public final class FramePool {
+
+    private static final String TAG = "FramePool";
+    private static final int MIN_SHIFT = 6;
+    private static final int MAX_SHIFT = 16;
+    public static final int DEFAULT_MAX_PER_CLASS = 32;
+
+    private static volatile FramePool defaultPool;
+
+    private final SizeClass[] sizeClasses = new SizeClass[MAX_SHIFT - MIN_SHIFT + 1];
+    private volatile boolean leakDetection;
+    private final ReferenceQueue<SerialFrame> leakQueue = new ReferenceQueue<>();
+    // 保持LeakTracker可达，否则弱引用本身会被回收
+    private final Set<LeakTracker> trackers = Collections.synchronizedSet(new HashSet<LeakTracker>());
+    private final AtomicLong leakCount = new AtomicLong();
+    private final AtomicLong allocations = new AtomicLong();
+
+    public FramePool() {
+        this(DEFAULT_MAX_PER_CLASS);
+    }
+
+    /**
+     * @param maxPerClass 每个大小级别最多缓存的帧数
+     */
+    public FramePool(int maxPerClass) {
+        for (int i = 0; i < sizeClasses.length; i++) {
+            sizeClasses[i] = new SizeClass(1 << (MIN_SHIFT + i), Math.max(1, maxPerClass));
+        }
+    }
+
+    /**
+     * 串口管理器共用的缓冲池
+     */
+    public static FramePool getDefault() {
+        if (defaultPool == null) {
+            synchronized (FramePool.class) {
+                if (defaultPool == null) {
+                    defaultPool = new FramePool();
+                }
+            }
+        }
+        return defaultPool;
+    }
+
+    /**
+     * 开启或关闭泄漏检测，如setLeakDetection(BuildConfig.DEBUG)
+     */
+    public void setLeakDetection(boolean enabled) {
+        this.leakDetection = enabled;
+    }
+
+    /**
+     * 已检测到的泄漏次数
+     */
+    public long getLeakCount() {
+        reportLeaks();
+        return leakCount.get();
+    }
+
+    /**
+     * 因池中没有可用的帧而新分配的次数
+     */
+    public long getAllocationCount() {
+        return allocations.get();
+    }
+
+    /**
+     * 取出一帧并复制数据
+     */
+    public SerialFrame acquire(byte[] src, int offset, int length) {
+        SerialFrame frame = acquire(length);
+        System.arraycopy(src, offset, frame.data, 0, length);
+        return frame;
+    }
+
+    /**
+     * 取出一个容量不小于length的帧，引用计数为1，由调用方填充数据
+     */
+    SerialFrame acquire(int length) {
+        int index = sizeClassIndex(length);
+        SerialFrame frame = null;
+        if (index >= 0) {
+            frame = sizeClasses[index].poll();
+            if (frame == null) {
+                frame = new SerialFrame(this, new byte[sizeClasses[index].capacity], index);
+                allocations.incrementAndGet();
+            }
+        } else {
+            frame = new SerialFrame(this, new byte[length], -1);
+            allocations.incrementAndGet();
+        }
+        frame.init(length);
+        if (leakDetection) {
+            reportLeaks();
+            LeakTracker tracker = new LeakTracker(frame, leakQueue, length);
+            frame.tracker = tracker;
+            trackers.add(tracker);
+        }
+        return frame;
+    }
+
+    /**
+     * 引用计数归零时由SerialFrame调用
+     */
+    void recycle(SerialFrame frame) {
+        LeakTracker tracker = frame.tracker;
+        if (tracker != null) {
+            frame.tracker = null;
+            tracker.clear();
+            trackers.remove(tracker);
+        }
+        if (frame.sizeClass >= 0) {
+            sizeClasses[frame.sizeClass].offer(frame);
+        }
+    }
+
+    private void reportLeaks() {
+        LeakTracker tracker;
+        while ((tracker = (LeakTracker) leakQueue.poll()) != null) {
+            if (trackers.remove(tracker)) {
+                leakCount.incrementAndGet();
+                SerialPortLogUtil.e(TAG, "SerialFrame(" + tracker.length + "字节) 未调用release()就被回收", tracker.allocation);
+            }
+        }
+    }
+
+    private static int sizeClassIndex(int length) {
+        if (length <= 1 << MIN_SHIFT) {
+            return 0;
+        }
+        int shift = 32 - Integer.numberOfLeadingZeros(length - 1);
+        return shift > MAX_SHIFT ? -1 : shift - MIN_SHIFT;
+    }
+
+    /**
+     * 一个大小级别的空闲帧，数组实现的栈
+     */
+    private static final class SizeClass {
+        final int capacity;
+        private final SerialFrame[] stack;
+        private int count;
+
+        SizeClass(int capacity, int maxFrames) {
+            this.capacity = capacity;
+            this.stack = new SerialFrame[maxFrames];
+        }
+
+        synchronized SerialFrame poll() {
+            if (count == 0) {
+                return null;
+            }
+            SerialFrame frame = stack[--count];
+            stack[count] = null;
+            return frame;
+        }
+
+        synchronized void offer(SerialFrame frame) {
+            if (count < stack.length) {
+                stack[count++] = frame;
+            }
+        }
+    }
+
+    /**
+     * 记录一次取出的分配位置，帧被回收时进入leakQueue
+     */
+    static final class LeakTracker extends WeakReference<SerialFrame> {
+        final int length;
+        final Throwable allocation = new Throwable("SerialFrame 分配位置");
+
+        LeakTracker(SerialFrame frame, ReferenceQueue<SerialFrame> queue, int length) {
+            super(frame, queue);
+            this.length = length;
+        }
+    }
+}
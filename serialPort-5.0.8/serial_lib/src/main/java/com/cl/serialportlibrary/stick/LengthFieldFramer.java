@@ -0,0 +1,75 @@
+package com.cl.serialportlibrary.stick;
+
+import java.nio.ByteOrder;
+
+/**
+ * 带长度字段的二进制协议成帧器，参数含义与VariableLenStickPackageHelper相同
+ * 可以指定帧头魔数，读位置处不是该魔数时直接判定为NOT_MATCHED，便于与其他协议共用一条串口
+ */
+public class LengthFieldFramer implements ProtocolFramer {
+
+    private final byte[] magic;
+    private final ByteOrder byteOrder;
+    private final int lenStartIndex;
+    private final int lenEndIndex;
+    private final int offset;
+    private final int maxFrameLength;
+
+    /**
+     * @param magic          帧头魔数，可以为空数组
+     * @param byteOrder      长度字段字节序
+     * @param lenSize        长度字段字节数
+     * @param lenIndex       长度字段位置
+     * @param offset         整帧长度 - 长度字段的值
+     * @param maxFrameLength 最大帧长度，超过时判定为NOT_MATCHED
+     */
+    public LengthFieldFramer(byte[] magic, ByteOrder byteOrder, int lenSize, int lenIndex, int offset, int maxFrameLength) {
+        if (magic == null) {
+            throw new IllegalStateException(" magic ==null");
+        }
+        if (lenSize <= 0 || lenSize > 4) {
+            throw new IllegalStateException("lenSize must be 1..4");
+        }
+        this.magic = magic;
+        this.byteOrder = byteOrder;
+        this.lenStartIndex = lenIndex;
+        this.lenEndIndex = lenIndex + lenSize - 1;
+        this.offset = offset;
+        this.maxFrameLength = maxFrameLength;
+    }
+
+    public LengthFieldFramer(byte[] magic, ByteOrder byteOrder, int lenSize, int lenIndex, int offset) {
+        this(magic, byteOrder, lenSize, lenIndex, offset, ByteRingBuffer.DEFAULT_MAX_CAPACITY);
+    }
+
+    @Override
+    public int match(ByteRingBuffer buffer) {
+        int size = buffer.size();
+        for (int i = 0; i < magic.length; i++) {
+            if (i >= size) {
+                return NEED_MORE;
+            }
+            if (buffer.get(i) != magic[i]) {
+                return NOT_MATCHED;
+            }
+        }
+        if (size <= lenEndIndex) {
+            return NEED_MORE;
+        }
+        long len = 0;
+        if (byteOrder == ByteOrder.BIG_ENDIAN) {
+            for (int i = lenStartIndex; i <= lenEndIndex; i++) {
+                len = (len << 8) | buffer.getUnsigned(i);
+            }
+        } else {
+            for (int i = lenEndIndex; i >= lenStartIndex; i--) {
+                len = (len << 8) | buffer.getUnsigned(i);
+            }
+        }
+        long frameLen = len + offset;
+        if (frameLen <= lenEndIndex || frameLen <= magic.length || frameLen > maxFrameLength) {
+            return NOT_MATCHED;
+        }
+        return size < frameLen ? NEED_MORE : (int) frameLen;
+    }
+}
@@ -0,0 +1,26 @@
+package com.cl.serialportlibrary.stick;
+
+/**
+ * 协议成帧器，供DemultiplexStickPackageHelper使用
+ * 只判断缓冲区读位置处是否为本协议的一帧，不消费缓冲区数据，由分流器统一消费
+ */
+public interface ProtocolFramer {
+
+    /**
+     * 数据不足，可能是本协议的一帧
+     */
+    int NEED_MORE = 0;
+
+    /**
+     * 读位置处不是本协议的帧
+     */
+    int NOT_MATCHED = -1;
+
+    /**
+     * 判断从缓冲区读位置开始的数据是否为本协议的一帧
+     *
+     * @param buffer 共享的接收缓冲区
+     * @return 帧长度(大于0)，NEED_MORE或NOT_MATCHED
+     */
+    int match(ByteRingBuffer buffer);
+}
@@ -0,0 +1,174 @@
+package com.cl.serialportlibrary.stick;
+
+import com.cl.serialportlibrary.SerialPortMetrics;
+import com.cl.serialportlibrary.utils.SerialPortLogUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 基于ByteRingBuffer的黏包处理器基类
+ * execute()先尝试从缓冲区中已有的数据解析一帧，没有完整帧时从InputStream批量读取一次再解析，
+ * 仍然没有完整帧则返回null，由读取线程再次调用，未成帧的数据保留在缓冲区中
+ * 子类只需实现decode()，在缓冲区上直接查找帧边界
+ */
+public abstract class RingBufferStickPackageHelper implements AbsStickPackageHelper {
+
+    private static final String TAG = "RingBufferStickPackageHelper";
+
+    protected final ByteRingBuffer mBuffer;
+    private volatile SerialPortMetrics mMetrics;
+
+    protected RingBufferStickPackageHelper() {
+        this(new ByteRingBuffer());
+    }
+
+    protected RingBufferStickPackageHelper(ByteRingBuffer buffer) {
+        this.mBuffer = buffer;
+    }
+
+    /**
+     * 在缓冲区上解析一帧
+     * 成功时消费该帧（以及帧之前的无效字节）并返回帧数据；
+     * 数据不足时返回null，并且不能消费可能成帧的字节，以便组合处理器交给其他处理器尝试；
+     * 只有能确定为无效的字节（如长度字段非法）才可以丢弃
+     *
+     * @param buffer 接收缓冲区
+     * @return 完整的一帧，或null
+     */
+    public abstract byte[] decode(ByteRingBuffer buffer);
+
+    @Override
+    public byte[] execute(InputStream is) {
+        byte[] frame = decode(mBuffer);
+        if (frame != null) {
+            return frame;
+        }
+        try {
+            if (fill(is) <= 0) {
+                return null;
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+        return decode(mBuffer);
+    }
+
+    /**
+     * 从InputStream读取一次到内部缓冲区，供由外部驱动读取的场景使用（如Reactor模式）
+     *
+     * @return 读取的字节数，流结束返回-1
+     */
+    public int fill(InputStream is) throws IOException {
+        int read = mBuffer.readFrom(is);
+        if (read == 0 && mBuffer.isFull()) {
+            // 缓冲区已满仍无法成帧，说明数据流已失步，丢弃缓冲数据重新同步
+            SerialPortLogUtil.w(TAG, "接收缓冲区溢出，丢弃 " + mBuffer.size() + " 字节");
+            reportFramingError(mBuffer.size());
+            mBuffer.clear();
+        }
+        return read;
+    }
+
+    /**
+     * 从内部缓冲区解析下一帧，不读取新数据
+     */
+    public byte[] nextFrame() {
+        return decode(mBuffer);
+    }
+
+    /**
+     * 池化模式的execute()，帧数据复制到pool中的SerialFrame，不为每帧分配新数组
+     *
+     * @return 完整的一帧，或null
+     */
+    public SerialFrame executePooled(InputStream is, FramePool pool) {
+        mBuffer.setFramePool(pool);
+        try {
+            return toPooledFrame(execute(is), pool);
+        } finally {
+            mBuffer.setFramePool(null);
+        }
+    }
+
+    /**
+     * 池化模式的nextFrame()
+     */
+    public SerialFrame nextPooledFrame(FramePool pool) {
+        mBuffer.setFramePool(pool);
+        try {
+            return toPooledFrame(decode(mBuffer), pool);
+        } finally {
+            mBuffer.setFramePool(null);
+        }
+    }
+
+    private SerialFrame toPooledFrame(byte[] result, FramePool pool) {
+        SerialFrame frame = mBuffer.pollPooledFrame();
+        if (result == ByteRingBuffer.POOLED_FRAME) {
+            return frame;
+        }
+        if (frame != null) {
+            // 子类没有返回take()的结果
+            frame.release();
+        }
+        if (result == null || result.length == 0) {
+            return null;
+        }
+        return pool.acquire(result, 0, result.length);
+    }
+
+    /**
+     * 缓冲区中的数据不需要新数据、只要再等待一段时间就能成帧时（如超时分包），返回还需等待的毫秒数
+     * 阻塞读取模式下读取线程据此限定等待时间，到期后调用nextFrame()
+     *
+     * @return 还需等待的毫秒数，-1表示需要新数据才能成帧
+     */
+    public int getFlushDelay() {
+        return -1;
+    }
+
+    /**
+     * 内部缓冲区是否还有未成帧的数据
+     */
+    public boolean hasBufferedData() {
+        return !mBuffer.isEmpty();
+    }
+
+    /**
+     * 设置成帧错误的统计对象，由串口管理器在启动读取时设置
+     */
+    public void setMetrics(SerialPortMetrics metrics) {
+        this.mMetrics = metrics;
+    }
+
+    /**
+     * 记录一次成帧错误
+     *
+     * @param droppedBytes 因此丢弃的字节数
+     */
+    protected void reportFramingError(int droppedBytes) {
+        SerialPortMetrics metrics = mMetrics;
+        if (metrics != null) {
+            metrics.recordFramingError(droppedBytes);
+        }
+    }
+
+    /**
+     * 记录一次校验失败
+     */
+    protected void reportChecksumError() {
+        SerialPortMetrics metrics = mMetrics;
+        if (metrics != null) {
+            metrics.recordChecksumError();
+        }
+    }
+
+    /**
+     * 清空缓冲区中未成帧的数据
+     */
+    public void reset() {
+        mBuffer.clear();
+    }
+}
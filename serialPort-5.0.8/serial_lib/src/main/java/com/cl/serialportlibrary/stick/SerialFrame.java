@@ -0,0 +1,146 @@
+package com.cl.serialportlibrary.stick;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 池化的接收帧，只读视图
+ * 数据存放在FramePool按大小分级复用的数组中，引用计数归零时归还到池中，之后不能再访问；
+ * 需要在回调之外继续持有时先retain()，用完后release()
+ */
+public final class SerialFrame {
+
+    final FramePool pool;
+    final byte[] data;
+    // 所在的大小级别，-1表示不归还到池中
+    final int sizeClass;
+    int length;
+    private final AtomicInteger refCnt = new AtomicInteger();
+    // 开启泄漏检测时记录分配位置
+    FramePool.LeakTracker tracker;
+
+    SerialFrame(FramePool pool, byte[] data, int sizeClass) {
+        this.pool = pool;
+        this.data = data;
+        this.sizeClass = sizeClass;
+    }
+
+    /**
+     * 包装一个数组，不使用缓冲池，release()不做任何事
+     */
+    public static SerialFrame wrap(byte[] data) {
+        SerialFrame frame = new SerialFrame(null, data, -1);
+        frame.length = data.length;
+        frame.refCnt.set(1);
+        return frame;
+    }
+
+    /**
+     * 帧长度
+     */
+    public int length() {
+        ensureAccessible();
+        return length;
+    }
+
+    public byte get(int index) {
+        ensureAccessible();
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index=" + index + ", length=" + length);
+        }
+        return data[index];
+    }
+
+    public int getUnsigned(int index) {
+        return get(index) & 0xFF;
+    }
+
+    /**
+     * 复制[offset, offset+len)到dst
+     */
+    public void copyTo(int offset, byte[] dst, int dstOff, int len) {
+        ensureAccessible();
+        if (offset < 0 || len < 0 || offset + len > length) {
+            throw new IndexOutOfBoundsException("offset=" + offset + ", len=" + len + ", length=" + length);
+        }
+        System.arraycopy(data, offset, dst, dstOff, len);
+    }
+
+    /**
+     * 复制为新数组，帧释放后仍可使用
+     */
+    public byte[] toByteArray() {
+        ensureAccessible();
+        byte[] copy = new byte[length];
+        System.arraycopy(data, 0, copy, 0, length);
+        return copy;
+    }
+
+    /**
+     * 只读ByteBuffer视图，与帧共用数据，帧释放后不能再使用
+     */
+    public ByteBuffer asReadOnlyBuffer() {
+        ensureAccessible();
+        return ByteBuffer.wrap(data, 0, length).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * 增加一次引用
+     */
+    public SerialFrame retain() {
+        while (true) {
+            int count = refCnt.get();
+            if (count <= 0) {
+                throw new IllegalStateException("SerialFrame 已释放");
+            }
+            if (refCnt.compareAndSet(count, count + 1)) {
+                return this;
+            }
+        }
+    }
+
+    /**
+     * 释放一次引用，归零时归还到缓冲池
+     *
+     * @return 是否已归零
+     */
+    public boolean release() {
+        if (pool == null) {
+            return false;
+        }
+        while (true) {
+            int count = refCnt.get();
+            if (count <= 0) {
+                throw new IllegalStateException("SerialFrame 重复释放");
+            }
+            if (refCnt.compareAndSet(count, count - 1)) {
+                if (count == 1) {
+                    pool.recycle(this);
+                    return true;
+                }
+                return false;
+            }
+        }
+    }
+
+    /**
+     * 当前引用计数
+     */
+    public int refCnt() {
+        return refCnt.get();
+    }
+
+    /**
+     * 从池中取出时调用
+     */
+    void init(int length) {
+        this.length = length;
+        refCnt.set(1);
+    }
+
+    private void ensureAccessible() {
+        if (refCnt.get() <= 0) {
+            throw new IllegalStateException("SerialFrame 已释放");
+        }
+    }
+}
@@ -1,36 +1,48 @@
 package com.cl.serialportlibrary.stick;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-
 /**
  * The sticky packet processing of specific characters,
  * one Byte[] at the beginning and the end, cannot be empty at the same time,
  * if one of them is empty, then the non-empty is used as the split marker
  * Example: The protocol is formulated as ^+data+$, starting with ^ and ending with $
+ * Several heads/tails can be given at once; they are matched by a DelimiterMatcher,
+ * so every received byte is scanned exactly once, even across reads
  */
-public class SpecifiedStickPackageHelper implements AbsStickPackageHelper {
-    private final byte[] head;
-    private final byte[] tail;
-    private final List<Byte> bytes;
-    private final int headLen;
-    private final int tailLen;
+public class SpecifiedStickPackageHelper extends RingBufferStickPackageHelper {
+    //Scan phases
+    private static final int FIND_HEAD = 0;
+    private static final int FIND_TAIL = 1;
+    private static final int FIND_NEXT_HEAD = 2;
+
+    private final DelimiterMatcher headMatcher;
+    private final DelimiterMatcher tailMatcher;
+    //Scan state, offsets are relative to the buffer read position
+    private ByteRingBuffer scanBuffer;
+    private long scanPosition = -1;
+    private int scanned;
+    private int frameStart;
+    private int phase;
 
     public SpecifiedStickPackageHelper(byte[] head, byte[] tail) {
-        this.head = head;
-        this.tail = tail;
-        if (head == null || tail == null) {
+        this(new byte[][]{head}, new byte[][]{tail});
+    }
+
+    /**
+     * 构造函数 - 多个开始/结束标识，任意一个开始标识与任意一个结束标识组成一帧
+     * @param heads 开始标识，可以为空数组
+     * @param tails 结束标识，可以为空数组，但不能与heads同时为空
+     */
+    public SpecifiedStickPackageHelper(byte[][] heads, byte[][] tails) {
+        if (heads == null || tails == null) {
             throw new IllegalStateException(" head or tail ==null");
         }
-        if (head.length == 0 && tail.length == 0) {
+        boolean hasHead = hasDelimiter(heads);
+        boolean hasTail = hasDelimiter(tails);
+        if (!hasHead && !hasTail) {
             throw new IllegalStateException(" head and tail length==0");
         }
-        headLen = head.length;
-        tailLen = tail.length;
-        bytes = new ArrayList<>();
+        headMatcher = hasHead ? new DelimiterMatcher(heads) : null;
+        tailMatcher = hasTail ? new DelimiterMatcher(tails) : null;
     }
     
     /**
@@ -59,74 +71,79 @@ public class SpecifiedStickPackageHelper implements AbsStickPackageHelper {
         this(new byte[0], tail != null ? tail.getBytes() : new byte[0]);
     }
 
-    private boolean endWith(Byte[] src, byte[] target) {
-        if (src.length < target.length) {
-            return false;
-        }
-        for (int i = 0; i < target.length; i++) {
-            if (target[target.length - i - 1] != src[src.length - i - 1]) {
-                return false;
+    private static boolean hasDelimiter(byte[][] delimiters) {
+        for (byte[] delimiter : delimiters) {
+            if (delimiter == null) {
+                throw new IllegalStateException(" head or tail ==null");
+            }
+            if (delimiter.length > 0) {
+                return true;
             }
         }
-        return true;
-    }
-
-    private byte[] getRangeBytes(List<Byte> list, int start, int end) {
-        Byte[] temps = Arrays.copyOfRange(list.toArray(new Byte[0]), start, end);
-        byte[] result = new byte[temps.length];
-        for (int i = 0; i < result.length; i++) {
-            result[i] = temps[i];
-        }
-        return result;
+        return false;
     }
 
     @Override
-    public byte[] execute(InputStream is) {
-        bytes.clear();
-        int len = -1;
-        byte temp;
-        int startIndex = -1;
-        byte[] result = null;
-        boolean isFindStart = false, isFindEnd = false;
-        try {
-            while ((len = is.read()) != -1) {
-                temp = (byte) len;
-                bytes.add(temp);
-                Byte[] byteArray = bytes.toArray(new Byte[]{});
-                if (headLen == 0 || tailLen == 0) {//Only head or tail markers
-                    if (endWith(byteArray, head) || endWith(byteArray, tail)) {
-                        if (startIndex == -1) {
-                            startIndex = bytes.size() - headLen;
-                        } else {
-                            result = getRangeBytes(bytes, startIndex, bytes.size());
-                            break;
-                        }
-                    }
-                } else {
-                    if (!isFindStart) {
-                        if (endWith(byteArray, head)) {
-                            startIndex = bytes.size() - headLen;
-                            isFindStart = true;
-                        }
-                    } else if (!isFindEnd) {
-                        if (endWith(byteArray, tail)) {
-                            if (startIndex + headLen <= bytes.size() - tailLen) {
-                                isFindEnd = true;
-                                result = getRangeBytes(bytes, startIndex, bytes.size());
-                                break;
-                            }
-                        }
-                    }
-
+    public byte[] decode(ByteRingBuffer buffer) {
+        if (buffer != scanBuffer || buffer.position() != scanPosition || scanned > buffer.size()) {
+            //Buffer consumed or cleared by someone else (e.g. CompositeStickPackageHelper): start over
+            resetScan(buffer);
+        }
+        int size = buffer.size();
+        while (scanned < size) {
+            byte b = buffer.get(scanned++);
+            if (phase == FIND_HEAD) {
+                int matched = headMatcher.next(b);
+                if (matched > 0) {
+                    frameStart = scanned - matched;
+                    phase = tailMatcher != null ? FIND_TAIL : FIND_NEXT_HEAD;
+                    headMatcher.reset();
+                }
+            } else if (phase == FIND_TAIL) {
+                if (tailMatcher.next(b) > 0) {
+                    //Tail only: the frame starts at the buffer head; otherwise at the matched head
+                    byte[] frame = buffer.take(frameStart, scanned - frameStart);
+                    resetScan(buffer);
+                    return frame;
+                }
+            } else {
+                int matched = headMatcher.next(b);
+                if (matched > 0) {
+                    //Head only: the frame lasts until the next head, which starts the following frame
+                    int nextHead = scanned - matched;
+                    byte[] frame = buffer.take(frameStart, nextHead - frameStart);
+                    resetScan(buffer);
+                    scanned = matched;
+                    phase = FIND_NEXT_HEAD;
+                    return frame;
                 }
             }
-            if (len == -1) {
-                return null;
+        }
+        if (phase == FIND_HEAD && buffer == mBuffer) {
+            //No head yet: only the last (longest head - 1) bytes can still start one, drop the rest
+            //so noise between frames does not pile up until the buffer overflows.
+            //A shared buffer (CompositeStickPackageHelper) is left alone for the other helper
+            int keep = headMatcher.getMaxLength() - 1;
+            if (scanned > keep) {
+                buffer.skip(scanned - keep);
+                scanned = keep;
             }
-        } catch (IOException e) {
-            e.printStackTrace();
-            return null;
         }
-        return result;
+        scanPosition = buffer.position();
+        return null;
+    }
+
+    private void resetScan(ByteRingBuffer buffer) {
+        scanBuffer = buffer;
+        scanPosition = buffer.position();
+        scanned = 0;
+        frameStart = 0;
+        phase = headMatcher != null ? FIND_HEAD : FIND_TAIL;
+        if (headMatcher != null) {
+            headMatcher.reset();
+        }
+        if (tailMatcher != null) {
+            tailMatcher.reset();
+        }
     }
 }
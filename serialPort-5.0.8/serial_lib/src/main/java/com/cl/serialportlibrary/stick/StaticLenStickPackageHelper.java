@@ -1,13 +1,10 @@
 package com.cl.serialportlibrary.stick;
 
-import java.io.IOException;
-import java.io.InputStream;
-
 /**
  * Fixed-length adhesive package treatment
  * Example: The protocol stipulates that the length of each packet is 16
  */
-public class StaticLenStickPackageHelper implements AbsStickPackageHelper {
+public class StaticLenStickPackageHelper extends RingBufferStickPackageHelper {
     private int stackLen = 16;
 
     public StaticLenStickPackageHelper(int stackLen) {
@@ -22,24 +19,10 @@ public class StaticLenStickPackageHelper implements AbsStickPackageHelper {
     }
 
     @Override
-    public byte[] execute(InputStream is) {
-        int count = 0;
-        int len = -1;
-        byte temp;
-        byte[] result = new byte[stackLen];
-        try {
-            while (count < stackLen && (len = is.read()) != -1) {
-                temp = (byte) len;
-                result[count] = temp;
-                count++;
-            }
-            if (len == -1) {
-                return null;
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
+    public byte[] decode(ByteRingBuffer buffer) {
+        if (buffer.size() < stackLen) {
             return null;
         }
-        return result;
+        return buffer.take(stackLen);
     }
 }
@@ -1,5 +1,7 @@
 package com.cl.serialportlibrary.stick;
 
+import com.cl.serialportlibrary.enumerate.ChecksumType;
+
 import java.nio.charset.StandardCharsets;
 
 /**
@@ -34,6 +36,18 @@ public class StickyPacketHelperFactory {
         return new SpecifiedStickPackageHelper(new byte[0], delimiterBytes);
     }
     
+    /**
+     * 创建基于多个分隔符的黏包处理器，任意一个分隔符都作为一帧的结束
+     * @param delimiters 分隔符字符串，如 "\r\n", "\n"
+     */
+    public static AbsStickPackageHelper createDelimiterBased(String... delimiters) {
+        byte[][] tails = new byte[delimiters.length][];
+        for (int i = 0; i < delimiters.length; i++) {
+            tails[i] = delimiters[i].getBytes(StandardCharsets.UTF_8);
+        }
+        return new SpecifiedStickPackageHelper(new byte[0][], tails);
+    }
+    
     /**
      * 创建基于开始和结束标识的黏包处理器
      * @param startMarker 开始标识
@@ -81,16 +95,34 @@ public class StickyPacketHelperFactory {
         return new TimeoutStickPackageHelper(timeout);
     }
     
+    /**
+     * 创建多协议分流处理器，通过register()注册各协议的成帧器
+     */
+    public static DemultiplexStickPackageHelper createDemultiplexer() {
+        return new DemultiplexStickPackageHelper();
+    }
+    
     /**
      * 创建组合式黏包处理器
      * @param primaryHelper 主要处理器
      * @param fallbackHelper 备用处理器
+     * @deprecated 使用 {@link #createDemultiplexer()}，为每种协议注册 {@link ProtocolFramer}
      */
+    @Deprecated
     public static AbsStickPackageHelper createComposite(AbsStickPackageHelper primaryHelper, 
                                                        AbsStickPackageHelper fallbackHelper) {
         return new CompositeStickPackageHelper(primaryHelper, fallbackHelper);
     }
     
+    /**
+     * 在处理器之后增加校验，校验值位于帧尾，校验失败的帧被丢弃
+     * @param helper 负责成帧的处理器
+     * @param type 校验算法
+     */
+    public static ChecksumStickPackageHelper createChecksum(AbsStickPackageHelper helper, ChecksumType type) {
+        return new ChecksumStickPackageHelper(helper, type);
+    }
+    
     /**
      * 常用协议的快速创建方法
      */
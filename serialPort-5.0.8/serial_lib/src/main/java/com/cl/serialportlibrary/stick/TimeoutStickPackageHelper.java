@@ -4,8 +4,6 @@ import android.os.SystemClock;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * 基于超时的黏包处理器
@@ -13,51 +11,87 @@ import java.util.List;
  * Author: cl
  * Date: 2023/10/26
  */
-public class TimeoutStickPackageHelper implements AbsStickPackageHelper {
-    
+public class TimeoutStickPackageHelper extends RingBufferStickPackageHelper {
+
     private final int timeout; // 超时时间（毫秒）
-    private final List<Byte> buffer = new ArrayList<>();
-    
+    // 上次观察到的缓冲区写入位置，变化说明有新数据到达
+    private long lastMark = -1;
+    private long lastDataTime;
+
     public TimeoutStickPackageHelper(int timeout) {
         this.timeout = timeout;
     }
-    
+
+    @Override
+    public byte[] decode(ByteRingBuffer buffer) {
+        if (buffer.isEmpty()) {
+            lastMark = -1;
+            return null;
+        }
+        long mark = buffer.position() + buffer.size();
+        long now = SystemClock.uptimeMillis();
+        if (mark != lastMark) {
+            lastMark = mark;
+            lastDataTime = now;
+            return null;
+        }
+        if (now - lastDataTime >= timeout) {
+            // 超时且缓冲区有数据，返回数据包
+            lastMark = -1;
+            return buffer.take(buffer.size());
+        }
+        return null;
+    }
+
+    @Override
+    public int getFlushDelay() {
+        if (lastMark == -1) {
+            return -1;
+        }
+        long remaining = timeout - (SystemClock.uptimeMillis() - lastDataTime);
+        return (int) Math.max(0, remaining);
+    }
+
+    /**
+     * 每次调用只读取、等待一次，不在内部循环，由读取线程检查中断
+     * 缓冲区为空时阻塞读取；有数据时只读取已到达的数据，没有新数据则最多等待到超时到期
+     * 阻塞读取模式下读取线程按getFlushDelay()等待，只在有数据时调用，不会进入等待
+     */
     @Override
     public byte[] execute(InputStream is) {
-        buffer.clear();
-        long lastDataTime = System.currentTimeMillis();
-        
+        byte[] frame = decode(mBuffer);
+        if (frame != null) {
+            return frame;
+        }
         try {
-            while (true) {
-                int available = is.available();
-                if (available > 0) {
-                    // 有数据可读
-                    byte[] tempBuffer = new byte[available];
-                    int readBytes = is.read(tempBuffer);
-                    if (readBytes > 0) {
-                        for (int i = 0; i < readBytes; i++) {
-                            buffer.add(tempBuffer[i]);
-                        }
-                        lastDataTime = System.currentTimeMillis();
-                    }
-                } else {
-                    // 没有数据，检查超时
-                    if (!buffer.isEmpty() && (System.currentTimeMillis() - lastDataTime) >= timeout) {
-                        // 超时且缓冲区有数据，返回数据包
-                        byte[] result = new byte[buffer.size()];
-                        for (int i = 0; i < buffer.size(); i++) {
-                            result[i] = buffer.get(i);
-                        }
-                        return result;
-                    }
-                    
-                    // 短暂休眠，避免CPU过度占用
-                    SystemClock.sleep(10);
+            int available = mBuffer.isEmpty() ? Integer.MAX_VALUE : is.available();
+            if (available <= 0) {
+                int delay = getFlushDelay();
+                if (delay > 0) {
+                    Thread.sleep(delay);
                 }
+                // 等待期间到达的数据属于同一个数据包，判定超时之前先读取
+                available = is.available();
             }
+            if (available > 0) {
+                int read = mBuffer.readFrom(is, available);
+                if (read < 0) {
+                    return null;
+                }
+                if (read == 0 && mBuffer.isFull()) {
+                    // 缓冲区已满，直接作为一个数据包返回
+                    lastMark = -1;
+                    return mBuffer.take(mBuffer.size());
+                }
+            }
+        } catch (InterruptedException e) {
+            // 读取线程被停止，保留中断状态交给读取线程退出
+            Thread.currentThread().interrupt();
+            return null;
         } catch (IOException e) {
             e.printStackTrace();
             return null;
         }
+        return decode(mBuffer);
     }
 }
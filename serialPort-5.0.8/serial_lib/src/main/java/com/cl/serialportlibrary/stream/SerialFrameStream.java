@@ -0,0 +1,259 @@
+package com.cl.serialportlibrary.stream;
+
+import com.cl.serialportlibrary.enumerate.StreamOverflow;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 串口接收帧的拉取式数据流
+ * 读取线程把帧放入有界缓冲区，消费者在自己的线程中take()/poll()取出，不经过主线程Handler；
+ * 缓冲区满时按StreamOverflow处理，SUSPEND阻塞读取线程，背压经内核接收缓冲区传到串口
+ * 流在打开时开始接收，不回放之前的数据；串口关闭或调用close()后，取完剩余数据即结束（take()返回null）
+ * Kotlin中可以桥接为Flow：
+ * <pre>
+ * flow { while (true) emit(stream.take() ?: break) }.onCompletion { stream.close() }.flowOn(Dispatchers.IO)
+ * </pre>
+ * 在collect时才调用openStream()即为冷流，共用一个流即为热流
+ */
+public final class SerialFrameStream implements AutoCloseable {
+
+    /**
+     * 流关闭时回调，用于取消订阅
+     */
+    public interface OnCloseListener {
+        void onClose(SerialFrameStream stream);
+    }
+
+    private final String serialId;
+    private final int capacity;
+    private final StreamOverflow overflow;
+    private final ArrayDeque<byte[]> buffer;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private volatile boolean closed;
+    private volatile long dropped;
+    private volatile long delivered;
+    private OnCloseListener onCloseListener;
+
+    /**
+     * @param capacity 缓冲的帧数，CONFLATE时固定为1
+     * @param overflow 缓冲区满时的处理策略
+     */
+    public SerialFrameStream(String serialId, int capacity, StreamOverflow overflow) {
+        this.serialId = serialId;
+        this.overflow = overflow != null ? overflow : StreamOverflow.SUSPEND;
+        this.capacity = this.overflow == StreamOverflow.CONFLATE ? 1 : Math.max(1, capacity);
+        this.buffer = new ArrayDeque<>(Math.min(this.capacity, 1024));
+    }
+
+    public String getSerialId() {
+        return serialId;
+    }
+
+    public StreamOverflow getOverflow() {
+        return overflow;
+    }
+
+    public void setOnCloseListener(OnCloseListener listener) {
+        this.onCloseListener = listener;
+    }
+
+    /**
+     * 放入一帧，由读取线程调用；SUSPEND策略下缓冲区满时阻塞
+     *
+     * @return 是否放入缓冲区，被丢弃或流已关闭时返回false
+     */
+    public boolean offer(byte[] frame) {
+        byte[] evicted = null;
+        lock.lock();
+        try {
+            if (closed) {
+                return false;
+            }
+            if (buffer.size() >= capacity) {
+                switch (overflow) {
+                    case SUSPEND:
+                        while (buffer.size() >= capacity && !closed) {
+                            notFull.await();
+                        }
+                        if (closed) {
+                            return false;
+                        }
+                        break;
+                    case DROP_LATEST:
+                        dropped++;
+                        return false;
+                    default:
+                        // DROP_OLDEST、CONFLATE
+                        evicted = buffer.pollFirst();
+                        dropped++;
+                        break;
+                }
+            }
+            buffer.offerLast(frame);
+            notEmpty.signal();
+            return evicted == null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 取出一帧，没有数据时阻塞
+     *
+     * @return 帧数据，流已结束时返回null
+     */
+    public byte[] take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (buffer.isEmpty()) {
+                if (closed) {
+                    return null;
+                }
+                notEmpty.await();
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 取出一帧，最多等待timeout
+     *
+     * @return 帧数据，超时或流已结束时返回null
+     */
+    public byte[] poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (buffer.isEmpty()) {
+                if (closed || nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 不等待，没有数据时返回null
+     */
+    public byte[] poll() {
+        lock.lock();
+        try {
+            return buffer.isEmpty() ? null : dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 一次取出最多maxFrames帧，不等待
+     *
+     * @return 取出的帧数
+     */
+    public int drainTo(List<byte[]> out, int maxFrames) {
+        lock.lock();
+        try {
+            int count = 0;
+            while (count < maxFrames && !buffer.isEmpty()) {
+                out.add(buffer.pollFirst());
+                count++;
+            }
+            if (count > 0) {
+                delivered += count;
+                notFull.signalAll();
+            }
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 缓冲区中的帧数
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return buffer.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 因缓冲区满而丢弃的帧数
+     */
+    public long getDroppedCount() {
+        return dropped;
+    }
+
+    /**
+     * 已被消费者取出的帧数
+     */
+    public long getDeliveredCount() {
+        return delivered;
+    }
+
+    /**
+     * 流已关闭且缓冲区已取空
+     */
+    public boolean isFinished() {
+        lock.lock();
+        try {
+            return closed && buffer.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * 停止接收，唤醒阻塞的读取线程和消费者；缓冲区中剩余的数据仍可取出
+     */
+    @Override
+    public void close() {
+        OnCloseListener listener;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+            listener = onCloseListener;
+        } finally {
+            lock.unlock();
+        }
+        if (listener != null) {
+            listener.onClose(this);
+        }
+    }
+
+    /**
+     * 在持有锁时调用
+     */
+    private byte[] dequeue() {
+        byte[] frame = buffer.pollFirst();
+        delivered++;
+        notFull.signal();
+        return frame;
+    }
+}
@@ -1,12 +1,20 @@
 package com.cl.serialportlibrary.thread;
 
+import android.util.Log;
+
 import com.cl.serialportlibrary.utils.SerialPortLogUtil;
 import com.cl.serialportlibrary.enumerate.SerialPortEnum;
 import com.cl.serialportlibrary.stick.AbsStickPackageHelper;
 import com.cl.serialportlibrary.stick.BaseStickPackageHelper;
+import com.cl.serialportlibrary.stick.FramePool;
+import com.cl.serialportlibrary.stick.RingBufferStickPackageHelper;
+import com.cl.serialportlibrary.stick.SerialFrame;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
 import java.util.List;
 
 
@@ -15,14 +23,36 @@ import java.util.List;
  */
 public abstract class SerialPortReadThread extends Thread {
 
+    private static final String TAG = "SerialPortReadThread";
+
     public abstract void onDataReceived(byte[] bytes);
 
+    /**
+     * 池化模式下收到一帧，调用方负责release()，默认复制为数组交给onDataReceived
+     */
+    public void onFrameReceived(SerialFrame frame) {
+        try {
+            onDataReceived(frame.toByteArray());
+        } finally {
+            frame.release();
+        }
+    }
+
+    /**
+     * 读取线程因读取异常或串口挂断而退出（不是release()停止的），在读取线程中回调
+     * 粘包处理器内部捕获的读取异常同样会结束读取线程
+     */
+    protected void onReadFailed(Throwable cause) {
+    }
+
     private InputStream mInputStream;
+    private volatile boolean mReleased;
     private SerialPortEnum mSerialPortEnum;
     private List<AbsStickPackageHelper> mStickPackageHelpers;
+    private volatile FramePool mFramePool;
 
     public SerialPortReadThread(InputStream inputStream, SerialPortEnum mSerialPortEnum, List<AbsStickPackageHelper> stickPackageHelpers) {
-        mInputStream = inputStream;
+        mInputStream = inputStream != null ? FailureTrackingInputStream.wrap(inputStream) : null;
         this.mSerialPortEnum = mSerialPortEnum;
         this.mStickPackageHelpers = stickPackageHelpers;
         
@@ -33,44 +63,230 @@ public abstract class SerialPortReadThread extends Thread {
         }
     }
 
+    /**
+     * 设置后RingBufferStickPackageHelper解析出的帧从缓冲池中取得，通过onFrameReceived交付
+     */
+    public void setFramePool(FramePool framePool) {
+        mFramePool = framePool;
+    }
+
+    /**
+     * awaitReadable()的结果：有数据可读、等待超时、线程应当退出
+     */
+    protected static final int AWAIT_READABLE = 1;
+    protected static final int AWAIT_TIMEOUT = 0;
+    protected static final int AWAIT_STOP = -1;
+
+    /**
+     * 读取前等待数据到达，默认不等待（轮询模式，由粘包处理器自行休眠）
+     * 因停止而返回AWAIT_STOP时应先interrupt()，否则视为串口挂断
+     *
+     * @param timeoutMillis 最长等待时间，-1表示一直等待；
+     *                      粘包处理器缓冲区中的数据只需等待即可成帧时（如超时分包）为剩余的等待时间
+     * @return AWAIT_READABLE、AWAIT_TIMEOUT 或 AWAIT_STOP
+     */
+    protected int awaitReadable(int timeoutMillis) {
+        return AWAIT_READABLE;
+    }
+
     @Override
     public void run() {
         if (mInputStream == null) return;
+        Throwable failure = null;
         while (!Thread.currentThread().isInterrupted()) {
             try {
+                AbsStickPackageHelper current = mStickPackageHelpers.isEmpty() ? null
+                        : mStickPackageHelpers.get(mStickPackageHelpers.size() > mSerialPortEnum.ordinal() ? mSerialPortEnum.ordinal() : 0);
+                int awaited = awaitReadable(getFlushDelay(current));
+                if (awaited == AWAIT_STOP) {
+                    // 被唤醒停止时awaitReadable()会先中断线程
+                    if (!isInterrupted()) {
+                        failure = new IOException("串口已挂断");
+                    }
+                    break;
+                }
+                if (awaited == AWAIT_TIMEOUT) {
+                    // 没有新数据，交付只需等待即可成帧的数据
+                    drainBufferedFrames(current);
+                    continue;
+                }
                 if (mStickPackageHelpers.size() > mSerialPortEnum.ordinal()) {
                     AbsStickPackageHelper helper = mStickPackageHelpers.get(mSerialPortEnum.ordinal());
+                    if (readPooled(helper)) {
+                        continue;
+                    }
                     byte[] buffer = helper.execute(mInputStream);
                     if (buffer != null && buffer.length > 0) {
-                        SerialPortLogUtil.d("SerialPortReadThread", "接收数据，长度: " + buffer.length);
+                        if (SerialPortLogUtil.isLoggable(Log.DEBUG, TAG)) {
+                            SerialPortLogUtil.d(TAG, "接收数据，长度: " + buffer.length);
+                        }
                         onDataReceived(buffer);
+                        drainBufferedFrames(helper);
                     }
                 } else {
                     // 使用第一个处理器作为默认
                     if (!mStickPackageHelpers.isEmpty()) {
                         AbsStickPackageHelper helper = mStickPackageHelpers.get(0);
+                        if (readPooled(helper)) {
+                            continue;
+                        }
                         byte[] buffer = helper.execute(mInputStream);
                         if (buffer != null && buffer.length > 0) {
-                            SerialPortLogUtil.d("SerialPortReadThread", "接收数据(默认处理器)，长度: " + buffer.length);
+                            if (SerialPortLogUtil.isLoggable(Log.DEBUG, TAG)) {
+                                SerialPortLogUtil.d(TAG, "接收数据(默认处理器)，长度: " + buffer.length);
+                            }
                             onDataReceived(buffer);
+                            drainBufferedFrames(helper);
                         }
                     } else {
-                        SerialPortLogUtil.e("SerialPortReadThread", "没有可用的粘包处理器");
+                        SerialPortLogUtil.e(TAG, "没有可用的粘包处理器");
                         break;
                     }
                 }
             } catch (Exception e) {
-                SerialPortLogUtil.e("SerialPortReadThread", "读取数据异常: " + e.getMessage());
+                SerialPortLogUtil.e(TAG, "读取数据异常: " + e.getMessage());
                 e.printStackTrace();
+                failure = e;
+                break;
+            }
+            InputStream is = mInputStream;
+            if (is instanceof FailureTrackingInputStream && ((FailureTrackingInputStream) is).failure != null) {
+                // 粘包处理器捕获了读取异常，串口已不可用（如设备拔出），继续读取只会空转
+                failure = ((FailureTrackingInputStream) is).failure;
                 break;
             }
         }
+        if (failure != null && !mReleased) {
+            onReadFailed(failure);
+        }
+    }
+
+    /**
+     * 池化模式下读取并交付帧
+     *
+     * @return 是否使用了池化模式
+     */
+    private boolean readPooled(AbsStickPackageHelper helper) {
+        FramePool pool = mFramePool;
+        if (pool == null || !(helper instanceof RingBufferStickPackageHelper)) {
+            return false;
+        }
+        RingBufferStickPackageHelper ringHelper = (RingBufferStickPackageHelper) helper;
+        SerialFrame frame = ringHelper.executePooled(mInputStream, pool);
+        while (frame != null) {
+            if (SerialPortLogUtil.isLoggable(Log.DEBUG, TAG)) {
+                SerialPortLogUtil.d(TAG, "接收数据，长度: " + frame.length());
+            }
+            onFrameReceived(frame);
+            frame = ringHelper.nextPooledFrame(pool);
+        }
+        return true;
+    }
+
+    private static int getFlushDelay(AbsStickPackageHelper helper) {
+        return helper instanceof RingBufferStickPackageHelper ? ((RingBufferStickPackageHelper) helper).getFlushDelay() : -1;
+    }
+
+    /**
+     * 一次读取可能包含多帧，在下一次等待数据之前交付缓冲区中已完整的帧，
+     * 否则阻塞读取模式下剩余的帧要等到新数据到达才会交付
+     */
+    private void drainBufferedFrames(AbsStickPackageHelper helper) {
+        if (!(helper instanceof RingBufferStickPackageHelper)) {
+            return;
+        }
+        RingBufferStickPackageHelper ringHelper = (RingBufferStickPackageHelper) helper;
+        FramePool pool = mFramePool;
+        if (pool != null) {
+            SerialFrame pooled;
+            while ((pooled = ringHelper.nextPooledFrame(pool)) != null) {
+                onFrameReceived(pooled);
+            }
+            return;
+        }
+        byte[] frame;
+        while ((frame = ringHelper.nextFrame()) != null) {
+            if (frame.length > 0) {
+                onDataReceived(frame);
+            }
+        }
+    }
+
+    /**
+     * 记录读取异常，粘包处理器捕获异常后读取线程据此退出
+     */
+    private static class FailureTrackingInputStream extends FilterInputStream {
+        volatile IOException failure;
+
+        FailureTrackingInputStream(InputStream in) {
+            super(in);
+        }
+
+        /**
+         * 输入流是ReadableByteChannel时包装后仍是通道，粘包处理器的ByteRingBuffer据此直接读取到direct存储
+         */
+        static FailureTrackingInputStream wrap(InputStream in) {
+            return in instanceof ReadableByteChannel ? new FailureTrackingChannel(in) : new FailureTrackingInputStream(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            try {
+                return in.read();
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            try {
+                return in.read(b, off, len);
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            }
+        }
+
+        @Override
+        public int available() throws IOException {
+            try {
+                return in.available();
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            }
+        }
+    }
+
+    private static final class FailureTrackingChannel extends FailureTrackingInputStream implements ReadableByteChannel {
+
+        FailureTrackingChannel(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            try {
+                return ((ReadableByteChannel) in).read(dst);
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean isOpen() {
+            return ((ReadableByteChannel) in).isOpen();
+        }
     }
 
     /**
      * 关闭线程，释放资源
      */
     public void release() {
+        mReleased = true;
         interrupt();
         if (mInputStream != null) {
             try {
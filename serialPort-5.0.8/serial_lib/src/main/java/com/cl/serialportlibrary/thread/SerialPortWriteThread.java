@@ -0,0 +1,360 @@
+package com.cl.serialportlibrary.thread;
+
+import com.cl.serialportlibrary.SerialPortMetrics;
+import com.cl.serialportlibrary.enumerate.SerialPortEnum;
+import com.cl.serialportlibrary.enumerate.WriteOverflowPolicy;
+import com.cl.serialportlibrary.utils.SerialPortLogUtil;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 串口消息发送线程
+ * 有界发送队列，队列满时按WriteOverflowPolicy处理；
+ * 每次唤醒时把队列中相邻的小数据合并到同一个缓冲区，一次write()写出
+ * 自动重连时可以暂停写出并在重连后换用新的输出流，队列中的数据保留
+ */
+public abstract class SerialPortWriteThread extends Thread {
+
+    private static final String TAG = "SerialPortWriteThread";
+
+    /**
+     * 数据已写入串口
+     *
+     * @param bytes 写入的数据（每次send的原始数据）
+     */
+    public abstract void onDataSent(byte[] bytes);
+
+    /**
+     * setRetainOnError(true)时写入失败，数据已放回队列并暂停写出，在发送线程中回调
+     */
+    protected void onWriteError(IOException e) {
+    }
+
+    private volatile OutputStream mOutputStream;
+    private final int mCapacity;
+    private final WriteOverflowPolicy mOverflowPolicy;
+    private final ArrayDeque<SerialWriteFuture> mQueue;
+    private final ReentrantLock mLock = new ReentrantLock();
+    private final Condition mNotEmpty = mLock.newCondition();
+    private final Condition mNotFull = mLock.newCondition();
+    // 合并写入缓冲区
+    private final byte[] mBatchBuffer;
+    // 一次合并写入的请求，只在发送线程中使用
+    private final ArrayDeque<SerialWriteFuture> mBatch = new ArrayDeque<>();
+    private volatile boolean mRunning = true;
+    private volatile SerialPortMetrics mMetrics;
+    // 暂停写出，由mLock保护
+    private boolean mPaused;
+    private volatile boolean mRetainOnError;
+    // BLOCK策略等待队列空位的最长时间
+    private volatile long mBlockTimeoutNanos = TimeUnit.SECONDS.toNanos(1);
+
+    public SerialPortWriteThread(OutputStream outputStream, SerialPortEnum serialPortEnum,
+                                 int capacity, WriteOverflowPolicy overflowPolicy, int maxBatchSize) {
+        super("SerialPortWriteThread" + serialPortEnum.name());
+        mOutputStream = outputStream;
+        mCapacity = Math.max(1, capacity);
+        mOverflowPolicy = overflowPolicy != null ? overflowPolicy : WriteOverflowPolicy.FAIL_FAST;
+        mQueue = new ArrayDeque<>(Math.min(mCapacity, 1024));
+        mBatchBuffer = new byte[Math.max(1, maxBatchSize)];
+    }
+
+    /**
+     * 设置统计对象，记录写入字节数、丢弃的写入、队列深度和排队延迟
+     */
+    public void setMetrics(SerialPortMetrics metrics) {
+        mMetrics = metrics;
+    }
+
+    /**
+     * 写入失败时把数据按原顺序放回队列头部并暂停，而不是以失败结束，用于自动重连
+     * 失败时可能已经写出了一部分数据，重连后会整体重发
+     */
+    public void setRetainOnError(boolean retainOnError) {
+        mRetainOnError = retainOnError;
+    }
+
+    /**
+     * BLOCK策略下等待队列空位的最长时间，超时后本次写入以失败结束
+     */
+    public void setBlockTimeout(long timeoutMillis) {
+        mBlockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, timeoutMillis));
+    }
+
+    /**
+     * 暂停写出，队列中的数据保留，仍可以继续加入；正在进行的写入不受影响
+     */
+    public void pause() {
+        mLock.lock();
+        try {
+            mPaused = true;
+        } finally {
+            mLock.unlock();
+        }
+    }
+
+    /**
+     * 换用新的输出流并恢复写出
+     */
+    public void resume(OutputStream outputStream) {
+        mLock.lock();
+        try {
+            mOutputStream = outputStream;
+            mPaused = false;
+            mNotEmpty.signalAll();
+        } finally {
+            mLock.unlock();
+        }
+    }
+
+    /**
+     * 数据加入发送队列
+     * BLOCK策略下队列满时最多等待setBlockTimeout()设置的时间，不要在主线程中调用
+     *
+     * @param bytes 发送数据
+     * @return 本次写入的结果
+     */
+    public SerialWriteFuture send(byte[] bytes) {
+        return enqueue(bytes, mOverflowPolicy == WriteOverflowPolicy.BLOCK);
+    }
+
+    /**
+     * 数据加入发送队列，从不阻塞：BLOCK策略下队列满时立即失败
+     * 供定时器等共用线程使用
+     *
+     * @param bytes 发送数据
+     * @return 本次写入的结果
+     */
+    public SerialWriteFuture trySend(byte[] bytes) {
+        return enqueue(bytes, false);
+    }
+
+    private SerialWriteFuture enqueue(byte[] bytes, boolean block) {
+        SerialWriteFuture future = new SerialWriteFuture(bytes);
+        SerialWriteFuture dropped = null;
+        mLock.lock();
+        try {
+            if (!mRunning) {
+                future.setFailure(new IOException("发送线程已停止"));
+                return future;
+            }
+            long remaining = mBlockTimeoutNanos;
+            while (mQueue.size() >= mCapacity) {
+                if (block) {
+                    if (remaining <= 0) {
+                        recordDroppedWrite();
+                        future.setFailure(new IOException("发送队列已满，等待超时: " + mCapacity));
+                        return future;
+                    }
+                    remaining = mNotFull.awaitNanos(remaining);
+                    if (!mRunning) {
+                        future.setFailure(new IOException("发送线程已停止"));
+                        return future;
+                    }
+                } else if (mOverflowPolicy == WriteOverflowPolicy.DROP_OLDEST) {
+                    dropped = mQueue.pollFirst();
+                } else {
+                    recordDroppedWrite();
+                    future.setFailure(new IOException("发送队列已满: " + mCapacity));
+                    return future;
+                }
+            }
+            mQueue.offerLast(future);
+            updateQueueDepth();
+            mNotEmpty.signal();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.setFailure(e);
+        } finally {
+            mLock.unlock();
+        }
+        if (dropped != null) {
+            recordDroppedWrite();
+            SerialPortLogUtil.w(TAG, "发送队列已满，丢弃最早的数据: " + dropped.getData().length + " 字节");
+            dropped.setFailure(new IOException("发送队列已满，数据被丢弃"));
+        }
+        return future;
+    }
+
+    /**
+     * 当前排队等待发送的数量
+     */
+    public int getQueueSize() {
+        mLock.lock();
+        try {
+            return mQueue.size();
+        } finally {
+            mLock.unlock();
+        }
+    }
+
+    @Override
+    public void run() {
+        while (mRunning) {
+            try {
+                int length = takeBatch();
+                if (length < 0) {
+                    continue;
+                }
+                writeBatch(length);
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+        failPending(new IOException("发送线程已停止"));
+    }
+
+    /**
+     * 取出一批相邻的数据，能合并的复制到合并缓冲区
+     *
+     * @return 合并缓冲区中的长度，单个大数据直接写出时为0，没有可写数据时为-1
+     */
+    private int takeBatch() throws InterruptedException {
+        mLock.lock();
+        try {
+            while (mQueue.isEmpty() || mPaused) {
+                if (!mRunning) {
+                    return -1;
+                }
+                mNotEmpty.await();
+            }
+            int length = 0;
+            SerialWriteFuture next;
+            while ((next = mQueue.peekFirst()) != null) {
+                int size = next.getData().length;
+                if (!mBatch.isEmpty() && length + size > mBatchBuffer.length) {
+                    break;
+                }
+                mQueue.pollFirst();
+                if (!next.markWriting()) {
+                    // 已取消
+                    continue;
+                }
+                mBatch.addLast(next);
+                if (size > mBatchBuffer.length) {
+                    // 超过合并缓冲区的数据单独写出
+                    length = 0;
+                    break;
+                }
+                System.arraycopy(next.getData(), 0, mBatchBuffer, length, size);
+                length += size;
+            }
+            updateQueueDepth();
+            mNotFull.signalAll();
+            return mBatch.isEmpty() ? -1 : length;
+        } finally {
+            mLock.unlock();
+        }
+    }
+
+    private void writeBatch(int length) {
+        OutputStream outputStream = mOutputStream;
+        try {
+            if (length == 0) {
+                outputStream.write(mBatch.peekFirst().getData());
+            } else {
+                outputStream.write(mBatchBuffer, 0, length);
+            }
+        } catch (IOException e) {
+            SerialPortLogUtil.e(TAG, "写入数据异常: " + e.getMessage());
+            if (mRetainOnError && mRunning) {
+                retainBatch(outputStream, e);
+                return;
+            }
+            SerialWriteFuture future;
+            while ((future = mBatch.pollFirst()) != null) {
+                future.setFailure(e);
+            }
+            return;
+        }
+        SerialPortMetrics metrics = mMetrics;
+        long now = System.nanoTime();
+        SerialWriteFuture future;
+        while ((future = mBatch.pollFirst()) != null) {
+            if (metrics != null) {
+                metrics.recordFrameOut(future.getData().length);
+                metrics.recordEnqueueToWrite(now - future.getEnqueueTime());
+            }
+            future.setSuccess();
+            onDataSent(future.getData());
+        }
+    }
+
+    /**
+     * 把写入失败的一批数据放回队列头部，输出流未被替换时暂停写出
+     */
+    private void retainBatch(OutputStream failedStream, IOException e) {
+        boolean current;
+        mLock.lock();
+        try {
+            SerialWriteFuture future;
+            while ((future = mBatch.pollLast()) != null) {
+                future.markPending();
+                mQueue.offerFirst(future);
+            }
+            updateQueueDepth();
+            // 写入期间已经换用了新的输出流时直接用新的流重发
+            current = failedStream == mOutputStream;
+            if (current) {
+                mPaused = true;
+            }
+        } finally {
+            mLock.unlock();
+        }
+        if (current) {
+            onWriteError(e);
+        }
+    }
+
+    private void recordDroppedWrite() {
+        SerialPortMetrics metrics = mMetrics;
+        if (metrics != null) {
+            metrics.recordDroppedWrite();
+        }
+    }
+
+    /**
+     * 在持有锁时调用
+     */
+    private void updateQueueDepth() {
+        SerialPortMetrics metrics = mMetrics;
+        if (metrics != null) {
+            metrics.setSendQueueDepth(mQueue.size());
+        }
+    }
+
+    private void failPending(Throwable cause) {
+        mLock.lock();
+        try {
+            SerialWriteFuture future;
+            while ((future = mQueue.pollFirst()) != null) {
+                future.setFailure(cause);
+            }
+            updateQueueDepth();
+            mNotFull.signalAll();
+        } finally {
+            mLock.unlock();
+        }
+    }
+
+    /**
+     * 停止线程，未发送的数据以失败结束
+     */
+    public void release() {
+        mRunning = false;
+        mLock.lock();
+        try {
+            mNotEmpty.signalAll();
+            mNotFull.signalAll();
+        } finally {
+            mLock.unlock();
+        }
+        interrupt();
+        failPending(new IOException("发送线程已停止"));
+    }
+}
@@ -0,0 +1,203 @@
+package com.cl.serialportlibrary.thread;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 单次写入的完成结果
+ * 数据真正写入串口后以写入的字节数完成；队列已满、被丢弃或写入异常时以失败完成
+ * 只要还没有开始写入，cancel()即可取消该次写入
+ */
+public class SerialWriteFuture implements Future<Integer> {
+
+    /**
+     * 完成监听，在写入线程中回调（已完成时在调用线程中回调）
+     */
+    public interface Listener {
+        void onComplete(SerialWriteFuture future);
+    }
+
+    private static final int PENDING = 0;
+    private static final int WRITING = 1;
+    private static final int SUCCESS = 2;
+    private static final int FAILED = 3;
+    private static final int CANCELLED = 4;
+
+    private final byte[] data;
+    // 创建（加入发送队列）的时间，System.nanoTime()
+    private final long enqueueTime = System.nanoTime();
+    private int state = PENDING;
+    private Throwable cause;
+    private List<Listener> listeners;
+
+    public SerialWriteFuture(byte[] data) {
+        this.data = data;
+    }
+
+    /**
+     * 创建一个已经失败的结果
+     */
+    public static SerialWriteFuture failed(byte[] data, Throwable cause) {
+        SerialWriteFuture future = new SerialWriteFuture(data);
+        future.setFailure(cause);
+        return future;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    long getEnqueueTime() {
+        return enqueueTime;
+    }
+
+    /**
+     * 写入线程开始写入前调用，已取消时返回false
+     */
+    synchronized boolean markWriting() {
+        if (state != PENDING) {
+            return false;
+        }
+        state = WRITING;
+        return true;
+    }
+
+    /**
+     * 写入失败后放回发送队列时调用，恢复为可取消的等待状态
+     */
+    synchronized void markPending() {
+        if (state == WRITING) {
+            state = PENDING;
+        }
+    }
+
+    void setSuccess() {
+        complete(SUCCESS, null);
+    }
+
+    void setFailure(Throwable throwable) {
+        complete(FAILED, throwable);
+    }
+
+    private void complete(int newState, Throwable throwable) {
+        List<Listener> toNotify;
+        synchronized (this) {
+            if (state >= SUCCESS) {
+                return;
+            }
+            toNotify = finish(newState, throwable);
+        }
+        notifyListeners(toNotify);
+    }
+
+    /**
+     * 在持有锁时调用，唤醒等待的线程并返回需要回调的监听
+     */
+    private List<Listener> finish(int newState, Throwable throwable) {
+        state = newState;
+        cause = throwable;
+        List<Listener> toNotify = listeners;
+        listeners = null;
+        notifyAll();
+        return toNotify;
+    }
+
+    /**
+     * 在锁外回调监听
+     */
+    private void notifyListeners(List<Listener> toNotify) {
+        if (toNotify != null) {
+            for (Listener listener : toNotify) {
+                listener.onComplete(this);
+            }
+        }
+    }
+
+    public SerialWriteFuture addListener(Listener listener) {
+        synchronized (this) {
+            if (state < SUCCESS) {
+                if (listeners == null) {
+                    listeners = new ArrayList<>(1);
+                }
+                listeners.add(listener);
+                return this;
+            }
+        }
+        listener.onComplete(this);
+        return this;
+    }
+
+    public synchronized boolean isSuccess() {
+        return state == SUCCESS;
+    }
+
+    /**
+     * 失败原因，成功或未完成时为null
+     */
+    public synchronized Throwable getCause() {
+        return cause;
+    }
+
+    /**
+     * 只有还在发送队列中等待的写入可以取消，已开始写入（WRITING）或已完成时返回false
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        List<Listener> toNotify;
+        synchronized (this) {
+            // 检查和改为CANCELLED在同一次加锁中完成，写入线程的markWriting()不会插在中间
+            if (state != PENDING) {
+                return false;
+            }
+            toNotify = finish(CANCELLED, new CancellationException());
+        }
+        notifyListeners(toNotify);
+        return true;
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return state == CANCELLED;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return state >= SUCCESS;
+    }
+
+    @Override
+    public synchronized Integer get() throws InterruptedException, ExecutionException {
+        while (state < SUCCESS) {
+            wait();
+        }
+        return report();
+    }
+
+    @Override
+    public synchronized Integer get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (state < SUCCESS) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                throw new TimeoutException();
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return report();
+    }
+
+    private Integer report() throws ExecutionException {
+        if (state == CANCELLED) {
+            throw new CancellationException();
+        }
+        if (state == FAILED) {
+            throw new ExecutionException(cause);
+        }
+        return data.length;
+    }
+}
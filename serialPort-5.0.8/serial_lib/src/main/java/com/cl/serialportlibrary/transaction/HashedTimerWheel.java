@@ -0,0 +1,258 @@
+package com.cl.serialportlibrary.transaction;
+
+import com.cl.serialportlibrary.utils.SerialPortLogUtil;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 哈希时间轮
+ * 大量短时超时（请求应答的截止时间）只在一个线程中按tick检查，添加和取消都是O(1)，
+ * 超时大多在到期前被取消，不需要像ScheduledExecutor那样维护堆
+ * 添加和取消先进入无锁队列，由时间轮线程在每个tick开始时处理，精度为一个tick
+ * 任务在时间轮线程中执行，需要尽快返回
+ */
+public final class HashedTimerWheel {
+
+    private static final String TAG = "HashedTimerWheel";
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    // 时间轮线程启动的时间，到期时间均相对该时间计算
+    private volatile long startTime;
+    private final ConcurrentLinkedQueue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+    private final Thread worker;
+    private volatile boolean started;
+    private volatile boolean running = true;
+    // 以下字段只在时间轮线程中访问
+    private long tick;
+
+    /**
+     * @param name       线程名
+     * @param tickMillis 每格的时长，即超时精度
+     * @param wheelSize  格数，会向上取整为2的幂
+     */
+    public HashedTimerWheel(String name, long tickMillis, int wheelSize) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis 必须大于0");
+        }
+        int size = 1;
+        while (size < wheelSize) {
+            size <<= 1;
+        }
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.worker = new Thread(this::run, name);
+        this.worker.setDaemon(true);
+    }
+
+    /**
+     * 在delayMillis毫秒后执行task，第一次调用时启动时间轮线程
+     */
+    public Timeout schedule(Runnable task, long delayMillis) {
+        if (!started) {
+            start();
+        }
+        Timeout timeout = new Timeout(task, System.nanoTime() - startTime + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMillis)));
+        if (!running) {
+            timeout.state.set(Timeout.CANCELLED);
+            return timeout;
+        }
+        pendingTimeouts.offer(timeout);
+        return timeout;
+    }
+
+    private synchronized void start() {
+        if (!started) {
+            startTime = System.nanoTime();
+            started = true;
+            worker.start();
+        }
+    }
+
+    /**
+     * 停止时间轮线程，尚未到期的任务不再执行
+     */
+    public void stop() {
+        running = false;
+        worker.interrupt();
+    }
+
+    private void run() {
+        while (running) {
+            if (!waitForNextTick()) {
+                break;
+            }
+            removeCancelled();
+            transferPending();
+            wheel[(int) (tick & mask)].expire();
+            tick++;
+        }
+    }
+
+    /**
+     * 休眠到下一格的时间
+     *
+     * @return 线程被停止时返回false
+     */
+    private boolean waitForNextTick() {
+        long deadline = tickNanos * (tick + 1);
+        while (true) {
+            long sleepNanos = deadline - (System.nanoTime() - startTime);
+            if (sleepNanos <= 0) {
+                return true;
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(sleepNanos);
+            } catch (InterruptedException e) {
+                if (!running) {
+                    return false;
+                }
+            }
+        }
+    }
+
+    private void transferPending() {
+        Timeout timeout;
+        // 每个tick最多处理一定数量，避免添加过快时时间轮线程无法推进
+        for (int i = 0; i < 100_000 && (timeout = pendingTimeouts.poll()) != null; i++) {
+            if (timeout.state.get() != Timeout.INIT) {
+                continue;
+            }
+            long calculated = timeout.deadline / tickNanos;
+            timeout.remainingRounds = (calculated - tick) / wheel.length;
+            // 已经过期的放到当前格，本次即执行
+            long ticks = Math.max(calculated, tick);
+            wheel[(int) (ticks & mask)].add(timeout);
+        }
+    }
+
+    private void removeCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelledTimeouts.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    /**
+     * 一个定时任务
+     */
+    public final class Timeout {
+        private static final int INIT = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final Runnable task;
+        // 相对startTime的到期时间
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(INIT);
+        // 以下字段只在时间轮线程中访问
+        private long remainingRounds;
+        private Timeout next;
+        private Timeout prev;
+        private Bucket bucket;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * 取消任务
+         *
+         * @return 任务尚未执行时返回true
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(INIT, CANCELLED)) {
+                return false;
+            }
+            cancelledTimeouts.offer(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+
+        private void expire() {
+            if (!state.compareAndSet(INIT, EXPIRED)) {
+                return;
+            }
+            try {
+                task.run();
+            } catch (Throwable t) {
+                SerialPortLogUtil.e(TAG, "定时任务执行异常", t);
+            }
+        }
+    }
+
+    /**
+     * 时间轮的一格，双向链表
+     */
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        /**
+         * 执行本轮到期的任务，其余任务的轮数减一
+         */
+        void expire() {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.remainingRounds <= 0) {
+                    remove(timeout);
+                    timeout.expire();
+                } else if (!timeout.isCancelled()) {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.bucket != this) {
+                return;
+            }
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            }
+            if (timeout == head) {
+                head = timeout.next;
+            }
+            if (timeout == tail) {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.cl.serialportlibrary.transaction;
+
+/**
+ * 判断收到的帧是否是某个请求的应答
+ * 在读取线程中对每个未完成的请求依次调用，需要快速返回且不能修改参数
+ */
+public interface ResponseMatcher {
+
+    /**
+     * @param request  请求数据
+     * @param response 粘包处理器解析出的一帧
+     * @return 是否是该请求的应答
+     */
+    boolean matches(byte[] request, byte[] response);
+
+    /**
+     * 应答的前length个字节与请求相同
+     */
+    static ResponseMatcher prefix(final int length) {
+        return (request, response) -> {
+            if (request.length < length || response.length < length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (request[i] != response[i]) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+
+    /**
+     * Modbus RTU：从站地址相同，功能码相同或为对应的异常应答(功能码 | 0x80)
+     */
+    static ResponseMatcher modbus() {
+        return (request, response) -> request.length >= 2 && response.length >= 2
+                && request[0] == response[0]
+                && (request[1] & 0x7F) == (response[1] & 0x7F);
+    }
+}
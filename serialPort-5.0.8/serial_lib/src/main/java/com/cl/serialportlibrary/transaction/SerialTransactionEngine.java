@@ -0,0 +1,241 @@
+package com.cl.serialportlibrary.transaction;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 串口请求应答事务
+ * 发送请求后返回TransactionFuture，读取线程解析出的帧按发送顺序交给未完成请求的ResponseMatcher，
+ * 匹配成功即完成该请求；同时在途的请求数不超过maxInFlight，其余按提交顺序排队
+ * 每次发送在时间轮上登记截止时间，超时后按剩余重试次数重发，重发仍占用原来的在途位置
+ */
+public final class SerialTransactionEngine {
+
+    /**
+     * 实际发送数据，返回false表示发送失败
+     */
+    public interface Sender {
+        boolean send(byte[] data);
+    }
+
+    private final Sender sender;
+    private final HashedTimerWheel timerWheel;
+    private final int maxInFlight;
+    // 已发送等待应答的请求，按发送顺序
+    private final List<TransactionFuture> inFlight = new ArrayList<>();
+    // 等待在途窗口的请求
+    private final ArrayDeque<TransactionFuture> waiting = new ArrayDeque<>();
+    private boolean closed;
+
+    /**
+     * @param sender      发送数据
+     * @param timerWheel  超时使用的时间轮，可以由多个串口共用
+     * @param maxInFlight 同时在途的最大请求数
+     */
+    public SerialTransactionEngine(Sender sender, HashedTimerWheel timerWheel, int maxInFlight) {
+        this.sender = sender;
+        this.timerWheel = timerWheel;
+        this.maxInFlight = Math.max(1, maxInFlight);
+    }
+
+    /**
+     * 提交一个请求
+     *
+     * @param request       请求数据
+     * @param matcher       应答匹配规则
+     * @param timeoutMillis 每次发送等待应答的时间
+     * @param retries       超时后的重试次数
+     */
+    public TransactionFuture submit(byte[] request, ResponseMatcher matcher, long timeoutMillis, int retries) {
+        if (request == null || request.length == 0) {
+            return TransactionFuture.failed(request, new IllegalArgumentException("请求数据为空"));
+        }
+        if (matcher == null) {
+            return TransactionFuture.failed(request, new IllegalArgumentException("matcher 不能为空"));
+        }
+        TransactionFuture future = new TransactionFuture(this, request, matcher, timeoutMillis, retries);
+        boolean sendNow;
+        synchronized (this) {
+            if (closed) {
+                sendNow = false;
+                future.setFailure(new IOException("串口已关闭"));
+            } else if (inFlight.size() < maxInFlight) {
+                inFlight.add(future);
+                sendNow = true;
+            } else {
+                waiting.addLast(future);
+                sendNow = false;
+            }
+        }
+        if (sendNow) {
+            transmit(future);
+        }
+        return future;
+    }
+
+    /**
+     * 交给事务处理一帧，在读取线程中调用
+     *
+     * @return 该帧是某个请求的应答时返回true
+     */
+    public boolean onFrame(byte[] frame) {
+        TransactionFuture matched = null;
+        synchronized (this) {
+            for (int i = 0, size = inFlight.size(); i < size; i++) {
+                TransactionFuture future = inFlight.get(i);
+                if (future.matcher.matches(future.getRequest(), frame)) {
+                    matched = future;
+                    inFlight.remove(i);
+                    cancelTimeout(future);
+                    break;
+                }
+            }
+        }
+        if (matched == null) {
+            return false;
+        }
+        matched.setSuccess(frame);
+        sendWaiting();
+        return true;
+    }
+
+    /**
+     * 在途的请求数
+     */
+    public synchronized int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * 排队等待发送的请求数
+     */
+    public synchronized int getWaitingCount() {
+        return waiting.size();
+    }
+
+    /**
+     * 关闭事务，未完成的请求以IOException失败
+     */
+    public void close() {
+        List<TransactionFuture> pending;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            pending = new ArrayList<>(inFlight);
+            pending.addAll(waiting);
+            for (TransactionFuture future : inFlight) {
+                cancelTimeout(future);
+            }
+            inFlight.clear();
+            waiting.clear();
+        }
+        IOException cause = new IOException("串口已关闭");
+        for (TransactionFuture future : pending) {
+            future.setFailure(cause);
+        }
+    }
+
+    synchronized int getAttempts(TransactionFuture future) {
+        return future.attempts;
+    }
+
+    /**
+     * 请求被取消，释放在途位置
+     */
+    void release(TransactionFuture future) {
+        synchronized (this) {
+            if (!inFlight.remove(future)) {
+                waiting.remove(future);
+                return;
+            }
+            cancelTimeout(future);
+        }
+        sendWaiting();
+    }
+
+    /**
+     * 登记截止时间后发送
+     */
+    private void transmit(final TransactionFuture future) {
+        synchronized (this) {
+            if (closed || !inFlight.contains(future)) {
+                return;
+            }
+            final int attempt = ++future.attempts;
+            future.timeout = timerWheel.schedule(() -> onTimeout(future, attempt), future.timeoutMillis);
+        }
+        if (!sender.send(future.getRequest())) {
+            synchronized (this) {
+                if (!inFlight.remove(future)) {
+                    return;
+                }
+                cancelTimeout(future);
+            }
+            future.setFailure(new IOException("请求发送失败"));
+            sendWaiting();
+        }
+    }
+
+    private void onTimeout(TransactionFuture future, int attempt) {
+        boolean retry;
+        synchronized (this) {
+            if (future.attempts != attempt || !inFlight.contains(future)) {
+                // 已完成或已重发
+                return;
+            }
+            future.timeout = null;
+            retry = future.retriesLeft > 0;
+            if (retry) {
+                future.retriesLeft--;
+            } else {
+                inFlight.remove(future);
+            }
+        }
+        if (retry) {
+            transmit(future);
+            return;
+        }
+        future.setFailure(new TimeoutException("请求超时，已发送 " + attempt + " 次"));
+        sendWaiting();
+    }
+
+    /**
+     * 有空闲的在途位置时发送排队的请求
+     */
+    private void sendWaiting() {
+        List<TransactionFuture> toSend = null;
+        synchronized (this) {
+            while (!closed && inFlight.size() < maxInFlight && !waiting.isEmpty()) {
+                TransactionFuture future = waiting.pollFirst();
+                if (future.isDone()) {
+                    continue;
+                }
+                inFlight.add(future);
+                if (toSend == null) {
+                    toSend = new ArrayList<>(2);
+                }
+                toSend.add(future);
+            }
+        }
+        if (toSend != null) {
+            for (TransactionFuture future : toSend) {
+                transmit(future);
+            }
+        }
+    }
+
+    /**
+     * 在持有锁时调用
+     */
+    private void cancelTimeout(TransactionFuture future) {
+        if (future.timeout != null) {
+            future.timeout.cancel();
+            future.timeout = null;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.cl.serialportlibrary.transaction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 一次请求应答的结果
+ * 收到匹配的应答帧后以该帧完成；重试后仍超时以TimeoutException失败，发送失败或串口关闭以IOException失败
+ * cancel()会释放占用的在途窗口
+ */
+public class TransactionFuture implements Future<byte[]> {
+
+    /**
+     * 完成监听，在读取线程（收到应答）或时间轮线程（超时）中回调，已完成时在调用线程中回调
+     */
+    public interface Listener {
+        void onComplete(TransactionFuture future);
+    }
+
+    private static final int PENDING = 0;
+    private static final int SUCCESS = 1;
+    private static final int FAILED = 2;
+    private static final int CANCELLED = 3;
+
+    private final byte[] request;
+    private final SerialTransactionEngine engine;
+    private int state = PENDING;
+    private byte[] response;
+    private Throwable cause;
+    private List<Listener> listeners;
+
+    // 以下字段由SerialTransactionEngine在自身的锁内访问
+    final ResponseMatcher matcher;
+    final long timeoutMillis;
+    int retriesLeft;
+    int attempts;
+    HashedTimerWheel.Timeout timeout;
+
+    TransactionFuture(SerialTransactionEngine engine, byte[] request, ResponseMatcher matcher, long timeoutMillis, int retries) {
+        this.engine = engine;
+        this.request = request;
+        this.matcher = matcher;
+        this.timeoutMillis = timeoutMillis;
+        this.retriesLeft = Math.max(0, retries);
+    }
+
+    /**
+     * 创建一个已经失败的结果
+     */
+    public static TransactionFuture failed(byte[] request, Throwable cause) {
+        TransactionFuture future = new TransactionFuture(null, request, null, 0, 0);
+        future.setFailure(cause);
+        return future;
+    }
+
+    public byte[] getRequest() {
+        return request;
+    }
+
+    /**
+     * 已发送的次数，包括重试
+     */
+    public int getAttempts() {
+        return engine != null ? engine.getAttempts(this) : 0;
+    }
+
+    void setSuccess(byte[] frame) {
+        complete(SUCCESS, frame, null);
+    }
+
+    void setFailure(Throwable throwable) {
+        complete(FAILED, null, throwable);
+    }
+
+    private boolean complete(int newState, byte[] frame, Throwable throwable) {
+        List<Listener> toNotify;
+        synchronized (this) {
+            if (state != PENDING) {
+                return false;
+            }
+            state = newState;
+            response = frame;
+            cause = throwable;
+            toNotify = listeners;
+            listeners = null;
+            notifyAll();
+        }
+        if (toNotify != null) {
+            for (Listener listener : toNotify) {
+                listener.onComplete(this);
+            }
+        }
+        return true;
+    }
+
+    public TransactionFuture addListener(Listener listener) {
+        synchronized (this) {
+            if (state == PENDING) {
+                if (listeners == null) {
+                    listeners = new ArrayList<>(1);
+                }
+                listeners.add(listener);
+                return this;
+            }
+        }
+        listener.onComplete(this);
+        return this;
+    }
+
+    public synchronized boolean isSuccess() {
+        return state == SUCCESS;
+    }
+
+    /**
+     * 应答帧，未成功时为null
+     */
+    public synchronized byte[] getResponse() {
+        return response;
+    }
+
+    /**
+     * 失败原因，成功或未完成时为null
+     */
+    public synchronized Throwable getCause() {
+        return cause;
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (!complete(CANCELLED, null, new CancellationException())) {
+            return false;
+        }
+        if (engine != null) {
+            engine.release(this);
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return state == CANCELLED;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return state != PENDING;
+    }
+
+    @Override
+    public synchronized byte[] get() throws InterruptedException, ExecutionException {
+        while (state == PENDING) {
+            wait();
+        }
+        return report();
+    }
+
+    @Override
+    public synchronized byte[] get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (state == PENDING) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                throw new TimeoutException();
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return report();
+    }
+
+    private byte[] report() throws ExecutionException {
+        if (state == CANCELLED) {
+            throw new CancellationException();
+        }
+        if (state == FAILED) {
+            throw new ExecutionException(cause);
+        }
+        return response;
+    }
+}
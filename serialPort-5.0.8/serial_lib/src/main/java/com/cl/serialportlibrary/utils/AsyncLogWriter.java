@@ -0,0 +1,334 @@
+package com.cl.serialportlibrary.utils;
+
+import android.util.Log;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 异步日志写入器
+ * 预分配固定数量的日志记录槽，调用线程只把级别、标签、消息引用和数据的前若干字节写入槽位，
+ * 时间格式化、十六进制格式化和输出（logcat或滚动文件）都在后台线程中完成；
+ * 队列已满时丢弃新日志并计数，不阻塞读写线程
+ */
+final class AsyncLogWriter {
+
+    private static final String TAG = "AsyncLogWriter";
+
+    /**
+     * 单条日志记录，槽位复用，不在调用线程中分配
+     */
+    private static final class Record {
+        long time;
+        int level;
+        String tag;
+        String message;
+        Throwable throwable;
+        // printData的数据：prefix + 前DATA_PREVIEW字节
+        String prefix;
+        final byte[] data = new byte[SerialPortLogUtil.DATA_PREVIEW_LENGTH];
+        int dataLength = -1;
+    }
+
+    private final Record[] records;
+    private final int mask;
+    // 各槽位已发布的序号
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile long consumed;
+    private volatile boolean running = true;
+    private volatile boolean parked;
+    private final Thread thread;
+
+    // 以下字段只在后台线程中使用
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("MM-dd HH:mm:ss.SSS", Locale.getDefault());
+    private final Date date = new Date();
+    private final StringBuilder line = new StringBuilder(256);
+    private final File logFile;
+    private final long maxFileSize;
+    private final int maxBackups;
+    private Writer fileWriter;
+    private long fileSize;
+
+    /**
+     * @param capacity    记录槽数量，向上取整为2的幂
+     * @param logFile     输出文件，为null时输出到logcat
+     * @param maxFileSize 单个文件最大字节数，超过后滚动
+     * @param maxBackups  保留的历史文件数量
+     */
+    AsyncLogWriter(int capacity, File logFile, long maxFileSize, int maxBackups) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        records = new Record[size];
+        for (int i = 0; i < size; i++) {
+            records[i] = new Record();
+        }
+        mask = size - 1;
+        published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1);
+        }
+        this.logFile = logFile;
+        this.maxFileSize = maxFileSize;
+        this.maxBackups = Math.max(0, maxBackups);
+        thread = new Thread(this::loop, TAG);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 追加一条文本日志
+     */
+    void append(int level, String tag, String message, Throwable throwable) {
+        long seq = claim();
+        if (seq < 0) {
+            return;
+        }
+        Record record = records[(int) seq & mask];
+        record.time = System.currentTimeMillis();
+        record.level = level;
+        record.tag = tag;
+        record.message = message;
+        record.throwable = throwable;
+        record.prefix = null;
+        record.dataLength = -1;
+        publish(seq);
+    }
+
+    /**
+     * 追加一条数据日志，只复制前DATA_PREVIEW_LENGTH字节
+     */
+    void appendData(int level, String tag, String prefix, byte[] data) {
+        long seq = claim();
+        if (seq < 0) {
+            return;
+        }
+        Record record = records[(int) seq & mask];
+        record.time = System.currentTimeMillis();
+        record.level = level;
+        record.tag = tag;
+        record.message = null;
+        record.throwable = null;
+        record.prefix = prefix;
+        record.dataLength = data.length;
+        System.arraycopy(data, 0, record.data, 0, Math.min(data.length, record.data.length));
+        publish(seq);
+    }
+
+    private long claim() {
+        while (true) {
+            long current = claimed.get();
+            if (current - consumed >= records.length) {
+                dropped.incrementAndGet();
+                return -1;
+            }
+            if (claimed.compareAndSet(current, current + 1)) {
+                return current;
+            }
+        }
+    }
+
+    private void publish(long seq) {
+        published.lazySet((int) seq & mask, seq);
+        if (parked) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * 被丢弃的日志条数
+     */
+    long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * 输出剩余日志后停止后台线程
+     */
+    void shutdown() {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void loop() {
+        long next = consumed;
+        long reportedDropped = 0;
+        while (true) {
+            int index = (int) next & mask;
+            if (published.get(index) != next) {
+                flushFile();
+                if (!running && claimed.get() == next) {
+                    break;
+                }
+                parked = true;
+                if (published.get(index) != next && running) {
+                    LockSupport.parkNanos(this, 100_000_000L);
+                }
+                parked = false;
+                continue;
+            }
+            Record record = records[index];
+            write(record);
+            record.message = null;
+            record.throwable = null;
+            record.prefix = null;
+            record.tag = null;
+            consumed = ++next;
+            long droppedNow = dropped.get();
+            if (droppedNow != reportedDropped) {
+                writeLine(Log.WARN, TAG, System.currentTimeMillis(), "日志队列已满，丢弃 " + (droppedNow - reportedDropped) + " 条日志", null);
+                reportedDropped = droppedNow;
+            }
+        }
+        closeFile();
+    }
+
+    private void write(Record record) {
+        String message;
+        if (record.dataLength >= 0) {
+            line.setLength(0);
+            SerialPortLogUtil.appendData(line, record.prefix, record.data, record.dataLength);
+            message = line.toString();
+        } else {
+            message = record.message;
+        }
+        writeLine(record.level, record.tag, record.time, message, record.throwable);
+    }
+
+    private void writeLine(int level, String tag, long time, String message, Throwable throwable) {
+        date.setTime(time);
+        String timeStamp = dateFormat.format(date);
+        if (logFile == null) {
+            String text = timeStamp + " " + message;
+            if (throwable != null) {
+                text += '\n' + Log.getStackTraceString(throwable);
+            }
+            Log.println(level, tag, text);
+            return;
+        }
+        line.setLength(0);
+        line.append(timeStamp).append(' ').append(levelChar(level)).append('/').append(tag).append(": ").append(message).append('\n');
+        if (throwable != null) {
+            line.append(Log.getStackTraceString(throwable)).append('\n');
+        }
+        writeFile(line);
+    }
+
+    private static char levelChar(int level) {
+        switch (level) {
+            case Log.VERBOSE: return 'V';
+            case Log.DEBUG: return 'D';
+            case Log.INFO: return 'I';
+            case Log.WARN: return 'W';
+            default: return 'E';
+        }
+    }
+
+    private void writeFile(CharSequence text) {
+        try {
+            if (fileWriter == null) {
+                openFile();
+            }
+            fileWriter.append(text);
+            fileSize += utf8Length(text);
+            if (fileSize >= maxFileSize) {
+                rollFile();
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "写入日志文件失败: " + e.getMessage());
+            closeFile();
+        }
+    }
+
+    /**
+     * 文本按UTF-8编码后的字节数，日志文件按字节滚动，中文等非ASCII字符不能按字符数计算
+     */
+    static long utf8Length(CharSequence text) {
+        long length = 0;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(text.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                // 不成对的代理字符被编码器替换为'?'
+                length++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private void openFile() throws IOException {
+        File parent = logFile.getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        fileSize = logFile.length();
+        fileWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(logFile, true), StandardCharsets.UTF_8), 8192);
+    }
+
+    /**
+     * 滚动日志文件：log -> log.1 -> log.2 ...，超过maxBackups的删除
+     */
+    private void rollFile() throws IOException {
+        closeFile();
+        String path = logFile.getPath();
+        if (maxBackups == 0) {
+            logFile.delete();
+        } else {
+            new File(path + "." + maxBackups).delete();
+            for (int i = maxBackups - 1; i >= 1; i--) {
+                File from = new File(path + "." + i);
+                if (from.exists()) {
+                    from.renameTo(new File(path + "." + (i + 1)));
+                }
+            }
+            logFile.renameTo(new File(path + ".1"));
+        }
+        openFile();
+    }
+
+    private void flushFile() {
+        if (fileWriter != null) {
+            try {
+                fileWriter.flush();
+            } catch (IOException e) {
+                Log.e(TAG, "写入日志文件失败: " + e.getMessage());
+                closeFile();
+            }
+        }
+    }
+
+    private void closeFile() {
+        if (fileWriter != null) {
+            try {
+                fileWriter.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            fileWriter = null;
+        }
+    }
+}
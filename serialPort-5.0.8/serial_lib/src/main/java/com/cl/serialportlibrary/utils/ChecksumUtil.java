@@ -0,0 +1,286 @@
+package com.cl.serialportlibrary.utils;
+
+import com.cl.serialportlibrary.enumerate.ChecksumType;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 帧校验计算
+ * CRC均为slicing-by-8查表实现：每次处理8个字节，查8张256项的表，
+ * 剩余不足8字节的部分和ByteBuffer（非数组）按单表逐字节计算
+ * 校验值在帧中的字节序：CRC16_MODBUS、CRC32低字节在前，CRC16_CCITT高字节在前
+ */
+public final class ChecksumUtil {
+
+    private static final int[][] CRC16_MODBUS_TABLE = reflectedTables(0xA001);
+    private static final int[][] CRC32_TABLE = reflectedTables(0xEDB88320);
+    private static final int[][] CRC16_CCITT_TABLE = ccittTables();
+
+    private ChecksumUtil() {
+    }
+
+    /**
+     * 校验值的字节数
+     */
+    public static int width(ChecksumType type) {
+        switch (type) {
+            case CRC16_MODBUS:
+            case CRC16_CCITT:
+                return 2;
+            case CRC32:
+                return 4;
+            default:
+                return 1;
+        }
+    }
+
+    public static int compute(ChecksumType type, byte[] data) {
+        return compute(type, data, 0, data.length);
+    }
+
+    /**
+     * 计算data[off, off+len)的校验值
+     */
+    public static int compute(ChecksumType type, byte[] data, int off, int len) {
+        switch (type) {
+            case CRC16_MODBUS:
+                return crc16Modbus(data, off, len);
+            case CRC16_CCITT:
+                return crc16Ccitt(data, off, len);
+            case CRC32:
+                return crc32(data, off, len);
+            case XOR8:
+                return xor8(data, off, len);
+            case SUM8:
+                return sum8(data, off, len);
+            default:
+                return (256 - sum8(data, off, len)) & 0xFF;
+        }
+    }
+
+    /**
+     * 计算buffer中[position, limit)的校验值，不改变position
+     * 堆内存的ByteBuffer直接在数组上计算，direct ByteBuffer按字节读取，均不复制
+     */
+    public static int compute(ChecksumType type, ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            return compute(type, buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        }
+        int start = buffer.position();
+        int end = buffer.limit();
+        switch (type) {
+            case CRC16_MODBUS:
+            case CRC32: {
+                int[] table = type == ChecksumType.CRC32 ? CRC32_TABLE[0] : CRC16_MODBUS_TABLE[0];
+                int crc = type == ChecksumType.CRC32 ? 0xFFFFFFFF : 0xFFFF;
+                for (int i = start; i < end; i++) {
+                    crc = (crc >>> 8) ^ table[(crc ^ buffer.get(i)) & 0xFF];
+                }
+                return type == ChecksumType.CRC32 ? ~crc : crc;
+            }
+            case CRC16_CCITT: {
+                int[] table = CRC16_CCITT_TABLE[0];
+                int crc = 0xFFFF;
+                for (int i = start; i < end; i++) {
+                    crc = ((crc << 8) & 0xFFFF) ^ table[((crc >>> 8) ^ buffer.get(i)) & 0xFF];
+                }
+                return crc;
+            }
+            default: {
+                int value = 0;
+                for (int i = start; i < end; i++) {
+                    value = type == ChecksumType.XOR8 ? value ^ buffer.get(i) : value + buffer.get(i);
+                }
+                return type == ChecksumType.SUM8_COMPLEMENT ? (256 - value) & 0xFF : value & 0xFF;
+            }
+        }
+    }
+
+    /**
+     * 把校验值按该算法的字节序写入dst[off, off+width)
+     */
+    public static void write(ChecksumType type, int value, byte[] dst, int off) {
+        switch (type) {
+            case CRC16_MODBUS:
+                dst[off] = (byte) value;
+                dst[off + 1] = (byte) (value >>> 8);
+                break;
+            case CRC16_CCITT:
+                dst[off] = (byte) (value >>> 8);
+                dst[off + 1] = (byte) value;
+                break;
+            case CRC32:
+                dst[off] = (byte) value;
+                dst[off + 1] = (byte) (value >>> 8);
+                dst[off + 2] = (byte) (value >>> 16);
+                dst[off + 3] = (byte) (value >>> 24);
+                break;
+            default:
+                dst[off] = (byte) value;
+                break;
+        }
+    }
+
+    /**
+     * 按该算法的字节序读取src[off, off+width)处的校验值
+     */
+    public static int read(ChecksumType type, byte[] src, int off) {
+        switch (type) {
+            case CRC16_MODBUS:
+                return (src[off] & 0xFF) | (src[off + 1] & 0xFF) << 8;
+            case CRC16_CCITT:
+                return (src[off] & 0xFF) << 8 | (src[off + 1] & 0xFF);
+            case CRC32:
+                return (src[off] & 0xFF) | (src[off + 1] & 0xFF) << 8
+                        | (src[off + 2] & 0xFF) << 16 | (src[off + 3] & 0xFF) << 24;
+            default:
+                return src[off] & 0xFF;
+        }
+    }
+
+    /**
+     * 计算frame[off, off+len)的校验值并写在其后，调用方需预留width字节
+     *
+     * @return 加上校验值后的长度
+     */
+    public static int append(ChecksumType type, byte[] frame, int off, int len) {
+        write(type, compute(type, frame, off, len), frame, off + len);
+        return len + width(type);
+    }
+
+    /**
+     * 计算buffer中[start, position)的校验值并写在position处，position随之后移
+     * 用于在发送用的ByteBuffer中直接追加校验值
+     */
+    public static void append(ChecksumType type, ByteBuffer buffer, int start) {
+        ByteBuffer data = buffer.duplicate();
+        data.limit(buffer.position());
+        data.position(start);
+        int value = compute(type, data);
+        switch (type) {
+            case CRC16_MODBUS:
+                buffer.put((byte) value).put((byte) (value >>> 8));
+                break;
+            case CRC16_CCITT:
+                buffer.put((byte) (value >>> 8)).put((byte) value);
+                break;
+            case CRC32:
+                buffer.put((byte) value).put((byte) (value >>> 8)).put((byte) (value >>> 16)).put((byte) (value >>> 24));
+                break;
+            default:
+                buffer.put((byte) value);
+                break;
+        }
+    }
+
+    /**
+     * 校验frame[off, off+len)，最后width字节为校验值
+     */
+    public static boolean verify(ChecksumType type, byte[] frame, int off, int len) {
+        int width = width(type);
+        if (len < width) {
+            return false;
+        }
+        return compute(type, frame, off, len - width) == read(type, frame, off + len - width);
+    }
+
+    public static int crc16Modbus(byte[] data, int off, int len) {
+        return reflected(CRC16_MODBUS_TABLE, 0xFFFF, data, off, len);
+    }
+
+    public static int crc16Ccitt(byte[] data, int off, int len) {
+        int[] t0 = CRC16_CCITT_TABLE[0], t1 = CRC16_CCITT_TABLE[1], t2 = CRC16_CCITT_TABLE[2], t3 = CRC16_CCITT_TABLE[3];
+        int[] t4 = CRC16_CCITT_TABLE[4], t5 = CRC16_CCITT_TABLE[5], t6 = CRC16_CCITT_TABLE[6], t7 = CRC16_CCITT_TABLE[7];
+        int crc = 0xFFFF;
+        int i = off;
+        int end = off + len;
+        for (; i + 8 <= end; i += 8) {
+            crc = t7[((crc >>> 8) ^ data[i]) & 0xFF] ^ t6[(crc ^ data[i + 1]) & 0xFF]
+                    ^ t5[data[i + 2] & 0xFF] ^ t4[data[i + 3] & 0xFF]
+                    ^ t3[data[i + 4] & 0xFF] ^ t2[data[i + 5] & 0xFF]
+                    ^ t1[data[i + 6] & 0xFF] ^ t0[data[i + 7] & 0xFF];
+        }
+        for (; i < end; i++) {
+            crc = ((crc << 8) & 0xFFFF) ^ t0[((crc >>> 8) ^ data[i]) & 0xFF];
+        }
+        return crc;
+    }
+
+    public static int crc32(byte[] data, int off, int len) {
+        return ~reflected(CRC32_TABLE, 0xFFFFFFFF, data, off, len);
+    }
+
+    public static int xor8(byte[] data, int off, int len) {
+        int value = 0;
+        for (int i = off, end = off + len; i < end; i++) {
+            value ^= data[i];
+        }
+        return value & 0xFF;
+    }
+
+    public static int sum8(byte[] data, int off, int len) {
+        int value = 0;
+        for (int i = off, end = off + len; i < end; i++) {
+            value += data[i];
+        }
+        return value & 0xFF;
+    }
+
+    /**
+     * 反射(低位在前)CRC的slicing-by-8，宽度不超过32位
+     */
+    private static int reflected(int[][] tables, int init, byte[] data, int off, int len) {
+        int[] t0 = tables[0], t1 = tables[1], t2 = tables[2], t3 = tables[3];
+        int[] t4 = tables[4], t5 = tables[5], t6 = tables[6], t7 = tables[7];
+        int crc = init;
+        int i = off;
+        int end = off + len;
+        for (; i + 8 <= end; i += 8) {
+            int one = crc ^ ((data[i] & 0xFF) | (data[i + 1] & 0xFF) << 8
+                    | (data[i + 2] & 0xFF) << 16 | (data[i + 3] & 0xFF) << 24);
+            crc = t7[one & 0xFF] ^ t6[(one >>> 8) & 0xFF] ^ t5[(one >>> 16) & 0xFF] ^ t4[one >>> 24]
+                    ^ t3[data[i + 4] & 0xFF] ^ t2[data[i + 5] & 0xFF]
+                    ^ t1[data[i + 6] & 0xFF] ^ t0[data[i + 7] & 0xFF];
+        }
+        for (; i < end; i++) {
+            crc = (crc >>> 8) ^ t0[(crc ^ data[i]) & 0xFF];
+        }
+        return crc;
+    }
+
+    private static int[][] reflectedTables(int polynomial) {
+        int[][] tables = new int[8][256];
+        for (int n = 0; n < 256; n++) {
+            int crc = n;
+            for (int k = 0; k < 8; k++) {
+                crc = (crc & 1) != 0 ? (crc >>> 1) ^ polynomial : crc >>> 1;
+            }
+            tables[0][n] = crc;
+        }
+        for (int n = 0; n < 256; n++) {
+            for (int k = 1; k < 8; k++) {
+                int previous = tables[k - 1][n];
+                tables[k][n] = (previous >>> 8) ^ tables[0][previous & 0xFF];
+            }
+        }
+        return tables;
+    }
+
+    private static int[][] ccittTables() {
+        int[][] tables = new int[8][256];
+        for (int n = 0; n < 256; n++) {
+            int crc = n << 8;
+            for (int k = 0; k < 8; k++) {
+                crc = (crc & 0x8000) != 0 ? (crc << 1) ^ 0x1021 : crc << 1;
+            }
+            tables[0][n] = crc & 0xFFFF;
+        }
+        for (int n = 0; n < 256; n++) {
+            for (int k = 1; k < 8; k++) {
+                int previous = tables[k - 1][n];
+                tables[k][n] = ((previous << 8) & 0xFFFF) ^ tables[0][(previous >>> 8) & 0xFF];
+            }
+        }
+        return tables;
+    }
+}
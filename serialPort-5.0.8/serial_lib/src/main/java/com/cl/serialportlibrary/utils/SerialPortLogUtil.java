@@ -2,20 +2,34 @@ package com.cl.serialportlibrary.utils;
 
 import android.util.Log;
 
+import java.io.File;
 import java.text.SimpleDateFormat;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 串口日志工具类
  * 替代XLog的增强实现，包含更详细的调试信息
  * 提供时间戳、调用位置、数据格式化等功能
+ * 级别和标签过滤在任何格式化之前完成；开启异步模式后，调用线程只写入预分配的日志槽，
+ * 格式化和输出由后台线程完成（异步模式不输出调用位置）
  */
 public class SerialPortLogUtil {
     
     private static final String DEFAULT_TAG = "SerialPort";
     private static boolean isDebugEnabled = true;
     private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("HH:mm:ss.SSS", Locale.getDefault());
+    // printData输出的最大字节数
+    static final int DATA_PREVIEW_LENGTH = 32;
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+    // 最低输出级别
+    private static volatile int minLevel = Log.VERBOSE;
+    // 被关闭的标签（如某个串口的 MultiSerialPortManager_串口ID）
+    private static final Set<String> disabledTags = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private static volatile AsyncLogWriter asyncWriter;
     
     /**
      * 设置是否启用调试日志
@@ -35,11 +49,128 @@ public class SerialPortLogUtil {
         return isDebugEnabled;
     }
     
+    /**
+     * 设置最低输出级别，如 Log.INFO
+     * @param level android.util.Log 中的级别常量
+     */
+    public static void setLogLevel(int level) {
+        minLevel = level;
+    }
+    
+    /**
+     * 开启或关闭指定标签的日志（错误日志不受影响）
+     * @param tag 标签
+     * @param enabled 是否启用
+     */
+    public static void setTagEnabled(String tag, boolean enabled) {
+        if (enabled) {
+            disabledTags.remove(tag);
+        } else {
+            disabledTags.add(tag);
+        }
+    }
+    
+    /**
+     * 判断指定级别和标签的日志是否会输出，调用方可以在拼接日志内容之前先判断
+     */
+    public static boolean isLoggable(int level, String tag) {
+        if (level >= Log.ERROR) {
+            return true;
+        }
+        return isDebugEnabled && level >= minLevel
+                && (disabledTags.isEmpty() || !disabledTags.contains(tag != null ? tag : DEFAULT_TAG));
+    }
+    
+    /**
+     * 开启异步日志，输出到logcat
+     * @param capacity 日志队列容量，队列满时丢弃新日志
+     */
+    public static void enableAsync(int capacity) {
+        enableAsync(capacity, null, 0, 0);
+    }
+    
+    /**
+     * 开启异步日志
+     * @param capacity 日志队列容量，队列满时丢弃新日志
+     * @param logFile 输出文件，为null时输出到logcat
+     * @param maxFileSize 单个日志文件的最大字节数
+     * @param maxBackups 保留的历史文件数量（logFile.1 ~ logFile.N）
+     */
+    public static synchronized void enableAsync(int capacity, File logFile, long maxFileSize, int maxBackups) {
+        disableAsync();
+        asyncWriter = new AsyncLogWriter(capacity, logFile, maxFileSize, maxBackups);
+    }
+    
+    /**
+     * 关闭异步日志，输出队列中剩余的日志后恢复同步输出
+     */
+    public static synchronized void disableAsync() {
+        AsyncLogWriter writer = asyncWriter;
+        if (writer != null) {
+            asyncWriter = null;
+            writer.shutdown();
+        }
+    }
+    
+    /**
+     * 是否为异步日志模式
+     */
+    public static boolean isAsyncEnabled() {
+        return asyncWriter != null;
+    }
+    
+    /**
+     * 异步模式下因队列已满被丢弃的日志条数
+     */
+    public static long getDroppedLogCount() {
+        AsyncLogWriter writer = asyncWriter;
+        return writer != null ? writer.getDroppedCount() : 0;
+    }
+    
+    /**
+     * 输出日志，先过滤再格式化
+     */
+    private static void log(int level, String tag, String message, Throwable throwable) {
+        if (!isLoggable(level, tag)) {
+            return;
+        }
+        String realTag = tag != null ? tag : DEFAULT_TAG;
+        AsyncLogWriter writer = asyncWriter;
+        if (writer != null) {
+            writer.append(level, realTag, message, throwable);
+            return;
+        }
+        String text = formatMessage(message);
+        switch (level) {
+            case Log.DEBUG:
+                Log.d(realTag, text);
+                break;
+            case Log.INFO:
+                Log.i(realTag, text);
+                break;
+            case Log.WARN:
+                Log.w(realTag, text);
+                break;
+            case Log.ERROR:
+                if (throwable != null) {
+                    Log.e(realTag, text, throwable);
+                } else {
+                    Log.e(realTag, text);
+                }
+                break;
+            default:
+                Log.println(level, realTag, text);
+                break;
+        }
+    }
+    
     /**
      * 获取当前时间戳
      */
     private static String getTimeStamp() {
-        return DATE_FORMAT.format(new Date());
+        synchronized (DATE_FORMAT) {
+            return DATE_FORMAT.format(new Date());
+        }
     }
     
     /**
@@ -72,9 +203,7 @@ public class SerialPortLogUtil {
      * @param message 消息
      */
     public static void d(String tag, String message) {
-        if (isDebugEnabled) {
-            Log.d(tag != null ? tag : DEFAULT_TAG, formatMessage(message));
-        }
+        log(Log.DEBUG, tag, message, null);
     }
     
     /**
@@ -91,9 +220,7 @@ public class SerialPortLogUtil {
      * @param message 消息
      */
     public static void i(String tag, String message) {
-        if (isDebugEnabled) {
-            Log.i(tag != null ? tag : DEFAULT_TAG, formatMessage(message));
-        }
+        log(Log.INFO, tag, message, null);
     }
     
     /**
@@ -110,9 +237,7 @@ public class SerialPortLogUtil {
      * @param message 消息
      */
     public static void w(String tag, String message) {
-        if (isDebugEnabled) {
-            Log.w(tag != null ? tag : DEFAULT_TAG, formatMessage(message));
-        }
+        log(Log.WARN, tag, message, null);
     }
     
     /**
@@ -130,7 +255,7 @@ public class SerialPortLogUtil {
      */
     public static void e(String tag, String message) {
         // 错误日志始终输出，不受isDebugEnabled控制
-        Log.e(tag != null ? tag : DEFAULT_TAG, formatMessage(message));
+        log(Log.ERROR, tag, message, null);
     }
     
     /**
@@ -149,7 +274,7 @@ public class SerialPortLogUtil {
      */
     public static void e(String tag, String message, Throwable throwable) {
         // 错误日志始终输出，不受isDebugEnabled控制
-        Log.e(tag != null ? tag : DEFAULT_TAG, formatMessage(message), throwable);
+        log(Log.ERROR, tag, message, throwable);
     }
     
     /**
@@ -168,25 +293,42 @@ public class SerialPortLogUtil {
      * @param data 数据
      */
     public static void printData(String tag, String prefix, byte[] data) {
-        if (!isDebugEnabled || data == null) return;
+        if (data == null || !isLoggable(Log.DEBUG, tag)) return;
         
-        StringBuilder sb = new StringBuilder();
-        sb.append(prefix).append(" [").append(data.length).append(" bytes]: ");
+        AsyncLogWriter writer = asyncWriter;
+        if (writer != null) {
+            // 只复制前32字节，格式化在后台线程完成
+            writer.appendData(Log.DEBUG, tag != null ? tag : DEFAULT_TAG, prefix, data);
+            return;
+        }
+        StringBuilder sb = new StringBuilder(prefix.length() + 160);
+        appendData(sb, prefix, data, data.length);
+        d(tag, sb.toString());
+    }
+    
+    /**
+     * 格式化数据：前缀、长度、十六进制和ASCII，最多显示32字节
+     * @param data 数据（可以只包含前32字节）
+     * @param length 原始数据长度
+     */
+    static void appendData(StringBuilder sb, String prefix, byte[] data, int length) {
+        int shown = Math.min(Math.min(length, data.length), DATA_PREVIEW_LENGTH);
+        sb.append(prefix).append(" [").append(length).append(" bytes]: ");
         
         // 十六进制格式
         sb.append("HEX[");
-        for (int i = 0; i < Math.min(data.length, 32); i++) { // 最多显示32字节
-            if (i > 0) sb.append(" ");
-            sb.append(String.format("%02X", data[i] & 0xFF));
+        for (int i = 0; i < shown; i++) {
+            if (i > 0) sb.append(' ');
+            sb.append(HEX[(data[i] >> 4) & 0x0F]).append(HEX[data[i] & 0x0F]);
         }
-        if (data.length > 32) {
+        if (length > DATA_PREVIEW_LENGTH) {
             sb.append("...");
         }
         sb.append("] ");
         
         // ASCII格式（可打印字符）
         sb.append("ASCII[");
-        for (int i = 0; i < Math.min(data.length, 32); i++) {
+        for (int i = 0; i < shown; i++) {
             byte b = data[i];
             if (b >= 32 && b < 127) {
                 sb.append((char) b);
@@ -194,12 +336,10 @@ public class SerialPortLogUtil {
                 sb.append('.');
             }
         }
-        if (data.length > 32) {
+        if (length > DATA_PREVIEW_LENGTH) {
             sb.append("...");
         }
         sb.append("]");
-        
-        d(tag, sb.toString());
     }
     
     /**
@@ -219,6 +359,7 @@ public class SerialPortLogUtil {
      * @param isOpen 是否打开
      */
     public static void printSerialStatus(String tag, String devicePath, int baudRate, boolean isOpen) {
+        if (!isLoggable(Log.INFO, tag)) return;
         i(tag, String.format("串口状态 - 设备: %s, 波特率: %d, 状态: %s", 
             devicePath, baudRate, isOpen ? "已打开" : "已关闭"));
     }
@@ -232,6 +373,7 @@ public class SerialPortLogUtil {
      * @param flags 标志位
      */
     public static void printSerialConfig(String tag, int databits, int parity, int stopbits, int flags) {
+        if (!isLoggable(Log.INFO, tag)) return;
         String parityStr;
         switch (parity) {
             case 0: parityStr = "无校验"; break;
@@ -251,6 +393,7 @@ public class SerialPortLogUtil {
      * @param startTime 开始时间
      */
     public static void printPerformance(String tag, String operation, long startTime) {
+        if (!isLoggable(Log.DEBUG, tag)) return;
         long duration = System.currentTimeMillis() - startTime;
         d(tag, String.format("性能统计 - %s 耗时: %dms", operation, duration));
     }
@@ -261,7 +404,7 @@ public class SerialPortLogUtil {
      * @param title 标题
      */
     public static void printSeparator(String tag, String title) {
-        if (isDebugEnabled) {
+        if (isLoggable(Log.INFO, tag)) {
             String separator = "==================== " + title + " ====================";
             i(tag, separator);
         }
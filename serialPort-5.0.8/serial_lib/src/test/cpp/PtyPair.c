@@ -0,0 +1,95 @@
+/*
+ * Pseudo-terminal helpers for the host benchmarks in src/test.
+ * Compiled together with src/main/cpp/SerialPort.c into a host libSerialPort.so
+ * by the buildHostJni task in serial_lib/build.gradle.
+ */
+
+#define _GNU_SOURCE
+#include <errno.h>
+#include <fcntl.h>
+#include <stdlib.h>
+#include <string.h>
+#include <termios.h>
+#include <unistd.h>
+#include <jni.h>
+
+/*
+ * Class:     com_cl_serialportlibrary_bench_PtyPair
+ * Method:    openMaster
+ * Signature: ()I
+ *
+ * Opens /dev/ptmx and unlocks the slave side. Returns the master fd or -1 on error.
+ */
+JNIEXPORT jint JNICALL Java_com_cl_serialportlibrary_bench_PtyPair_openMaster
+        (JNIEnv *env, jclass clazz)
+{
+    int fd = posix_openpt(O_RDWR | O_NOCTTY);
+    if (fd == -1) {
+        return -1;
+    }
+    if (grantpt(fd) == -1 || unlockpt(fd) == -1) {
+        close(fd);
+        return -1;
+    }
+    struct termios cfg;
+    if (tcgetattr(fd, &cfg) == 0) {
+        cfmakeraw(&cfg);
+        tcsetattr(fd, TCSANOW, &cfg);
+    }
+    return fd;
+}
+
+/*
+ * Class:     com_cl_serialportlibrary_bench_PtyPair
+ * Method:    slaveName
+ * Signature: (I)Ljava/lang/String;
+ */
+JNIEXPORT jstring JNICALL Java_com_cl_serialportlibrary_bench_PtyPair_slaveName
+        (JNIEnv *env, jclass clazz, jint fd)
+{
+    const char *name = ptsname(fd);
+    return name != NULL ? (*env)->NewStringUTF(env, name) : NULL;
+}
+
+/*
+ * Class:     com_cl_serialportlibrary_bench_PtyPair
+ * Method:    write
+ * Signature: (I[BII)I
+ *
+ * Blocking write of the whole range, copied out in chunks so no array stays pinned while
+ * the pty is full. Returns the number of bytes written or -1 on error.
+ */
+JNIEXPORT jint JNICALL Java_com_cl_serialportlibrary_bench_PtyPair_write
+        (JNIEnv *env, jclass clazz, jint fd, jbyteArray buffer, jint offset, jint length)
+{
+    jbyte chunk[4096];
+    jint total = 0;
+    while (total < length) {
+        jint size = length - total < (jint) sizeof(chunk) ? length - total : (jint) sizeof(chunk);
+        (*env)->GetByteArrayRegion(env, buffer, offset + total, size, chunk);
+        jint done = 0;
+        while (done < size) {
+            ssize_t written = write(fd, chunk + done, (size_t) (size - done));
+            if (written < 0) {
+                if (errno == EINTR) {
+                    continue;
+                }
+                return -1;
+            }
+            done += (jint) written;
+        }
+        total += size;
+    }
+    return total;
+}
+
+/*
+ * Class:     com_cl_serialportlibrary_bench_PtyPair
+ * Method:    close
+ * Signature: (I)V
+ */
+JNIEXPORT void JNICALL Java_com_cl_serialportlibrary_bench_PtyPair_close
+        (JNIEnv *env, jclass clazz, jint fd)
+{
+    close(fd);
+}
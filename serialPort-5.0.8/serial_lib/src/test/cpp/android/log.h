@@ -0,0 +1,17 @@
+/*
+ * Host replacement for <android/log.h>, used when SerialPort.c is compiled for the
+ * Linux JVM that runs the pty benchmarks. Only errors are printed.
+ */
+#ifndef SERIAL_PORT_HOST_LOG_H
+#define SERIAL_PORT_HOST_LOG_H
+
+#include <stdio.h>
+
+#define ANDROID_LOG_DEBUG 3
+#define ANDROID_LOG_INFO  4
+#define ANDROID_LOG_ERROR 6
+
+#define __android_log_print(prio, tag, ...) \
+    ((void) ((prio) >= ANDROID_LOG_ERROR && (fprintf(stderr, "%s: ", tag), fprintf(stderr, __VA_ARGS__), fputc('\n', stderr))))
+
+#endif
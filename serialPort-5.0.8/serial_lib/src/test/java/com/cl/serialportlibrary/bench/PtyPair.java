@@ -0,0 +1,74 @@
+package com.cl.serialportlibrary.bench;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Linux伪终端对
+ * 从端(/dev/pts/N)交给SerialPortManager按真实串口打开，走完整的native open/termios路径；
+ * 主端由基准测试写入数据，相当于串口另一端的设备
+ * 依赖主机编译的libSerialPort.so（serial_lib:buildHostJni）
+ */
+public final class PtyPair implements Closeable {
+
+    static {
+        System.loadLibrary("SerialPort");
+    }
+
+    private final int masterFd;
+    private final String slavePath;
+    private boolean closed;
+
+    private PtyPair(int masterFd, String slavePath) {
+        this.masterFd = masterFd;
+        this.slavePath = slavePath;
+    }
+
+    /**
+     * 打开 /dev/ptmx 创建一对伪终端
+     */
+    public static PtyPair open() throws IOException {
+        int fd = openMaster();
+        if (fd == -1) {
+            throw new IOException("打开 /dev/ptmx 失败");
+        }
+        String name = slaveName(fd);
+        if (name == null) {
+            close(fd);
+            throw new IOException("获取伪终端从端路径失败");
+        }
+        return new PtyPair(fd, name);
+    }
+
+    /**
+     * 从端设备路径，作为串口路径传给openSerialPort
+     */
+    public String getSlavePath() {
+        return slavePath;
+    }
+
+    /**
+     * 从主端写入，全部写完才返回，从端输入队列满时阻塞
+     */
+    public void write(byte[] data, int offset, int length) throws IOException {
+        if (write(masterFd, data, offset, length) != length) {
+            throw new IOException("伪终端写入失败: " + slavePath);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            close(masterFd);
+        }
+    }
+
+    private static native int openMaster();
+
+    private static native String slaveName(int fd);
+
+    private static native int write(int fd, byte[] buffer, int offset, int length);
+
+    private static native void close(int fd);
+}
@@ -0,0 +1,249 @@
+package com.cl.serialportlibrary.bench;
+
+import com.cl.serialportlibrary.LatencyHistogram;
+import com.cl.serialportlibrary.SerialConfig;
+import com.cl.serialportlibrary.SerialPortManager;
+import com.cl.serialportlibrary.enumerate.SerialPortEnum;
+import com.cl.serialportlibrary.listener.OnSerialPortDataListener;
+import com.cl.serialportlibrary.utils.SerialPortLogUtil;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 串口吞吐量基准
+ * 通过伪终端对打开真实的SerialPortManager（阻塞读取模式），从主端按TrafficPattern写入数据，
+ * 在接收回调中统计吞吐量、端到端延迟（写入主端前的时间戳到回调）和读取线程每帧分配的字节数
+ * 前10%的帧用于预热，不计入结果
+ * <p>
+ * 参数（系统属性）：
+ * serial.bench.frames  每种模式发送的帧数，默认 200000
+ * serial.bench.payload 每帧数据长度，不小于16，默认 64
+ * serial.bench.burst   BURSTY模式每批帧数，默认 64
+ * serial.bench.gapMs   BURSTY模式每批之间的空闲时间，默认 1
+ * <p>
+ * 单独运行：java -Djava.library.path=serial_lib/build/host-jni ... com.cl.serialportlibrary.bench.SerialBenchmark [模式...]
+ */
+public final class SerialBenchmark {
+
+    // 主端一次写入的最大字节数，多个小帧合并写入
+    private static final int WRITE_CHUNK = 4096;
+    private static final long TIMEOUT_SECONDS = 120;
+
+    private final TrafficPattern pattern;
+    private final int frames;
+    private final int payloadSize;
+    private final int burstSize;
+    private final int burstGapMs;
+
+    public SerialBenchmark(TrafficPattern pattern, int frames, int payloadSize, int burstSize, int burstGapMs) {
+        if (payloadSize < TrafficPattern.TIMESTAMP_LENGTH) {
+            throw new IllegalArgumentException("payloadSize 不能小于 " + TrafficPattern.TIMESTAMP_LENGTH);
+        }
+        this.pattern = pattern;
+        this.frames = frames;
+        this.payloadSize = payloadSize;
+        this.burstSize = Math.max(1, burstSize);
+        this.burstGapMs = Math.max(0, burstGapMs);
+    }
+
+    /**
+     * 按系统属性中的参数创建
+     */
+    public static SerialBenchmark fromSystemProperties(TrafficPattern pattern) {
+        return new SerialBenchmark(pattern,
+                Integer.getInteger("serial.bench.frames", 200_000),
+                Integer.getInteger("serial.bench.payload", 64),
+                Integer.getInteger("serial.bench.burst", 64),
+                Integer.getInteger("serial.bench.gapMs", 1));
+    }
+
+    /**
+     * 运行一次基准
+     */
+    public Result run() throws Exception {
+        SerialPortLogUtil.setDebugEnabled(false);
+        Receiver receiver = new Receiver(pattern, frames, frames / 10);
+        SerialPortManager manager = new SerialPortManager(SerialPortEnum.SERIAL_ONE);
+        try (PtyPair pty = PtyPair.open()) {
+            manager.setSerialConfig(new SerialConfig.Builder().setBlockingRead(true).build());
+            manager.setStickPackageHelpers(Collections.singletonList(pattern.createHelper(payloadSize)));
+            manager.setOnSerialPortDataListener(receiver);
+            if (!manager.openSerialPort(pty.getSlavePath(), 115200)) {
+                throw new IllegalStateException("打开伪终端失败: " + pty.getSlavePath());
+            }
+            Thread writer = new Thread(() -> send(pty), "SerialBenchmarkWriter");
+            writer.start();
+            boolean completed = receiver.done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            writer.join();
+            return receiver.result(completed);
+        } finally {
+            manager.closeSerialPort();
+        }
+    }
+
+    private void send(PtyPair pty) {
+        int frameLength = pattern.frameLength(payloadSize);
+        byte[] chunk = new byte[Math.max(WRITE_CHUNK, frameLength)];
+        boolean bursty = pattern == TrafficPattern.BURSTY;
+        int length = 0;
+        try {
+            for (int i = 0; i < frames; i++) {
+                if (length + frameLength > chunk.length) {
+                    pty.write(chunk, 0, length);
+                    length = 0;
+                }
+                length += pattern.encode(chunk, length, payloadSize, System.nanoTime());
+                if (bursty && (i + 1) % burstSize == 0) {
+                    pty.write(chunk, 0, length);
+                    length = 0;
+                    Thread.sleep(burstGapMs);
+                }
+            }
+            if (length > 0) {
+                pty.write(chunk, 0, length);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 在读取线程中统计接收到的帧
+     */
+    private static final class Receiver implements OnSerialPortDataListener {
+
+        private final TrafficPattern pattern;
+        private final int expected;
+        private final int warmup;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private final com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        // 以下字段只在读取线程中写入，done之后读取
+        private int received;
+        private long bytes;
+        private long startTime;
+        private long endTime;
+        private long startAllocated;
+        private long endAllocated;
+
+        Receiver(TrafficPattern pattern, int expected, int warmup) {
+            this.pattern = pattern;
+            this.expected = expected;
+            this.warmup = warmup;
+        }
+
+        @Override
+        public void onDataReceived(byte[] bytes, SerialPortEnum serialPortEnum) {
+            long now = System.nanoTime();
+            received++;
+            if (received == warmup + 1) {
+                startTime = now;
+                startAllocated = threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+            if (received > warmup) {
+                latency.record(now - pattern.decodeTimestamp(bytes));
+                this.bytes += bytes.length;
+            }
+            if (received == expected) {
+                endTime = System.nanoTime();
+                endAllocated = threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+                done.countDown();
+            }
+        }
+
+        @Override
+        public void onDataSent(byte[] bytes, SerialPortEnum serialPortEnum) {
+        }
+
+        Result result(boolean completed) {
+            int measured = Math.max(0, received - warmup);
+            long elapsed = completed ? endTime - startTime : 0;
+            long allocated = completed ? endAllocated - startAllocated : 0;
+            return new Result(pattern, expected, received, measured, bytes, elapsed,
+                    latency.getValueAtPercentile(50), latency.getValueAtPercentile(99),
+                    measured > 0 ? (double) allocated / measured : 0);
+        }
+    }
+
+    /**
+     * 一次基准的结果
+     */
+    public static final class Result {
+        private final TrafficPattern pattern;
+        private final int expectedFrames;
+        private final int receivedFrames;
+        private final int measuredFrames;
+        private final long measuredBytes;
+        private final long elapsedNanos;
+        private final long p50Nanos;
+        private final long p99Nanos;
+        private final double allocatedBytesPerFrame;
+
+        Result(TrafficPattern pattern, int expectedFrames, int receivedFrames, int measuredFrames, long measuredBytes,
+               long elapsedNanos, long p50Nanos, long p99Nanos, double allocatedBytesPerFrame) {
+            this.pattern = pattern;
+            this.expectedFrames = expectedFrames;
+            this.receivedFrames = receivedFrames;
+            this.measuredFrames = measuredFrames;
+            this.measuredBytes = measuredBytes;
+            this.elapsedNanos = elapsedNanos;
+            this.p50Nanos = p50Nanos;
+            this.p99Nanos = p99Nanos;
+            this.allocatedBytesPerFrame = allocatedBytesPerFrame;
+        }
+
+        public TrafficPattern getPattern() {
+            return pattern;
+        }
+
+        public int getExpectedFrames() {
+            return expectedFrames;
+        }
+
+        public int getReceivedFrames() {
+            return receivedFrames;
+        }
+
+        public double getMegabytesPerSecond() {
+            return elapsedNanos > 0 ? measuredBytes * 1000.0 / elapsedNanos : 0;
+        }
+
+        public double getFramesPerSecond() {
+            return elapsedNanos > 0 ? measuredFrames * 1_000_000_000.0 / elapsedNanos : 0;
+        }
+
+        public long getP50Nanos() {
+            return p50Nanos;
+        }
+
+        public long getP99Nanos() {
+            return p99Nanos;
+        }
+
+        public double getAllocatedBytesPerFrame() {
+            return allocatedBytesPerFrame;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%-15s %8.2f MB/s %10.0f frames/s  p50 %8.1f us  p99 %8.1f us  %7.1f B/frame  (%d/%d)",
+                    pattern, getMegabytesPerSecond(), getFramesPerSecond(), p50Nanos / 1000.0, p99Nanos / 1000.0,
+                    allocatedBytesPerFrame, receivedFrames, expectedFrames);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        TrafficPattern[] patterns = args.length == 0 ? TrafficPattern.values() : new TrafficPattern[args.length];
+        for (int i = 0; i < args.length; i++) {
+            patterns[i] = TrafficPattern.valueOf(args[i].toUpperCase(Locale.US));
+        }
+        for (TrafficPattern pattern : patterns) {
+            System.out.println(fromSystemProperties(pattern).run());
+        }
+    }
+}
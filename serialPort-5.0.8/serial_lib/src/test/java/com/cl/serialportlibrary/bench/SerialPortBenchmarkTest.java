@@ -0,0 +1,49 @@
+package com.cl.serialportlibrary.bench;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+/**
+ * 伪终端回环基准，默认跳过
+ * 运行：./gradlew :serial_lib:testDebugUnitTest -PserialBench --tests '*SerialPortBenchmarkTest'
+ * 需要Linux主机和cc，结果输出到测试的标准输出
+ */
+public class SerialPortBenchmarkTest {
+
+    @Before
+    public void setUp() {
+        assumeTrue("未开启 -PserialBench", Boolean.getBoolean("serial.bench"));
+        assumeTrue("需要 /dev/ptmx", new File("/dev/ptmx").exists());
+    }
+
+    @Test
+    public void fixedLength() throws Exception {
+        run(TrafficPattern.FIXED);
+    }
+
+    @Test
+    public void delimited() throws Exception {
+        run(TrafficPattern.DELIMITED);
+    }
+
+    @Test
+    public void lengthPrefixed() throws Exception {
+        run(TrafficPattern.LENGTH_PREFIXED);
+    }
+
+    @Test
+    public void bursty() throws Exception {
+        run(TrafficPattern.BURSTY);
+    }
+
+    private void run(TrafficPattern pattern) throws Exception {
+        SerialBenchmark.Result result = SerialBenchmark.fromSystemProperties(pattern).run();
+        System.out.println(result);
+        assertEquals("丢帧或成帧错误", result.getExpectedFrames(), result.getReceivedFrames());
+    }
+}
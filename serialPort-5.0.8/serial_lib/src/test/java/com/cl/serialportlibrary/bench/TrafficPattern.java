@@ -0,0 +1,172 @@
+package com.cl.serialportlibrary.bench;
+
+import com.cl.serialportlibrary.stick.AbsStickPackageHelper;
+import com.cl.serialportlibrary.stick.SpecifiedStickPackageHelper;
+import com.cl.serialportlibrary.stick.StaticLenStickPackageHelper;
+import com.cl.serialportlibrary.stick.VariableLenStickPackageHelper;
+
+import java.nio.ByteOrder;
+
+/**
+ * 基准测试的数据模式与对应的粘包处理器
+ * 每帧在TIMESTAMP_OFFSET处带有16位十六进制的发送时间(System.nanoTime)，接收端据此计算端到端延迟
+ */
+public enum TrafficPattern {
+
+    /**
+     * 定长帧，StaticLenStickPackageHelper
+     */
+    FIXED {
+        @Override
+        public AbsStickPackageHelper createHelper(int payloadSize) {
+            return new StaticLenStickPackageHelper(payloadSize);
+        }
+
+        @Override
+        public int frameLength(int payloadSize) {
+            return payloadSize;
+        }
+
+        @Override
+        public int timestampOffset() {
+            return 0;
+        }
+
+        @Override
+        void writeFraming(byte[] out, int offset, int payloadSize) {
+        }
+    },
+
+    /**
+     * 以\r\n结尾的帧，SpecifiedStickPackageHelper
+     */
+    DELIMITED {
+        @Override
+        public AbsStickPackageHelper createHelper(int payloadSize) {
+            return new SpecifiedStickPackageHelper("\r\n");
+        }
+
+        @Override
+        public int frameLength(int payloadSize) {
+            return payloadSize + 2;
+        }
+
+        @Override
+        public int timestampOffset() {
+            return 0;
+        }
+
+        @Override
+        void writeFraming(byte[] out, int offset, int payloadSize) {
+            out[offset + payloadSize] = '\r';
+            out[offset + payloadSize + 1] = '\n';
+        }
+    },
+
+    /**
+     * 0xAA + 两字节大端长度 + 数据，VariableLenStickPackageHelper
+     */
+    LENGTH_PREFIXED {
+        @Override
+        public AbsStickPackageHelper createHelper(int payloadSize) {
+            return new VariableLenStickPackageHelper(ByteOrder.BIG_ENDIAN, 2, 1, 3);
+        }
+
+        @Override
+        public int frameLength(int payloadSize) {
+            return payloadSize + 3;
+        }
+
+        @Override
+        public int timestampOffset() {
+            return 3;
+        }
+
+        @Override
+        void writeFraming(byte[] out, int offset, int payloadSize) {
+            out[offset] = (byte) 0xAA;
+            out[offset + 1] = (byte) (payloadSize >> 8);
+            out[offset + 2] = (byte) payloadSize;
+        }
+    },
+
+    /**
+     * 与DELIMITED相同的帧，按突发发送：一次写入一批帧后空闲一段时间
+     */
+    BURSTY {
+        @Override
+        public AbsStickPackageHelper createHelper(int payloadSize) {
+            return DELIMITED.createHelper(payloadSize);
+        }
+
+        @Override
+        public int frameLength(int payloadSize) {
+            return DELIMITED.frameLength(payloadSize);
+        }
+
+        @Override
+        public int timestampOffset() {
+            return DELIMITED.timestampOffset();
+        }
+
+        @Override
+        void writeFraming(byte[] out, int offset, int payloadSize) {
+            DELIMITED.writeFraming(out, offset, payloadSize);
+        }
+    };
+
+    // 时间戳占用的字节数
+    public static final int TIMESTAMP_LENGTH = 16;
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+
+    /**
+     * 创建接收端使用的粘包处理器
+     */
+    public abstract AbsStickPackageHelper createHelper(int payloadSize);
+
+    /**
+     * 一帧在线路上的总长度
+     */
+    public abstract int frameLength(int payloadSize);
+
+    /**
+     * 接收到的帧中时间戳的位置
+     */
+    public abstract int timestampOffset();
+
+    /**
+     * 写入帧头、长度或帧尾
+     */
+    abstract void writeFraming(byte[] out, int offset, int payloadSize);
+
+    /**
+     * 编码一帧到out，数据部分为时间戳加填充字符
+     *
+     * @return 帧长度
+     */
+    public int encode(byte[] out, int offset, int payloadSize, long timestamp) {
+        int start = offset + timestampOffset();
+        for (int i = TIMESTAMP_LENGTH - 1; i >= 0; i--) {
+            out[start + i] = HEX[(int) (timestamp & 0xF)];
+            timestamp >>>= 4;
+        }
+        for (int i = TIMESTAMP_LENGTH; i < payloadSize; i++) {
+            out[start + i] = (byte) ('a' + i % 26);
+        }
+        writeFraming(out, offset, payloadSize);
+        return frameLength(payloadSize);
+    }
+
+    /**
+     * 从接收到的帧中解析发送时间，不分配对象
+     */
+    public long decodeTimestamp(byte[] frame) {
+        int start = timestampOffset();
+        long value = 0;
+        for (int i = 0; i < TIMESTAMP_LENGTH; i++) {
+            int c = frame[start + i];
+            value = (value << 4) | (c <= '9' ? c - '0' : c - 'a' + 10);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,98 @@
+package com.cl.serialportlibrary.stick;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.cl.serialportlibrary.enumerate.ChecksumType;
+import com.cl.serialportlibrary.utils.ChecksumUtil;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 包装非RingBufferStickPackageHelper的自定义处理器时，Reactor模式（fill + nextFrame）下的成帧与校验
+ */
+public class ChecksumStickPackageHelperTest {
+
+    private static final int FRAME_LEN = 4;
+
+    /**
+     * 自定义处理器：固定4字节一帧，数据不足时不读取
+     */
+    private static class FixedLenHelper implements AbsStickPackageHelper {
+        @Override
+        public byte[] execute(InputStream is) {
+            try {
+                if (is.available() < FRAME_LEN) {
+                    return null;
+                }
+                byte[] frame = new byte[FRAME_LEN];
+                int read = is.read(frame);
+                return read == FRAME_LEN ? frame : null;
+            } catch (IOException e) {
+                return null;
+            }
+        }
+    }
+
+    private static byte[] frame(int a, int b, int c) {
+        byte[] frame = {(byte) a, (byte) b, (byte) c, 0};
+        ChecksumUtil.append(ChecksumType.SUM8, frame, 0, 3);
+        return frame;
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        int len = 0;
+        for (byte[] part : parts) {
+            len += part.length;
+        }
+        byte[] out = new byte[len];
+        int off = 0;
+        for (byte[] part : parts) {
+            System.arraycopy(part, 0, out, off, part.length);
+            off += part.length;
+        }
+        return out;
+    }
+
+    private static void feed(ChecksumStickPackageHelper helper, byte[] data, int off, int len) throws IOException {
+        helper.fill(new ByteArrayInputStream(data, off, len));
+    }
+
+    @Test
+    public void customHelperFramesInReactorMode() throws IOException {
+        ChecksumStickPackageHelper helper = new ChecksumStickPackageHelper(new FixedLenHelper(), ChecksumType.SUM8);
+        byte[] first = frame(1, 2, 3);
+        byte[] second = frame(4, 5, 6);
+        byte[] data = concat(first, second);
+
+        feed(helper, data, 0, 6);
+        assertArrayEquals(first, helper.nextFrame());
+        // 第二帧只到达2字节，保留在缓冲区中
+        assertNull(helper.nextFrame());
+        assertEquals(true, helper.hasBufferedData());
+
+        feed(helper, data, 6, 2);
+        assertArrayEquals(second, helper.nextFrame());
+        assertNull(helper.nextFrame());
+        assertEquals(false, helper.hasBufferedData());
+    }
+
+    @Test
+    public void customHelperDropsBadFrame() throws IOException {
+        ChecksumStickPackageHelper helper = new ChecksumStickPackageHelper(new FixedLenHelper(), ChecksumType.SUM8);
+        byte[] bad = frame(1, 2, 3);
+        bad[3]++;
+        byte[] good = frame(7, 8, 9);
+        byte[] data = concat(bad, good);
+
+        feed(helper, data, 0, data.length);
+        assertArrayEquals(good, helper.nextFrame());
+        assertEquals(1, helper.getChecksumErrors());
+        assertNull(helper.nextFrame());
+    }
+}
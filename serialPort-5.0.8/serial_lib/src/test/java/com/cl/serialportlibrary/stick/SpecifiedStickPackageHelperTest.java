@@ -0,0 +1,101 @@
+package com.cl.serialportlibrary.stick;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * 开始/结束标识成帧：帧之前的噪声不能堆积到缓冲区溢出，也不能连带丢掉分多次到达的帧
+ */
+public class SpecifiedStickPackageHelperTest {
+
+    /**
+     * 按给定的分段返回数据，每次read()不跨越分段，模拟串口分多次到达
+     */
+    private static class ChunkedInputStream extends InputStream {
+        private final Deque<byte[]> chunks = new ArrayDeque<>();
+        private byte[] current;
+        private int offset;
+
+        ChunkedInputStream(byte[]... chunks) {
+            this.chunks.addAll(Arrays.asList(chunks));
+        }
+
+        @Override
+        public int read() {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == 1 ? one[0] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (current == null || offset == current.length) {
+                current = chunks.poll();
+                offset = 0;
+                if (current == null) {
+                    return -1;
+                }
+            }
+            int n = Math.min(len, current.length - offset);
+            System.arraycopy(current, offset, b, off, n);
+            offset += n;
+            return n;
+        }
+    }
+
+    private static byte[] noise(int len) {
+        byte[] noise = new byte[len];
+        Arrays.fill(noise, (byte) 'x');
+        return noise;
+    }
+
+    private static List<String> readAll(RingBufferStickPackageHelper helper, ChunkedInputStream is) throws Exception {
+        List<String> frames = new ArrayList<>();
+        while (true) {
+            byte[] frame = helper.execute(is);
+            if (frame != null) {
+                frames.add(new String(frame, "US-ASCII"));
+            } else if (is.chunks.isEmpty() && (is.current == null || is.offset == is.current.length)) {
+                // 数据已读完，取出缓冲区中剩余的帧
+                while ((frame = helper.nextFrame()) != null) {
+                    frames.add(new String(frame, "US-ASCII"));
+                }
+                return frames;
+            }
+        }
+    }
+
+    @Test
+    public void noiseBeforeHeadIsDiscardedWhileScanning() throws Exception {
+        SpecifiedStickPackageHelper helper = new SpecifiedStickPackageHelper("^", "$");
+        // 噪声加上帧的前半部分正好填满1MB缓冲区，未丢弃噪声时后半部分到达前缓冲区被整体清空
+        ChunkedInputStream is = new ChunkedInputStream(
+                noise(ByteRingBuffer.DEFAULT_MAX_CAPACITY - 3),
+                "^ab".getBytes("US-ASCII"),
+                "c$".getBytes("US-ASCII"));
+
+        assertEquals(Arrays.asList("^abc$"), readAll(helper, is));
+        assertEquals(false, helper.hasBufferedData());
+    }
+
+    @Test
+    public void partialHeadAcrossReadsIsKept() throws Exception {
+        SpecifiedStickPackageHelper helper = new SpecifiedStickPackageHelper("<<<", ">>");
+        // 多字节开始标识被拆开，噪声丢弃时必须保留可能构成开始标识的尾部字节
+        ChunkedInputStream is = new ChunkedInputStream(
+                "xx<x<<".getBytes("US-ASCII"),
+                "<da".getBytes("US-ASCII"),
+                "ta>".getBytes("US-ASCII"),
+                ">zz<<".getBytes("US-ASCII"),
+                "<1>>".getBytes("US-ASCII"));
+
+        assertEquals(Arrays.asList("<<<data>>", "<<<1>>"), readAll(helper, is));
+    }
+}
@@ -0,0 +1,170 @@
+package com.cl.serialportlibrary.thread;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.cl.serialportlibrary.capture.SerialCaptureWriter;
+import com.cl.serialportlibrary.enumerate.SerialPortEnum;
+import com.cl.serialportlibrary.stick.AbsStickPackageHelper;
+import com.cl.serialportlibrary.stick.SpecifiedStickPackageHelper;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 输入流是ReadableByteChannel（direct ByteBuffer模式的串口输入流）时，读取线程的粘包处理器直接读取到direct存储
+ */
+public class SerialPortReadThreadTest {
+
+    /**
+     * 按顺序返回数据块的通道，记录按数组和按ByteBuffer读取的次数
+     */
+    private static final class ChunkedChannelInput extends InputStream implements ReadableByteChannel {
+        private final ConcurrentLinkedQueue<byte[]> chunks = new ConcurrentLinkedQueue<>();
+        volatile int arrayReads;
+        volatile int channelReads;
+        volatile boolean heapBufferSeen;
+
+        ChunkedChannelInput(String... chunks) {
+            for (String chunk : chunks) {
+                this.chunks.add(chunk.getBytes(StandardCharsets.US_ASCII));
+            }
+        }
+
+        @Override
+        public int read() {
+            arrayReads++;
+            return -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            arrayReads++;
+            byte[] chunk = nextChunk();
+            if (chunk == null) {
+                return 0;
+            }
+            System.arraycopy(chunk, 0, b, off, chunk.length);
+            return chunk.length;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) {
+            channelReads++;
+            if (!dst.isDirect()) {
+                heapBufferSeen = true;
+            }
+            byte[] chunk = nextChunk();
+            if (chunk == null) {
+                return 0;
+            }
+            dst.put(chunk);
+            return chunk.length;
+        }
+
+        private byte[] nextChunk() {
+            byte[] chunk = chunks.poll();
+            if (chunk == null) {
+                // 模拟等待数据，避免读取线程空转
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return chunk;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+    }
+
+    private static List<String> readFrames(InputStream input, int count) throws InterruptedException {
+        final BlockingQueue<byte[]> frames = new ArrayBlockingQueue<>(16);
+        List<AbsStickPackageHelper> helpers = new ArrayList<>();
+        helpers.add(new SpecifiedStickPackageHelper("\n"));
+        SerialPortReadThread thread = new SerialPortReadThread(input, SerialPortEnum.SERIAL_ONE, helpers) {
+            @Override
+            public void onDataReceived(byte[] bytes) {
+                frames.add(bytes);
+            }
+        };
+        thread.start();
+        List<String> result = new ArrayList<>();
+        try {
+            for (int i = 0; i < count; i++) {
+                byte[] frame = frames.poll(2, TimeUnit.SECONDS);
+                if (frame == null) {
+                    break;
+                }
+                result.add(new String(frame, StandardCharsets.US_ASCII));
+            }
+        } finally {
+            thread.release();
+            thread.join(2000);
+        }
+        return result;
+    }
+
+    @Test
+    public void channelInputIsReadIntoDirectStorage() throws Exception {
+        ChunkedChannelInput input = new ChunkedChannelInput("ab\ncd", "e\nf", "g\n");
+        List<String> frames = readFrames(input, 3);
+        assertEquals(Arrays.asList("ab\n", "cde\n", "fg\n"), frames);
+        assertTrue(input.channelReads > 0);
+        assertEquals(0, input.arrayReads);
+        assertFalse(input.heapBufferSeen);
+    }
+
+    @Test
+    public void capturedChannelInputIsReadIntoDirectStorage() throws Exception {
+        File directory = Files.createTempDirectory("capture").toFile();
+        SerialCaptureWriter captureWriter = new SerialCaptureWriter(directory, "test");
+        try {
+            ChunkedChannelInput input = new ChunkedChannelInput("12\n3", "4\n");
+            List<String> frames = readFrames(captureWriter.wrapInput(input, 1), 2);
+            assertEquals(Arrays.asList("12\n", "34\n"), frames);
+            assertTrue(input.channelReads > 0);
+            assertEquals(0, input.arrayReads);
+            assertFalse(input.heapBufferSeen);
+        } finally {
+            captureWriter.close();
+        }
+    }
+
+    @Test
+    public void plainInputStreamStillReadsIntoArray() throws Exception {
+        final ChunkedChannelInput channel = new ChunkedChannelInput("x\ny\n");
+        // 只暴露InputStream接口
+        InputStream plain = new InputStream() {
+            @Override
+            public int read() {
+                return channel.read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                return channel.read(b, off, len);
+            }
+        };
+        List<String> frames = readFrames(plain, 2);
+        assertEquals(Arrays.asList("x\n", "y\n"), frames);
+        assertEquals(0, channel.channelReads);
+    }
+}